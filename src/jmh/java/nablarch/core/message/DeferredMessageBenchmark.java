@@ -0,0 +1,124 @@
+package nablarch.core.message;
+
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * バッチ処理で多数のメッセージを生成し、その一部のみをフォーマットする場合のコストを比較するベンチマーク。
+ * <p/>
+ * 1回の呼び出しで{@link #MESSAGE_COUNT}件のメッセージを生成し、そのうち{@link #formatRate}件に1件のみをフォーマットする
+ * (デバッグログを出力しない、リトライが成功して破棄されるなど)。
+ * {@link MessageUtil#createMessage(MessageLevel, String, Object...)}で生成する場合と、
+ * {@link MessageUtil#createDeferredMessage(MessageLevel, String, Object...)}で生成する場合を比較する。
+ * スコアはメッセージ1件あたりの時間。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=DeferredMessageBenchmark -Pjmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeferredMessageBenchmark {
+
+    /** 1回の呼び出しで生成するメッセージ数 */
+    private static final int MESSAGE_COUNT = 10000;
+
+    /** フォーマットする割合(この件数に1件をフォーマットする) */
+    @Param({"100", "1"})
+    public int formatRate;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** 生成するメッセージのID */
+    private String[] messageIds;
+
+    /** 生成したメッセージ(パイプラインに滞留するメッセージを想定して保持する) */
+    private final Message[] messages = new Message[MESSAGE_COUNT];
+
+    /** フォーマットする言語 */
+    private final Locale locale = Locale.JAPANESE;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(1000, 1);
+        messageIds = fixture.getShuffledIds(MESSAGE_COUNT);
+        final StringResourceHolder holder = fixture.newHolder(true);
+        SystemRepository.clear();
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                final Map<String, Object> objects = new HashMap<String, Object>();
+                objects.put("stringResourceHolder", holder);
+                return objects;
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SystemRepository.clear();
+        fixture.delete();
+    }
+
+    /**
+     * 文字列リソースを取得してメッセージを生成する(従来の方法)。
+     *
+     * @return フォーマットしたメッセージの長さの合計
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGE_COUNT)
+    public long eager() {
+        long length = 0;
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            messages[i] = MessageUtil.createMessage(MessageLevel.INFO, messageIds[i], "件数", i);
+            if (i % formatRate == 0) {
+                length += messages[i].formatMessage(locale).length();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 文字列リソースの取得とフォーマットを遅延するメッセージを生成する。
+     *
+     * @return フォーマットしたメッセージの長さの合計
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGE_COUNT)
+    public long deferred() {
+        long length = 0;
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            messages[i] = MessageUtil.createDeferredMessage(MessageLevel.INFO, messageIds[i], "件数", i);
+            if (i % formatRate == 0) {
+                length += messages[i].formatMessage(locale).length();
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,88 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最初のメッセージを取得するまでの時間(初回ロードの待ち時間)を計測するベンチマーク。
+ * <p/>
+ * {@link MessageFixture}で生成したプロパティファイルを対象に、メッセージ数とロケール数を変えて計測する。
+ * 1回の計測ごとにローダを生成し直すため、計測結果は1回の起動に相当する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FirstLoadBenchmark {
+
+    /** メッセージ数 */
+    @Param({"1000", "10000", "100000", "200000"})
+    public int messageCount;
+
+    /** デフォルト以外のロケール数 */
+    @Param({"1", "4"})
+    public int localeCount;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** 取得するメッセージID */
+    private String id;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(messageCount, localeCount);
+        id = fixture.getShuffledIds(1)[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.delete();
+    }
+
+    /**
+     * ローダを生成し、{@link PropertiesStringResourceLoader#getValue(Object)}で最初のメッセージを取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource loaderGetValue() {
+        return fixture.newLoader().getValue(id);
+    }
+
+    /**
+     * 必要になった時点でロードする設定で{@link StringResourceHolder}を生成し、最初のメッセージを取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource holderGetOnDemand() {
+        return fixture.newHolder(false).get(id);
+    }
+
+    /**
+     * 初期化時に全てのメッセージをロードする設定で{@link StringResourceHolder}を生成し、最初のメッセージを取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource holderGetLoadOnStartup() {
+        return fixture.newHolder(true).get(id);
+    }
+}
@@ -0,0 +1,140 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * クライアントに送信するJSON形式のメッセージを応答するスループットを計測するベンチマーク。
+ * <p/>
+ * リクエストごとに{@link PropertiesStringResourceLoader#loadAll()}を走査してシリアライズする場合と、
+ * {@link JsonMessageBundleCache}で生成済みのバイト列を書き込む場合、ETagが一致して変更されていない(304)と応答する場合を比較する。
+ * 応答先は、書き込まれたバイト数を数えるだけの出力ストリームとする。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=JsonBundleServeBenchmark -Pjmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBundleServeBenchmark {
+
+    /** メッセージ数 */
+    @Param({"1000", "10000"})
+    public int messageCount;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** ロード済みのローダ */
+    private PropertiesStringResourceLoader loader;
+
+    /** テスト対象のキャッシュ */
+    private JsonMessageBundleCache cache;
+
+    /** クライアントが保持しているETag */
+    private String clientETag;
+
+    /** 応答先 */
+    private final CountingOutputStream out = new CountingOutputStream();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(messageCount, 1);
+        loader = fixture.newLoader();
+        cache = new JsonMessageBundleCache();
+        cache.setLoader(loader);
+        clientETag = cache.get(Locale.ENGLISH).getETag();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.delete();
+    }
+
+    /**
+     * リクエストごとに全てのメッセージを走査してシリアライズし、応答する。
+     *
+     * @return 書き込んだバイト数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public long reserialize() throws IOException {
+        final StringBuilder json = new StringBuilder();
+        json.append('{');
+        boolean first = true;
+        for (StringResource resource : loader.loadAll()) {
+            if (!first) {
+                json.append(',');
+            }
+            JsonMessageBundleCache.appendString(json, resource.getId());
+            json.append(':');
+            JsonMessageBundleCache.appendString(json, resource.getValue(Locale.ENGLISH));
+            first = false;
+        }
+        json.append('}');
+        out.write(json.toString().getBytes(MessageBundleCompiler.UTF_8));
+        return out.count;
+    }
+
+    /**
+     * 生成済みのバイト列を応答する。
+     *
+     * @return 書き込んだバイト数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public long cached() throws IOException {
+        cache.get(Locale.ENGLISH).writeTo(out);
+        return out.count;
+    }
+
+    /**
+     * ETagが一致するため、変更されていない(304)と応答する。
+     *
+     * @return ETagが一致した場合はtrue
+     */
+    @Benchmark
+    public boolean notModified() {
+        return cache.get(Locale.ENGLISH).matches(clientETag);
+    }
+
+    /**
+     * 書き込まれたバイト数を数えるだけの出力ストリーム。
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        /** 書き込まれたバイト数 */
+        private long count;
+
+        @Override
+        public void write(final int b) {
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ロケールごとのプロパティファイルを、ロード時に全て読み込む場合と、必要になった時点で読み込む場合を比較するベンチマーク。
+ * <p/>
+ * 多数のロケールを配置し、デフォルトのロケール(ja)と英語のみを使用するサーバを想定して、
+ * ローダを生成してから両方のロケールの文字列を取得するまでの時間を計測する。
+ * ヒープへの影響は、{@link #main(String[])}でロード後に保持されるヒープを比較する。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=LazyLocaleLoadBenchmark
+ * java -cp (jmhのクラスパス) nablarch.core.message.LazyLocaleLoadBenchmark [メッセージ数] [ロケール数]
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class LazyLocaleLoadBenchmark {
+
+    /** デフォルト以外のロケール数 */
+    @Param({"1", "4", "7"})
+    public int localeCount;
+
+    /** ロケールごとのメッセージ数 */
+    @Param({"10000"})
+    public int messageCount;
+
+    /** ロケールごとのプロパティファイルを必要になった時点で読み込むか否か */
+    @Param({"false", "true"})
+    public boolean loadLocalesOnDemand;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** 取得するメッセージID */
+    private String id;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(messageCount, localeCount);
+        id = fixture.getShuffledIds(1)[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.delete();
+    }
+
+    /**
+     * ローダを生成し、デフォルトのロケールと英語の文字列を取得する。
+     *
+     * @return 取得した文字列
+     */
+    @Benchmark
+    public String serveTwoLocales() {
+        final PropertiesStringResourceLoader loader = fixture.newLoader();
+        loader.setLoadLocalesOnDemand(loadLocalesOnDemand);
+        final StringResource resource = loader.getValue(id);
+        return resource.getValue(Locale.JAPANESE) + resource.getValue(Locale.ENGLISH);
+    }
+
+    /**
+     * デフォルトのロケールと英語の文字列を取得した後に、ローダが保持するヒープを出力する。
+     *
+     * @param args メッセージ数(省略時は10000)、デフォルト以外のロケール数(省略時は7)
+     * @throws IOException フィクスチャの生成に失敗した場合
+     */
+    public static void main(String[] args) throws IOException {
+        final int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int localeCount = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        final MessageFixture fixture = MessageFixture.create(messageCount, localeCount);
+        try {
+            for (boolean onDemand : new boolean[] {false, true}) {
+                final PropertiesStringResourceLoader loader = fixture.newLoader();
+                loader.setLoadLocalesOnDemand(onDemand);
+                final StringResource resource = loader.getValue(fixture.getIds()[0]);
+                resource.getValue(Locale.JAPANESE);
+                resource.getValue(Locale.ENGLISH);
+                final GraphLayout layout = GraphLayout.parseInstance(loader.loadAll().toArray());
+                System.out.println("loadLocalesOnDemand = " + onDemand + ", loaded locales = " + loader.getLoadedLocales());
+                System.out.println("  retained : " + layout.totalSize() + " bytes, " + layout.totalCount() + " objects");
+            }
+        } finally {
+            fixture.delete();
+        }
+    }
+}
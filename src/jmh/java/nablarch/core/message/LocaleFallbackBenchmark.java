@@ -0,0 +1,103 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 要求されたロケールの文字列が存在しない場合の取得方法を比較するベンチマーク。
+ * <p/>
+ * 従来の方法(例外を捕捉してデフォルトのロケールで再取得)と、代替チェーンによる取得を比較する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocaleFallbackBenchmark {
+
+    /** 要求するロケール(文字列が存在しない) */
+    private static final Locale REQUESTED = Locale.TAIWAN;
+
+    /** デフォルトのロケール */
+    private static final Locale DEFAULT = Locale.JAPANESE;
+
+    /** 代替チェーンを持たない文字列リソース */
+    private StringResource withoutFallback;
+
+    /** 代替チェーンを持つ文字列リソース */
+    private BasicStringResource withFallback;
+
+    @Setup
+    public void setUp() {
+        final Map<String, String> formatMap = new HashMap<String, String>();
+        formatMap.put("ja", "{0}を入力してください。");
+        formatMap.put("en", "Please enter {0}.");
+        withoutFallback = new BasicStringResource("errors.required", formatMap);
+
+        final List<String> languages = Arrays.asList("ja", "en", "zh");
+        final LanguageTable languageTable = LanguageTable.of(languages, Arrays.asList("en", "ja"));
+        withFallback = new BasicStringResource("errors.required", languageTable,
+                new String[] {"{0}を入力してください。", "Please enter {0}.", null});
+    }
+
+    /**
+     * 従来の方法(例外を捕捉してデフォルトのロケールで再取得)。
+     *
+     * @return 取得した文字列
+     */
+    @Benchmark
+    public String throwAndCatch() {
+        try {
+            return withoutFallback.getValue(REQUESTED);
+        } catch (IllegalArgumentException e) {
+            return withoutFallback.getValue(DEFAULT);
+        }
+    }
+
+    /**
+     * 代替チェーンによる取得。
+     *
+     * @return 取得した文字列
+     */
+    @Benchmark
+    public String fallbackChain() {
+        return withFallback.getValue(REQUESTED);
+    }
+
+    /**
+     * 例外を送出しない取得メソッドで存在確認し、呼び出し元でデフォルトのロケールに代替する。
+     *
+     * @return 取得した文字列
+     */
+    @Benchmark
+    public String findValueThenDefault() {
+        final String value = ((BasicStringResource) withoutFallback).findValue(REQUESTED);
+        return value != null ? value : withoutFallback.getValue(DEFAULT);
+    }
+
+    /**
+     * 要求されたロケールの文字列が存在する場合(比較の基準)。
+     *
+     * @return 取得した文字列
+     */
+    @Benchmark
+    public String hit() {
+        return withFallback.getValue(DEFAULT);
+    }
+}
@@ -0,0 +1,112 @@
+package nablarch.core.message;
+
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 入力チェックの結果のように、1件のリクエストで多数のメッセージを生成する場合のコストを計測するベンチマーク。
+ * <p/>
+ * 1件ずつ生成する場合({@link MessageUtil#createMessage(MessageLevel, String, Object...)})と、
+ * まとめて生成する場合({@link MessageUtil#createMessages(MessageLevel, List, List)})を比較する。
+ * 1回の入力チェックで同じメッセージID(必須チェックなど)が繰り返し出現することを想定し、
+ * メッセージIDは、件数の半分の種類から固定の種で選んだものとする。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=MessageBatchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBatchBenchmark {
+
+    /** 1回に生成するメッセージ数 */
+    @Param({"10", "50", "100"})
+    public int batchSize;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** 生成するメッセージのメッセージID */
+    private List<String> messageIds;
+
+    /** 生成するメッセージのオプション引数 */
+    private List<Object[]> options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(10000, 1);
+        final StringResourceHolder holder = fixture.newHolder(true);
+        final String[] distinctIds = fixture.getShuffledIds(Math.max(1, batchSize / 2));
+        final Random random = new Random(batchSize);
+        messageIds = new ArrayList<String>(batchSize);
+        options = new ArrayList<Object[]>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            messageIds.add(distinctIds[random.nextInt(distinctIds.length)]);
+            options.add(new Object[] {"項目" + i, i});
+        }
+
+        SystemRepository.clear();
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                return Collections.<String, Object>singletonMap("stringResourceHolder", holder);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SystemRepository.clear();
+        fixture.delete();
+    }
+
+    /**
+     * {@link MessageUtil#createMessage(MessageLevel, String, Object...)}で1件ずつ生成する。
+     *
+     * @return 生成したメッセージ
+     */
+    @Benchmark
+    public List<Message> createMessageEach() {
+        final List<Message> messages = new ArrayList<Message>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            messages.add(MessageUtil.createMessage(MessageLevel.ERROR, messageIds.get(i), options.get(i)));
+        }
+        return messages;
+    }
+
+    /**
+     * {@link MessageUtil#createMessages(MessageLevel, List, List)}でまとめて生成する。
+     *
+     * @return 生成したメッセージ
+     */
+    @Benchmark
+    public List<Message> createMessages() {
+        return MessageUtil.createMessages(MessageLevel.ERROR, messageIds, options);
+    }
+}
@@ -0,0 +1,85 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * プロパティファイルから読み込む場合と、メッセージバンドルから読み込む場合の起動時間を比較するベンチマーク。
+ * <p/>
+ * {@link MessageFixture}で生成したプロパティファイルを対象に、ローダを生成してから、最初のメッセージを取得するまでの時間を計測する。
+ * ヒープへの影響は、{@code -prof gc}を指定して1回の起動あたりの割り当て量(gc.alloc.rate.norm)で比較する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class MessageBundleBenchmark {
+
+    /** ロケール数(デフォルトのロケールを除く) */
+    @Param({"3"})
+    public int localeCount;
+
+    /** ロケールごとのメッセージ数 */
+    @Param({"10000", "50000"})
+    public int messageCount;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** メッセージバンドルのパス */
+    private String bundleFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(messageCount, localeCount);
+        final File bundle = new File(fixture.getDirectory(), "messages.bundle");
+        final MessageBundleCompiler compiler = new MessageBundleCompiler();
+        compiler.setLoader(fixture.newLoader());
+        compiler.compile(bundle);
+        bundleFile = bundle.toURI().toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.delete();
+    }
+
+    /**
+     * プロパティファイルを読み込んでから、最初のメッセージを取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource properties() {
+        return fixture.newLoader().getValue("errors.fixture.category1.1");
+    }
+
+    /**
+     * メッセージバンドルを読み込んでから、最初のメッセージを取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource mappedBundle() {
+        final MappedStringResourceLoader loader = new MappedStringResourceLoader();
+        loader.setBundleFile(bundleFile);
+        return loader.getValue("errors.fixture.category1.1");
+    }
+}
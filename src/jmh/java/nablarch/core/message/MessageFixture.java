@@ -0,0 +1,235 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.BasicStaticDataCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * ベンチマーク用のメッセージのプロパティファイルを生成するクラス。
+ * <p/>
+ * 生成する内容はメッセージ数とロケール数のみで決まり、実行環境や実行ごとに変わらない。
+ * このため、ネットワークに接続できない環境でも同じ条件で計測を再現できる。
+ * <p/>
+ * メッセージIDは"errors.fixture.(カテゴリ).(連番)"の形式とし、50種類のカテゴリに分散させる。
+ * テンプレートは、埋め込み引数を含まないもの、1つ含むもの、2つ含むもの、引用符を含むものを順に割り当てる。
+ * デフォルトのロケールは"ja"とし、全てのロケールに全てのメッセージを定義する。
+ */
+public final class MessageFixture {
+
+    /** デフォルトのロケール */
+    public static final String DEFAULT_LOCALE = "ja";
+
+    /** デフォルト以外のロケールの候補 */
+    private static final String[] LOCALES = {"en", "zh", "de", "fr", "ko", "es", "it"};
+
+    /** カテゴリ数 */
+    private static final int CATEGORY_COUNT = 50;
+
+    /** アクセス順を生成する乱数の種 */
+    private static final long SEED = 20170401L;
+
+    /** プロパティファイルを生成したディレクトリ */
+    private final File directory;
+
+    /** メッセージID一覧(生成順) */
+    private final String[] ids;
+
+    /** デフォルト以外のロケール一覧 */
+    private final List<String> locales;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param directory プロパティファイルを生成したディレクトリ
+     * @param ids メッセージID一覧
+     * @param locales デフォルト以外のロケール一覧
+     */
+    private MessageFixture(File directory, String[] ids, List<String> locales) {
+        this.directory = directory;
+        this.ids = ids;
+        this.locales = locales;
+    }
+
+    /**
+     * 一時ディレクトリにプロパティファイルを生成する。
+     *
+     * @param messageCount メッセージ数
+     * @param localeCount デフォルト以外のロケール数(最大7)
+     * @return 生成したフィクスチャ
+     * @throws IOException 生成に失敗した場合
+     */
+    public static MessageFixture create(int messageCount, int localeCount) throws IOException {
+        if (localeCount > LOCALES.length) {
+            throw new IllegalArgumentException("localeCount must be " + LOCALES.length + " or less.");
+        }
+        final File directory = File.createTempFile("message-fixture", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("failed to create the directory. path = [" + directory + ']');
+        }
+        final String[] ids = new String[messageCount];
+        for (int i = 0; i < messageCount; i++) {
+            ids[i] = "errors.fixture.category" + (i % CATEGORY_COUNT) + '.' + i;
+        }
+        final List<String> locales = Collections.unmodifiableList(
+                new ArrayList<String>(Arrays.asList(LOCALES).subList(0, localeCount)));
+
+        write(new File(directory, "messages.properties"), DEFAULT_LOCALE, ids);
+        for (String locale : locales) {
+            write(new File(directory, "messages_" + locale + ".properties"), locale, ids);
+        }
+        return new MessageFixture(directory, ids, locales);
+    }
+
+    /**
+     * プロパティファイルを生成する。
+     *
+     * @param file ファイル
+     * @param locale ロケール
+     * @param ids メッセージID一覧
+     * @throws IOException 生成に失敗した場合
+     */
+    private static void write(File file, String locale, String[] ids) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write("# generated by MessageFixture (locale = " + locale + ")\n");
+            for (int i = 0; i < ids.length; i++) {
+                writer.write(ids[i]);
+                writer.write('=');
+                writer.write(template(locale, i));
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * 連番に対応するテンプレートを生成する。
+     *
+     * @param locale ロケール
+     * @param index 連番
+     * @return テンプレート
+     */
+    private static String template(String locale, int index) {
+        switch (index % 4) {
+            case 0:
+                return "入力内容を確認してください。(" + locale + ' ' + index + ')';
+            case 1:
+                return "{0}を入力してください。(" + locale + ' ' + index + ')';
+            case 2:
+                return "{0}は{1}文字以下で入力してください。(" + locale + ' ' + index + ')';
+            default:
+                return "''{0}''は不正な値です。(" + locale + ' ' + index + ')';
+        }
+    }
+
+    /**
+     * 生成したプロパティファイルを削除する。
+     */
+    public void delete() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * 生成したプロパティファイルを読み込むローダを生成する。
+     *
+     * @return ローダ
+     */
+    public PropertiesStringResourceLoader newLoader() {
+        final PropertiesStringResourceLoader loader = new PropertiesStringResourceLoader();
+        loader.setDirectory(directory.toURI().toString());
+        loader.setDefaultLocale(DEFAULT_LOCALE);
+        loader.setLocales(locales);
+        return loader;
+    }
+
+    /**
+     * 生成したプロパティファイルを読み込む{@link StringResourceHolder}を生成する。
+     *
+     * @param loadOnStartup 初期化時に全てのメッセージをロードする場合はtrue
+     * @return {@link StringResourceHolder}
+     */
+    public StringResourceHolder newHolder(boolean loadOnStartup) {
+        final BasicStaticDataCache<StringResource> cache = new BasicStaticDataCache<StringResource>();
+        cache.setLoader(newLoader());
+        cache.setLoadOnStartup(loadOnStartup);
+        cache.initialize();
+        final StringResourceHolder holder = new StringResourceHolder();
+        holder.setStringResourceCache(cache);
+        return holder;
+    }
+
+    /**
+     * プロパティファイルを生成したディレクトリを取得する。
+     *
+     * @return ディレクトリ
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * メッセージID一覧を取得する。
+     *
+     * @return メッセージID一覧(生成順)
+     */
+    public String[] getIds() {
+        return ids.clone();
+    }
+
+    /**
+     * メッセージIDをランダムな順に並べた一覧を取得する。
+     * <p/>
+     * 同じ種を使用するため、実行ごとに同じ順となる。
+     *
+     * @param length 一覧の長さ
+     * @return メッセージID一覧
+     */
+    public String[] getShuffledIds(int length) {
+        final Random random = new Random(SEED);
+        final String[] shuffled = new String[length];
+        for (int i = 0; i < length; i++) {
+            shuffled[i] = ids[random.nextInt(ids.length)];
+        }
+        return shuffled;
+    }
+
+    /**
+     * デフォルト以外のロケール一覧を取得する。
+     *
+     * @return ロケール一覧
+     */
+    public List<String> getLocales() {
+        return locales;
+    }
+
+    /**
+     * デフォルトのロケールを含む全てのロケールを取得する。
+     *
+     * @return ロケール一覧
+     */
+    public Locale[] getAllLocales() {
+        final Locale[] all = new Locale[locales.size() + 1];
+        all[0] = new Locale(DEFAULT_LOCALE);
+        for (int i = 0; i < locales.size(); i++) {
+            all[i + 1] = new Locale(locales.get(i));
+        }
+        return all;
+    }
+}
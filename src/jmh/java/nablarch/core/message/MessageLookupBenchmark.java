@@ -0,0 +1,113 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.BasicStaticDataCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StringResourceHolder}からメッセージを取得する際の、存在する場合と存在しない場合のコストを比較するベンチマーク。
+ * <p/>
+ * 存在しないメッセージIDは、否定キャッシュを使用する場合(negativeCacheSize=1000)と使用しない場合(0)で比較する。
+ * 項目ごとのメッセージを探してから共通のメッセージに代替するパターンは、
+ * 従来の方法(例外を捕捉して再取得)と{@link StringResourceHolder#getOrDefault(String, String)}を比較する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageLookupBenchmark {
+
+    /** 存在するメッセージID */
+    private static final String HIT = "default.key";
+
+    /** 存在しないメッセージID */
+    private static final String MISS = "default.key.userName";
+
+    /** 否定キャッシュの上限件数(0の場合は使用しない) */
+    @Param({"0", "1000"})
+    public int negativeCacheSize;
+
+    /** テスト対象 */
+    private StringResourceHolder holder;
+
+    @Setup
+    public void setUp() {
+        final BasicStaticDataCache<StringResource> cache = new BasicStaticDataCache<StringResource>();
+        cache.setLoader(new PropertiesStringResourceLoader());
+        cache.initialize();
+        holder = new StringResourceHolder();
+        holder.setStringResourceCache(cache);
+        holder.setNegativeCacheSize(negativeCacheSize);
+    }
+
+    /**
+     * 存在するメッセージIDを取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource hit() {
+        return holder.get(HIT);
+    }
+
+    /**
+     * 存在しないメッセージIDを{@link StringResourceHolder#get(String)}で取得し、例外を捕捉する。
+     *
+     * @return 例外
+     */
+    @Benchmark
+    public Object missWithException() {
+        try {
+            return holder.get(MISS);
+        } catch (MessageNotFoundException e) {
+            return e;
+        }
+    }
+
+    /**
+     * 存在しないメッセージIDを{@link StringResourceHolder#find(String)}で探す。
+     *
+     * @return null
+     */
+    @Benchmark
+    public StringResource missWithFind() {
+        return holder.find(MISS);
+    }
+
+    /**
+     * 従来の方法で、項目ごとのメッセージを探してから共通のメッセージに代替する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource probeThenFallbackWithException() {
+        try {
+            return holder.get(MISS);
+        } catch (MessageNotFoundException e) {
+            return holder.get(HIT);
+        }
+    }
+
+    /**
+     * {@link StringResourceHolder#getOrDefault(String, String)}で、項目ごとのメッセージを探してから共通のメッセージに代替する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource probeThenFallback() {
+        return holder.getOrDefault(MISS, HIT);
+    }
+}
@@ -0,0 +1,151 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MessageMetrics}を設定した場合と設定しない場合の、{@link StringResourceHolder}の取得のコストを比較するベンチマーク。
+ * <p/>
+ * 存在するメッセージIDの取得と、存在しないメッセージIDの探索(否定キャッシュに保持済み)を、
+ * シングルスレッドとマルチスレッド(4スレッド)で計測する。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=MessageMetricsBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageMetricsBenchmark {
+
+    /** 巡回するメッセージIDの数(2のべき乗) */
+    private static final int ACCESS_COUNT = 1024;
+
+    /** 計測の有無(disabled:設定しない、enabled:設定する) */
+    @Param({"disabled", "enabled"})
+    public String metrics;
+
+    /** サンプリング間隔 */
+    @Param({"64"})
+    public int sampleRate;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** テスト対象 */
+    private StringResourceHolder holder;
+
+    /** 巡回する存在するメッセージID */
+    private String[] ids;
+
+    /** 巡回する存在しないメッセージID */
+    private String[] missingIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(10000, 1);
+        holder = fixture.newHolder(true);
+        if ("enabled".equals(metrics)) {
+            final MessageMetrics messageMetrics = new MessageMetrics();
+            messageMetrics.setSampleRate(sampleRate);
+            holder.setMetrics(messageMetrics);
+        }
+        ids = fixture.getShuffledIds(ACCESS_COUNT);
+        missingIds = new String[ACCESS_COUNT];
+        for (int i = 0; i < ACCESS_COUNT; i++) {
+            missingIds[i] = ids[i] + ".missing";
+        }
+        holder.setNegativeCacheSize(ACCESS_COUNT * 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.delete();
+    }
+
+    /**
+     * スレッドごとの巡回位置。
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /** 巡回位置 */
+        private int index;
+
+        /**
+         * 次の位置を取得する。
+         *
+         * @return 位置
+         */
+        int next() {
+            return index++ & (ACCESS_COUNT - 1);
+        }
+    }
+
+    /**
+     * 存在するメッセージIDを取得する(シングルスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return 文字列リソース
+     */
+    @Benchmark
+    @Threads(1)
+    public StringResource hit(Cursor cursor) {
+        return holder.get(ids[cursor.next()]);
+    }
+
+    /**
+     * 存在するメッセージIDを取得する(マルチスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return 文字列リソース
+     */
+    @Benchmark
+    @Threads(4)
+    public StringResource hitMultiThread(Cursor cursor) {
+        return holder.get(ids[cursor.next()]);
+    }
+
+    /**
+     * 存在しないメッセージIDを探す(シングルスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return 文字列リソース(常にnull)
+     */
+    @Benchmark
+    @Threads(1)
+    public StringResource miss(Cursor cursor) {
+        return holder.find(missingIds[cursor.next()]);
+    }
+
+    /**
+     * 存在しないメッセージIDを探す(マルチスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return 文字列リソース(常にnull)
+     */
+    @Benchmark
+    @Threads(4)
+    public StringResource missMultiThread(Cursor cursor) {
+        return holder.find(missingIds[cursor.next()]);
+    }
+}
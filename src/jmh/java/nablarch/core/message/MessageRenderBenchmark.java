@@ -0,0 +1,112 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * フォーマットしたメッセージを応答先に書き込む場合の、処理時間と割り当て量を比較するベンチマーク。
+ * <p/>
+ * フォーマット結果の文字列を生成してから書き込む従来の方法と、
+ * {@link BasicStringResource#renderTo(Appendable, Locale, Object...)}で直接書き込む方法を比較する。
+ * 応答先は、再利用する{@link CharArrayWriter}と{@link CharBuffer}とする。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=MessageRenderBenchmark -Pjmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageRenderBenchmark {
+
+    /** フォーマット対象の文字列リソース */
+    private BasicStringResource resource;
+
+    /** 埋め込む引数 */
+    private Object[] options;
+
+    /** 再利用する応答先 */
+    private CharArrayWriter writer;
+
+    /** 再利用する応答先のバッファ */
+    private CharBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        final Map<String, String> formatMap = new HashMap<String, String>();
+        formatMap.put("ja", "{0}は{1}文字以下で入力してください。");
+        formatMap.put("en", "{0} must be {1} characters or less.");
+        resource = new BasicStringResource("errors.maxLength", formatMap);
+        options = new Object[] {"ユーザ名", "20"};
+        writer = new CharArrayWriter(256);
+        buffer = CharBuffer.allocate(256);
+    }
+
+    /**
+     * 従来の方法(フォーマット結果の文字列を生成してから書き込む)。
+     *
+     * @return 応答先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public CharArrayWriter formatThenWrite() throws IOException {
+        writer.reset();
+        writer.write(resource.format(Locale.JAPANESE, options));
+        return writer;
+    }
+
+    /**
+     * 応答先に直接書き込む。
+     *
+     * @return 応答先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public CharArrayWriter renderToWriter() throws IOException {
+        writer.reset();
+        return resource.renderTo(writer, Locale.JAPANESE, options);
+    }
+
+    /**
+     * 従来の方法で、応答先のバッファに書き込む。
+     *
+     * @return 応答先のバッファ
+     */
+    @Benchmark
+    public CharBuffer formatThenPut() {
+        buffer.clear();
+        return buffer.put(resource.format(Locale.JAPANESE, options));
+    }
+
+    /**
+     * 応答先のバッファに直接書き込む。
+     *
+     * @return 応答先のバッファ
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public CharBuffer renderToBuffer() throws IOException {
+        buffer.clear();
+        return resource.renderTo(buffer, Locale.JAPANESE, options);
+    }
+}
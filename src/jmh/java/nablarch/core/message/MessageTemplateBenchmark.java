@@ -0,0 +1,110 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事前解析済みテンプレートによるフォーマットと、{@link MessageFormat}によるフォーマットを比較するベンチマーク。
+ * <p/>
+ * 引数の埋め込み位置がない文字列は、ロード時に定数のテンプレートとした場合と比較する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageTemplateBenchmark {
+
+    /** フォーマット対象の文字列リソース */
+    private BasicStringResource resource;
+
+    /** ロード時に定数のテンプレートとした、引数の埋め込み位置がない文字列リソース */
+    private BasicStringResource label;
+
+    /** 埋め込む引数 */
+    private Object[] options;
+
+    /** 再利用する{@link StringBuilder} */
+    private StringBuilder sb;
+
+    @Setup
+    public void setUp() {
+        final Map<String, String> formatMap = new HashMap<String, String>();
+        formatMap.put("ja", "{0}は{1}文字以下で入力してください。");
+        formatMap.put("en", "{0} must be {1} characters or less.");
+        resource = new BasicStringResource("errors.maxLength", formatMap);
+        options = new Object[] {"ユーザ名", "20"};
+        final Map<String, String> labelMap = new HashMap<String, String>();
+        labelMap.put("ja", "ユーザ名");
+        labelMap.put("en", "User name");
+        label = new BasicStringResource("label.userName", labelMap);
+        label.foldConstants();
+        sb = new StringBuilder(64);
+    }
+
+    /**
+     * 従来の方法(取得したテンプレートを都度{@link MessageFormat}で解析してフォーマット)。
+     *
+     * @return フォーマット結果
+     */
+    @Benchmark
+    public String messageFormat() {
+        return new MessageFormat(resource.getValue(Locale.JAPANESE)).format(options);
+    }
+
+    /**
+     * 事前解析済みテンプレートでフォーマット。
+     *
+     * @return フォーマット結果
+     */
+    @Benchmark
+    public String compiledTemplate() {
+        return resource.format(Locale.JAPANESE, options);
+    }
+
+    /**
+     * 事前解析済みテンプレートで、再利用する{@link StringBuilder}にフォーマット。
+     *
+     * @return フォーマット結果を追加した{@link StringBuilder}
+     */
+    @Benchmark
+    public StringBuilder compiledTemplateReusedBuilder() {
+        sb.setLength(0);
+        return resource.formatTo(sb, Locale.JAPANESE, options);
+    }
+
+    /**
+     * 引数の埋め込み位置がない文字列を、従来の方法でフォーマット。
+     *
+     * @return フォーマット結果
+     */
+    @Benchmark
+    public String constantMessageFormat() {
+        return new MessageFormat(label.getValue(Locale.JAPANESE)).format(null);
+    }
+
+    /**
+     * 引数の埋め込み位置がない文字列を、定数のテンプレートでフォーマット。
+     *
+     * @return フォーマット結果
+     */
+    @Benchmark
+    public String constantTemplate() {
+        return label.format(Locale.JAPANESE);
+    }
+}
@@ -0,0 +1,98 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.BasicStaticDataCache;
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MessageUtil}が呼び出しごとに{@link SystemRepository}から{@link StringResourceHolder}を取得するコストを計測するベンチマーク。
+ * <p/>
+ * {@link MessageUtil}経由の取得と、{@link StringResourceHolder}を直接呼び出す取得(取得結果をキャッシュした場合の上限)を比較する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageUtilBenchmark {
+
+    /** 取得するメッセージID */
+    private static final String MESSAGE_ID = "default.key";
+
+    /** リポジトリに登録した{@link StringResourceHolder} */
+    private StringResourceHolder holder;
+
+    @Setup
+    public void setUp() {
+        final BasicStaticDataCache<StringResource> cache = new BasicStaticDataCache<StringResource>();
+        cache.setLoader(new PropertiesStringResourceLoader());
+        cache.initialize();
+        holder = new StringResourceHolder();
+        holder.setStringResourceCache(cache);
+
+        SystemRepository.clear();
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                final Map<String, Object> objects = new HashMap<String, Object>();
+                // 実運用に近づけるため、他のコンポーネントも登録しておく
+                for (int i = 0; i < 200; i++) {
+                    objects.put("component" + i, new Object());
+                }
+                objects.put("stringResourceHolder", holder);
+                return objects;
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        SystemRepository.clear();
+    }
+
+    /**
+     * {@link MessageUtil}経由で取得する(呼び出しごとにリポジトリを参照する)。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource messageUtil() {
+        return MessageUtil.getStringResource(MESSAGE_ID);
+    }
+
+    /**
+     * {@link StringResourceHolder}を直接呼び出して取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource directHolder() {
+        return holder.get(MESSAGE_ID);
+    }
+
+    /**
+     * リポジトリからの{@link StringResourceHolder}の取得のみ。
+     *
+     * @return {@link StringResourceHolder}
+     */
+    @Benchmark
+    public Object repositoryLookup() {
+        return SystemRepository.getObject("stringResourceHolder");
+    }
+}
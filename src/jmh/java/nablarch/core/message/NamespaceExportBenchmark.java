@@ -0,0 +1,133 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.BasicStaticDataCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 名前空間に属するメッセージを、1つの言語についてまとめて取り出す(クライアント側の入力チェック用に出力する)コストを計測するベンチマーク。
+ * <p/>
+ * {@link MessageFixture}で生成した5万件のメッセージを対象に、名前空間の区分数を3("errors.fixture.(カテゴリ)")として、
+ * 1つのカテゴリ(1000件)の英語の文字列を、メッセージIDをキーとしたmapに取り出す。
+ * {@link PropertiesStringResourceLoader#loadAll()}を走査する場合と、
+ * {@link PropertiesStringResourceLoader#getValues(String, Object)}と{@link BasicStaticDataCache#getValues(String, Object)}で
+ * 索引から取得する場合を比較する。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=NamespaceExportBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamespaceExportBenchmark {
+
+    /** 取り出す名前空間 */
+    private static final String NAMESPACE = "errors.fixture.category7";
+
+    /** メッセージ数 */
+    @Param({"50000"})
+    public int messageCount;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** ロード済みのローダ */
+    private PropertiesStringResourceLoader loader;
+
+    /** 初期化時に全てのメッセージと索引をロードしたキャッシュ */
+    private BasicStaticDataCache<StringResource> cache;
+
+    /** 英語の名前空間の索引名 */
+    private String indexName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(messageCount, 1);
+        loader = fixture.newLoader();
+        loader.setNamespaceDepth(3);
+        cache = new BasicStaticDataCache<StringResource>();
+        cache.setLoader(loader);
+        cache.setLoadOnStartup(true);
+        cache.initialize();
+        indexName = PropertiesStringResourceLoader.languageIndexName("en");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.delete();
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#loadAll()}を走査して取り出す。
+     *
+     * @return メッセージIDをキーとした文字列
+     */
+    @Benchmark
+    public Map<String, String> scanLoadAll() {
+        final String prefix = NAMESPACE + '.';
+        final Map<String, String> exported = new HashMap<String, String>();
+        for (StringResource resource : loader.loadAll()) {
+            if (resource.getId().startsWith(prefix)) {
+                exported.put(resource.getId(), resource.getValue(Locale.ENGLISH));
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValues(String, Object)}で索引から取り出す。
+     *
+     * @return メッセージIDをキーとした文字列
+     */
+    @Benchmark
+    public Map<String, String> loaderIndex() {
+        return export(loader.getValues(indexName, NAMESPACE));
+    }
+
+    /**
+     * {@link BasicStaticDataCache#getValues(String, Object)}で索引から取り出す。
+     *
+     * @return メッセージIDをキーとした文字列
+     */
+    @Benchmark
+    public Map<String, String> cacheIndex() {
+        return export(cache.getValues(indexName, NAMESPACE));
+    }
+
+    /**
+     * 文字列リソースの英語の文字列を、メッセージIDをキーとしたmapに取り出す。
+     *
+     * @param resources 文字列リソース一覧
+     * @return メッセージIDをキーとした文字列
+     */
+    private static Map<String, String> export(final List<StringResource> resources) {
+        final Map<String, String> exported = new HashMap<String, String>();
+        for (StringResource resource : resources) {
+            exported.put(resource.getId(), resource.getValue(Locale.ENGLISH));
+        }
+        return exported;
+    }
+}
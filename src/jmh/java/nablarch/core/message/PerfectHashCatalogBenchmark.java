@@ -0,0 +1,187 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ロード済みの文字列リソース一覧を{@link HashMap}で保持する場合と、{@link PerfectHashCatalog}で保持する場合を比較するベンチマーク。
+ * <p/>
+ * 取得({@code *Get}、{@code *GetMissing})は1回の取得あたりの時間(ナノ秒)、
+ * 構築({@code *Build})は全てのメッセージIDを格納するまでの時間(ミリ秒)を計測する。
+ * 取得するメッセージIDは、格納したものとは別のインスタンスを、固定の種で生成したランダムな順に巡回する。
+ * ヒープ使用量は{@link StringResourceFootprint}で計測する。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=PerfectHashCatalogBenchmark -Pjmh.args="-p messageCount=100000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerfectHashCatalogBenchmark {
+
+    /** 巡回するメッセージIDの数(2のべき乗) */
+    private static final int ACCESS_COUNT = 4096;
+
+    /** メッセージ数 */
+    @Param({"1000", "100000", "1000000"})
+    public int messageCount;
+
+    /** 格納する文字列リソース(ロード時と同様にメッセージIDの順は不定) */
+    private Map<String, StringResource> source;
+
+    /** {@link HashMap}で保持した文字列リソース一覧 */
+    private Map<String, StringResource> hashMap;
+
+    /** {@link PerfectHashCatalog}で保持した文字列リソース一覧 */
+    private Map<String, StringResource> catalog;
+
+    /** 巡回する、格納されているメッセージID */
+    private String[] ids;
+
+    /** 巡回する、格納されていないメッセージID */
+    private String[] missingIds;
+
+    /** 巡回位置 */
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final LanguageTable languageTable = LanguageTable.of(Arrays.asList("ja", "en"));
+        final List<String> allIds = new ArrayList<String>(messageCount);
+        source = new LinkedHashMap<String, StringResource>(messageCount * 4 / 3 + 1);
+        for (int i = 0; i < messageCount; i++) {
+            final String id = "errors.generated." + (i % 100) + ".item" + i;
+            allIds.add(id);
+            source.put(id, new BasicStringResource(id, languageTable, new String[] {"値" + i, "value" + i}));
+        }
+        hashMap = buildHashMap();
+        catalog = buildCatalog();
+
+        Collections.shuffle(allIds, new Random(1));
+        ids = new String[ACCESS_COUNT];
+        missingIds = new String[ACCESS_COUNT];
+        for (int i = 0; i < ACCESS_COUNT; i++) {
+            // アプリケーションのリテラルを想定し、格納したものとは別のインスタンスで取得する
+            ids[i] = new String(allIds.get(i % allIds.size()));
+            missingIds[i] = "errors.missing." + i;
+        }
+    }
+
+    /**
+     * 次の巡回位置を取得する。
+     *
+     * @return 巡回位置
+     */
+    private int next() {
+        return index++ & (ACCESS_COUNT - 1);
+    }
+
+    /**
+     * {@link HashMap}で保持した文字列リソース一覧を構築する。
+     *
+     * @return 文字列リソース一覧
+     */
+    private Map<String, StringResource> buildHashMap() {
+        final Map<String, StringResource> map = new HashMap<String, StringResource>(source.size() * 4 / 3 + 1);
+        map.putAll(source);
+        return map;
+    }
+
+    /**
+     * {@link PerfectHashCatalog}で保持した文字列リソース一覧を構築する。
+     *
+     * @return 文字列リソース一覧
+     */
+    private Map<String, StringResource> buildCatalog() {
+        final PerfectHashCatalog map = PerfectHashCatalog.layout(source.keySet());
+        map.putAll(source);
+        return map;
+    }
+
+    /**
+     * {@link HashMap}から、格納されているメッセージIDで取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource hashMapGet() {
+        return hashMap.get(ids[next()]);
+    }
+
+    /**
+     * {@link PerfectHashCatalog}から、格納されているメッセージIDで取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource catalogGet() {
+        return catalog.get(ids[next()]);
+    }
+
+    /**
+     * {@link HashMap}から、格納されていないメッセージIDで取得する。
+     *
+     * @return 文字列リソース(常にnull)
+     */
+    @Benchmark
+    public StringResource hashMapGetMissing() {
+        return hashMap.get(missingIds[next()]);
+    }
+
+    /**
+     * {@link PerfectHashCatalog}から、格納されていないメッセージIDで取得する。
+     *
+     * @return 文字列リソース(常にnull)
+     */
+    @Benchmark
+    public StringResource catalogGetMissing() {
+        return catalog.get(missingIds[next()]);
+    }
+
+    /**
+     * {@link HashMap}を構築する。
+     *
+     * @return 文字列リソース一覧
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<String, StringResource> hashMapBuild() {
+        return buildHashMap();
+    }
+
+    /**
+     * {@link PerfectHashCatalog}を構築する。
+     *
+     * @return 文字列リソース一覧
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<String, StringResource> catalogBuild() {
+        return buildCatalog();
+    }
+}
@@ -0,0 +1,104 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * プロパティファイルの読み込み方法を比較するベンチマーク。
+ * <p/>
+ * 従来の方法({@link Properties#load(java.io.Reader)}で読み込んでからメッセージ一覧に複製)と、
+ * {@link PropertiesParser}でメッセージ一覧に直接格納する方法を比較する。
+ * ファイルの入出力の影響を除くため、メモリ上の文字列から読み込む。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertiesParseBenchmark {
+
+    /** メッセージ数 */
+    @Param({"1000", "10000"})
+    public int messageCount;
+
+    /** プロパティファイルの内容 */
+    private String content;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("# generated messages\n");
+        for (int i = 0; i < messageCount; i++) {
+            builder.append("errors.generated.").append(i).append('=');
+            if (i % 10 == 0) {
+                // エスケープシーケンスと継続行を含むメッセージ
+                builder.append("\\u5165\\u529b\\u5024\\u304c\\u4e0d\\u6b63\\u3067\\u3059\\u3002 \\\n    {0}\n");
+            } else {
+                builder.append("{0}は").append(i).append("文字以下で入力してください。\n");
+            }
+        }
+        content = builder.toString();
+    }
+
+    /**
+     * 従来の方法({@link Properties}で読み込んでからメッセージ一覧に複製)。
+     *
+     * @return メッセージ一覧
+     * @throws IOException 読み込みに失敗した場合
+     */
+    @Benchmark
+    public Map<String, String[]> properties() throws IOException {
+        final Properties props = new Properties();
+        props.load(new StringReader(content));
+        final Map<String, String[]> messages = new HashMap<String, String[]>();
+        for (String name : props.stringPropertyNames()) {
+            String[] values = messages.get(name);
+            if (values == null) {
+                values = new String[1];
+                messages.put(name, values);
+            }
+            values[0] = props.getProperty(name);
+        }
+        return messages;
+    }
+
+    /**
+     * {@link PropertiesParser}でメッセージ一覧に直接格納する方法。
+     *
+     * @return メッセージ一覧
+     * @throws IOException 読み込みに失敗した場合
+     */
+    @Benchmark
+    public Map<String, String[]> parser() throws IOException {
+        final Map<String, String[]> messages = new HashMap<String, String[]>();
+        PropertiesParser.parse(new StringReader(content), new PropertiesParser.Handler() {
+            @Override
+            public void property(String key, String value) {
+                String[] values = messages.get(key);
+                if (values == null) {
+                    values = new String[1];
+                    messages.put(key, values);
+                }
+                values[0] = value;
+            }
+        });
+        return messages;
+    }
+}
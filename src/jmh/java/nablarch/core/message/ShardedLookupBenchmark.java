@@ -0,0 +1,107 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ShardedStringResourceLoader}で、接頭辞によりシャードを振り分けるコストを計測するベンチマーク。
+ * <p/>
+ * 接頭辞"errors."のシャードのみを設定した場合と、{@link MessageFixture}の50種類のカテゴリ("errors.fixture.(カテゴリ).")を
+ * それぞれ接頭辞としたシャードを設定した場合(共通部分の長い接頭辞が多数ある、振り分けのコストが大きい場合)を、
+ * ロード済みの{@link PropertiesStringResourceLoader}から直接取得する場合と比較する。
+ * 振り分けのコストのみを計測するため、全てのシャードに同じローダを設定する。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=ShardedLookupBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedLookupBenchmark {
+
+    /** 巡回するメッセージIDの数(2のべき乗) */
+    private static final int ACCESS_COUNT = 4096;
+
+    /** シャード数(1の場合は"errors."、50の場合はフィクスチャのカテゴリごと) */
+    @Param({"1", "50"})
+    public int shardCount;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** ロード済みのローダ */
+    private PropertiesStringResourceLoader loader;
+
+    /** シャードを設定したローダ */
+    private ShardedStringResourceLoader sharded;
+
+    /** 巡回するメッセージID */
+    private String[] ids;
+
+    /** 巡回位置 */
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(10000, 1);
+        loader = fixture.newLoader();
+        final Map<String, PropertiesStringResourceLoader> shards = new LinkedHashMap<String, PropertiesStringResourceLoader>();
+        if (shardCount == 1) {
+            shards.put("errors.", loader);
+        } else {
+            for (int i = 0; i < shardCount; i++) {
+                shards.put("errors.fixture.category" + i + '.', loader);
+            }
+        }
+        sharded = new ShardedStringResourceLoader();
+        sharded.setShards(shards);
+        ids = fixture.getShuffledIds(ACCESS_COUNT);
+        loader.loadAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.delete();
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}で直接取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource direct() {
+        return loader.getValue(ids[index++ & (ACCESS_COUNT - 1)]);
+    }
+
+    /**
+     * {@link ShardedStringResourceLoader#getValue(Object)}で、シャードを振り分けて取得する。
+     *
+     * @return 文字列リソース
+     */
+    @Benchmark
+    public StringResource sharded() {
+        return sharded.getValue(ids[index++ & (ACCESS_COUNT - 1)]);
+    }
+}
@@ -0,0 +1,71 @@
+package nablarch.core.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 起動時のプロパティファイルのロード時間を、逐次読み込みと並列読み込みで比較するベンチマーク。
+ * <p/>
+ * ロケール数とメッセージ数を変えたプロパティファイルを{@link MessageFixture}で生成し、
+ * ローダを生成してから全ての文字列リソースを取得するまでの時間を計測する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupLoadBenchmark {
+
+    /** ロケール数(デフォルトのロケールを除く) */
+    @Param({"1", "4", "7"})
+    public int localeCount;
+
+    /** ロケールごとのメッセージ数 */
+    @Param({"1000", "10000"})
+    public int messageCount;
+
+    /** プロパティファイルを読み込むスレッド数 */
+    @Param({"1", "4"})
+    public int loadThreads;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(messageCount, localeCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.delete();
+    }
+
+    /**
+     * ローダを生成し、全ての文字列リソースをロードする。
+     *
+     * @return ロードした文字列リソース一覧
+     */
+    @Benchmark
+    public List<StringResource> load() {
+        final PropertiesStringResourceLoader loader = fixture.newLoader();
+        loader.setLoadThreads(loadThreads);
+        return loader.loadAll();
+    }
+}
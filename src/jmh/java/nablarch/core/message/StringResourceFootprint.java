@@ -0,0 +1,90 @@
+package nablarch.core.message;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文字列リソースを保持するデータ構造のヒープ使用量を計測する。
+ * <p/>
+ * 従来の表現(メッセージごとに言語をキーとした{@link HashMap}を保持)と、
+ * 言語の序数をインデックスとした配列で保持する表現を、同一のメッセージ集合で比較する。
+ * また、メッセージIDと文字列リソースの対応表を{@link HashMap}で保持する場合と、
+ * {@link PerfectHashCatalog}で保持する場合を比較する(文字列リソース自体のサイズは差し引く)。
+ * <p/>
+ * 実行方法:
+ * <pre>
+ * java -cp (jmhのクラスパス) nablarch.core.message.StringResourceFootprint [メッセージ数] [言語数]
+ * </pre>
+ */
+public final class StringResourceFootprint {
+
+    /** 言語の候補 */
+    private static final String[] LANGUAGES = {"ja", "en", "zh", "de", "fr", "ko", "es", "it"};
+
+    /**
+     * 隠蔽コンストラクタ。
+     */
+    private StringResourceFootprint() {
+    }
+
+    /**
+     * 計測を実行する。
+     *
+     * @param args メッセージ数(省略時は20000)、言語数(省略時は4)
+     */
+    public static void main(String[] args) {
+        final int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final int languageCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        final List<String> languages = Arrays.asList(LANGUAGES).subList(0, languageCount);
+
+        // 比較対象の両方から同じ文字列インスタンスを参照させ、文字列自体のサイズを差し引けるようにする
+        final List<String> strings = new ArrayList<String>();
+        final Map<String, Map<String, String>> mapBased = new HashMap<String, Map<String, String>>();
+        final LanguageTable languageTable = LanguageTable.of(languages);
+        final Map<String, StringResource> arrayBased = new HashMap<String, StringResource>(messageCount * 4 / 3 + 1);
+        for (int i = 0; i < messageCount; i++) {
+            final String id = "errors.generated." + i;
+            strings.add(id);
+            final Map<String, String> formatMap = new HashMap<String, String>();
+            final String[] values = new String[languageTable.size()];
+            for (String language : languages) {
+                final String value = language + ": {0} is invalid. (" + i + ')';
+                strings.add(value);
+                formatMap.put(language, value);
+                values[languageTable.ordinalOf(language)] = value;
+            }
+            mapBased.put(id, formatMap);
+            arrayBased.put(id, new BasicStringResource(id, languageTable, values));
+        }
+
+        final GraphLayout stringLayout = GraphLayout.parseInstance(strings.toArray());
+        report("Map<String, String> per message", GraphLayout.parseInstance(mapBased), stringLayout);
+        report("String[] indexed by language ordinal", GraphLayout.parseInstance(arrayBased), stringLayout);
+
+        final PerfectHashCatalog catalog = PerfectHashCatalog.layout(arrayBased.keySet());
+        catalog.putAll(arrayBased);
+        final GraphLayout resourceLayout = GraphLayout.parseInstance(arrayBased.values().toArray()).add(stringLayout);
+        report("HashMap<String, StringResource>", GraphLayout.parseInstance(arrayBased), resourceLayout);
+        report("PerfectHashCatalog", GraphLayout.parseInstance(catalog), resourceLayout);
+    }
+
+    /**
+     * 計測結果を出力する。
+     *
+     * @param name 表現の名前
+     * @param layout 計測結果
+     * @param stringLayout メッセージIDと文字列の計測結果
+     */
+    private static void report(String name, GraphLayout layout, GraphLayout stringLayout) {
+        final GraphLayout structure = layout.subtract(stringLayout);
+        System.out.println(name);
+        System.out.println("  total     : " + layout.totalSize() + " bytes, " + layout.totalCount() + " objects");
+        System.out.println("  structure : " + structure.totalSize() + " bytes, " + structure.totalCount() + " objects");
+        System.out.println(structure.toFootprint());
+    }
+}
@@ -0,0 +1,220 @@
+package nablarch.core.message;
+
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ロード済みのメッセージを取得する際のコストを計測するベンチマーク。
+ * <p/>
+ * {@link MessageFixture}で生成したプロパティファイルを対象に、メッセージ数とロケール数を変えて、
+ * 各層({@link MessageUtil}、{@link StringResourceHolder}、{@link PropertiesStringResourceLoader}、{@link BasicStringResource})
+ * の取得とフォーマットを、シングルスレッドとマルチスレッド(4スレッド)で計測する。
+ * 取得するメッセージIDは、固定の種で生成したランダムな順に巡回する。
+ * <p/>
+ * 実行例:
+ * <pre>
+ * gradlew jmh -Pjmh.include=StringResourceLookupBenchmark -Pjmh.args="-p messageCount=1000,200000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringResourceLookupBenchmark {
+
+    /** 巡回するメッセージIDの数(2のべき乗) */
+    private static final int ACCESS_COUNT = 4096;
+
+    /** メッセージ数 */
+    @Param({"1000", "10000", "100000", "200000"})
+    public int messageCount;
+
+    /** デフォルト以外のロケール数 */
+    @Param({"1", "4"})
+    public int localeCount;
+
+    /** フィクスチャ */
+    private MessageFixture fixture;
+
+    /** 初期化時に全てのメッセージをロードした{@link StringResourceHolder} */
+    private StringResourceHolder holder;
+
+    /** ロード済みのローダ */
+    private PropertiesStringResourceLoader loader;
+
+    /** 巡回するメッセージID */
+    private String[] ids;
+
+    /** 巡回するメッセージIDに対応する文字列リソース */
+    private StringResource[] resources;
+
+    /** 巡回するロケール */
+    private Locale[] locales;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = MessageFixture.create(messageCount, localeCount);
+        holder = fixture.newHolder(true);
+        loader = fixture.newLoader();
+        ids = fixture.getShuffledIds(ACCESS_COUNT);
+        resources = new StringResource[ACCESS_COUNT];
+        for (int i = 0; i < ACCESS_COUNT; i++) {
+            resources[i] = loader.getValue(ids[i]);
+        }
+        locales = fixture.getAllLocales();
+
+        SystemRepository.clear();
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                return Collections.<String, Object>singletonMap("stringResourceHolder", holder);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SystemRepository.clear();
+        fixture.delete();
+    }
+
+    /**
+     * スレッドごとの巡回位置。
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /** 巡回位置 */
+        private int index;
+
+        /**
+         * 次の位置を取得する。
+         *
+         * @return 位置
+         */
+        int next() {
+            return index++ & (ACCESS_COUNT - 1);
+        }
+    }
+
+    /**
+     * {@link StringResourceHolder#get(String)}で取得する(シングルスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return 文字列リソース
+     */
+    @Benchmark
+    @Threads(1)
+    public StringResource holderGet(Cursor cursor) {
+        return holder.get(ids[cursor.next()]);
+    }
+
+    /**
+     * {@link StringResourceHolder#get(String)}で取得する(マルチスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return 文字列リソース
+     */
+    @Benchmark
+    @Threads(4)
+    public StringResource holderGetMultiThread(Cursor cursor) {
+        return holder.get(ids[cursor.next()]);
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}で取得する(シングルスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return 文字列リソース
+     */
+    @Benchmark
+    @Threads(1)
+    public StringResource loaderGetValue(Cursor cursor) {
+        return loader.getValue(ids[cursor.next()]);
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}で取得する(マルチスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return 文字列リソース
+     */
+    @Benchmark
+    @Threads(4)
+    public StringResource loaderGetValueMultiThread(Cursor cursor) {
+        return loader.getValue(ids[cursor.next()]);
+    }
+
+    /**
+     * {@link BasicStringResource#getValue(Locale)}で、ロケールを分散させて取得する。
+     *
+     * @param cursor 巡回位置
+     * @return 文字列
+     */
+    @Benchmark
+    @Threads(1)
+    public String resourceGetValueLocaleSpread(Cursor cursor) {
+        final int index = cursor.next();
+        return resources[index].getValue(locales[index % locales.length]);
+    }
+
+    /**
+     * {@link MessageUtil#createMessage(MessageLevel, String, Object...)}でメッセージを生成する(シングルスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return メッセージ
+     */
+    @Benchmark
+    @Threads(1)
+    public Message createMessage(Cursor cursor) {
+        return MessageUtil.createMessage(MessageLevel.ERROR, ids[cursor.next()], "ユーザ名", 20);
+    }
+
+    /**
+     * {@link MessageUtil#createMessage(MessageLevel, String, Object...)}でメッセージを生成する(マルチスレッド)。
+     *
+     * @param cursor 巡回位置
+     * @return メッセージ
+     */
+    @Benchmark
+    @Threads(4)
+    public Message createMessageMultiThread(Cursor cursor) {
+        return MessageUtil.createMessage(MessageLevel.ERROR, ids[cursor.next()], "ユーザ名", 20);
+    }
+
+    /**
+     * メッセージを生成し、ロケールを分散させてフォーマットする。
+     *
+     * @param cursor 巡回位置
+     * @return フォーマット結果
+     */
+    @Benchmark
+    @Threads(1)
+    public String createAndFormatMessage(Cursor cursor) {
+        final int index = cursor.next();
+        return MessageUtil.createMessage(MessageLevel.ERROR, ids[index], "ユーザ名", 20)
+                .formatMessage(locales[index % locales.length]);
+    }
+}
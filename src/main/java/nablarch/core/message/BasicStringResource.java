@@ -1,7 +1,9 @@
 package nablarch.core.message;
 
+import java.io.IOException;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * StringResourceの基本実装クラス。
@@ -16,9 +18,33 @@ public class BasicStringResource implements StringResource {
      */
     private String id;
     /**
-     * 言語をキーとした文字列のmap。
+     * ロケールと配列上の位置の対応表。
      */
-    private Map<String, String> formatMap;
+    private LanguageTable languages;
+    /**
+     * ロケールの序数をインデックスとした文字列の配列。
+     */
+    private String[] values;
+    /**
+     * 言語の序数をインデックスとした事前解析済みテンプレートの配列。
+     * <p/>
+     * フォーマットされないリソースのメモリを節約するため、初回のフォーマット時に配列を生成し、言語ごとに解析して保持する。
+     * ただし、ローダがシングルクォートのエスケープのみを含む言語を定数のテンプレートとした場合は、ロード時に配列を生成する。
+     * {@link MessageTemplate}は不変オブジェクトのため、要素は同期せずに設定しても安全に参照できる。
+     */
+    private volatile MessageTemplate[] templates;
+    /**
+     * 文字列をそのまま定数として使用できる言語の序数のビット集合(序数が{@link Integer#SIZE}未満の言語のみ)。
+     * <p/>
+     * シングルクォートと波括弧を含まない文字列は、テンプレートを生成せずに文字列をそのままフォーマット結果とする。
+     * ローダがロード時または言語の読み込み時に、公開する前に設定する。
+     * 同時に設定した場合にビットが失われても、フォーマット時に解析するだけで結果は変わらないため、同期しない。
+     */
+    private int plainConstants;
+    /**
+     * ロケールのプロパティファイルを必要になった時点で読み込むローダ(全てのロケールを読み込み済みの場合はnull)。
+     */
+    private LazyLocaleLoader lazyLocales;
 
     /**
      * コンストラクタ。
@@ -28,7 +54,37 @@ public class BasicStringResource implements StringResource {
      */
     public BasicStringResource(String id, Map<String, String> formatMap) {
         this.id = id;
-        this.formatMap = formatMap;
+        this.languages = LanguageTable.shared(formatMap.keySet());
+        this.values = new String[languages.size()];
+        for (Entry<String, String> entry : formatMap.entrySet()) {
+            values[languages.ordinalOf(LanguageTable.toKey(entry.getKey()))] = entry.getValue();
+        }
+    }
+
+    /**
+     * ローダで共有する言語の対応表を指定してオブジェクトを生成する。
+     *
+     * @param id メッセージID
+     * @param languages 言語と配列上の位置の対応表
+     * @param values 言語の序数をインデックスとした文字列の配列(存在しない言語の要素はnull)
+     */
+    BasicStringResource(String id, LanguageTable languages, String[] values) {
+        this(id, languages, values, null);
+    }
+
+    /**
+     * ロケールの文字列を必要になった時点で読み込むローダを指定してオブジェクトを生成する。
+     *
+     * @param id メッセージID
+     * @param languages 言語と配列上の位置の対応表
+     * @param values 言語の序数をインデックスとした文字列の配列(存在しない言語と、読み込んでいない言語の要素はnull)
+     * @param lazyLocales 読み込んでいない言語の文字列を読み込むローダ(全ての言語を読み込み済みの場合はnull)
+     */
+    BasicStringResource(String id, LanguageTable languages, String[] values, LazyLocaleLoader lazyLocales) {
+        this.id = id;
+        this.languages = languages;
+        this.values = values;
+        this.lazyLocales = lazyLocales;
     }
 
     /**
@@ -40,13 +96,237 @@ public class BasicStringResource implements StringResource {
 
     /**
      * {@inheritDoc}
+     * <p/>
+     * 指定されたロケールの文字列が存在しない場合は、代替チェーンの順に文字列を探す。
+     *
+     * @throws IllegalArgumentException 代替チェーンのいずれのロケールにも文字列が存在しない場合
      */
     public String getValue(Locale locale) {
-        if (!formatMap.containsKey(locale.getLanguage())) {
+        return values[ordinalOf(locale)];
+    }
+
+    /**
+     * ロケールと配列上の位置の対応表を取得する。
+     *
+     * @return ロケールと配列上の位置の対応表
+     */
+    LanguageTable getLanguageTable() {
+        return languages;
+    }
+
+    /**
+     * 序数に対応するロケールの文字列を、代替チェーンをたどらずに取得する。
+     * <p/>
+     * ロケールのプロパティファイルを読み込んでいない場合は、読み込んでから取得する。
+     *
+     * @param ordinal ロケールの序数
+     * @return 文字列(存在しない場合はnull)
+     */
+    String getValueAt(int ordinal) {
+        if (lazyLocales != null) {
+            lazyLocales.ensureLoaded(ordinal);
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * 序数に対応するロケールの文字列を設定する。
+     * <p/>
+     * ロケールのプロパティファイルを読み込む{@link LazyLocaleLoader}のみが、読み込み完了を公開する前に呼び出す。
+     *
+     * @param ordinal ロケールの序数
+     * @param value 文字列
+     */
+    void setValueAt(int ordinal, String value) {
+        values[ordinal] = value;
+    }
+
+    /**
+     * 指定されたロケールの文字列を、例外を送出せずに取得する。
+     * <p/>
+     * 指定されたロケールの文字列が存在しない場合は、代替チェーンの順に文字列を探す。
+     *
+     * @param locale ロケール
+     * @return 文字列(代替チェーンのいずれのロケールにも文字列が存在しない場合はnull)
+     */
+    public String findValue(Locale locale) {
+        final int ordinal = resolve(locale);
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    /**
+     * 指定された言語のテンプレートに引数を埋め込んだ文字列を生成する。
+     * <p/>
+     * 結果は、{@link #getValue(Locale)}で取得したテンプレートを
+     * {@link java.text.MessageFormat}でフォーマットした結果と同一となる。
+     * <p/>
+     * 設定されたメッセージフォーマッタ(コンポーネント名"messageFormatter")は使用しない。
+     * このため、{@link Map}による名前付きの埋め込みや、{@link BasicMessageFormatter}以外のメッセージフォーマッタの設定は反映されず、
+     * {@link Message#formatMessage(Locale)}や{@link #renderTo(Appendable, Locale, Object...)}と結果が異なる場合がある。
+     * 設定されたメッセージフォーマッタを使用する場合は、{@link Message#formatMessage(Locale)}を使用すること。
+     *
+     * @param locale 言語
+     * @param options 埋め込む引数
+     * @return 生成した文字列
+     */
+    public String format(Locale locale, Object... options) {
+        final int ordinal = ordinalOf(locale);
+        return isPlainConstant(ordinal) ? values[ordinal] : getTemplate(ordinal).format(options);
+    }
+
+    /**
+     * 指定された言語のテンプレートに引数を埋め込んだ文字列を、指定された{@link StringBuilder}に追加する。
+     * <p/>
+     * {@link #format(Locale, Object...)}と同様に、設定されたメッセージフォーマッタは使用しない。
+     *
+     * @param sb 追加先
+     * @param locale 言語
+     * @param options 埋め込む引数
+     * @return 追加先の{@link StringBuilder}
+     * @see #format(Locale, Object...)
+     */
+    public StringBuilder formatTo(StringBuilder sb, Locale locale, Object... options) {
+        final int ordinal = ordinalOf(locale);
+        return isPlainConstant(ordinal) ? sb.append(values[ordinal]) : getTemplate(ordinal).formatTo(sb, options);
+    }
+
+    /**
+     * 指定された言語のテンプレートに引数を埋め込んだ文字列を、指定された{@link Appendable}に直接書き込む。
+     * <p/>
+     * テンプレートの固定文字列と引数を順に書き込み、テンプレート文字列の取得や埋め込み後の文字列の生成を行わない。
+     * JSPやJSONの出力で、レスポンスの{@link java.io.Writer}に直接書き込む場合に使用する。
+     * <p/>
+     * {@link BasicMessageFormatter}以外のメッセージフォーマッタが設定されている場合や、引数がnullの場合、
+     * 引数に{@link Map}、{@link Message}、{@link StringResource}を含む場合は、
+     * {@link Message#formatMessage(Locale)}と同じ結果となるよう、メッセージフォーマッタでフォーマットした文字列を書き込む。
+     *
+     * @param out 書き込み先
+     * @param locale 言語
+     * @param options 埋め込む引数
+     * @param <A> 書き込み先の型
+     * @return 書き込み先
+     * @throws IOException 書き込みに失敗した場合
+     * @see #format(Locale, Object...)
+     */
+    public <A extends Appendable> A renderTo(A out, Locale locale, Object... options) throws IOException {
+        if (MessageUtil.requiresMessageFormatter(options)) {
+            out.append(new Message(MessageLevel.INFO, this, options).formatMessage(locale));
+            return out;
+        }
+        final int ordinal = ordinalOf(locale);
+        if (isPlainConstant(ordinal)) {
+            out.append(values[ordinal]);
+            return out;
+        }
+        return getTemplate(ordinal).renderTo(out, options);
+    }
+
+    /**
+     * 読み込み済みの言語のうち、引数の埋め込み位置がない言語のテンプレートを、定数のテンプレートとして事前に設定する。
+     *
+     * @return 定数のテンプレートを設定した言語の数
+     * @see MessageTemplate#isConstant()
+     */
+    int foldConstants() {
+        int count = 0;
+        for (int ordinal = 0; ordinal < values.length; ordinal++) {
+            if (foldConstant(ordinal)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 序数に対応する言語の文字列に引数の埋め込み位置がない場合は、定数として事前に設定する。
+     * <p/>
+     * シングルクォートと波括弧を含まない文字列は、テンプレートを生成せずに定数とし、フォーマット時は文字列をそのまま返す。
+     * シングルクォートのエスケープのみを含む文字列は、エスケープを解除した定数のテンプレートを生成して設定する。
+     *
+     * @param ordinal ロケールの序数
+     * @return 定数として設定した場合はtrue
+     */
+    boolean foldConstant(int ordinal) {
+        final String value = values[ordinal];
+        if (value == null) {
+            return false;
+        }
+        if (ordinal < Integer.SIZE && MessageTemplate.isPlainLiteral(value)) {
+            plainConstants |= 1 << ordinal;
+            return true;
+        }
+        final MessageTemplate template = MessageTemplate.compileConstant(value);
+        if (template == null) {
+            return false;
+        }
+        MessageTemplate[] compiled = templates;
+        if (compiled == null) {
+            compiled = new MessageTemplate[values.length];
+            templates = compiled;
+        }
+        compiled[ordinal] = template;
+        return true;
+    }
+
+    /**
+     * 序数に対応する言語の文字列を、そのまま定数として使用できるか否か。
+     *
+     * @param ordinal ロケールの序数
+     * @return 定数として使用できる場合はtrue
+     */
+    private boolean isPlainConstant(int ordinal) {
+        return ordinal < Integer.SIZE && (plainConstants & (1 << ordinal)) != 0;
+    }
+
+    /**
+     * 序数に対応する言語の事前解析済みテンプレートを取得する。
+     *
+     * @param ordinal ロケールの序数
+     * @return 事前解析済みテンプレート
+     */
+    private MessageTemplate getTemplate(int ordinal) {
+        MessageTemplate[] compiled = templates;
+        if (compiled == null) {
+            compiled = new MessageTemplate[values.length];
+            templates = compiled;
+        }
+        MessageTemplate template = compiled[ordinal];
+        if (template == null) {
+            template = MessageTemplate.compile(values[ordinal]);
+            compiled[ordinal] = template;
+        }
+        return template;
+    }
+
+    /**
+     * ロケールに対応する序数を取得する。
+     *
+     * @param locale ロケール
+     * @return 序数
+     * @throws IllegalArgumentException ロケールに対応する文字列が存在しない場合
+     */
+    private int ordinalOf(Locale locale) {
+        final int ordinal = resolve(locale);
+        if (ordinal < 0) {
             throw new IllegalArgumentException("Lang was not supported. " 
                     + " message id = " + id
                     + " language = " + locale.getLanguage());
         }
-        return formatMap.get(locale.getLanguage());
+        return ordinal;
+    }
+
+    /**
+     * 代替チェーンの順に、文字列が存在するロケールの序数を探す。
+     *
+     * @param locale 要求されたロケール
+     * @return 序数(文字列が存在しない場合は-1)
+     */
+    private int resolve(Locale locale) {
+        for (int ordinal : languages.chainOf(locale)) {
+            if (getValueAt(ordinal) != null) {
+                return ordinal;
+            }
+        }
+        return -1;
     }
 }
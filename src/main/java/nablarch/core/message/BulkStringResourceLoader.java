@@ -0,0 +1,23 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.StaticDataLoader;
+
+import java.util.List;
+
+/**
+ * 複数のメッセージIDに対応する文字列リソースを、1回の問い合わせでまとめて取得できるローダ。
+ * <p/>
+ * データベースから取得するローダであれば、メッセージIDを{@code IN (...)}で指定した1回の検索で取得する。
+ * {@link CachingStringResourceLoader#prefetch(java.util.Collection, int)}で、
+ * 起動時に多数のメッセージIDを取得する場合の問い合わせ回数を削減するために使用する。
+ */
+public interface BulkStringResourceLoader extends StaticDataLoader<StringResource> {
+
+    /**
+     * メッセージIDに対応する文字列リソースを、まとめて取得する。
+     *
+     * @param messageIds メッセージID一覧
+     * @return 文字列リソース一覧(存在しないメッセージIDの文字列リソースは含まない。順序は問わない)
+     */
+    List<StringResource> loadValues(List<String> messageIds);
+}
@@ -0,0 +1,481 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.StaticDataCache;
+import nablarch.core.cache.StaticDataLoader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 他のローダ(データベースから取得する{@code BasicStringResourceLoader}など)から取得した文字列リソースを、
+ * 件数の上限と有効期間を設けて保持するクラス。
+ * <p/>
+ * メッセージIDごとに、最初に要求された時点でローダから取得し、以降は保持している文字列リソースを返す。
+ * ローダに存在しないメッセージID(ローダがnullを返したメッセージID)も保持するため、
+ * 存在しないメッセージIDが繰り返し要求されても、ローダからの取得は1度のみとなる。
+ * <p/>
+ * 同じメッセージIDの取得が同時に要求された場合は、最初に要求したスレッドのみがローダから取得し、他のスレッドは取得の完了を待機する。
+ * 取得に失敗した場合は例外を送出し、保持しない(次に要求された時点で再度取得する)。
+ * <p/>
+ * 有効期間({@link #setTimeToLive(long)})を設定した場合は、有効期間を過ぎた文字列リソースが要求された時点でローダから取得し直す。
+ * 取得し直している間に同じメッセージIDが要求された場合は、待機せずに有効期間を過ぎた文字列リソースを返す。
+ * <p/>
+ * 保持する件数が上限({@link #setMaxSize(int)})を超えた場合は、最近の参照回数が少ないものから、
+ * 参照回数が同じ場合は最後に参照された時点が古いものから、上限の1割を余分に破棄する。
+ * 参照回数は取得が要求されるたびに(保持していないメッセージIDも含めて)記録するため、1度しか要求されないメッセージIDによって、
+ * 繰り返し要求されるメッセージIDが破棄されることはない。
+ * <p/>
+ * 本クラスは{@link StaticDataCache}を実装するため、{@link StringResourceHolder}に直接設定して使用する。
+ * {@link nablarch.core.cache.BasicStaticDataCache}のローダとして設定した場合は、
+ * {@link nablarch.core.cache.BasicStaticDataCache}が件数や期間の上限なく保持するため、件数の上限と有効期間は機能しない。
+ * 索引による取得({@link #getValues(String, Object)})と全件の取得({@link #loadAll()})は保持せず、ローダに委譲する。
+ * <p/>
+ * 起動直後に要求されることがわかっているメッセージIDは、{@link #prefetch(Collection, int)}で事前に取得できる
+ * ({@link HotMessagePrefetcher}を参照)。
+ * <p/>
+ * 設定例:
+ * <pre>
+ * {@code
+ * <component name="stringResourceCache" class="nablarch.core.message.CachingStringResourceLoader">
+ *   <property name="loader">
+ *     <component class="nablarch.core.message.BasicStringResourceLoader">
+ *       <!-- 省略 -->
+ *     </component>
+ *   </property>
+ *   <property name="maxSize" value="10000"/>
+ *   <property name="timeToLive" value="600000"/>
+ * </component>
+ *
+ * <component name="stringResourceHolder" class="nablarch.core.message.StringResourceHolder">
+ *   <property name="stringResourceCache" ref="stringResourceCache"/>
+ * </component>
+ * }</pre>
+ * 本クラスはスレッドセーフである。
+ */
+public class CachingStringResourceLoader implements StaticDataLoader<StringResource>, StaticDataCache<StringResource> {
+
+    /** 保持している文字列リソースを破棄する順(参照回数の昇順、最後に参照された時点の昇順) */
+    private static final Comparator<Victim> EVICTION_ORDER = new Comparator<Victim>() {
+        @Override
+        public int compare(final Victim o1, final Victim o2) {
+            if (o1.frequency != o2.frequency) {
+                return o1.frequency < o2.frequency ? -1 : 1;
+            }
+            return o1.accessed < o2.accessed ? -1 : (o1.accessed == o2.accessed ? 0 : 1);
+        }
+    };
+
+    /** メッセージIDをキーとした、保持している文字列リソース */
+    private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<Object, Entry>();
+
+    /** メッセージIDをキーとした、実行中の取得 */
+    private final ConcurrentMap<Object, FutureTask<Entry>> loads = new ConcurrentHashMap<Object, FutureTask<Entry>>();
+
+    /** ローダから取得した回数 */
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * 保持している文字列リソースの世代(破棄するたびに加算する)。
+     * <p/>
+     * 破棄する前に開始した取得が、破棄した後に破棄前の文字列リソースを保持しないよう判定に使用する。
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /** 文字列リソースを取得するローダ */
+    private StaticDataLoader<StringResource> loader;
+
+    /** 保持する件数の上限 */
+    private int maxSize = 10000;
+
+    /** 有効期間(ナノ秒、0の場合は無期限) */
+    private long timeToLiveNanos;
+
+    /** メッセージIDごとの最近の参照回数 */
+    private FrequencySketch sketch = new FrequencySketch(maxSize);
+
+    /**
+     * メッセージIDに対応する文字列リソースを取得する。
+     * <p/>
+     * 保持していない場合、または有効期間を過ぎている場合は、ローダから取得する。
+     *
+     * @param key メッセージID
+     * @return 文字列リソース(ローダに存在しない場合はnull)
+     */
+    @Override
+    public StringResource getValue(final Object key) {
+        if (loader == null) {
+            throw new IllegalStateException("loader was not set. please set the StaticDataLoader.");
+        }
+        if (key == null) {
+            return loader.getValue(null);
+        }
+        sketch.increment(key);
+        final long now = System.nanoTime();
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            if (!isExpired(entry, now)) {
+                entry.accessed = now;
+                return entry.value;
+            }
+            if (loads.containsKey(key)) {
+                // 他のスレッドが取得し直しているため、待機せずに有効期間を過ぎたものを返す
+                return entry.value;
+            }
+        }
+        return load(key).value;
+    }
+
+    /**
+     * ローダから取得して保持する。同じメッセージIDを取得中の場合は、完了を待機する。
+     *
+     * @param key メッセージID
+     * @return 取得した文字列リソースのエントリ
+     */
+    private Entry load(final Object key) {
+        FutureTask<Entry> task = loads.get(key);
+        if (task == null) {
+            final FutureTask<Entry> created = new FutureTask<Entry>(new Callable<Entry>() {
+                @Override
+                public Entry call() {
+                    final Entry current = entries.get(key);
+                    if (current != null && !isExpired(current, System.nanoTime())) {
+                        // 確認してから取得を開始するまでの間に、他のスレッドが取得を完了している
+                        return current;
+                    }
+                    final int started = generation.get();
+                    loadCount.incrementAndGet();
+                    final Entry loaded = new Entry(loader.getValue(key), System.nanoTime());
+                    put(key, loaded, started);
+                    return loaded;
+                }
+            });
+            task = loads.putIfAbsent(key, created);
+            if (task == null) {
+                task = created;
+                try {
+                    created.run();
+                } finally {
+                    loads.remove(key, created);
+                }
+            }
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("failed to load the message. message id = [" + key + ']', e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while loading the message. message id = [" + key + ']', e);
+        }
+    }
+
+    /**
+     * メッセージIDに対応する文字列リソースを、まとめてローダから取得して保持する。
+     * <p/>
+     * 起動直後に要求されることがわかっているメッセージIDを、要求される前に取得するために使用する。
+     * 保持していて有効期間を過ぎていないメッセージIDは取得しない。
+     * ローダが{@link BulkStringResourceLoader}を実装している場合は、1回の問い合わせにつき最大で指定件数ずつ取得する。
+     * 実装していない場合は、メッセージIDごとに取得する。
+     * <p/>
+     * 保持する件数の上限を超えて指定した場合は、上限を超えた分は破棄される。
+     *
+     * @param messageIds メッセージID一覧
+     * @param batchSize 1回の問い合わせで取得するメッセージIDの上限件数
+     * @return 取得したメッセージIDの件数
+     * @throws IllegalArgumentException 1回の問い合わせで取得するメッセージIDの上限件数が1未満の場合
+     */
+    public int prefetch(final Collection<String> messageIds, final int batchSize) {
+        if (loader == null) {
+            throw new IllegalStateException("loader was not set. please set the StaticDataLoader.");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be 1 or more. batch size = [" + batchSize + ']');
+        }
+        final long now = System.nanoTime();
+        final List<String> targets = new ArrayList<String>();
+        for (String messageId : new LinkedHashSet<String>(messageIds)) {
+            final Entry entry = messageId == null ? null : entries.get(messageId);
+            if (messageId != null && (entry == null || isExpired(entry, now))) {
+                targets.add(messageId);
+            }
+        }
+        if (!(loader instanceof BulkStringResourceLoader)) {
+            for (String messageId : targets) {
+                sketch.increment(messageId);
+                load(messageId);
+            }
+            return targets.size();
+        }
+        final BulkStringResourceLoader bulkLoader = (BulkStringResourceLoader) loader;
+        for (int from = 0; from < targets.size(); from += batchSize) {
+            final List<String> batch = new ArrayList<String>(
+                    targets.subList(from, Math.min(targets.size(), from + batchSize)));
+            final int started = generation.get();
+            loadCount.incrementAndGet();
+            final Map<String, StringResource> loaded = new HashMap<String, StringResource>(batch.size() * 4 / 3 + 1);
+            for (StringResource resource : bulkLoader.loadValues(batch)) {
+                loaded.put(resource.getId(), resource);
+            }
+            final long loadedAt = System.nanoTime();
+            for (String messageId : batch) {
+                sketch.increment(messageId);
+                put(messageId, new Entry(loaded.get(messageId), loadedAt), started);
+            }
+        }
+        return targets.size();
+    }
+
+    /**
+     * 文字列リソースを保持する。保持する件数が上限を超えた場合は、破棄する。
+     * <p/>
+     * 取得を開始した後に{@link #refresh()}で破棄された場合は、破棄前の文字列リソースのため保持しない。
+     * 保持した後に破棄された場合も、保持したエントリを取り除く。
+     *
+     * @param key メッセージID
+     * @param entry 文字列リソースのエントリ
+     * @param started 取得を開始した時点の世代
+     */
+    private void put(final Object key, final Entry entry, final int started) {
+        if (started != generation.get()) {
+            return;
+        }
+        entries.put(key, entry);
+        if (started != generation.get()) {
+            entries.remove(key, entry);
+            return;
+        }
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * 保持する件数が上限を超えている場合は、最近の参照回数が少ないものから、上限の1割を余分に破棄する。
+     * <p/>
+     * 1度の走査でまとめて破棄するため、上限に達した状態で取得が続いても、走査は保持件数の1割の取得ごとに1回となる。
+     */
+    private synchronized void evict() {
+        final int overflow = entries.size() - maxSize;
+        if (overflow <= 0) {
+            return;
+        }
+        final List<Victim> victims = new ArrayList<Victim>(entries.size());
+        for (Map.Entry<Object, Entry> entry : entries.entrySet()) {
+            victims.add(new Victim(entry.getKey(), entry.getValue(), sketch.frequency(entry.getKey())));
+        }
+        Collections.sort(victims, EVICTION_ORDER);
+        final int count = Math.min(victims.size(), overflow + maxSize / 10);
+        for (int i = 0; i < count; i++) {
+            final Victim victim = victims.get(i);
+            entries.remove(victim.key, victim.entry);
+        }
+    }
+
+    /**
+     * エントリの有効期間を過ぎているか否かを判定する。
+     *
+     * @param entry エントリ
+     * @param now 現在時刻(ナノ秒)
+     * @return 有効期間を過ぎている場合はtrue
+     */
+    private boolean isExpired(final Entry entry, final long now) {
+        return timeToLiveNanos > 0 && now - entry.loadedAt >= timeToLiveNanos;
+    }
+
+    /**
+     * 索引名と索引のキーに対応する文字列リソースを、ローダから取得する。
+     * <p/>
+     * 取得した文字列リソースは保持しない。
+     *
+     * @param indexName 索引名
+     * @param key 索引のキー
+     * @return 文字列リソース一覧
+     */
+    @Override
+    public List<StringResource> getValues(final String indexName, final Object key) {
+        return loader.getValues(indexName, key);
+    }
+
+    /**
+     * 全ての文字列リソースを、ローダから取得する。
+     * <p/>
+     * 取得した文字列リソースは保持しない。
+     *
+     * @return 全ての文字列リソース
+     */
+    @Override
+    public List<StringResource> loadAll() {
+        return loader.loadAll();
+    }
+
+    @Override
+    public List<String> getIndexNames() {
+        return loader.getIndexNames();
+    }
+
+    @Override
+    public Object getId(final StringResource value) {
+        return loader.getId(value);
+    }
+
+    @Override
+    public Object generateIndexKey(final String indexName, final StringResource value) {
+        return loader.generateIndexKey(indexName, value);
+    }
+
+    /**
+     * 保持している文字列リソースを全て破棄する。
+     * <p/>
+     * 破棄した文字列リソースは、次に要求された時点でローダから取得する。
+     * 破棄する前に開始していた取得の結果は、取得を要求したスレッドには返すが、保持しない。
+     */
+    @Override
+    public void refresh() {
+        // 破棄より前に世代を進め、実行中の取得が破棄の前後に保持したエントリが残らないようにする
+        generation.incrementAndGet();
+        loads.clear();
+        entries.clear();
+    }
+
+    /**
+     * 保持している文字列リソースの件数を取得する。
+     *
+     * @return 保持している文字列リソースの件数
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * ローダから文字列リソースを取得した回数を取得する。
+     *
+     * @return ローダから取得した回数
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * 文字列リソースを取得するローダを設定する。
+     *
+     * @param loader 文字列リソースを取得するローダ
+     */
+    public void setLoader(final StaticDataLoader<StringResource> loader) {
+        this.loader = loader;
+        refresh();
+    }
+
+    /**
+     * 保持する件数の上限を設定する。
+     * <p/>
+     * デフォルトは10000。
+     *
+     * @param maxSize 保持する件数の上限
+     * @throws IllegalArgumentException 1未満の値が指定された場合
+     */
+    public void setMaxSize(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("max size must be 1 or more. max size = [" + maxSize + ']');
+        }
+        this.maxSize = maxSize;
+        this.sketch = new FrequencySketch(maxSize);
+    }
+
+    /**
+     * 有効期間(ミリ秒)を設定する。
+     * <p/>
+     * ローダから取得してから有効期間を過ぎた文字列リソースは、次に要求された時点でローダから取得し直す。
+     * デフォルトは0(無期限)。
+     *
+     * @param timeToLive 有効期間(ミリ秒、0の場合は無期限)
+     * @throws IllegalArgumentException 負の値が指定された場合
+     */
+    public void setTimeToLive(final long timeToLive) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("time to live must be 0 or more. time to live = [" + timeToLive + ']');
+        }
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+    }
+
+    /**
+     * 保持している文字列リソースのエントリ。
+     */
+    private static final class Entry {
+
+        /** 文字列リソース(ローダに存在しない場合はnull) */
+        private final StringResource value;
+
+        /** ローダから取得した時点(ナノ秒) */
+        private final long loadedAt;
+
+        /**
+         * 最後に参照された時点(ナノ秒)。
+         * 破棄する順の判定にのみ使用するため、複数スレッドから同時に更新した場合の取りこぼしは許容する。
+         */
+        private long accessed;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param value 文字列リソース
+         * @param loadedAt ローダから取得した時点(ナノ秒)
+         */
+        Entry(final StringResource value, final long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.accessed = loadedAt;
+        }
+    }
+
+    /**
+     * 破棄する候補。
+     */
+    private static final class Victim {
+
+        /** メッセージID */
+        private final Object key;
+
+        /** エントリ */
+        private final Entry entry;
+
+        /** 最近の参照回数 */
+        private final int frequency;
+
+        /** 最後に参照された時点(ナノ秒) */
+        private final long accessed;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param key メッセージID
+         * @param entry エントリ
+         * @param frequency 最近の参照回数
+         */
+        Victim(final Object key, final Entry entry, final int frequency) {
+            this.key = key;
+            this.entry = entry;
+            this.frequency = frequency;
+            this.accessed = entry.accessed;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package nablarch.core.message;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.util.annotation.Published;
+
+import java.util.Locale;
+
+/**
+ * 文字列リソースの取得とフォーマットを、最初にフォーマットされるまで遅延するメッセージ。
+ * <p/>
+ * 生成時はメッセージID、メッセージレベル、オプション引数の参照のみを保持し、文字列リソースは取得しない。
+ * {@link #formatMessage(Locale)}、{@link #formatMessage()}、{@link #toString()}が最初に呼び出された時点で、
+ * 呼び出したスレッドで文字列リソースを取得してフォーマットし、結果を言語ごとに保持する。
+ * デバッグログにのみ出力するメッセージや、リトライが成功すれば破棄されるメッセージなど、
+ * 生成したメッセージの多くがフォーマットされない場合に使用する。
+ * <p/>
+ * 文字列リソースを遅延して取得するため、メッセージIDに対応するメッセージが存在しない場合は、
+ * 生成時ではなくフォーマット時に{@link MessageNotFoundException}が送出される。
+ * オプション引数は参照のみを保持するため、フォーマットするまでに変更しないこと。
+ * 等価性はメッセージレベル、メッセージID、オプション引数で判定するため、文字列リソースは取得しない。
+ * ただし、{@link Message#equals(Object)}はクラスの一致も判定するため、同じ内容の{@link Message}とは等価とならない。
+ * <p/>
+ * {@link #formatMessage()}と{@link #toString()}は、呼び出したスレッドの{@link ThreadContext#getLanguage()}を使用する。
+ * 非同期処理など、生成したスレッドとは別のスレッドでフォーマットする場合は、{@link #formatMessage(Locale)}で言語を指定すること。
+ * <p/>
+ * 本クラスはスレッドセーフである。
+ * 複数のスレッドが同時に同じ言語でフォーマットした場合は、それぞれがフォーマットし、いずれか1つの結果を保持する。
+ *
+ * @see MessageUtil#createDeferredMessage(MessageLevel, String, Object...)
+ */
+@Published
+public class DeferredMessage extends Message {
+
+    /** フォーマット結果(最後にフォーマットした言語が先頭) */
+    private volatile Formatted formatted;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param level メッセージレベル
+     * @param messageId メッセージID
+     * @param options メッセージフォーマットに使用するオプション引数
+     */
+    DeferredMessage(MessageLevel level, String messageId, Object[] options) {
+        super(level, new DeferredStringResource(messageId), options);
+    }
+
+    /**
+     * 指定された言語でフォーマットしたメッセージを取得する。
+     * <p/>
+     * 同じ言語でフォーマット済みの場合は、保持している結果を返す。言語がnullの場合は保持しない。
+     *
+     * @param locale 言語
+     * @return フォーマットしたメッセージ
+     * @throws MessageNotFoundException メッセージIDに対応するメッセージが存在しなかった場合
+     */
+    @Override
+    public String formatMessage(Locale locale) {
+        if (locale == null) {
+            return super.formatMessage(null);
+        }
+        final Formatted head = formatted;
+        for (Formatted f = head; f != null; f = f.next) {
+            if (f.locale.equals(locale)) {
+                return f.message;
+            }
+        }
+        final String message = super.formatMessage(locale);
+        formatted = new Formatted(locale, message, head);
+        return message;
+    }
+
+    /**
+     * {@link ThreadContext#getLanguage()}の言語でフォーマットしたメッセージを取得する。
+     *
+     * @return フォーマットしたメッセージ
+     * @throws MessageNotFoundException メッセージIDに対応するメッセージが存在しなかった場合
+     * @see #formatMessage()
+     */
+    @Override
+    public String toString() {
+        return formatMessage();
+    }
+
+    /**
+     * 言語ごとのフォーマット結果。
+     * <p/>
+     * 1つのメッセージをフォーマットする言語は通常1つか2つのため、マップではなく連結リストで保持する。
+     */
+    private static final class Formatted {
+
+        /** 言語 */
+        private final Locale locale;
+
+        /** フォーマットしたメッセージ */
+        private final String message;
+
+        /** 他の言語のフォーマット結果 */
+        private final Formatted next;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param locale 言語
+         * @param message フォーマットしたメッセージ
+         * @param next 他の言語のフォーマット結果
+         */
+        Formatted(Locale locale, String message, Formatted next) {
+            this.locale = locale;
+            this.message = message;
+            this.next = next;
+        }
+    }
+
+    /**
+     * 最初に値を取得した時点で、{@link MessageUtil#getStringResource(String)}から文字列リソースを取得する文字列リソース。
+     * <p/>
+     * メッセージIDは取得せずに参照できるため、{@link Message#getMessageId()}や{@link Message#equals(Object)}では取得しない。
+     */
+    private static final class DeferredStringResource implements StringResource {
+
+        /** メッセージID */
+        private final String messageId;
+
+        /** 取得した文字列リソース(取得前はnull) */
+        private volatile StringResource resource;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param messageId メッセージID
+         */
+        DeferredStringResource(String messageId) {
+            this.messageId = messageId;
+        }
+
+        @Override
+        public String getId() {
+            return messageId;
+        }
+
+        @Override
+        public String getValue(Locale locale) {
+            StringResource r = resource;
+            if (r == null) {
+                r = MessageUtil.getStringResource(messageId);
+                resource = r;
+            }
+            return r.getValue(locale);
+        }
+    }
+}
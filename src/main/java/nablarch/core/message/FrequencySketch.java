@@ -0,0 +1,115 @@
+package nablarch.core.message;
+
+/**
+ * キーの最近の参照回数を、固定サイズのメモリで推定するクラス。
+ * <p/>
+ * 参照回数はCount-Min Sketchで推定し、各カウンタは15で飽和させる。
+ * 記録した回数がカウンタ数の10倍に達するたびに全てのカウンタを半分にするため、
+ * 過去に多く参照されたキーよりも、最近多く参照されたキーほど大きな値となる。
+ * <p/>
+ * 推定値として使用するため、複数スレッドから同時に記録した場合の取りこぼしは許容し、排他制御は行わない。
+ */
+final class FrequencySketch {
+
+    /** 行数(ハッシュ関数の数) */
+    private static final int DEPTH = 4;
+
+    /** カウンタの上限 */
+    private static final int MAX_COUNT = 15;
+
+    /** 回数の表 */
+    private final byte[] table;
+
+    /** 列数-1(列数は2のべき乗) */
+    private final int mask;
+
+    /** カウンタを半分にするまでの記録回数 */
+    private final int sampleSize;
+
+    /** 前回カウンタを半分にしてからの記録回数 */
+    private int additions;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param capacity 参照回数を区別したいキーの数(列数はこの値以上かつ256以上の2のべき乗となる)
+     */
+    FrequencySketch(final int capacity) {
+        int width = 256;
+        while (width < capacity && width < (1 << 24)) {
+            width <<= 1;
+        }
+        this.table = new byte[DEPTH * width];
+        this.mask = width - 1;
+        this.sampleSize = table.length * 10;
+    }
+
+    /**
+     * キーの参照を記録する。
+     *
+     * @param key キー
+     */
+    void increment(final Object key) {
+        final int h1 = spread(key.hashCode());
+        final int h2 = rehash(h1);
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            final int index = row * (mask + 1) + ((h1 + row * h2) & mask);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * キーの参照回数の推定値(各行の最小値)を取得する。
+     *
+     * @param key キー
+     * @return 参照回数の推定値(0から15)
+     */
+    int frequency(final Object key) {
+        final int h1 = spread(key.hashCode());
+        final int h2 = rehash(h1);
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, table[row * (mask + 1) + ((h1 + row * h2) & mask)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * 全てのカウンタを半分にする。
+     */
+    private void reset() {
+        additions = 0;
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) (table[i] >>> 1);
+        }
+    }
+
+    /**
+     * ハッシュ値の上位ビットを下位ビットに混ぜる。
+     *
+     * @param hash ハッシュ値
+     * @return 混ぜたハッシュ値
+     */
+    private static int spread(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 行ごとの列の増分に使用する、2つ目のハッシュ値を求める。
+     *
+     * @param h1 1つ目のハッシュ値
+     * @return 2つ目のハッシュ値(奇数)
+     */
+    private static int rehash(final int h1) {
+        final int h = h1 * 0x85EBCA6B;
+        return (h ^ (h >>> 13)) | 1;
+    }
+}
@@ -0,0 +1,169 @@
+package nablarch.core.message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 出現回数の多いキーを、固定サイズのメモリで推定するクラス。
+ * <p/>
+ * 出現回数はCount-Min Sketchで推定する(実際の回数以上の値となり、衝突によって多めに見積もる場合がある)。
+ * 上位のキーの候補は、報告件数の2倍まで保持する。
+ * 候補が上限に達している場合は、推定回数が候補の最小値を上回ったキーで、最小値の候補を置き換える。
+ * <p/>
+ * 候補の推定回数の更新はロックを取得せずに行い、候補の追加と置き換えのみロックを取得して行う。
+ * 同時に追加された場合も、候補の数は上限を超えない。
+ */
+final class HeavyHitters {
+
+    /** 行数(ハッシュ関数の数) */
+    private static final int DEPTH = 4;
+
+    /** 列数(2のべき乗) */
+    private static final int WIDTH = 2048;
+
+    /** 推定回数の降順に並べるComparator */
+    private static final Comparator<Map.Entry<String, Long>> BY_COUNT_DESC = new Comparator<Map.Entry<String, Long>>() {
+        @Override
+        public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+            return o2.getValue().compareTo(o1.getValue());
+        }
+    };
+
+    /** 回数の表 */
+    private final AtomicLongArray sketch = new AtomicLongArray(DEPTH * WIDTH);
+
+    /** 報告件数 */
+    private final int size;
+
+    /** 上位のキーの候補と推定回数 */
+    private final ConcurrentMap<String, Long> candidates = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * 候補に追加するために上回る必要がある推定回数(候補が上限に達していない場合は0)。
+     * <p/>
+     * 候補が上限に達した時点と置き換えた時点で、候補の推定回数の最小値に更新する。
+     * 候補の推定回数はロックを取得せずに増加するため、実際の最小値以下となる場合があるが、置き換えの判定はロックを取得して行う。
+     */
+    private volatile long minimum;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param size 報告件数
+     */
+    HeavyHitters(int size) {
+        this.size = size;
+    }
+
+    /**
+     * キーの出現を記録する。
+     *
+     * @param key キー
+     */
+    void add(String key) {
+        final long estimate = increment(key);
+        // 置き換えで取り除かれた候補を再度追加しないよう、候補に存在する場合のみ更新する
+        if (candidates.replace(key, estimate) == null && estimate > minimum) {
+            insert(key, estimate);
+        }
+    }
+
+    /**
+     * キーを候補に追加する。候補が上限に達している場合は、推定回数が最小の候補を置き換える。
+     *
+     * @param key キー
+     * @param estimate キーの推定回数
+     */
+    private synchronized void insert(String key, long estimate) {
+        if (candidates.containsKey(key)) {
+            candidates.put(key, estimate);
+            return;
+        }
+        if (candidates.size() < size * 2) {
+            candidates.put(key, estimate);
+            if (candidates.size() == size * 2) {
+                minimum = candidates.get(minKey());
+            }
+            return;
+        }
+        final String minKey = minKey();
+        if (minKey == null) {
+            return;
+        }
+        if (estimate > candidates.get(minKey)) {
+            candidates.remove(minKey);
+            candidates.put(key, estimate);
+        }
+        minimum = candidates.get(minKey());
+    }
+
+    /**
+     * 推定回数が最小の候補を取得する。
+     *
+     * @return 推定回数が最小の候補(候補がない場合はnull)
+     */
+    private String minKey() {
+        String minKey = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+            if (entry.getValue() < min) {
+                min = entry.getValue();
+                minKey = entry.getKey();
+            }
+        }
+        return minKey;
+    }
+
+    /**
+     * 全ての行でキーの回数を加算し、推定回数(各行の最小値)を取得する。
+     *
+     * @param key キー
+     * @return 推定回数
+     */
+    private long increment(String key) {
+        final int h1 = key.hashCode();
+        final int h2 = (h1 * 0x9E3779B9) ^ (h1 >>> 16) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            final int column = (h1 + row * h2) & (WIDTH - 1);
+            estimate = Math.min(estimate, sketch.incrementAndGet(row * WIDTH + column));
+        }
+        return estimate;
+    }
+
+    /**
+     * 推定回数の多いキーを取得する。
+     *
+     * @return キーと推定回数(推定回数の降順、最大で報告件数まで)
+     */
+    Map<String, Long> top() {
+        final List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(candidates.entrySet());
+        Collections.sort(entries, BY_COUNT_DESC);
+        final Map<String, Long> top = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, Long> entry : entries) {
+            if (top.size() >= size) {
+                break;
+            }
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    /**
+     * 記録を破棄する。
+     */
+    synchronized void reset() {
+        for (int i = 0; i < DEPTH * WIDTH; i++) {
+            sketch.set(i, 0L);
+        }
+        candidates.clear();
+        minimum = 0L;
+    }
+}
@@ -0,0 +1,333 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.StaticDataCache;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.repository.initialization.Initializable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 取得されたメッセージIDをファイルに保存し、次回の起動時にそのメッセージIDの文字列リソースを事前に取得するクラス。
+ * <p/>
+ * 文字列リソースを最初に要求された時点で取得するキャッシュ(データベースから取得する場合など)では、
+ * 起動直後は要求のたびにキャッシュに存在せず、ローダからの取得が集中する。
+ * 本クラスは、{@link MessageMetrics}が記録した、前回の保存以降に取得されたメッセージIDを、前回までに保存したメッセージIDに加えて、
+ * ノードのローカルファイルに保存する。
+ * 初期化時にはファイルに保存したメッセージIDを読み込み、要求を受け付ける前にキャッシュに取得する。
+ * <p/>
+ * キャッシュが{@link CachingStringResourceLoader}の場合は{@link CachingStringResourceLoader#prefetch(java.util.Collection, int)}で取得するため、
+ * ローダが{@link BulkStringResourceLoader}を実装していれば、指定件数ずつまとめて取得する。
+ * それ以外のキャッシュの場合は、メッセージIDごとに{@link StaticDataCache#getValue(Object)}で取得する。
+ * <p/>
+ * メッセージIDは、{@link #stop()}を呼び出した時点と、保存間隔({@link #setSaveInterval(long)})ごとに保存する。
+ * 保存するメッセージIDの上限件数は{@link #setMaxIdCount(int)}で設定し、
+ * {@link MessageMetrics#setTopIdCount(int)}(取得回数の多いメッセージIDの報告件数)とは独立して設定できる。
+ * 取得回数の多いメッセージID、前回の保存以降に取得されたメッセージID、前回までに保存したメッセージIDの順に保存し、
+ * 上限件数を超えた分は、前回までに保存したメッセージIDのうちファイルの末尾に近いものから破棄する。
+ * メッセージIDを記録していない(起動直後などの)場合は、前回保存したファイルを上書きしない。
+ * ファイルの読み込みや事前の取得に失敗した場合は、警告ログを出力して起動を継続する。
+ * <p/>
+ * 設定例:
+ * <pre>
+ * {@code
+ * <component name="hotMessagePrefetcher" class="nablarch.core.message.HotMessagePrefetcher">
+ *   <property name="filePath" value="/var/tmp/app/hot-message-ids.txt"/>
+ *   <property name="metrics" ref="messageMetrics"/>
+ *   <property name="stringResourceCache" ref="stringResourceCache"/>
+ *   <property name="saveInterval" value="600000"/>
+ * </component>
+ * }</pre>
+ * 初期化対象のリストに追加し、アプリケーションの停止時に{@link #stop()}を呼び出すこと。
+ */
+public class HotMessagePrefetcher implements Initializable {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(HotMessagePrefetcher.class);
+
+    /** ファイルの文字コード */
+    private static final String ENCODING = "UTF-8";
+
+    /** メッセージIDを保存するファイルのパス */
+    private String filePath;
+
+    /** 取得回数の多いメッセージIDを記録する{@link MessageMetrics} */
+    private MessageMetrics metrics;
+
+    /** 事前に取得する文字列リソースのキャッシュ */
+    private StaticDataCache<StringResource> stringResourceCache;
+
+    /** 1回の問い合わせで取得するメッセージIDの上限件数 */
+    private int batchSize = 100;
+
+    /** 保存するメッセージIDの上限件数 */
+    private int maxIdCount = 1000;
+
+    /** 保存間隔(ミリ秒、0の場合は{@link #stop()}の呼び出し時のみ保存する) */
+    private long saveInterval;
+
+    /** メッセージIDを定期的に保存するスレッド */
+    private ScheduledExecutorService executor;
+
+    /**
+     * ファイルに保存したメッセージIDの文字列リソースを事前に取得し、保存間隔が設定されている場合は定期的な保存を開始する。
+     *
+     * @throws IllegalStateException ファイルのパスまたはキャッシュが設定されていない場合
+     */
+    @Override
+    public synchronized void initialize() {
+        if (filePath == null) {
+            throw new IllegalStateException("file path was not set. please set the file path.");
+        }
+        if (stringResourceCache == null) {
+            throw new IllegalStateException("stringResourceCache was not set. please set the StaticDataCache.");
+        }
+        prefetch();
+        if (metrics != null) {
+            metrics.trackRecentIds(maxIdCount);
+        }
+        if (saveInterval <= 0 || metrics == null || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "hot-message-id-saver");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    save();
+                } catch (RuntimeException e) {
+                    LOGGER.logWarn("failed to save hot message ids. file path = [" + filePath + ']', e);
+                }
+            }
+        }, saveInterval, saveInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 定期的な保存を停止し、メッセージIDを保存する。
+     *
+     * @throws IllegalStateException 保存に失敗した場合
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (metrics != null) {
+            save();
+        }
+    }
+
+    /**
+     * ファイルに保存したメッセージIDの文字列リソースを、キャッシュに取得する。
+     * <p/>
+     * ファイルが存在しない場合は何もしない。
+     *
+     * @return 取得したメッセージIDの件数(失敗した場合は0)
+     */
+    public int prefetch() {
+        final File file = new File(filePath);
+        if (!file.exists()) {
+            return 0;
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            final List<String> messageIds = read(file);
+            final int count;
+            if (stringResourceCache instanceof CachingStringResourceLoader) {
+                count = ((CachingStringResourceLoader) stringResourceCache).prefetch(messageIds, batchSize);
+            } else {
+                for (String messageId : messageIds) {
+                    stringResourceCache.getValue(messageId);
+                }
+                count = messageIds.size();
+            }
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.logInfo("hot message resources were prefetched. count = [" + count
+                        + "], duration = [" + (System.currentTimeMillis() - start) + "ms]");
+            }
+            return count;
+        } catch (RuntimeException e) {
+            LOGGER.logWarn("failed to prefetch hot message resources. file path = [" + filePath + ']', e);
+            return 0;
+        }
+    }
+
+    /**
+     * {@link MessageMetrics}が記録したメッセージIDを、上限件数までファイルに保存する。
+     * <p/>
+     * 取得回数の多いメッセージIDを取得回数の降順に保存し、前回の保存以降に取得されたメッセージID、
+     * 前回までにファイルに保存したメッセージIDを続けて保存する。
+     * 定期的な保存で、前回の保存以降に取得されたメッセージIDのみにファイルが置き換わらないよう、保存済みのメッセージIDは上限件数まで残す。
+     * 一時ファイルに書き込んでから置き換えるため、保存中に停止しても前回保存したファイルは壊れない。
+     * 定期的な保存と{@link #stop()}の保存が同時に一時ファイルに書き込まないよう、同期化する。
+     * 記録したメッセージIDがない場合は保存しない。
+     *
+     * @return 保存したメッセージIDの件数
+     * @throws IllegalStateException {@link MessageMetrics}が設定されていない場合、または保存に失敗した場合
+     */
+    public synchronized int save() {
+        if (metrics == null) {
+            throw new IllegalStateException("metrics was not set. please set the MessageMetrics.");
+        }
+        final Set<String> messageIds = new LinkedHashSet<String>();
+        addAll(messageIds, metrics.getHotIdCounts().keySet());
+        addAll(messageIds, metrics.drainRecentIds());
+        if (messageIds.isEmpty()) {
+            return 0;
+        }
+        final File file = new File(filePath);
+        if (file.exists()) {
+            addAll(messageIds, read(file));
+        }
+        final File temporary = new File(filePath + ".tmp");
+        try {
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(temporary), ENCODING);
+            try {
+                for (String messageId : messageIds) {
+                    writer.write(messageId);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to save hot message ids. file path = [" + temporary + ']', e);
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            throw new IllegalStateException("failed to rename the file. file path = [" + temporary + ']');
+        }
+        return messageIds.size();
+    }
+
+    /**
+     * 上限件数に達するまで、メッセージIDを追加する。
+     *
+     * @param messageIds 追加先
+     * @param candidates 追加するメッセージID
+     */
+    private void addAll(final Set<String> messageIds, final Iterable<String> candidates) {
+        for (String messageId : candidates) {
+            if (messageIds.size() >= maxIdCount) {
+                return;
+            }
+            messageIds.add(messageId);
+        }
+    }
+
+    /**
+     * ファイルからメッセージIDを読み込む。
+     * <p/>
+     * 空行と、#で始まる行は無視する。
+     *
+     * @param file ファイル
+     * @return メッセージID一覧(ファイルに記載された順)
+     */
+    private static List<String> read(final File file) {
+        final List<String> messageIds = new ArrayList<String>();
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String messageId = line.trim();
+                    if (messageId.length() > 0 && messageId.charAt(0) != '#') {
+                        messageIds.add(messageId);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to read hot message ids. file path = [" + file + ']', e);
+        }
+        return messageIds;
+    }
+
+    /**
+     * メッセージIDを保存するファイルのパスを設定する。
+     *
+     * @param filePath メッセージIDを保存するファイルのパス
+     */
+    public void setFilePath(final String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * 取得回数の多いメッセージIDを記録する{@link MessageMetrics}を設定する。
+     * <p/>
+     * {@link StringResourceHolder}に設定したものを設定すること。設定しない場合は保存しない。
+     *
+     * @param metrics 取得回数の多いメッセージIDを記録する{@link MessageMetrics}
+     */
+    public void setMetrics(final MessageMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 事前に取得する文字列リソースのキャッシュを設定する。
+     * <p/>
+     * {@link StringResourceHolder}に設定したキャッシュを設定すること。
+     *
+     * @param stringResourceCache 文字列リソースのキャッシュ
+     */
+    public void setStringResourceCache(final StaticDataCache<StringResource> stringResourceCache) {
+        this.stringResourceCache = stringResourceCache;
+    }
+
+    /**
+     * 1回の問い合わせで取得するメッセージIDの上限件数を設定する。
+     * <p/>
+     * ローダが{@link BulkStringResourceLoader}を実装している場合のみ使用する。デフォルトは100件。
+     *
+     * @param batchSize 1回の問い合わせで取得するメッセージIDの上限件数
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 保存するメッセージIDの上限件数を設定する。
+     * <p/>
+     * 初期化時に、{@link MessageMetrics}に上限件数までのメッセージIDの記録を開始させる。
+     * 取得回数の多いメッセージIDの報告件数({@link MessageMetrics#setTopIdCount(int)})は変更しないため、
+     * 大きな値を設定しても取得時の競合は増えない。デフォルトは1000件。
+     *
+     * @param maxIdCount 保存するメッセージIDの上限件数
+     */
+    public void setMaxIdCount(final int maxIdCount) {
+        this.maxIdCount = maxIdCount;
+    }
+
+    /**
+     * メッセージIDを保存する間隔(ミリ秒)を設定する。
+     * <p/>
+     * デフォルトは0({@link #stop()}の呼び出し時のみ保存する)。
+     *
+     * @param saveInterval メッセージIDを保存する間隔(ミリ秒)
+     */
+    public void setSaveInterval(final long saveInterval) {
+        this.saveInterval = saveInterval;
+    }
+}
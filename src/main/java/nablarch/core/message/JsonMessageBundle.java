@@ -0,0 +1,146 @@
+package nablarch.core.message;
+
+import nablarch.core.util.annotation.Published;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * クライアント(ブラウザのアプリケーションなど)に送信する、JSON形式にシリアライズ済みのメッセージ。
+ * <p/>
+ * メッセージIDをキー、文字列を値としたJSONオブジェクトを、UTF-8でエンコードしたバイト列として保持する。
+ * バイト列の内容から求めたETagを保持するため、条件付きリクエスト(If-None-Match)に対して
+ * 変更されていない(304)ことを、バイト列を送信せずに判定できる。
+ * <p/>
+ * 本クラスは不変であり、複数スレッドから同時に参照できる。
+ *
+ * @see JsonMessageBundleCache
+ */
+@Published(tag = "architect")
+public final class JsonMessageBundle {
+
+    /** Content-Type */
+    public static final String CONTENT_TYPE = "application/json; charset=UTF-8";
+
+    /** JSON形式にシリアライズしたバイト列 */
+    private final byte[] content;
+
+    /** ETag(ダブルクォートを含む) */
+    private final String etag;
+
+    /** メッセージ数 */
+    private final int messageCount;
+
+    /** 生成元の文字列リソースの索引(再ロードされたか否かの判定に使用する) */
+    private final StringResourceIndex source;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param content JSON形式にシリアライズしたバイト列
+     * @param etag ETag
+     * @param messageCount メッセージ数
+     * @param source 生成元の文字列リソースの索引
+     */
+    JsonMessageBundle(final byte[] content, final String etag, final int messageCount,
+            final StringResourceIndex source) {
+        this.content = content;
+        this.etag = etag;
+        this.messageCount = messageCount;
+        this.source = source;
+    }
+
+    /**
+     * ETagを取得する。
+     * <p/>
+     * バイト列の内容から求めた強いETag(ダブルクォートで囲んだ値)を返す。
+     * 内容が同じであれば、再生成やサーバの再起動を経ても同じ値となる。
+     *
+     * @return ETag
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * If-None-Matchヘッダの値が、このバンドルのETagと一致するか否かを判定する。
+     * <p/>
+     * 一致する場合は、バイト列を送信せずに変更されていない(304)ことを応答できる。
+     * カンマ区切りの複数のETag、弱いETag(W/で始まる値)、"*"に対応する。
+     *
+     * @param ifNoneMatch If-None-Matchヘッダの値(ヘッダがない場合はnull)
+     * @return 一致する場合はtrue
+     */
+    public boolean matches(final String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        if (etag.equals(ifNoneMatch)) {
+            return true;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag)) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (etag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * JSON形式にシリアライズしたバイト列を、出力ストリームに書き込む。
+     * <p/>
+     * 保持しているバイト列をそのまま書き込み、複製やエンコードは行わない。
+     *
+     * @param out 出力ストリーム
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(content);
+    }
+
+    /**
+     * JSON形式にシリアライズしたバイト列を、読み取り専用のバッファとして取得する。
+     * <p/>
+     * 保持しているバイト列を複製せずに参照するため、チャネルに書き込む場合に使用する。
+     *
+     * @return 読み取り専用のバッファ
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(content).asReadOnlyBuffer();
+    }
+
+    /**
+     * バイト列の長さ(Content-Length)を取得する。
+     *
+     * @return バイト列の長さ
+     */
+    public int getContentLength() {
+        return content.length;
+    }
+
+    /**
+     * バンドルに含まれるメッセージ数を取得する。
+     *
+     * @return メッセージ数
+     */
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * 生成元の文字列リソースの索引を取得する。
+     *
+     * @return 生成元の文字列リソースの索引
+     */
+    StringResourceIndex getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,264 @@
+package nablarch.core.message;
+
+import nablarch.core.util.annotation.Published;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * クライアントに送信するJSON形式のメッセージ({@link JsonMessageBundle})を、ロケールと名前空間ごとに生成して保持するクラス。
+ * <p/>
+ * {@link PropertiesStringResourceLoader}がロードしたメッセージから、ロケールごと(名前空間を指定した場合は名前空間ごと)に
+ * 1度だけJSON形式のバイト列とETagを生成し、以降は生成結果を返す。
+ * ローダが再ロードされた場合は、次に取得した時点で再生成する。
+ * このため、リクエストごとにメッセージを走査してシリアライズする必要はなく、保持しているバイト列をそのまま書き込めばよい。
+ * <p/>
+ * JSONの値には、要求されたロケールの文字列を代替チェーンの順に探した結果を使用し、いずれのロケールにも文字列が存在しないメッセージは含めない。
+ * メッセージIDの昇順に出力するため、メッセージが同じであれば同じバイト列(ETag)となる。
+ * 名前空間は{@link PropertiesStringResourceLoader#NAMESPACE_INDEX}の索引と同じものを使用する。
+ * <p/>
+ * 保持するバンドル数が上限に達した場合は、保持しているバンドルを全て破棄する。
+ * 設定例:
+ * <pre>
+ * {@code
+ * <component name="jsonMessageBundleCache" class="nablarch.core.message.JsonMessageBundleCache">
+ *   <property name="loader" ref="propertiesStringResourceLoader"/>
+ * </component>
+ * }</pre>
+ * 使用例(サーブレットで応答する場合):
+ * <pre>
+ * {@code
+ * JsonMessageBundle bundle = jsonMessageBundleCache.get(locale, "errors");
+ * response.setHeader("ETag", bundle.getETag());
+ * if (bundle.matches(request.getHeader("If-None-Match"))) {
+ *     response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+ *     return;
+ * }
+ * response.setContentType(JsonMessageBundle.CONTENT_TYPE);
+ * response.setContentLength(bundle.getContentLength());
+ * bundle.writeTo(response.getOutputStream());
+ * }</pre>
+ */
+@Published(tag = "architect")
+public class JsonMessageBundleCache {
+
+    /** ETagに使用するダイジェストのバイト数 */
+    private static final int ETAG_BYTES = 16;
+
+    /** 16進数の文字 */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** メッセージIDの昇順 */
+    private static final Comparator<StringResource> BY_ID = new Comparator<StringResource>() {
+        @Override
+        public int compare(final StringResource o1, final StringResource o2) {
+            return o1.getId().compareTo(o2.getId());
+        }
+    };
+
+    /** ロケールと名前空間をキーとした、生成済みのバンドル */
+    private final ConcurrentMap<String, JsonMessageBundle> bundles = new ConcurrentHashMap<String, JsonMessageBundle>();
+
+    /** メッセージをロードするローダ */
+    private PropertiesStringResourceLoader loader;
+
+    /** 保持するバンドル数の上限 */
+    private int maxBundles = 256;
+
+    /**
+     * ロケールの全てのメッセージを含むバンドルを取得する。
+     *
+     * @param locale ロケール
+     * @return バンドル
+     */
+    public JsonMessageBundle get(final Locale locale) {
+        return get(locale, null);
+    }
+
+    /**
+     * ロケールの、名前空間に属するメッセージを含むバンドルを取得する。
+     * <p/>
+     * 生成済みで、生成後にローダが再ロードされていない場合は、生成済みのバンドルを返す。
+     *
+     * @param locale ロケール
+     * @param namespace 名前空間(nullの場合は全てのメッセージ)
+     * @return バンドル
+     */
+    public JsonMessageBundle get(final Locale locale, final String namespace) {
+        if (loader == null) {
+            throw new IllegalStateException("loader was not set. please set the PropertiesStringResourceLoader.");
+        }
+        final StringResourceIndex current = loader.getIndex();
+        final String key = namespace == null ? locale.toString() : locale.toString() + '\n' + namespace;
+        final JsonMessageBundle cached = bundles.get(key);
+        if (cached != null && cached.getSource() == current) {
+            return cached;
+        }
+        final Collection<StringResource> resources = namespace == null
+                ? current.getResources().values() : current.getByNamespace(namespace);
+        final JsonMessageBundle bundle = build(locale, resources, current);
+        if (bundle.getMessageCount() > 0 || namespace == null) {
+            // 存在しない名前空間は保持せず、任意の名前空間の要求で保持するバンドルが増えないようにする
+            if (bundles.size() >= maxBundles) {
+                bundles.clear();
+            }
+            bundles.put(key, bundle);
+        }
+        return bundle;
+    }
+
+    /**
+     * バンドルを生成する。
+     *
+     * @param locale ロケール
+     * @param resources バンドルに含める文字列リソース
+     * @param source 生成元の文字列リソースの索引
+     * @return バンドル
+     */
+    private static JsonMessageBundle build(final Locale locale, final Collection<StringResource> resources,
+            final StringResourceIndex source) {
+        final List<StringResource> sorted = new ArrayList<StringResource>(resources);
+        Collections.sort(sorted, BY_ID);
+        final StringBuilder json = new StringBuilder(sorted.size() * 64 + 2);
+        json.append('{');
+        int count = 0;
+        for (StringResource resource : sorted) {
+            final String value = ((BasicStringResource) resource).findValue(locale);
+            if (value == null) {
+                continue;
+            }
+            if (count > 0) {
+                json.append(',');
+            }
+            appendString(json, resource.getId());
+            json.append(':');
+            appendString(json, value);
+            count++;
+        }
+        json.append('}');
+        final byte[] content = json.toString().getBytes(MessageBundleCompiler.UTF_8);
+        return new JsonMessageBundle(content, etagOf(content), count, source);
+    }
+
+    /**
+     * 文字列をJSONの文字列としてエスケープして追加する。
+     * <p/>
+     * JSONで必要なエスケープに加え、HTMLに埋め込んだ場合に解釈される文字(&lt;、&gt;、&amp;)と、
+     * JavaScriptの文字列で改行として扱われる文字(U+2028、U+2029)も、\\uXXXX形式でエスケープする。
+     *
+     * @param json 追加先
+     * @param value 文字列
+     */
+    static void appendString(final StringBuilder json, final String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                case '<':
+                case '>':
+                case '&':
+                case '\u2028':
+                case '\u2029':
+                    appendUnicode(json, c);
+                    break;
+                default:
+                    if (c < 0x20) {
+                        appendUnicode(json, c);
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * 文字を\\uXXXX形式で追加する。
+     *
+     * @param json 追加先
+     * @param c 文字
+     */
+    private static void appendUnicode(final StringBuilder json, final char c) {
+        json.append("\\u")
+            .append(HEX[(c >> 12) & 0xF])
+            .append(HEX[(c >> 8) & 0xF])
+            .append(HEX[(c >> 4) & 0xF])
+            .append(HEX[c & 0xF]);
+    }
+
+    /**
+     * バイト列の内容からETagを求める。
+     *
+     * @param content バイト列
+     * @return ETag(ダブルクォートを含む)
+     */
+    private static String etagOf(final byte[] content) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256は全てのJava実装で利用可能なため、発生しない
+            throw new IllegalStateException(e);
+        }
+        final byte[] hash = digest.digest(content);
+        final StringBuilder etag = new StringBuilder(ETAG_BYTES * 2 + 2);
+        etag.append('"');
+        for (int i = 0; i < ETAG_BYTES; i++) {
+            etag.append(HEX[(hash[i] >> 4) & 0xF]).append(HEX[hash[i] & 0xF]);
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * 生成済みのバンドルを全て破棄する。
+     * <p/>
+     * ローダが再ロードされた場合は自動的に再生成するため、通常は呼び出す必要はない。
+     */
+    public void clear() {
+        bundles.clear();
+    }
+
+    /**
+     * メッセージをロードするローダを設定する。
+     *
+     * @param loader メッセージをロードするローダ
+     */
+    public void setLoader(final PropertiesStringResourceLoader loader) {
+        this.loader = loader;
+        bundles.clear();
+    }
+
+    /**
+     * 保持するバンドル数の上限を設定する。
+     * <p/>
+     * デフォルトは256。
+     *
+     * @param maxBundles 保持するバンドル数の上限
+     */
+    public void setMaxBundles(final int maxBundles) {
+        this.maxBundles = maxBundles;
+    }
+}
@@ -0,0 +1,261 @@
+package nablarch.core.message;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ロケールと、文字列リソースの配列上の位置(序数)を対応付けるテーブル。
+ * <p/>
+ * ローダ単位で1つのテーブルを共有し、各文字列リソースはロケールの序数をインデックスとした配列で文字列を保持する。
+ * ロケールは{@link Locale#toString()}と同じ形式(ja、zh_TWなど)で保持する。
+ * ロケール数は少数であることを前提とし、ロケールの検索は線形探索で行う。
+ * <p/>
+ * 要求されたロケールから文字列を探す順序(代替チェーン)は、以下の順とする。
+ * <ol>
+ * <li>言語_国_バリアント</li>
+ * <li>言語_国</li>
+ * <li>言語</li>
+ * <li>代替ロケール一覧(設定されている場合のみ)</li>
+ * </ol>
+ * 代替チェーンは要求されたロケールごとに1度だけ構築し、以降は構築結果を再利用する。
+ * <p/>
+ * 本クラスはスレッドセーフである。
+ */
+final class LanguageTable {
+
+    /** 代替チェーンを保持するロケール数の上限 */
+    private static final int MAX_CACHED_CHAINS = 256;
+
+    /** 共有するテーブル数の上限 */
+    private static final int MAX_SHARED_TABLES = 64;
+
+    /** ロケール一覧をキーとした共有テーブル */
+    private static final ConcurrentMap<List<String>, LanguageTable> SHARED_TABLES =
+            new ConcurrentHashMap<List<String>, LanguageTable>();
+
+    /** 序数順のロケール一覧 */
+    private final String[] languages;
+
+    /** 代替ロケールの序数一覧 */
+    private final int[] fallbackOrdinals;
+
+    /** 要求されたロケールをキーとした代替チェーン */
+    private final ConcurrentMap<Locale, int[]> chains = new ConcurrentHashMap<Locale, int[]>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param languages 序数順のロケール一覧
+     * @param fallbackOrdinals 代替ロケールの序数一覧
+     */
+    private LanguageTable(String[] languages, int[] fallbackOrdinals) {
+        this.languages = languages;
+        this.fallbackOrdinals = fallbackOrdinals;
+    }
+
+    /**
+     * ロケール一覧からテーブルを生成する。
+     * <p/>
+     * 序数は、指定されたロケール一覧の順に0から割り当てる。重複したロケールは1つにまとめる。
+     *
+     * @param languages ロケール一覧
+     * @return テーブル
+     */
+    static LanguageTable of(Collection<String> languages) {
+        return of(languages, Collections.<String>emptyList());
+    }
+
+    /**
+     * ロケール一覧と代替ロケール一覧からテーブルを生成する。
+     *
+     * @param languages ロケール一覧
+     * @param fallbackLocales 代替ロケール一覧(優先度の高い順)
+     * @return テーブル
+     */
+    static LanguageTable of(Collection<String> languages, List<String> fallbackLocales) {
+        final List<String> distinct = new ArrayList<String>(languages.size());
+        for (String language : languages) {
+            final String key = toKey(language);
+            if (!distinct.contains(key)) {
+                distinct.add(key);
+            }
+        }
+        final String[] keys = distinct.toArray(new String[distinct.size()]);
+
+        final List<Integer> fallbacks = new ArrayList<Integer>(fallbackLocales.size());
+        for (String fallbackLocale : fallbackLocales) {
+            final int ordinal = indexOf(keys, toKey(fallbackLocale));
+            if (ordinal >= 0 && !fallbacks.contains(ordinal)) {
+                fallbacks.add(ordinal);
+            }
+        }
+        final int[] fallbackOrdinals = new int[fallbacks.size()];
+        for (int i = 0; i < fallbackOrdinals.length; i++) {
+            fallbackOrdinals[i] = fallbacks.get(i);
+        }
+        return new LanguageTable(keys, fallbackOrdinals);
+    }
+
+    /**
+     * 同じロケール一覧を持つ文字列リソース間で共有するテーブルを取得する。
+     * <p/>
+     * 代替ロケールを持たないテーブルを、ロケール一覧ごとに1つだけ生成して共有する。
+     *
+     * @param languages ロケール一覧
+     * @return テーブル
+     */
+    static LanguageTable shared(Collection<String> languages) {
+        final List<String> key = new ArrayList<String>(languages);
+        Collections.sort(key);
+        final LanguageTable table = SHARED_TABLES.get(key);
+        if (table != null) {
+            return table;
+        }
+        final LanguageTable created = of(key);
+        if (SHARED_TABLES.size() >= MAX_SHARED_TABLES) {
+            return created;
+        }
+        final LanguageTable existing = SHARED_TABLES.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * ロケールを表す文字列を、{@link Locale#toString()}と同じ形式に正規化する。
+     *
+     * @param locale ロケールを表す文字列(言語_国_バリアント)
+     * @return 正規化した文字列
+     */
+    static String toKey(String locale) {
+        final String[] parts = locale.split("_", 3);
+        final Locale normalized;
+        if (parts.length == 1) {
+            normalized = new Locale(parts[0]);
+        } else if (parts.length == 2) {
+            normalized = new Locale(parts[0], parts[1]);
+        } else {
+            normalized = new Locale(parts[0], parts[1], parts[2]);
+        }
+        // Locale#getLanguage()はインターン済みの文字列を返すため、参照の比較で一致させられるようにしておく
+        return normalized.toString().intern();
+    }
+
+    /**
+     * ロケールに対応する序数を取得する。
+     *
+     * @param language ロケール({@link Locale#toString()}と同じ形式)
+     * @return 序数(テーブルに存在しないロケールの場合は-1)
+     */
+    int ordinalOf(String language) {
+        return indexOf(languages, language);
+    }
+
+    /**
+     * ロケール一覧から、ロケールの位置を検索する。
+     * <p/>
+     * インターン済みの文字列は参照の比較で一致するため、先に参照で比較する。
+     *
+     * @param languages ロケール一覧
+     * @param language ロケール
+     * @return 位置(存在しない場合は-1)
+     */
+    private static int indexOf(String[] languages, String language) {
+        for (int i = 0; i < languages.length; i++) {
+            if (languages[i] == language) {
+                return i;
+            }
+        }
+        for (int i = 0; i < languages.length; i++) {
+            if (languages[i].equals(language)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 要求されたロケールに対する代替チェーンを取得する。
+     * <p/>
+     * 戻り値は、文字列を探す順に並べた序数の配列である。テーブルに存在しないロケールは含まない。
+     * 戻り値の配列は共有されるため、変更してはならない。
+     *
+     * @param locale 要求されたロケール
+     * @return 代替チェーン
+     */
+    int[] chainOf(Locale locale) {
+        final int[] cached = chains.get(locale);
+        if (cached != null) {
+            return cached;
+        }
+        final int[] chain = buildChain(locale);
+        if (chains.size() < MAX_CACHED_CHAINS) {
+            chains.putIfAbsent(locale, chain);
+        }
+        return chain;
+    }
+
+    /**
+     * 要求されたロケールに対する代替チェーンを構築する。
+     *
+     * @param locale 要求されたロケール
+     * @return 代替チェーン
+     */
+    private int[] buildChain(Locale locale) {
+        final List<Integer> chain = new ArrayList<Integer>(3 + fallbackOrdinals.length);
+        final String language = locale.getLanguage();
+        final String country = locale.getCountry();
+        final String variant = locale.getVariant();
+        if (variant.length() != 0) {
+            addOrdinal(chain, ordinalOf(new Locale(language, country, variant).toString()));
+        }
+        if (country.length() != 0) {
+            addOrdinal(chain, ordinalOf(new Locale(language, country).toString()));
+        }
+        addOrdinal(chain, ordinalOf(language));
+        for (int fallbackOrdinal : fallbackOrdinals) {
+            addOrdinal(chain, fallbackOrdinal);
+        }
+        final int[] result = new int[chain.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = chain.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 代替チェーンに序数を追加する。
+     * <p/>
+     * テーブルに存在しないロケールと、追加済みの序数は追加しない。
+     *
+     * @param chain 代替チェーン
+     * @param ordinal 序数
+     */
+    private static void addOrdinal(List<Integer> chain, int ordinal) {
+        if (ordinal >= 0 && !chain.contains(ordinal)) {
+            chain.add(ordinal);
+        }
+    }
+
+    /**
+     * 序数に対応するロケールを取得する。
+     *
+     * @param ordinal 序数
+     * @return ロケール
+     */
+    String getLanguage(int ordinal) {
+        return languages[ordinal];
+    }
+
+    /**
+     * テーブルに含まれるロケールの数を取得する。
+     *
+     * @return ロケールの数
+     */
+    int size() {
+        return languages.length;
+    }
+}
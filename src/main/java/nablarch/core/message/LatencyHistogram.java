@@ -0,0 +1,89 @@
+package nablarch.core.message;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 処理時間の分布を、2のべき乗の区間ごとの件数で保持するヒストグラム。
+ * <p/>
+ * 区間の境界は2のべき乗(ナノ秒)であるため、パーセンタイルは区間の上限値で近似する(最大で2倍の誤差を含む)。
+ */
+final class LatencyHistogram {
+
+    /** 区間の数 */
+    private static final int BUCKETS = 64;
+
+    /** 区間ごとの件数 */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /** 最大値 */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 処理時間を記録する。
+     *
+     * @param nanos 処理時間(ナノ秒)
+     */
+    void record(long nanos) {
+        final long value = Math.max(0L, nanos);
+        counts.incrementAndGet(Math.max(0, BUCKETS - 1 - Long.numberOfLeadingZeros(value)));
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * 記録した件数を取得する。
+     *
+     * @return 件数
+     */
+    long count() {
+        long count = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * パーセンタイルを取得する。
+     *
+     * @param percentile パーセンタイル(0より大きく100以下)
+     * @return パーセンタイルを含む区間の上限値(ナノ秒、記録がない場合は0)
+     */
+    long percentile(double percentile) {
+        final long total = count();
+        if (total == 0L) {
+            return 0L;
+        }
+        final long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(max.get(), i >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1);
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * 最大値を取得する。
+     *
+     * @return 最大値(ナノ秒)
+     */
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * 記録を破棄する。
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        max.set(0L);
+    }
+}
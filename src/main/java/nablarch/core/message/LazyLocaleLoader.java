@@ -0,0 +1,222 @@
+package nablarch.core.message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ロケールごとのプロパティファイルを、そのロケールの文字列が最初に要求された時点で読み込むクラス。
+ * <p/>
+ * 読み込んだ文字列は、ロケールの全てのプロパティファイルを読み込んだ後に、ロード済みの文字列リソースの配列上の位置(ロケールの序数)に設定する。
+ * 読み込みの途中で失敗した場合は、読み込んだ文字列を文字列リソースに設定しない。
+ * ロード済みの文字列リソースに存在しないメッセージIDの文字列は読み込まない。
+ * 読み込んだ文字列は、読み込みごとに生成して読み込み後に破棄する{@link StringPool}で、読み込んだロケール内で集約する。
+ * ロード時の集約先は保持しないため、ロード時に読み込んだロケールの文字列とは集約しない。
+ * 集約した結果は、ロード時の{@link StringPool}に加算する。
+ * 引数の埋め込み位置がない文字列は、ロード時と同様に定数のテンプレートとする。
+ * <p/>
+ * 同じロケールの読み込みが同時に要求された場合は、最初に要求したスレッドのみが読み込み、他のスレッドは読み込みの完了を待機する。
+ * 読み込みはロケールごとに独立しているため、あるロケールの読み込み中も、他のロケールの読み込みや読み込み済みのロケールの参照は待機しない。
+ * 読み込みに失敗した場合は例外を送出し、次に要求された時点で再度読み込む。
+ * <p/>
+ * 本クラスはスレッドセーフである。
+ */
+final class LazyLocaleLoader {
+
+    /** ロケールの序数ごとのプロパティファイルのパス一覧 */
+    private final List<List<String>> paths;
+
+    /** 読み込んだ文字列を設定する文字列リソース一覧 */
+    private final Map<String, StringResource> resources;
+
+    /** 集約した結果を加算する{@link StringPool}(集約しない場合はnull) */
+    private final StringPool stringPool;
+
+    /** 定数のテンプレートとした文字列の数 */
+    private final AtomicLong constantTemplateCount;
+
+    /** ロケールの序数ごとの読み込み済みか否か(1:読み込み済み) */
+    private final AtomicIntegerArray loaded;
+
+    /** ロケールの序数ごとの実行中または完了した読み込み */
+    private final AtomicReferenceArray<FutureTask<Void>> loads;
+
+    /** プロパティファイルを読み込んだ回数 */
+    private final AtomicInteger fileLoadCount = new AtomicInteger();
+
+    /**
+     * コンストラクタ。
+     * <p/>
+     * パス一覧が空のロケールは、読み込み済みとして扱う。
+     *
+     * @param paths ロケールの序数ごとのプロパティファイルのパス一覧
+     * @param resources 読み込んだ文字列を設定する文字列リソース一覧({@link BasicStringResource}のみを含むこと)
+     * @param stringPool 集約した結果を加算する{@link StringPool}(集約しない場合はnull)
+     * @param constantTemplateCount 定数のテンプレートとした文字列の数(読み込んだロケールの分を加算する)
+     */
+    LazyLocaleLoader(final List<List<String>> paths, final Map<String, StringResource> resources,
+            final StringPool stringPool, final AtomicLong constantTemplateCount) {
+        this.paths = paths;
+        this.resources = resources;
+        this.stringPool = stringPool;
+        this.constantTemplateCount = constantTemplateCount;
+        this.loaded = new AtomicIntegerArray(paths.size());
+        this.loads = new AtomicReferenceArray<FutureTask<Void>>(paths.size());
+        for (int ordinal = 0; ordinal < paths.size(); ordinal++) {
+            if (paths.get(ordinal).isEmpty()) {
+                loaded.set(ordinal, 1);
+            }
+        }
+    }
+
+    /**
+     * ロケールのプロパティファイルが読み込まれていない場合は、読み込む。
+     *
+     * @param ordinal ロケールの序数
+     * @throws IllegalArgumentException プロパティファイルの読み込みに失敗した場合
+     */
+    void ensureLoaded(final int ordinal) {
+        if (loaded.get(ordinal) == 0) {
+            load(ordinal);
+        }
+    }
+
+    /**
+     * ロケールのプロパティファイルを読み込む。読み込み中の場合は、完了を待機する。
+     *
+     * @param ordinal ロケールの序数
+     */
+    private void load(final int ordinal) {
+        FutureTask<Void> task = loads.get(ordinal);
+        if (task == null) {
+            final FutureTask<Void> created = new FutureTask<Void>(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    // 集約先は読み込みの間のみ保持し、読み込み後に解放する
+                    final StringPool pool = stringPool != null ? new StringPool(resources.size()) : null;
+                    // 途中のファイルで失敗した場合に読み込み途中の文字列が見えないよう、全てのファイルを読み込むまで文字列リソースに設定しない
+                    final ValueCollector collector = new ValueCollector(pool);
+                    for (String path : paths.get(ordinal)) {
+                        PropertiesStringResourceLoader.parse(path, collector);
+                        fileLoadCount.incrementAndGet();
+                    }
+                    if (pool != null) {
+                        pool.close();
+                        stringPool.add(pool.report());
+                    }
+                    collector.apply(ordinal);
+                    foldConstants(ordinal);
+                    loaded.set(ordinal, 1);
+                    return null;
+                }
+            });
+            if (loads.compareAndSet(ordinal, null, created)) {
+                created.run();
+                task = created;
+            } else {
+                task = loads.get(ordinal);
+            }
+        }
+        try {
+            task.get();
+        } catch (ExecutionException e) {
+            // 次に要求された時点で再度読み込めるよう、失敗した読み込みを破棄する
+            loads.compareAndSet(ordinal, task, null);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalArgumentException("failed to load the file. file path = " + paths.get(ordinal), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while loading the file. file path = " + paths.get(ordinal), e);
+        }
+    }
+
+    /**
+     * 読み込んだロケールの文字列のうち、引数の埋め込み位置がない文字列を定数のテンプレートとする。
+     * <p/>
+     * 複数のプロパティファイルで同じメッセージIDを定義した場合に、上書き後の文字列で判定するため、全てのファイルを読み込んだ後に行う。
+     *
+     * @param ordinal ロケールの序数
+     */
+    private void foldConstants(final int ordinal) {
+        long count = 0;
+        for (StringResource resource : resources.values()) {
+            if (((BasicStringResource) resource).foldConstant(ordinal)) {
+                count++;
+            }
+        }
+        constantTemplateCount.addAndGet(count);
+    }
+
+    /**
+     * 読み込み済みのロケールの序数一覧を取得する。
+     *
+     * @return 読み込み済みのロケールの序数一覧
+     */
+    List<Integer> getLoadedOrdinals() {
+        final List<Integer> ordinals = new ArrayList<Integer>();
+        for (int ordinal = 0; ordinal < loaded.length(); ordinal++) {
+            if (loaded.get(ordinal) != 0) {
+                ordinals.add(ordinal);
+            }
+        }
+        return ordinals;
+    }
+
+    /**
+     * プロパティファイルを読み込んだ回数を取得する。
+     *
+     * @return プロパティファイルを読み込んだ回数
+     */
+    int getFileLoadCount() {
+        return fileLoadCount.get();
+    }
+
+    /**
+     * 読み込んだ文字列を保持し、全てのプロパティファイルを読み込んだ後に文字列リソースに設定するハンドラ。
+     */
+    private final class ValueCollector implements PropertiesParser.Handler {
+
+        /** 読み込んだ文字列を集約する{@link StringPool}(集約しない場合はnull) */
+        private final StringPool pool;
+
+        /** 読み込んだ文字列(メッセージIDをキーとし、後から読み込んだファイルの文字列で上書きする) */
+        private final Map<String, String> values = new HashMap<String, String>();
+
+        /**
+         * コンストラクタ。
+         *
+         * @param pool 読み込んだ文字列を集約する{@link StringPool}(集約しない場合はnull)
+         */
+        ValueCollector(final StringPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void property(final String key, final String value) {
+            if (resources.containsKey(key)) {
+                values.put(key, pool != null ? pool.canonicalize(value) : value);
+            }
+        }
+
+        /**
+         * 保持している文字列を、文字列リソースの序数に対応する位置に設定する。
+         *
+         * @param ordinal ロケールの序数
+         */
+        void apply(final int ordinal) {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                ((BasicStringResource) resources.get(entry.getKey())).setValueAt(ordinal, entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.StaticDataLoader;
+import nablarch.core.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link MessageBundleCompiler}で変換したメッセージバンドルから文字列リソースを取得するクラス。
+ * <p/>
+ * メッセージバンドルはメモリマップドファイルとして読み込み、起動時には解析しない。
+ * メッセージIDはメッセージバンドル上で二分探索し、文字列は取得されたメッセージIDの分だけ取得時にデコードする。
+ * このため、使用されないメッセージはJavaのヒープに展開されない。
+ * 取得した文字列リソースは保持しないため、{@link nablarch.core.cache.BasicStaticDataCache}と組み合わせて使用すること。
+ * <p/>
+ * メモリマップドファイルとして読み込むため、メッセージバンドルはファイルシステム上に配置すること(jarファイル内のリソースは読み込めない)。
+ * 設定例:
+ * <pre>
+ * {@code
+ * <component name="stringResourceLoader" class="nablarch.core.message.MappedStringResourceLoader">
+ *   <property name="bundleFile" value="file:/opt/app/messages.bundle"/>
+ * </component>
+ * }</pre>
+ */
+public class MappedStringResourceLoader implements StaticDataLoader<StringResource> {
+
+    /** 読み込んだメッセージバンドル(読み込み前はnull) */
+    private volatile Bundle bundle;
+
+    /** メッセージバンドルのパス */
+    private String bundleFile;
+
+    /** 代替ロケール一覧(設定されていない場合は代替しない) */
+    private List<String> fallbackLocales;
+
+    @Override
+    public StringResource getValue(final Object key) {
+        final Bundle loaded = getBundle();
+        if (key == null) {
+            return null;
+        }
+        final String id = key.toString();
+        final int index = loaded.indexOf(id.getBytes(MessageBundleCompiler.UTF_8));
+        return index < 0 ? null : loaded.resourceAt(index, id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 全ての文字列をデコードするため、起動時のロード({@code loadOnStartup})と組み合わせた場合はメモリマップドファイルの利点が失われる。
+     */
+    @Override
+    public List<StringResource> loadAll() {
+        final Bundle loaded = getBundle();
+        final List<StringResource> resources = new ArrayList<StringResource>(loaded.idCount);
+        for (int i = 0; i < loaded.idCount; i++) {
+            resources.add(loaded.resourceAt(i, loaded.idAt(i)));
+        }
+        return resources;
+    }
+
+    @Override
+    public List<StringResource> getValues(final String indexName, final Object key) {
+        return null;
+    }
+
+    @Override
+    public List<String> getIndexNames() {
+        return null;
+    }
+
+    @Override
+    public Object getId(final StringResource value) {
+        return value.getId();
+    }
+
+    @Override
+    public Object generateIndexKey(final String indexName, final StringResource value) {
+        return null;
+    }
+
+    /**
+     * メッセージバンドルを取得する。
+     * <p/>
+     * 読み込み済みの場合はロックを取得せずに返す。
+     *
+     * @return メッセージバンドル
+     */
+    private Bundle getBundle() {
+        final Bundle loaded = bundle;
+        return loaded != null ? loaded : load();
+    }
+
+    /**
+     * メッセージバンドルを読み込む。
+     *
+     * @return メッセージバンドル
+     */
+    private synchronized Bundle load() {
+        if (bundle != null) {
+            return bundle;
+        }
+        if (bundleFile == null) {
+            throw new IllegalStateException("bundleFile was not set. please set the path of the message bundle.");
+        }
+        final ByteBuffer buffer = map(bundleFile);
+        if (buffer.capacity() < MessageBundleCompiler.HEADER_SIZE
+                || buffer.getInt(0) != MessageBundleCompiler.MAGIC
+                || buffer.getInt(4) != MessageBundleCompiler.VERSION) {
+            throw new IllegalArgumentException("invalid message bundle. file path = [" + bundleFile + ']');
+        }
+        final Bundle loaded = new Bundle(buffer, fallbackLocales);
+        bundle = loaded;
+        return loaded;
+    }
+
+    /**
+     * メッセージバンドルをメモリマップドファイルとして読み込む。
+     * <p/>
+     * マッピングはファイルを閉じた後も有効なため、読み込み後すぐにファイルを閉じる。
+     *
+     * @param path メッセージバンドルのパス
+     * @return 読み込んだバッファ
+     */
+    private static ByteBuffer map(final String path) {
+        final URL url = FileUtil.getResourceURL(path);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            throw new IllegalArgumentException(
+                    "message bundle was not found on the file system. file path = [" + path + ']');
+        }
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(toFile(url), "r");
+            final FileChannel channel = file.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("failed to load the file. file path = [" + path + ']', e);
+        } finally {
+            FileUtil.closeQuietly(file);
+        }
+    }
+
+    /**
+     * URLをファイルに変換する。
+     *
+     * @param url URL
+     * @return ファイル
+     */
+    private static File toFile(final URL url) {
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return new File(url.getPath());
+        }
+    }
+
+    /**
+     * メッセージバンドルのパスを設定する。
+     * <p/>
+     * {@link FileUtil#getResourceURL(String)}で解決できる形式("file:"または"classpath:"で始まるパス)で指定する。
+     *
+     * @param bundleFile メッセージバンドルのパス
+     */
+    public void setBundleFile(final String bundleFile) {
+        this.bundleFile = bundleFile;
+    }
+
+    /**
+     * 代替ロケール一覧を設定する。
+     * <p/>
+     * 要求されたロケールの文字列が存在しない場合に、設定された順に代替ロケールの文字列を探す。
+     * 代替ロケールのいずれにも文字列が存在しない場合は、デフォルトのロケール(変換時のデフォルトのロケール)の文字列を使用する。
+     * 設定されていない場合は代替しない。
+     *
+     * @param fallbackLocales 代替ロケール一覧(優先度の高い順)
+     */
+    public void setFallbackLocales(final List<String> fallbackLocales) {
+        this.fallbackLocales = fallbackLocales;
+    }
+
+    /**
+     * メモリマップドファイルとして読み込んだメッセージバンドル。
+     * <p/>
+     * バッファは絶対位置を指定して読み取り、位置を変更しないため、複数スレッドから同時に参照できる。
+     */
+    private static final class Bundle {
+
+        /** メッセージバンドルの内容 */
+        private final ByteBuffer buffer;
+
+        /** メッセージ数 */
+        private final int idCount;
+
+        /** ロケール数 */
+        private final int localeCount;
+
+        /** ID表の開始位置 */
+        private final int idTable;
+
+        /** 値表の開始位置 */
+        private final int valueTable;
+
+        /** 文字列プールの開始位置 */
+        private final int pool;
+
+        /** ロケールと配列上の位置の対応表 */
+        private final LanguageTable languageTable;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param buffer メッセージバンドルの内容
+         * @param fallbackLocales 代替ロケール一覧(設定されていない場合はnull)
+         */
+        Bundle(final ByteBuffer buffer, final List<String> fallbackLocales) {
+            this.buffer = buffer;
+            localeCount = buffer.getInt(8);
+            idCount = buffer.getInt(12);
+            pool = buffer.getInt(16);
+            idTable = MessageBundleCompiler.HEADER_SIZE + localeCount * 4;
+            valueTable = idTable + idCount * 4;
+
+            final List<String> languages = new ArrayList<String>(localeCount);
+            for (int i = 0; i < localeCount; i++) {
+                languages.add(decode(buffer.getInt(MessageBundleCompiler.HEADER_SIZE + i * 4)));
+            }
+            final List<String> chain = new ArrayList<String>();
+            if (fallbackLocales != null && localeCount > 0) {
+                chain.addAll(fallbackLocales);
+                chain.add(languages.get(0));
+            }
+            languageTable = LanguageTable.of(languages, chain);
+        }
+
+        /**
+         * メッセージIDの位置を二分探索する。
+         *
+         * @param id メッセージIDのUTF-8のバイト列
+         * @return 位置(存在しない場合は負の値)
+         */
+        int indexOf(final byte[] id) {
+            int low = 0;
+            int high = idCount - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int cmp = compare(buffer.getInt(idTable + mid * 4), id);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * 位置に対応するメッセージIDを取得する。
+         *
+         * @param index 位置
+         * @return メッセージID
+         */
+        String idAt(final int index) {
+            return decode(buffer.getInt(idTable + index * 4));
+        }
+
+        /**
+         * 位置に対応する文字列リソースを生成する。
+         *
+         * @param index 位置
+         * @param id メッセージID
+         * @return 文字列リソース
+         */
+        StringResource resourceAt(final int index, final String id) {
+            final String[] values = new String[localeCount];
+            final int base = valueTable + index * localeCount * 4;
+            for (int ordinal = 0; ordinal < localeCount; ordinal++) {
+                final int offset = buffer.getInt(base + ordinal * 4);
+                values[ordinal] = offset == MessageBundleCompiler.ABSENT ? null : decode(offset);
+            }
+            return new BasicStringResource(id, languageTable, values);
+        }
+
+        /**
+         * 文字列プール上の文字列と、バイト列を比較する。
+         *
+         * @param offset 文字列プール上の位置
+         * @param bytes 比較するバイト列
+         * @return 文字列プール上の文字列が小さい場合は負の値、大きい場合は正の値、等しい場合は0
+         */
+        private int compare(final int offset, final byte[] bytes) {
+            final int start = pool + offset + 4;
+            final int length = buffer.getInt(pool + offset);
+            final int min = Math.min(length, bytes.length);
+            for (int i = 0; i < min; i++) {
+                final int diff = (buffer.get(start + i) & 0xFF) - (bytes[i] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return length - bytes.length;
+        }
+
+        /**
+         * 文字列プール上の文字列をデコードする。
+         *
+         * @param offset 文字列プール上の位置
+         * @return 文字列
+         */
+        private String decode(final int offset) {
+            final byte[] bytes = new byte[buffer.getInt(pool + offset)];
+            final ByteBuffer view = buffer.duplicate();
+            view.position(pool + offset + 4);
+            view.get(bytes);
+            return new String(bytes, MessageBundleCompiler.UTF_8);
+        }
+    }
+}
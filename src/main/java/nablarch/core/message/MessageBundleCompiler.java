@@ -0,0 +1,230 @@
+package nablarch.core.message;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link PropertiesStringResourceLoader}が読み込むプロパティファイルを、1つのバイナリ形式のメッセージバンドルに変換するクラス。
+ * <p/>
+ * 変換したメッセージバンドルは{@link MappedStringResourceLoader}で読み込む。
+ * ビルド時に変換しておくことで、起動時のプロパティファイルの解析を省略できる。
+ * <p/>
+ * メッセージバンドルの形式は以下のとおり(数値は全てビッグエンディアンの4バイト整数)。
+ * <pre>
+ * ヘッダ      : マジックナンバー、バージョン、ロケール数(L)、メッセージ数(N)、文字列プールの開始位置
+ * ロケール表  : L個の文字列プール上の位置(先頭はデフォルトのロケール)
+ * ID表        : N個の文字列プール上の位置(メッセージIDのUTF-8のバイト列の昇順)
+ * 値表        : N×L個の文字列プール上の位置(メッセージIDごとにロケールの順、存在しない場合は-1)
+ * 文字列プール: バイト数とUTF-8のバイト列の組(同じ文字列は1つにまとめる)
+ * </pre>
+ * 実行例:
+ * <pre>
+ * java nablarch.core.message.MessageBundleCompiler build/messages.bundle classpath: messages ja en zh
+ * </pre>
+ */
+public class MessageBundleCompiler {
+
+    /** マジックナンバー("NMSB") */
+    static final int MAGIC = 0x4E4D5342;
+
+    /** 形式のバージョン */
+    static final int VERSION = 1;
+
+    /** ヘッダのバイト数 */
+    static final int HEADER_SIZE = 20;
+
+    /** 存在しない文字列を表す位置 */
+    static final int ABSENT = -1;
+
+    /** 文字コード */
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** UTF-8のバイト列を符号なしで比較するコンパレータ */
+    static final Comparator<byte[]> BYTES_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] o1, byte[] o2) {
+            final int length = Math.min(o1.length, o2.length);
+            for (int i = 0; i < length; i++) {
+                final int diff = (o1[i] & 0xFF) - (o2[i] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return o1.length - o2.length;
+        }
+    };
+
+    /** 変換元のプロパティファイルを読み込むローダ */
+    private PropertiesStringResourceLoader loader;
+
+    /**
+     * プロパティファイルをメッセージバンドルに変換する。
+     *
+     * @param args 出力先ファイル、プロパティファイルが配置されているディレクトリ、プロパティファイル名、
+     *             デフォルトのロケール、ロケール一覧(可変長)
+     * @throws IOException 出力に失敗した場合
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            throw new IllegalArgumentException(
+                    "usage: MessageBundleCompiler <output file> <directory> <file name> <default locale> [locale...]");
+        }
+        final PropertiesStringResourceLoader source = new PropertiesStringResourceLoader();
+        source.setDirectory(args[1]);
+        source.setFileName(args[2]);
+        source.setDefaultLocale(args[3]);
+        source.setLocales(Arrays.asList(args).subList(4, args.length));
+
+        final MessageBundleCompiler compiler = new MessageBundleCompiler();
+        compiler.setLoader(source);
+        compiler.compile(new File(args[0]));
+    }
+
+    /**
+     * プロパティファイルをメッセージバンドルに変換し、ファイルに出力する。
+     *
+     * @param output 出力先ファイル
+     * @throws IOException 出力に失敗した場合
+     * @throws IllegalStateException ローダが設定されていない場合
+     */
+    public void compile(File output) throws IOException {
+        if (loader == null) {
+            throw new IllegalStateException("loader was not set. please set the PropertiesStringResourceLoader.");
+        }
+        final List<StringResource> resources = loader.loadAll();
+        final LanguageTable languageTable = resources.isEmpty()
+                ? null : ((BasicStringResource) resources.get(0)).getLanguageTable();
+        final int localeCount = languageTable == null ? 0 : languageTable.size();
+
+        // ID表は二分探索できるよう、UTF-8のバイト列の順に並べる
+        final Map<byte[], BasicStringResource> sorted = new HashMap<byte[], BasicStringResource>();
+        final List<byte[]> ids = new ArrayList<byte[]>(resources.size());
+        for (StringResource resource : resources) {
+            final byte[] id = resource.getId().getBytes(UTF_8);
+            ids.add(id);
+            sorted.put(id, (BasicStringResource) resource);
+        }
+        Collections.sort(ids, BYTES_ORDER);
+
+        final StringPool pool = new StringPool();
+        final int[] localeOffsets = new int[localeCount];
+        for (int i = 0; i < localeCount; i++) {
+            localeOffsets[i] = pool.add(languageTable.getLanguage(i));
+        }
+        final int[] idOffsets = new int[ids.size()];
+        final int[] valueOffsets = new int[ids.size() * localeCount];
+        for (int i = 0; i < ids.size(); i++) {
+            idOffsets[i] = pool.add(ids.get(i));
+            final BasicStringResource resource = sorted.get(ids.get(i));
+            for (int ordinal = 0; ordinal < localeCount; ordinal++) {
+                final String value = resource.getValueAt(ordinal);
+                valueOffsets[i * localeCount + ordinal] = value == null ? ABSENT : pool.add(value);
+            }
+        }
+
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(localeCount);
+            out.writeInt(ids.size());
+            out.writeInt(HEADER_SIZE + (localeOffsets.length + idOffsets.length + valueOffsets.length) * 4);
+            writeInts(out, localeOffsets);
+            writeInts(out, idOffsets);
+            writeInts(out, valueOffsets);
+            pool.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 整数の配列を出力する。
+     *
+     * @param out 出力先
+     * @param values 整数の配列
+     * @throws IOException 出力に失敗した場合
+     */
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * 変換元のプロパティファイルを読み込むローダを設定する。
+     *
+     * @param loader 変換元のプロパティファイルを読み込むローダ
+     */
+    public void setLoader(PropertiesStringResourceLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * 文字列プール。
+     * <p/>
+     * 同じ文字列は1度だけ格納し、同じ位置を返す。
+     */
+    private static final class StringPool {
+
+        /** 格納した文字列のバイト列 */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /** 格納した文字列の位置 */
+        private final Map<String, Integer> offsets = new HashMap<String, Integer>();
+
+        /**
+         * 文字列を格納する。
+         *
+         * @param value 文字列
+         * @return 文字列プール上の位置
+         */
+        int add(String value) {
+            final Integer offset = offsets.get(value);
+            if (offset != null) {
+                return offset;
+            }
+            final int added = add(value.getBytes(UTF_8));
+            offsets.put(value, added);
+            return added;
+        }
+
+        /**
+         * UTF-8のバイト列を格納する。
+         *
+         * @param value UTF-8のバイト列
+         * @return 文字列プール上の位置
+         */
+        int add(byte[] value) {
+            final int offset = bytes.size();
+            bytes.write(value.length >>> 24);
+            bytes.write(value.length >>> 16);
+            bytes.write(value.length >>> 8);
+            bytes.write(value.length);
+            bytes.write(value, 0, value.length);
+            return offset;
+        }
+
+        /**
+         * 格納した文字列を出力する。
+         *
+         * @param out 出力先
+         * @throws IOException 出力に失敗した場合
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package nablarch.core.message;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.repository.initialization.Initializable;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * メッセージの取得とロードの計測値を収集するクラス。
+ * <p/>
+ * {@link StringResourceHolder}と{@link PropertiesStringResourceLoader}に設定した場合のみ計測する。
+ * 設定しない場合の計測のコストは、参照がnullか否かの判定のみとなる。
+ * <p/>
+ * 計測値は以下の通り。
+ * <ul>
+ * <li>取得回数と、存在しなかった回数(スレッドごとに分散したカウンタで集計する)</li>
+ * <li>取得時間の分布(サンプリング間隔ごとに1回計測する)</li>
+ * <li>取得回数の多いメッセージIDと、存在しなかった回数の多いメッセージID(サンプリング間隔ごとに1回記録する)</li>
+ * <li>ロード回数と所要時間、ロードしたメッセージ数</li>
+ * </ul>
+ * メッセージIDの回数は、Count-Min Sketchで推定した記録回数にサンプリング間隔を掛けた推定値である。
+ * <p/>
+ * 計測値は本クラスのメソッドまたはJMXで参照する。
+ * 初期化時に、プラットフォームのMBeanサーバにオブジェクト名を指定して登録する。
+ * 同じオブジェクト名のMBeanが登録済みの場合(他のアプリケーションが登録した場合など)は、
+ * 登録済みのMBeanを置き換えずに警告ログを出力し、JMXでは公開しない。
+ * 同じMBeanサーバを共有する複数のアプリケーションで使用する場合は、アプリケーションごとに異なるオブジェクト名を設定すること。
+ * 設定例:
+ * <pre>
+ * {@code
+ * <component name="messageMetrics" class="nablarch.core.message.MessageMetrics">
+ *   <property name="sampleRate" value="64"/>
+ * </component>
+ * <component name="stringResourceHolder" class="nablarch.core.message.StringResourceHolder">
+ *   <property name="stringResourceCache" ref="stringResourceCache"/>
+ *   <property name="metrics" ref="messageMetrics"/>
+ * </component>
+ * }</pre>
+ * JMXに登録する場合は、初期化対象のリストに追加すること。
+ */
+public class MessageMetrics implements MessageMetricsMBean, Initializable {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(MessageMetrics.class);
+
+    /** 取得時間を計測しないことを表す開始時刻 */
+    static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    /** 報告するメッセージIDの件数のデフォルト */
+    private static final int DEFAULT_TOP_ID_COUNT = 20;
+
+    /** サンプリングの判定に使用する乗数(黄金比) */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** 取得回数 */
+    private final StripedCounter lookups = new StripedCounter();
+
+    /** 存在しなかった回数 */
+    private final StripedCounter misses = new StripedCounter();
+
+    /** 取得時間を計測した回数 */
+    private final StripedCounter sampled = new StripedCounter();
+
+    /** 取得時間の分布 */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /** ロード回数 */
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /** ロードの所要時間の最大値(ミリ秒) */
+    private final AtomicLong maxLoadDuration = new AtomicLong();
+
+    /** 最後のロードの所要時間(ミリ秒) */
+    private volatile long lastLoadDuration;
+
+    /** 最後のロードでロードしたメッセージ数 */
+    private volatile int lastLoadedMessageCount;
+
+    /** 取得回数の多いメッセージID */
+    private volatile HeavyHitters hotIds;
+
+    /** 存在しなかった回数の多いメッセージID */
+    private volatile HeavyHitters missingIds;
+
+    /** 前回の取り出し以降に取得されたメッセージID(記録しない場合はnull) */
+    private volatile RecentIdSet recentIds;
+
+    /** サンプリング間隔 */
+    private int sampleRate = 64;
+
+    /** サンプリングの判定に使用するマスク */
+    private long sampleMask = sampleMask(64);
+
+    /** MBeanのオブジェクト名 */
+    private String objectName = "nablarch.core.message:type=MessageMetrics";
+
+    /** 登録したMBeanのオブジェクト名(登録していない場合はnull) */
+    private ObjectName registeredName;
+
+    /**
+     * コンストラクタ。
+     */
+    public MessageMetrics() {
+        hotIds = new HeavyHitters(DEFAULT_TOP_ID_COUNT);
+        missingIds = new HeavyHitters(DEFAULT_TOP_ID_COUNT);
+    }
+
+    /**
+     * MBeanをプラットフォームのMBeanサーバに登録する。
+     * <p/>
+     * オブジェクト名にnullが設定されている場合は、登録しない。
+     * 同じオブジェクト名のMBeanが登録済みの場合は、警告ログを出力し、登録しない。
+     *
+     * @throws IllegalStateException MBeanの登録に失敗した場合
+     */
+    @Override
+    public synchronized void initialize() {
+        if (objectName == null || registeredName != null) {
+            return;
+        }
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = new ObjectName(objectName);
+            server.registerMBean(this, name);
+            registeredName = name;
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.logWarn("MBean was already registered with the same object name. "
+                    + "metrics are not published via JMX. object name = [" + objectName + ']');
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register MBean. object name = [" + objectName + ']', e);
+        }
+    }
+
+    /**
+     * MBeanをプラットフォームのMBeanサーバから登録解除する。
+     * <p/>
+     * 本オブジェクトが登録したMBeanのみを登録解除し、登録していない場合は何もしない。
+     */
+    public synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(registeredName)) {
+                server.unregisterMBean(registeredName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to unregister MBean. object name = [" + registeredName + ']', e);
+        } finally {
+            registeredName = null;
+        }
+    }
+
+    /**
+     * 文字列リソースの取得開始を記録する。
+     *
+     * @return 取得時間を計測する場合は開始時刻、計測しない場合は{@link #NOT_SAMPLED}
+     */
+    long beginLookup() {
+        final long count = lookups.increment();
+        return ((count * GOLDEN_GAMMA) & sampleMask) == 0L ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * 文字列リソースの取得終了を記録する。
+     *
+     * @param messageId メッセージID
+     * @param found 文字列リソースが存在した場合はtrue
+     * @param start {@link #beginLookup()}が返した開始時刻
+     */
+    void endLookup(String messageId, boolean found, long start) {
+        if (!found) {
+            misses.increment();
+        } else {
+            final RecentIdSet recent = recentIds;
+            if (recent != null) {
+                recent.add(messageId);
+            }
+        }
+        if (start != NOT_SAMPLED) {
+            latency.record(System.nanoTime() - start);
+            sampled.increment();
+            if (found) {
+                hotIds.add(messageId);
+            } else if (messageId != null) {
+                missingIds.add(messageId);
+            }
+        }
+    }
+
+    /**
+     * 文字列リソースのロードを記録する。
+     *
+     * @param durationMillis 所要時間(ミリ秒)
+     * @param messageCount ロードしたメッセージ数
+     */
+    void recordLoad(long durationMillis, int messageCount) {
+        lastLoadDuration = durationMillis;
+        lastLoadedMessageCount = messageCount;
+        long current = maxLoadDuration.get();
+        while (durationMillis > current && !maxLoadDuration.compareAndSet(current, durationMillis)) {
+            current = maxLoadDuration.get();
+        }
+        loadCount.incrementAndGet();
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    @Override
+    public long getHitCount() {
+        return Math.max(0L, lookups.sum() - misses.sum());
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getMissRate() {
+        final long total = lookups.sum();
+        return total == 0L ? 0.0 : Math.min(1.0, (double) misses.sum() / total);
+    }
+
+    @Override
+    public long getSampledLookupCount() {
+        return sampled.sum();
+    }
+
+    /**
+     * 取得時間のパーセンタイル(ナノ秒)を取得する。
+     * <p/>
+     * 取得時間は2のべき乗の区間ごとに集計しているため、パーセンタイルを含む区間の上限値を返す。
+     *
+     * @param percentile パーセンタイル(0より大きく100以下)
+     * @return 取得時間のパーセンタイル(計測していない場合は0)
+     */
+    public long getLatencyPercentileNanos(double percentile) {
+        return latency.percentile(percentile);
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return latency.percentile(50.0);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return latency.percentile(99.0);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latency.max();
+    }
+
+    /**
+     * 取得回数の多いメッセージIDと推定取得回数を取得する。
+     *
+     * @return メッセージIDと推定取得回数(推定取得回数の降順)
+     */
+    public Map<String, Long> getHotIdCounts() {
+        return scale(hotIds.top());
+    }
+
+    /**
+     * 存在しなかった回数の多いメッセージIDと推定回数を取得する。
+     *
+     * @return メッセージIDと推定回数(推定回数の降順)
+     */
+    public Map<String, Long> getMissingIdCounts() {
+        return scale(missingIds.top());
+    }
+
+    /**
+     * 記録回数にサンプリング間隔を掛け、推定回数に変換する。
+     *
+     * @param counts メッセージIDと記録回数
+     * @return メッセージIDと推定回数
+     */
+    private Map<String, Long> scale(Map<String, Long> counts) {
+        for (Entry<String, Long> entry : counts.entrySet()) {
+            entry.setValue(entry.getValue() * sampleRate);
+        }
+        return counts;
+    }
+
+    @Override
+    public String[] getHotIds() {
+        return toStrings(getHotIdCounts());
+    }
+
+    @Override
+    public String[] getMissingIds() {
+        return toStrings(getMissingIdCounts());
+    }
+
+    /**
+     * メッセージIDと回数を、"メッセージID=回数"形式の文字列に変換する。
+     *
+     * @param counts メッセージIDと回数
+     * @return 変換した文字列
+     */
+    private static String[] toStrings(Map<String, Long> counts) {
+        final List<String> result = new ArrayList<String>(counts.size());
+        for (Entry<String, Long> entry : counts.entrySet()) {
+            result.add(entry.getKey() + '=' + entry.getValue());
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    @Override
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    @Override
+    public long getLastLoadDuration() {
+        return lastLoadDuration;
+    }
+
+    @Override
+    public long getMaxLoadDuration() {
+        return maxLoadDuration.get();
+    }
+
+    @Override
+    public int getLastLoadedMessageCount() {
+        return lastLoadedMessageCount;
+    }
+
+    @Override
+    public void reset() {
+        lookups.reset();
+        misses.reset();
+        sampled.reset();
+        latency.reset();
+        hotIds.reset();
+        missingIds.reset();
+        final RecentIdSet recent = recentIds;
+        if (recent != null) {
+            recent.drain();
+        }
+        loadCount.set(0L);
+        maxLoadDuration.set(0L);
+        lastLoadDuration = 0L;
+        lastLoadedMessageCount = 0;
+    }
+
+    /**
+     * サンプリング間隔から、サンプリングの判定に使用するマスクを算出する。
+     *
+     * @param sampleRate サンプリング間隔
+     * @return マスク(乗算結果の上位ビット)
+     */
+    private static long sampleMask(int sampleRate) {
+        return ~(-1L >>> Integer.numberOfTrailingZeros(sampleRate));
+    }
+
+    /**
+     * 取得時間を計測し、メッセージIDを記録するサンプリング間隔を設定する。
+     * <p/>
+     * 2のべき乗を設定すること。1を設定した場合は、全ての取得を計測する。デフォルトは64(64回に1回計測する)。
+     * 計測する取得は、取得回数から算出する擬似乱数で決定する。
+     *
+     * @param sampleRate サンプリング間隔
+     * @throws IllegalArgumentException 2のべき乗でない場合
+     */
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate <= 0 || Integer.bitCount(sampleRate) != 1) {
+            throw new IllegalArgumentException(
+                    "sample rate must be a power of two. sample rate = [" + sampleRate + ']');
+        }
+        this.sampleRate = sampleRate;
+        this.sampleMask = sampleMask(sampleRate);
+    }
+
+    /**
+     * 取得されたメッセージIDの記録を開始する。
+     * <p/>
+     * 取得回数の多いメッセージID({@link #getHotIdCounts()})とは別に、
+     * サンプリングせずに、存在したメッセージIDを上限件数まで記録する。
+     * 起動時に事前に取得するメッセージID({@link HotMessagePrefetcher})の収集に使用する。
+     * 記録を開始済みの場合は、上限件数が異なる場合のみ記録をやり直す。
+     *
+     * @param capacity 記録するメッセージIDの上限件数
+     */
+    synchronized void trackRecentIds(int capacity) {
+        final RecentIdSet recent = recentIds;
+        if (recent == null || recent.getCapacity() != capacity) {
+            recentIds = new RecentIdSet(capacity);
+        }
+    }
+
+    /**
+     * 前回の取り出し以降に取得されたメッセージIDを取り出し、記録を空にする。
+     *
+     * @return メッセージID(記録を開始していない場合は空のリスト、順序は不定)
+     * @see #trackRecentIds(int)
+     */
+    List<String> drainRecentIds() {
+        final RecentIdSet recent = recentIds;
+        return recent != null ? recent.drain() : Collections.<String>emptyList();
+    }
+
+    /**
+     * 報告するメッセージIDの件数を設定する。
+     * <p/>
+     * 設定した時点で、記録済みのメッセージIDは破棄する。デフォルトは20件。
+     *
+     * @param topIdCount 報告するメッセージIDの件数
+     */
+    public void setTopIdCount(int topIdCount) {
+        hotIds = new HeavyHitters(topIdCount);
+        missingIds = new HeavyHitters(topIdCount);
+    }
+
+    /**
+     * MBeanのオブジェクト名を設定する。
+     * <p/>
+     * nullを設定した場合は、MBeanを登録しない。デフォルトは"nablarch.core.message:type=MessageMetrics"。
+     *
+     * @param objectName MBeanのオブジェクト名
+     */
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+}
@@ -0,0 +1,112 @@
+package nablarch.core.message;
+
+/**
+ * メッセージの取得に関する計測値を公開するMBeanインタフェース。
+ *
+ * @see MessageMetrics
+ */
+public interface MessageMetricsMBean {
+
+    /**
+     * 文字列リソースの取得回数を取得する。
+     *
+     * @return 取得回数
+     */
+    long getLookupCount();
+
+    /**
+     * 文字列リソースが存在した回数を取得する。
+     *
+     * @return 存在した回数
+     */
+    long getHitCount();
+
+    /**
+     * 文字列リソースが存在しなかった回数を取得する。
+     *
+     * @return 存在しなかった回数
+     */
+    long getMissCount();
+
+    /**
+     * 文字列リソースが存在しなかった割合を取得する。
+     *
+     * @return 存在しなかった割合(0から1、取得していない場合は0)
+     */
+    double getMissRate();
+
+    /**
+     * 取得時間を計測した回数を取得する。
+     *
+     * @return 取得時間を計測した回数
+     */
+    long getSampledLookupCount();
+
+    /**
+     * 取得時間の中央値(ナノ秒)を取得する。
+     *
+     * @return 取得時間の中央値
+     */
+    long getLatencyP50Nanos();
+
+    /**
+     * 取得時間の99パーセンタイル(ナノ秒)を取得する。
+     *
+     * @return 取得時間の99パーセンタイル
+     */
+    long getLatencyP99Nanos();
+
+    /**
+     * 取得時間の最大値(ナノ秒)を取得する。
+     *
+     * @return 取得時間の最大値
+     */
+    long getLatencyMaxNanos();
+
+    /**
+     * 取得回数の多いメッセージIDを取得する。
+     *
+     * @return "メッセージID=推定取得回数"形式の文字列(推定取得回数の降順)
+     */
+    String[] getHotIds();
+
+    /**
+     * 存在しなかった回数の多いメッセージIDを取得する。
+     *
+     * @return "メッセージID=推定回数"形式の文字列(推定回数の降順)
+     */
+    String[] getMissingIds();
+
+    /**
+     * 文字列リソースをロードした回数を取得する。
+     *
+     * @return ロードした回数
+     */
+    long getLoadCount();
+
+    /**
+     * 最後のロードの所要時間(ミリ秒)を取得する。
+     *
+     * @return 最後のロードの所要時間
+     */
+    long getLastLoadDuration();
+
+    /**
+     * ロードの所要時間の最大値(ミリ秒)を取得する。
+     *
+     * @return ロードの所要時間の最大値
+     */
+    long getMaxLoadDuration();
+
+    /**
+     * 最後のロードでロードしたメッセージ数を取得する。
+     *
+     * @return 最後のロードでロードしたメッセージ数
+     */
+    int getLastLoadedMessageCount();
+
+    /**
+     * 計測値を破棄する。
+     */
+    void reset();
+}
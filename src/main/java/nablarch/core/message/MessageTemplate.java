@@ -0,0 +1,309 @@
+package nablarch.core.message;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 事前解析済みのメッセージテンプレート。
+ * <p/>
+ * テンプレート文字列を固定文字列と引数の埋め込み位置に分解して保持し、
+ * フォーマットの都度テンプレート文字列を解析する処理を省略する。
+ * フォーマット結果は、{@link MessageFormat}でフォーマットした結果と同一となる。
+ * <p/>
+ * 引数の埋め込み位置に書式({0,number,#}など)が指定されている場合や、
+ * テンプレート文字列の構文が不正な場合は事前解析を行わず、フォーマット時に{@link MessageFormat}へ処理を委譲する。
+ * <p/>
+ * 引数の埋め込み位置がないテンプレート(画面の項目名や固定のエラーメッセージなど)は定数として扱い、
+ * フォーマット時は、シングルクォートのエスケープを解除済みの固定文字列をそのまま返す。
+ * <p/>
+ * 本クラスは不変であり、スレッドセーフである。
+ */
+public final class MessageTemplate {
+
+    /** 事前解析できる引数インデックスの最大桁数 */
+    private static final int MAX_INDEX_DIGITS = 4;
+
+    /** 引数1つあたりの文字数の見積もり */
+    private static final int ESTIMATED_ARGUMENT_LENGTH = 16;
+
+    /** 引数の埋め込み位置がない場合の、引数のインデックス */
+    private static final int[] NO_ARGUMENTS = new int[0];
+
+    /** テンプレート文字列 */
+    private final String pattern;
+
+    /** 固定文字列(引数の埋め込み位置の数 + 1個) */
+    private final String[] literals;
+
+    /** 引数の埋め込み位置に対応する引数のインデックス */
+    private final int[] argumentIndexes;
+
+    /** 固定文字列の長さの合計 */
+    private final int literalLength;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param pattern テンプレート文字列
+     * @param literals 固定文字列(事前解析できない場合はnull)
+     * @param argumentIndexes 引数のインデックス(事前解析できない場合はnull)
+     */
+    private MessageTemplate(String pattern, String[] literals, int[] argumentIndexes) {
+        this.pattern = pattern;
+        this.literals = literals;
+        this.argumentIndexes = argumentIndexes;
+        int length = 0;
+        if (literals != null) {
+            for (String literal : literals) {
+                length += literal.length();
+            }
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * テンプレート文字列を解析し、{@link MessageTemplate}を生成する。
+     * <p/>
+     * 解析は{@link MessageFormat}と同じ規則で行う。
+     * シングルクォートで囲まれた範囲は固定文字列として扱い、連続する2つのシングルクォートは1つのシングルクォートとして扱う。
+     *
+     * @param pattern テンプレート文字列
+     * @return 解析結果
+     */
+    public static MessageTemplate compile(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern must not be null.");
+        }
+        final List<String> literals = new ArrayList<String>();
+        final List<Integer> indexes = new ArrayList<Integer>();
+        final StringBuilder literal = new StringBuilder(pattern.length());
+        final int length = pattern.length();
+        boolean inQuote = false;
+        int i = 0;
+        while (i < length) {
+            final char ch = pattern.charAt(i);
+            if (ch == '\'') {
+                if (i + 1 < length && pattern.charAt(i + 1) == '\'') {
+                    literal.append(ch);
+                    i += 2;
+                } else {
+                    inQuote = !inQuote;
+                    i++;
+                }
+            } else if (ch == '{' && !inQuote) {
+                final int close = pattern.indexOf('}', i + 1);
+                final int index = close < 0 ? -1 : parseIndex(pattern, i + 1, close);
+                if (index < 0) {
+                    // 書式付きの埋め込みや不正な構文はMessageFormatに委譲する
+                    return new MessageTemplate(pattern, null, null);
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                indexes.add(index);
+                i = close + 1;
+            } else {
+                literal.append(ch);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+
+        final int[] argumentIndexes = indexes.isEmpty() ? NO_ARGUMENTS : new int[indexes.size()];
+        for (int j = 0; j < argumentIndexes.length; j++) {
+            argumentIndexes[j] = indexes.get(j);
+        }
+        return new MessageTemplate(pattern, literals.toArray(new String[literals.size()]), argumentIndexes);
+    }
+
+    /**
+     * テンプレート文字列が、シングルクォートと波括弧を含まない(解析せずにそのまま固定文字列とできる)か否か。
+     *
+     * @param pattern テンプレート文字列
+     * @return シングルクォートと波括弧を含まない場合はtrue
+     */
+    static boolean isPlainLiteral(String pattern) {
+        return pattern.indexOf('{') < 0 && pattern.indexOf('\'') < 0;
+    }
+
+    /**
+     * 引数の埋め込み位置がないテンプレート文字列を、定数のテンプレートとして解析する。
+     * <p/>
+     * シングルクォートで囲まれていない波括弧を含む場合は、解析せずにnullを返す。
+     * それ以外は{@link #compile(String)}で解析し、エスケープを解除した固定文字列を保持する。
+     *
+     * @param pattern テンプレート文字列
+     * @return 定数のテンプレート(引数の埋め込み位置がある場合や、事前解析できない場合はnull)
+     */
+    static MessageTemplate compileConstant(String pattern) {
+        if (isPlainLiteral(pattern)) {
+            return new MessageTemplate(pattern, new String[] {pattern}, NO_ARGUMENTS);
+        }
+        boolean inQuote = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            final char ch = pattern.charAt(i);
+            if (ch == '\'') {
+                // 連続する2つのシングルクォートは、2回反転するため状態は変わらない
+                inQuote = !inQuote;
+            } else if (ch == '{' && !inQuote) {
+                return null;
+            }
+        }
+        final MessageTemplate template = compile(pattern);
+        return template.isConstant() ? template : null;
+    }
+
+    /**
+     * 引数のインデックスを解析する。
+     * <p/>
+     * 数字のみで構成されていない場合は、事前解析の対象外として-1を返す。
+     *
+     * @param pattern テンプレート文字列
+     * @param begin 開始位置
+     * @param end 終了位置(この位置の文字は含まない)
+     * @return 引数のインデックス(事前解析の対象外の場合は-1)
+     */
+    private static int parseIndex(String pattern, int begin, int end) {
+        if (begin == end || end - begin > MAX_INDEX_DIGITS) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = begin; i < end; i++) {
+            final char ch = pattern.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return -1;
+            }
+            index = index * 10 + (ch - '0');
+        }
+        return index;
+    }
+
+    /**
+     * テンプレート文字列を取得する。
+     *
+     * @return テンプレート文字列
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 引数の埋め込み位置がない定数のテンプレートか否か。
+     * <p/>
+     * 事前解析していないテンプレートは、定数として扱わない。
+     *
+     * @return 定数のテンプレートの場合はtrue
+     */
+    public boolean isConstant() {
+        return literals != null && argumentIndexes.length == 0;
+    }
+
+    /**
+     * 引数を埋め込んだ文字列を生成する。
+     * <p/>
+     * 定数のテンプレートの場合は、引数を無視して固定文字列をそのまま返す。
+     *
+     * @param options 埋め込む引数
+     * @return 生成した文字列
+     */
+    public String format(Object... options) {
+        if (literals == null) {
+            return new MessageFormat(pattern).format(options);
+        }
+        if (argumentIndexes.length == 0) {
+            return literals[0];
+        }
+        final StringBuilder sb = new StringBuilder(
+                literalLength + argumentIndexes.length * ESTIMATED_ARGUMENT_LENGTH);
+        return formatTo(sb, options).toString();
+    }
+
+    /**
+     * 引数を埋め込んだ文字列を、指定された{@link StringBuilder}に追加する。
+     * <p/>
+     * 呼び出し元で{@link StringBuilder}を再利用することで、中間的な文字列の生成を抑えることができる。
+     *
+     * @param sb 追加先
+     * @param options 埋め込む引数
+     * @return 追加先の{@link StringBuilder}
+     */
+    public StringBuilder formatTo(StringBuilder sb, Object... options) {
+        try {
+            return renderTo(sb, options);
+        } catch (IOException e) {
+            // StringBuilderへの追加では発生しない
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 引数を埋め込んだ文字列を、指定された{@link Appendable}に直接書き込む。
+     * <p/>
+     * 固定文字列と引数を順に書き込み、埋め込み後の文字列全体を生成しない。
+     * {@link java.io.Writer}(レスポンスのWriterなど)や{@link java.nio.CharBuffer}に書き込む場合に使用する。
+     * 書き込む内容は、{@link #format(Object...)}の結果と同一となる。
+     * 事前解析していないテンプレートの場合は、{@link MessageFormat}でフォーマットした結果を書き込む。
+     *
+     * @param out 書き込み先
+     * @param options 埋め込む引数
+     * @param <A> 書き込み先の型
+     * @return 書き込み先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public <A extends Appendable> A renderTo(A out, Object... options) throws IOException {
+        if (literals == null) {
+            out.append(new MessageFormat(pattern).format(options));
+            return out;
+        }
+        appendLiteral(out, literals[0]);
+        for (int i = 0; i < argumentIndexes.length; i++) {
+            appendArgument(out, argumentIndexes[i], options);
+            appendLiteral(out, literals[i + 1]);
+        }
+        return out;
+    }
+
+    /**
+     * 固定文字列を追加する。空文字列の場合は追加しない。
+     *
+     * @param out 追加先
+     * @param literal 固定文字列
+     * @throws IOException 追加に失敗した場合
+     */
+    private static void appendLiteral(Appendable out, String literal) throws IOException {
+        if (literal.length() > 0) {
+            out.append(literal);
+        }
+    }
+
+    /**
+     * 引数を文字列に変換して追加する。
+     * <p/>
+     * 変換規則は{@link MessageFormat}で書式を指定しなかった場合と同じ。
+     * 数値と日付は、デフォルトロケールに依存するため{@link MessageFormat}に変換を委譲する。
+     *
+     * @param out 追加先
+     * @param index 引数のインデックス
+     * @param options 引数
+     * @throws IOException 追加に失敗した場合
+     */
+    private static void appendArgument(Appendable out, int index, Object[] options) throws IOException {
+        if (options == null || index >= options.length) {
+            out.append('{').append(Integer.toString(index)).append('}');
+            return;
+        }
+        final Object option = options[index];
+        if (option == null) {
+            out.append("null");
+        } else if (option instanceof CharSequence) {
+            out.append((CharSequence) option);
+        } else if (option instanceof Number || option instanceof Date) {
+            out.append(new MessageFormat("{0}").format(new Object[] {option}));
+        } else {
+            final String value = option.toString();
+            out.append(value == null ? "null" : value);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package nablarch.core.message;
 
+import nablarch.core.ThreadContext;
 import nablarch.core.cache.BasicStaticDataCache;
 import nablarch.core.repository.SystemRepository;
 import nablarch.core.util.annotation.Published;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * アプリケーションがメッセージを取得する際に使用するユーティリティクラス。
  * <p/>
@@ -23,6 +31,11 @@ public final class MessageUtil {
      */
     private static final String STRING_RESOURCE_HOLDER_NAME = "stringResourceHolder";
 
+    /**
+     * メッセージフォーマッタのコンポーネント名。
+     */
+    private static final String MESSAGE_FORMATTER_NAME = "messageFormatter";
+
     /**
      * {@link StringResourceHolder}の初期値。
      */
@@ -44,6 +57,12 @@ public final class MessageUtil {
 
     /**
      * {@link StringResourceHolder}をリポジトリから取得する。
+     * <p/>
+     * {@link SystemRepository}は再ロード({@link SystemRepository#clear()}、{@link SystemRepository#load})を通知しないため、
+     * 取得結果はキャッシュせず、呼び出しごとにリポジトリを参照する。
+     * キャッシュの有効性の確認にも同じ参照が必要となるため、キャッシュしても参照のコストは削減できない。
+     * (参照のコストは{@code MessageUtilBenchmark}で計測できる。)
+     *
      * @return 取得したStringResourceHolder
      */
     private static StringResourceHolder getStringResourceHolder() {
@@ -74,6 +93,31 @@ public final class MessageUtil {
         return new Message(level, getStringResource(messageId), options);
     }
 
+    /**
+     * 文字列リソースの取得とフォーマットを、最初にフォーマットされるまで遅延するメッセージを生成する。
+     * <p/>
+     * バッチ処理のデバッグログなど、生成したメッセージの多くがフォーマットされない場合に使用する。
+     * 生成時は文字列リソースを取得しないため、メッセージIDに対応するメッセージが存在しない場合は、
+     * フォーマット時に{@link MessageNotFoundException}が送出される。
+     * 例:
+     * <pre>
+     * {@code
+     * Message message = MessageUtil.createDeferredMessage(MessageLevel.INFO, "batch.retry", count);
+     * if (LOGGER.isDebugEnabled()) {
+     *     LOGGER.logDebug(message.formatMessage()); //--> 出力する場合のみ文字列リソースを取得してフォーマットする。
+     * }
+     * }</pre>
+     *
+     * @param level メッセージレベル
+     * @param messageId メッセージID
+     * @param options メッセージフォーマットに使用するオプション引数
+     * @return 生成した{@link DeferredMessage}
+     * @see DeferredMessage
+     */
+    public static DeferredMessage createDeferredMessage(MessageLevel level, String messageId, Object... options) {
+        return new DeferredMessage(level, messageId, options);
+    }
+
     /**
      * メッセージIDに対応する{@link StringResource}を取得する。
      * メッセージIDがnullである場合は、nullを返す。
@@ -92,4 +136,190 @@ public final class MessageUtil {
     public static StringResource getStringResource(String messageId) {
         return getStringResourceHolder().get(messageId);
     }
+
+    /**
+     * メッセージIDに対応する{@link StringResource}を、例外を送出せずに取得する。
+     * <p/>
+     * 任意のメッセージIDの存在確認に使用する。
+     * 例:
+     * <pre>
+     * {@code
+     * StringResource resource = MessageUtil.findStringResource("errors.required.userName");
+     * if (resource == null) {
+     *     // 項目ごとのメッセージが定義されていない場合の処理
+     * }
+     * }</pre>
+     *
+     * @param messageId メッセージID
+     * @return 取得した文字列リソース(メッセージIDがnullか空文字列の場合、または存在しない場合はnull)
+     * @see StringResourceHolder#find(String)
+     */
+    public static StringResource findStringResource(String messageId) {
+        return getStringResourceHolder().find(messageId);
+    }
+
+    /**
+     * メッセージIDに対応する{@link StringResource}を取得する。
+     * 存在しない場合は、代替のメッセージIDに対応する{@link StringResource}を取得する。
+     * <p/>
+     * 例:
+     * <pre>
+     * {@code
+     * // errors.required.userNameが定義されていなければ、errors.requiredを取得する。
+     * StringResource resource = MessageUtil.getStringResourceOrDefault("errors.required.userName", "errors.required");
+     * }</pre>
+     *
+     * @param messageId メッセージID
+     * @param defaultMessageId 代替のメッセージID
+     * @return 取得した文字列リソース
+     * @throws MessageNotFoundException 代替のメッセージIDに対応するメッセージも存在しなかった場合
+     * @see StringResourceHolder#getOrDefault(String, String)
+     */
+    public static StringResource getStringResourceOrDefault(String messageId, String defaultMessageId) {
+        return getStringResourceHolder().getOrDefault(messageId, defaultMessageId);
+    }
+
+    /**
+     * 複数のメッセージIDに対応する{@link StringResource}を、まとめて取得する。
+     * <p/>
+     * {@link StringResourceHolder}の取得は1回のみ行い、重複するメッセージIDは1回だけ取得する。
+     * 存在しないメッセージIDがあっても例外は送出せず、取得結果で通知する。
+     * 例:
+     * <pre>
+     * {@code
+     * StringResourceBatch batch = MessageUtil.getStringResources(messageIds);
+     * if (batch.hasMissing()) {
+     *     // batch.getMissingIds()で、存在しなかったメッセージIDを参照できる
+     * }
+     * }</pre>
+     *
+     * @param messageIds メッセージID
+     * @return 取得結果(文字列リソースはメッセージIDと同じ順)
+     * @see StringResourceHolder#getAll(Collection)
+     */
+    public static StringResourceBatch getStringResources(Collection<String> messageIds) {
+        return getStringResourceHolder().getAll(messageIds);
+    }
+
+    /**
+     * 複数のメッセージを、まとめて生成する。
+     * <p/>
+     * 入力チェックの結果など、1件のリクエストで多数のメッセージを生成する場合に使用する。
+     * {@link StringResourceHolder}の取得は1回のみ行い、重複するメッセージIDは1回だけ取得する。
+     * 存在しないメッセージIDがあっても例外は送出せず、その位置の要素をnullとする。
+     * 例:
+     * <pre>
+     * {@code
+     * List<Message> messages = MessageUtil.createMessages(MessageLevel.ERROR,
+     *         Arrays.asList("errors.required", "errors.maxLength"),
+     *         Arrays.asList(new Object[] {"ユーザ名"}, new Object[] {"住所", 100}));
+     * }</pre>
+     *
+     * @param level メッセージレベル
+     * @param messageIds メッセージID
+     * @param options メッセージIDと同じ順の、メッセージフォーマットに使用するオプション引数(全てのメッセージでオプション引数がない場合はnull)
+     * @return 生成した{@link Message}(メッセージIDと同じ順で、存在しなかったメッセージIDの位置はnull)
+     * @throws IllegalArgumentException オプション引数の数がメッセージIDの数と一致しない場合
+     */
+    public static List<Message> createMessages(MessageLevel level, List<String> messageIds, List<Object[]> options) {
+        if (options != null && options.size() != messageIds.size()) {
+            throw new IllegalArgumentException("size of options does not match size of message ids."
+                    + " message ids size = [" + messageIds.size() + "], options size = [" + options.size() + ']');
+        }
+        final StringResourceBatch batch = getStringResourceHolder().getAll(messageIds);
+        final List<Message> messages = new ArrayList<Message>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            final StringResource resource = batch.getResource(i);
+            if (resource == null) {
+                messages.add(null);
+            } else {
+                messages.add(options == null ? new Message(level, resource) : new Message(level, resource, options.get(i)));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * メッセージIDに対応するメッセージを、指定された{@link Appendable}に直接書き込む。
+     * <p/>
+     * 言語は{@link ThreadContext#getLanguage()}を使用する。
+     * JSPのタグやJSONの出力など、メッセージをレスポンスの{@link java.io.Writer}に書き込む場合に使用する。
+     * {@link Message#formatMessage()}で文字列を生成してから書き込む場合と異なり、
+     * テンプレートの固定文字列と引数を書き込み先に直接書き込むため、中間的な文字列を生成しない。
+     * 例:
+     * <pre>
+     * {@code
+     * MessageUtil.renderMessage(response.getWriter(), "errors.maxLength", "sample", 2);
+     * }</pre>
+     *
+     * @param out 書き込み先
+     * @param messageId メッセージID
+     * @param options メッセージフォーマットに使用するオプション引数
+     * @throws IOException 書き込みに失敗した場合
+     * @throws MessageNotFoundException メッセージIDに対応するメッセージが存在しなかった場合
+     */
+    public static void renderMessage(Appendable out, String messageId, Object... options) throws IOException {
+        renderMessage(out, ThreadContext.getLanguage(), messageId, options);
+    }
+
+    /**
+     * メッセージIDに対応する、指定された言語のメッセージを、指定された{@link Appendable}に直接書き込む。
+     * <p/>
+     * 文字列リソースが{@link BasicStringResource}の場合は、事前解析済みのテンプレートから直接書き込む。
+     * それ以外の場合は、テンプレート文字列を解析してから書き込む。
+     * ただし、{@link BasicMessageFormatter}以外のメッセージフォーマッタが設定されている場合や、
+     * 引数がnullの場合、引数に{@link Map}、{@link Message}、{@link StringResource}を含む場合は、
+     * {@link Message#formatMessage(Locale)}と同じ結果となるよう、メッセージフォーマッタでフォーマットした文字列を書き込む。
+     *
+     * @param out 書き込み先
+     * @param locale 言語
+     * @param messageId メッセージID
+     * @param options メッセージフォーマットに使用するオプション引数
+     * @throws IOException 書き込みに失敗した場合
+     * @throws MessageNotFoundException メッセージIDに対応するメッセージが存在しなかった場合
+     * @see BasicStringResource#renderTo(Appendable, Locale, Object...)
+     */
+    public static void renderMessage(Appendable out, Locale locale, String messageId, Object... options)
+            throws IOException {
+        final StringResource resource = getStringResource(messageId);
+        if (resource instanceof BasicStringResource) {
+            ((BasicStringResource) resource).renderTo(out, locale, options);
+        } else if (requiresMessageFormatter(options)) {
+            out.append(new Message(MessageLevel.INFO, resource, options).formatMessage(locale));
+        } else {
+            MessageTemplate.compile(resource.getValue(locale)).renderTo(out, options);
+        }
+    }
+
+    /**
+     * テンプレートから直接書き込まずに、設定されたメッセージフォーマッタでフォーマットする必要があるか否かを判定する。
+     * <p/>
+     * 以下のいずれかに該当する場合は、テンプレートから直接書き込むと{@link Message#formatMessage(Locale)}と結果が異なるため、
+     * フォーマットする必要があると判定する。
+     * <ul>
+     * <li>メッセージフォーマッタ(コンポーネント名"messageFormatter")に{@link BasicMessageFormatter}以外のクラスが設定されている。</li>
+     * <li>引数に{@link Map}(名前付きの埋め込み位置に埋め込む値)を含む。</li>
+     * <li>引数に{@link Message}または{@link StringResource}(言語に応じてフォーマットまたは取得する値)を含む。</li>
+     * <li>引数がnull(テンプレートをフォーマットせずにそのまま使用する)。</li>
+     * </ul>
+     *
+     * @param options メッセージフォーマットに使用するオプション引数
+     * @return フォーマットする必要がある場合はtrue
+     */
+    static boolean requiresMessageFormatter(Object[] options) {
+        final Object formatter = SystemRepository.getObject(MESSAGE_FORMATTER_NAME);
+        if (formatter != null && formatter.getClass() != BasicMessageFormatter.class) {
+            return true;
+        }
+        if (options == null) {
+            // 引数がnullの場合、メッセージフォーマッタはテンプレートをそのまま返す(エスケープも解除しない)
+            return true;
+        }
+        for (Object option : options) {
+            if (option instanceof Map || option instanceof Message || option instanceof StringResource) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,443 @@
+package nablarch.core.message;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * ロード時に構築し、以降は変更しないメッセージIDと文字列リソースの対応表。
+ * <p/>
+ * メッセージIDの最小完全ハッシュ(CHD方式のハッシュと変位)で配列上の位置を求め、
+ * メッセージID、ハッシュ値、文字列リソースを同じ位置に格納した並行配列で保持する。
+ * {@link HashMap}と異なりエントリごとのオブジェクトや衝突時の連結リストを持たず、
+ * 取得時は変位表と配列上の1つの位置を参照するだけで結果が決まる。
+ * 格納されていないメッセージIDは、多くの場合ハッシュ値の比較のみで判定できる。
+ * <p/>
+ * ハッシュ値には{@link String#hashCode()}(Stringにキャッシュされる)を使用する。
+ * 異なるメッセージIDのハッシュ値が一致した場合は、2つ目以降のメッセージIDのみを補助の{@link HashMap}で保持し、
+ * 配列上のメッセージIDとハッシュ値が一致した場合にのみ参照する。
+ * <p/>
+ * 値は{@link #layout(Collection)}で配置を決めた後、公開する前に{@link #put(String, StringResource)}で設定する。
+ * 公開後は変更しないため、volatileな変数などを介して公開すれば、同期せずに参照できる。
+ * エントリは、{@link #layout(Collection)}で指定されたメッセージIDの順に返す。
+ */
+final class PerfectHashCatalog extends AbstractMap<String, StringResource> {
+
+    /**
+     * 1つのバケットに割り当てるメッセージIDの平均数。
+     * <p/>
+     * 大きくすると変位表は小さくなるが、変位の探索に時間がかかる。
+     * 10万件で計測し、構築時間が最も短かった値とする。
+     */
+    private static final int BUCKET_SIZE = 2;
+
+    /** バケットごとに試行する変位の上限(超えた場合は構築を諦める) */
+    private static final int MAX_DISPLACEMENT = 1 << 16;
+
+    /** 変位をハッシュ値に混ぜ込む際の乗数(黄金比) */
+    private static final int DISPLACEMENT_MULTIPLIER = 0x9E3779B9;
+
+    /** 配列上の位置をインデックスとしたメッセージID */
+    private final String[] ids;
+
+    /** 配列上の位置をインデックスとした、メッセージIDのハッシュ値 */
+    private final int[] hashes;
+
+    /** 配列上の位置をインデックスとした文字列リソース */
+    private final StringResource[] values;
+
+    /**
+     * バケットごとの変位。
+     * <p/>
+     * 0以上の場合は、ハッシュ値に混ぜ込んで位置を求める変位。
+     * 負の場合は、メッセージIDが1つのみのバケットに直接割り当てた位置(-1 - 位置)。
+     */
+    private final int[] displacements;
+
+    /** 配列上のメッセージIDとハッシュ値が一致したメッセージIDの文字列リソース(存在しない場合はnull) */
+    private final Map<String, StringResource> collisions;
+
+    /** {@link #layout(Collection)}で指定された順のメッセージID(エントリを返す順に使用する) */
+    private final String[] keyOrder;
+
+    /** エントリの集合(参照されるまでnull) */
+    private Set<Entry<String, StringResource>> entrySet;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param ids 配列上の位置をインデックスとしたメッセージID
+     * @param hashes 配列上の位置をインデックスとしたハッシュ値
+     * @param displacements バケットごとの変位
+     * @param collisions ハッシュ値が一致したメッセージIDの文字列リソース(存在しない場合はnull)
+     * @param keyOrder 指定された順のメッセージID
+     */
+    private PerfectHashCatalog(final String[] ids, final int[] hashes, final int[] displacements,
+            final Map<String, StringResource> collisions, final String[] keyOrder) {
+        this.ids = ids;
+        this.hashes = hashes;
+        this.values = new StringResource[ids.length];
+        this.displacements = displacements;
+        this.collisions = collisions;
+        this.keyOrder = keyOrder;
+    }
+
+    /**
+     * メッセージIDの配置を決め、値が設定されていない対応表を生成する。
+     * <p/>
+     * 配置は次の手順で決める。
+     * <ol>
+     * <li>ハッシュ値でメッセージIDをバケットに振り分ける。
+     * ハッシュ値が一致するメッセージIDは同じバケットに入るため、バケット内で2つ目以降を補助のmapに分ける。</li>
+     * <li>メッセージIDが多いバケットから順に、全てのメッセージIDが空いている位置に収まる変位を探す。</li>
+     * <li>メッセージIDが1つのみのバケットは、残りの位置に直接割り当てる。</li>
+     * </ol>
+     *
+     * @param keys メッセージID(重複しないこと)
+     * @return 対応表(メッセージIDが存在しない場合、または配置が決まらなかった場合はnull)
+     */
+    static PerfectHashCatalog layout(final Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        final String[] all = keys.toArray(new String[keys.size()]);
+        final int[] allHashes = new int[all.length];
+        for (int i = 0; i < all.length; i++) {
+            allHashes[i] = all[i].hashCode();
+        }
+
+        // バケットごとのメッセージIDを連続した範囲に並べる
+        final int bucketCount = (all.length + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        final int[] bucketStart = new int[bucketCount + 1];
+        final int[] bucketOf = new int[all.length];
+        for (int i = 0; i < all.length; i++) {
+            bucketOf[i] = range(mix(allHashes[i]), bucketCount);
+            bucketStart[bucketOf[i] + 1]++;
+        }
+        for (int b = 0; b < bucketCount; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        final int[] members = new int[all.length];
+        final int[] fill = new int[bucketCount];
+        for (int i = 0; i < all.length; i++) {
+            final int b = bucketOf[i];
+            members[bucketStart[b] + fill[b]++] = i;
+        }
+
+        // ハッシュ値が一致する2つ目以降のメッセージIDは、バケットから除いて補助のmapで保持する
+        final int[] bucketSizes = new int[bucketCount];
+        Map<String, StringResource> collisions = null;
+        for (int b = 0; b < bucketCount; b++) {
+            final int begin = bucketStart[b];
+            int size = 0;
+            for (int j = begin; j < bucketStart[b + 1]; j++) {
+                final int member = members[j];
+                if (containsHash(allHashes, members, begin, size, allHashes[member])) {
+                    if (collisions == null) {
+                        collisions = new HashMap<String, StringResource>();
+                    }
+                    collisions.put(all[member], null);
+                } else {
+                    members[begin + size++] = member;
+                }
+            }
+            bucketSizes[b] = size;
+        }
+
+        final int count = all.length - (collisions != null ? collisions.size() : 0);
+        final int[] displacements = new int[bucketCount];
+        final int[] slots = place(allHashes, members, bucketStart, bucketSizes, count, displacements);
+        if (slots == null) {
+            return null;
+        }
+        final String[] ids = new String[count];
+        final int[] hashes = new int[count];
+        for (int b = 0; b < bucketCount; b++) {
+            for (int j = bucketStart[b]; j < bucketStart[b] + bucketSizes[b]; j++) {
+                final int member = members[j];
+                ids[slots[member]] = all[member];
+                hashes[slots[member]] = allHashes[member];
+            }
+        }
+        return new PerfectHashCatalog(ids, hashes, displacements, collisions, all);
+    }
+
+    /**
+     * バケットの先頭から指定された数のメッセージIDに、ハッシュ値が一致するものがあるか否か。
+     *
+     * @param hashes メッセージIDのハッシュ値
+     * @param members バケットごとに並べたメッセージIDのインデックス
+     * @param begin バケットの開始位置
+     * @param size 比較するメッセージIDの数
+     * @param hash ハッシュ値
+     * @return ハッシュ値が一致するものがある場合はtrue
+     */
+    private static boolean containsHash(final int[] hashes, final int[] members, final int begin, final int size,
+            final int hash) {
+        for (int k = begin; k < begin + size; k++) {
+            if (hashes[members[k]] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * メッセージIDごとの配列上の位置を決め、バケットごとの変位を設定する。
+     *
+     * @param hashes メッセージIDのハッシュ値
+     * @param members バケットごとに並べたメッセージIDのインデックス
+     * @param bucketStart バケットごとの開始位置
+     * @param bucketSizes バケットごとのメッセージIDの数
+     * @param count 配列上の位置の数
+     * @param displacements 変位の設定先
+     * @return メッセージIDのインデックスに対応する配列上の位置(配置が決まらなかった場合はnull)
+     */
+    private static int[] place(final int[] hashes, final int[] members, final int[] bucketStart,
+            final int[] bucketSizes, final int count, final int[] displacements) {
+        final int bucketCount = bucketSizes.length;
+
+        // メッセージIDが多いバケットほど収まる変位が見つかりにくいため、先に配置する
+        int maxSize = 0;
+        for (int size : bucketSizes) {
+            maxSize = Math.max(maxSize, size);
+        }
+        final int[] sizeStart = new int[maxSize + 2];
+        for (int size : bucketSizes) {
+            sizeStart[maxSize - size + 1]++;
+        }
+        for (int s = 0; s <= maxSize; s++) {
+            sizeStart[s + 1] += sizeStart[s];
+        }
+        final int[] buckets = new int[bucketCount];
+        for (int b = 0; b < bucketCount; b++) {
+            buckets[sizeStart[maxSize - bucketSizes[b]]++] = b;
+        }
+
+        final int[] slots = new int[hashes.length];
+        final boolean[] occupied = new boolean[count];
+        int next = 0;
+        for (int b : buckets) {
+            final int begin = bucketStart[b];
+            final int size = bucketSizes[b];
+            if (size == 0) {
+                break;
+            }
+            if (size == 1) {
+                // 残りの空き位置に順に割り当てる
+                while (occupied[next]) {
+                    next++;
+                }
+                occupied[next] = true;
+                slots[members[begin]] = next;
+                displacements[b] = -1 - next;
+                continue;
+            }
+            final int displacement = findDisplacement(hashes, members, begin, size, occupied, slots);
+            if (displacement < 0) {
+                return null;
+            }
+            displacements[b] = displacement;
+        }
+        return slots;
+    }
+
+    /**
+     * バケットの全てのメッセージIDが、空いている異なる位置に収まる変位を探す。
+     * <p/>
+     * 見つかった場合は、位置を使用済みとし、メッセージIDごとの位置を設定する。
+     *
+     * @param hashes メッセージIDのハッシュ値
+     * @param members バケットごとに並べたメッセージIDのインデックス
+     * @param begin バケットの開始位置
+     * @param size バケットのメッセージIDの数
+     * @param occupied 使用済みの位置
+     * @param slots メッセージIDごとの位置の設定先
+     * @return 変位(見つからなかった場合は-1)
+     */
+    private static int findDisplacement(final int[] hashes, final int[] members, final int begin, final int size,
+            final boolean[] occupied, final int[] slots) {
+        final int count = occupied.length;
+        for (int displacement = 1; displacement <= MAX_DISPLACEMENT; displacement++) {
+            int placed = 0;
+            while (placed < size) {
+                final int member = members[begin + placed];
+                final int slot = slotOf(hashes[member], displacement, count);
+                if (occupied[slot]) {
+                    break;
+                }
+                occupied[slot] = true;
+                slots[member] = slot;
+                placed++;
+            }
+            if (placed == size) {
+                return displacement;
+            }
+            // 途中まで使用済みとした位置を戻して、次の変位を試す
+            for (int i = 0; i < placed; i++) {
+                occupied[slots[members[begin + i]]] = false;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * ハッシュ値に変位を混ぜ込んだ位置を求める。
+     *
+     * @param hash ハッシュ値
+     * @param displacement 変位
+     * @param count 位置の数
+     * @return 位置
+     */
+    private static int slotOf(final int hash, final int displacement, final int count) {
+        return range(mix(hash ^ displacement * DISPLACEMENT_MULTIPLIER), count);
+    }
+
+    /**
+     * ハッシュ値の各ビットを全体に拡散する(MurmurHash3の最終処理)。
+     *
+     * @param hash ハッシュ値
+     * @return 拡散したハッシュ値
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * 拡散したハッシュ値を、剰余を使わずに0以上{@code count}未満の値に対応付ける。
+     *
+     * @param hash 拡散したハッシュ値
+     * @param count 値の数
+     * @return 0以上{@code count}未満の値
+     */
+    private static int range(final int hash, final int count) {
+        return (int) (((hash & 0xFFFFFFFFL) * count) >>> Integer.SIZE);
+    }
+
+    /**
+     * メッセージIDが格納されている可能性がある、配列上の位置を求める。
+     *
+     * @param hash メッセージIDのハッシュ値
+     * @return 位置
+     */
+    private int indexOf(final int hash) {
+        final int displacement = displacements[range(mix(hash), displacements.length)];
+        return displacement < 0 ? -1 - displacement : slotOf(hash, displacement, ids.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 配列上の1つの位置のハッシュ値とメッセージIDを比較し、
+     * ハッシュ値のみが一致した場合は補助のmapを参照する。
+     */
+    @Override
+    public StringResource get(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        final String id = (String) key;
+        final int hash = id.hashCode();
+        final int index = indexOf(hash);
+        if (hashes[index] != hash) {
+            return null;
+        }
+        if (ids[index].equals(id)) {
+            return values[index];
+        }
+        return collisions != null ? collisions.get(id) : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * {@link #layout(Collection)}で配置したメッセージIDに、文字列リソースを設定する。
+     * <p/>
+     * ローダが、対応表を公開する前にのみ呼び出す。
+     *
+     * @param id メッセージID
+     * @param resource 文字列リソース
+     * @return 設定済みだった文字列リソース(設定されていなかった場合はnull)
+     * @throws IllegalArgumentException 配置していないメッセージIDの場合
+     */
+    @Override
+    public StringResource put(final String id, final StringResource resource) {
+        final int index = indexOf(id.hashCode());
+        if (ids[index].equals(id)) {
+            final StringResource previous = values[index];
+            values[index] = resource;
+            return previous;
+        }
+        if (collisions != null && collisions.containsKey(id)) {
+            return collisions.put(id, resource);
+        }
+        throw new IllegalArgumentException("message id was not laid out. id = [" + id + ']');
+    }
+
+    @Override
+    public int size() {
+        return keyOrder.length;
+    }
+
+    @Override
+    public Set<Entry<String, StringResource>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * {@link #layout(Collection)}で指定されたメッセージIDの順にエントリを返す集合。
+     * <p/>
+     * ロード元のmapと同じ順で返すことで、{@link PropertiesStringResourceLoader#loadAll()}の順序を変えない。
+     */
+    private final class EntrySet extends AbstractSet<Entry<String, StringResource>> {
+
+        @Override
+        public Iterator<Entry<String, StringResource>> iterator() {
+            return new Iterator<Entry<String, StringResource>>() {
+
+                /** 次に返すエントリの位置 */
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < keyOrder.length;
+                }
+
+                @Override
+                public Entry<String, StringResource> next() {
+                    if (index >= keyOrder.length) {
+                        throw new NoSuchElementException();
+                    }
+                    final String id = keyOrder[index++];
+                    return new SimpleImmutableEntry<String, StringResource>(id, get(id));
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return keyOrder.length;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package nablarch.core.message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * メッセージIDの接頭辞から、最長一致した接頭辞の位置を求めるトライ。
+ * <p/>
+ * 分岐のない経路は1つの節にまとめ(基数木)、子の節は先頭の文字の昇順に配列で保持して二分探索する。
+ * このため、接頭辞の数によらず、メッセージIDの長さに比例した時間で判定できる。
+ * 生成後は変更しないため、本クラスはスレッドセーフである。
+ */
+final class PrefixTrie {
+
+    /** 一致する接頭辞がない場合の位置 */
+    static final int NO_MATCH = -1;
+
+    /** 子の先頭の文字一覧を線形探索する、子の数の上限 */
+    private static final int LINEAR_SEARCH_THRESHOLD = 8;
+
+    /** 子を持たない節の、子の先頭の文字一覧 */
+    private static final char[] NO_FIRSTS = new char[0];
+
+    /** 子を持たない節の、子の一覧 */
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /** 根の節 */
+    private final Node root;
+
+    /** 節の数 */
+    private final int nodeCount;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param root 根の節
+     * @param nodeCount 節の数
+     */
+    private PrefixTrie(final Node root, final int nodeCount) {
+        this.root = root;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * 接頭辞一覧からトライを生成する。
+     * <p/>
+     * 接頭辞の位置は、指定された一覧上の位置とする。
+     *
+     * @param prefixes 接頭辞一覧
+     * @return トライ
+     * @throws IllegalArgumentException 接頭辞がnullの場合、または重複している場合
+     */
+    static PrefixTrie of(final List<String> prefixes) {
+        final Integer[] order = new Integer[prefixes.size()];
+        for (int i = 0; i < order.length; i++) {
+            if (prefixes.get(i) == null) {
+                throw new IllegalArgumentException("prefix must not be null. prefixes = " + prefixes);
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                return prefixes.get(o1).compareTo(prefixes.get(o2));
+            }
+        });
+        final String[] keys = new String[order.length];
+        final int[] indexes = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = prefixes.get(order[i]);
+            indexes[i] = order[i];
+            if (i > 0 && keys[i].equals(keys[i - 1])) {
+                throw new IllegalArgumentException("duplicate prefix was specified. prefix = [" + keys[i] + ']');
+            }
+        }
+        final int[] count = new int[1];
+        final Node root = build("", keys, indexes, 0, keys.length, 0, count);
+        return new PrefixTrie(root, count[0]);
+    }
+
+    /**
+     * 昇順に並んだ接頭辞一覧の範囲から、節を生成する。
+     * <p/>
+     * 範囲内の接頭辞は、先頭から{@code depth}文字が一致していること。
+     *
+     * @param label 親の節からの経路の文字列
+     * @param keys 昇順に並んだ接頭辞一覧
+     * @param indexes 接頭辞の位置
+     * @param from 範囲の開始位置
+     * @param to 範囲の終了位置(この位置を含まない)
+     * @param depth 範囲内で一致している文字数
+     * @param count 生成した節の数
+     * @return 節
+     */
+    private static Node build(final String label, final String[] keys, final int[] indexes,
+            final int from, final int to, final int depth, final int[] count) {
+        count[0]++;
+        int start = from;
+        int index = NO_MATCH;
+        if (start < to && keys[start].length() == depth) {
+            index = indexes[start];
+            start++;
+        }
+        final List<Node> children = new ArrayList<Node>();
+        while (start < to) {
+            final char first = keys[start].charAt(depth);
+            int end = start + 1;
+            while (end < to && keys[end].charAt(depth) == first) {
+                end++;
+            }
+            // 昇順に並んでいるため、範囲の先頭と末尾の共通部分が範囲全体の共通部分となる
+            final int common = commonLength(keys[start], keys[end - 1]);
+            children.add(build(keys[start].substring(depth, common), keys, indexes, start, end, common, count));
+            start = end;
+        }
+        if (children.isEmpty()) {
+            return new Node(label, index, NO_FIRSTS, NO_CHILDREN);
+        }
+        final char[] firsts = new char[children.size()];
+        for (int i = 0; i < firsts.length; i++) {
+            firsts[i] = children.get(i).label[0];
+        }
+        return new Node(label, index, firsts, children.toArray(new Node[children.size()]));
+    }
+
+    /**
+     * 2つの文字列の、先頭から一致する文字数を求める。
+     *
+     * @param s1 文字列
+     * @param s2 文字列
+     * @return 先頭から一致する文字数
+     */
+    private static int commonLength(final String s1, final String s2) {
+        final int max = Math.min(s1.length(), s2.length());
+        int i = 0;
+        while (i < max && s1.charAt(i) == s2.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * メッセージIDに最長一致する接頭辞の位置を求める。
+     *
+     * @param key メッセージID
+     * @return 接頭辞の位置(一致する接頭辞がない場合は{@link #NO_MATCH})
+     */
+    int match(final String key) {
+        Node node = root;
+        int match = node.index;
+        int position = 0;
+        while (position < key.length()) {
+            final int i = indexOf(node.firsts, key.charAt(position));
+            if (i < 0) {
+                break;
+            }
+            final Node child = node.children[i];
+            if (!matches(key, position, child.label)) {
+                break;
+            }
+            position += child.label.length;
+            node = child;
+            if (node.index != NO_MATCH) {
+                match = node.index;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * 子の経路の先頭の文字一覧から、文字の位置を探す。
+     * <p/>
+     * 子が少ない場合は二分探索よりも線形探索が高速なため、子の数に応じて探索方法を切り替える。
+     *
+     * @param firsts 子の経路の先頭の文字一覧(昇順)
+     * @param c 文字
+     * @return 位置(存在しない場合は負の値)
+     */
+    private static int indexOf(final char[] firsts, final char c) {
+        if (firsts.length > LINEAR_SEARCH_THRESHOLD) {
+            return Arrays.binarySearch(firsts, c);
+        }
+        for (int i = 0; i < firsts.length; i++) {
+            if (firsts[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * メッセージIDの指定した位置から、経路の文字列が一致するか否かを判定する。
+     * <p/>
+     * {@link String#regionMatches(int, String, int, int)}よりも高速なため、文字ごとに比較する。
+     *
+     * @param key メッセージID
+     * @param position 比較を開始する位置
+     * @param label 経路の文字列
+     * @return 一致する場合はtrue
+     */
+    private static boolean matches(final String key, final int position, final char[] label) {
+        if (key.length() - position < label.length) {
+            return false;
+        }
+        for (int i = 0; i < label.length; i++) {
+            if (key.charAt(position + i) != label[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 節の数を取得する。
+     *
+     * @return 節の数
+     */
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * トライの節。
+     */
+    private static final class Node {
+
+        /** 親の節からの経路の文字列(根の節は空) */
+        private final char[] label;
+
+        /** この節で終わる接頭辞の位置(終わる接頭辞がない場合は{@link #NO_MATCH}) */
+        private final int index;
+
+        /** 子の経路の先頭の文字一覧(昇順) */
+        private final char[] firsts;
+
+        /** 子の一覧(先頭の文字一覧と同じ順) */
+        private final Node[] children;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param label 親の節からの経路の文字列
+         * @param index この節で終わる接頭辞の位置
+         * @param firsts 子の経路の先頭の文字一覧
+         * @param children 子の一覧
+         */
+        Node(final String label, final int index, final char[] firsts, final Node[] children) {
+            this.label = label.toCharArray();
+            this.index = index;
+            this.firsts = firsts;
+            this.children = children;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package nablarch.core.message;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * プロパティファイルを読み込み、キーと値の組を順に通知するパーサ。
+ * <p/>
+ * {@link java.util.Properties#load(Reader)}と同じ書式(コメント行、継続行、エスケープシーケンス、キーと値の区切り)を解釈する。
+ * {@link java.util.Properties}と異なり、読み込んだキーと値を保持せずに{@link Handler}へそのまま通知するため、
+ * 同期化されたテーブルへの格納や、キー一覧の複製が発生しない。
+ * 同じキーが複数回出現した場合は、出現した順に全て通知する(後から通知した値を優先すること)。
+ * <p/>
+ * 読み込みは静的メソッド{@link #parse(Reader, Handler)}で行う。
+ * 読み込み中の状態(バッファや読み込み位置)は呼び出しごとに内部で生成するインスタンスに閉じており、
+ * 呼び出し側が共有する状態を持たないため、異なる読み込み元であれば複数のスレッドから同時に呼び出してよい。
+ */
+final class PropertiesParser {
+
+    /**
+     * 読み込んだキーと値の組を受け取るインタフェース。
+     */
+    interface Handler {
+
+        /**
+         * キーと値の組を受け取る。
+         *
+         * @param key キー
+         * @param value 値
+         */
+        void property(String key, String value);
+    }
+
+    /** 読み込みバッファのサイズ */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** 読み込み元 */
+    private final Reader reader;
+
+    /** 読み込みバッファ */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /** 読み込みバッファ上の次に読む位置 */
+    private int offset;
+
+    /** 読み込みバッファ上の有効な文字数 */
+    private int limit;
+
+    /** 論理行のバッファ */
+    private char[] line = new char[256];
+
+    /** エスケープシーケンスを変換するためのバッファ */
+    private char[] converted = new char[256];
+
+    /**
+     * コンストラクタ。
+     *
+     * @param reader 読み込み元
+     */
+    private PropertiesParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * プロパティファイルを読み込み、キーと値の組を順に通知する。
+     * <p/>
+     * 読み込み元はクローズしない。
+     *
+     * @param reader 読み込み元
+     * @param handler キーと値の組を受け取るハンドラ
+     * @throws IOException 読み込みに失敗した場合
+     * @throws IllegalArgumentException 不正な\\uxxxx形式のエスケープシーケンスが含まれる場合
+     */
+    static void parse(Reader reader, Handler handler) throws IOException {
+        final PropertiesParser parser = new PropertiesParser(reader);
+        int length;
+        while ((length = parser.readLine()) >= 0) {
+            parser.split(length, handler);
+        }
+    }
+
+    /**
+     * 論理行のキーと値を分割し、ハンドラに通知する。
+     *
+     * @param length 論理行の長さ
+     * @param handler キーと値の組を受け取るハンドラ
+     */
+    private void split(int length, Handler handler) {
+        int keyLength = 0;
+        int valueStart = length;
+        boolean hasSeparator = false;
+        boolean precedingBackslash = false;
+        while (keyLength < length) {
+            final char c = line[keyLength];
+            if ((c == '=' || c == ':') && !precedingBackslash) {
+                valueStart = keyLength + 1;
+                hasSeparator = true;
+                break;
+            } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                valueStart = keyLength + 1;
+                break;
+            }
+            precedingBackslash = c == '\\' && !precedingBackslash;
+            keyLength++;
+        }
+        while (valueStart < length) {
+            final char c = line[valueStart];
+            if (c != ' ' && c != '\t' && c != '\f') {
+                if (!hasSeparator && (c == '=' || c == ':')) {
+                    hasSeparator = true;
+                } else {
+                    break;
+                }
+            }
+            valueStart++;
+        }
+        final String key = convert(0, keyLength);
+        handler.property(key, convert(valueStart, length - valueStart));
+    }
+
+    /**
+     * 論理行の一部のエスケープシーケンスを変換し、文字列を生成する。
+     *
+     * @param start 開始位置
+     * @param length 長さ
+     * @return 変換した文字列
+     */
+    private String convert(int start, int length) {
+        final int end = start + length;
+        int escape = start;
+        while (escape < end && line[escape] != '\\') {
+            escape++;
+        }
+        if (escape == end) {
+            // エスケープシーケンスを含まない場合は、変換用のバッファを経由せずに生成する
+            return new String(line, start, length);
+        }
+        if (converted.length < length) {
+            converted = new char[length];
+        }
+        int out = escape - start;
+        System.arraycopy(line, start, converted, 0, out);
+        int in = escape;
+        while (in < end) {
+            char c = line[in++];
+            if (c == '\\' && in < end) {
+                c = line[in++];
+                if (c == 'u') {
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        final int digit = in < end ? hexDigit(line[in++]) : -1;
+                        if (digit < 0) {
+                            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                        }
+                        value = (value << 4) + digit;
+                    }
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+            converted[out++] = c;
+        }
+        return new String(converted, 0, out);
+    }
+
+    /**
+     * 16進数の1桁を数値に変換する。
+     *
+     * @param c 文字
+     * @return 数値(16進数の文字でない場合は-1)
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * 次の論理行を読み込む。
+     * <p/>
+     * 空行とコメント行を読み飛ばし、継続行を連結した論理行を{@link #line}に格納する。
+     * 各行の先頭の空白と、継続を表す末尾の\は含まない。
+     *
+     * @return 論理行の長さ(終端に達した場合は-1)
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private int readLine() throws IOException {
+        int length = 0;
+        boolean skipWhiteSpace = true;
+        boolean commentLine = false;
+        boolean newLine = true;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+        boolean skipLF = false;
+
+        while (true) {
+            if (offset >= limit && !fill()) {
+                if (length == 0 || commentLine) {
+                    return -1;
+                }
+                return precedingBackslash ? length - 1 : length;
+            }
+            final char c = buffer[offset++];
+            if (skipLF) {
+                skipLF = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            if (skipWhiteSpace) {
+                if (c == ' ' || c == '\t' || c == '\f') {
+                    continue;
+                }
+                if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+                    continue;
+                }
+                skipWhiteSpace = false;
+                appendedLineBegin = false;
+            }
+            if (newLine) {
+                newLine = false;
+                if (c == '#' || c == '!') {
+                    commentLine = true;
+                    continue;
+                }
+            }
+
+            if (c != '\n' && c != '\r') {
+                if (commentLine) {
+                    // コメント行の内容は保持しない
+                    continue;
+                }
+                if (length == line.length) {
+                    final char[] expanded = new char[length * 2];
+                    System.arraycopy(line, 0, expanded, 0, length);
+                    line = expanded;
+                }
+                line[length++] = c;
+                precedingBackslash = c == '\\' && !precedingBackslash;
+            } else if (commentLine || length == 0) {
+                commentLine = false;
+                newLine = true;
+                skipWhiteSpace = true;
+                length = 0;
+            } else if (precedingBackslash) {
+                // 継続行の場合は、末尾の\を除いて次の行を連結する
+                length--;
+                skipWhiteSpace = true;
+                appendedLineBegin = true;
+                precedingBackslash = false;
+                skipLF = c == '\r';
+            } else {
+                return length;
+            }
+        }
+    }
+
+    /**
+     * 読み込みバッファに次の文字を読み込む。
+     *
+     * @return 読み込んだ場合はtrue(終端に達した場合はfalse)
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer);
+        offset = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+}
@@ -1,33 +1,82 @@
 package nablarch.core.message;
 
 import nablarch.core.cache.StaticDataLoader;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.repository.initialization.Initializable;
 import nablarch.core.util.FileUtil;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
 
 
 /**
  * 文字列リソースをプロパティファイルから取得するクラス。
+ * <p/>
+ * プロパティファイルは、最初に文字列リソースが要求された時点でロードする。
+ * 初期化時にバックグラウンドでロードを開始する場合は、{@link #setPreloadOnInitialize(boolean)}を設定する。
  * 
  * @author kawasima
  * @author Kiyohito Itoh
  */
-public class PropertiesStringResourceLoader implements StaticDataLoader<StringResource> {
+public class PropertiesStringResourceLoader implements StaticDataLoader<StringResource>, Initializable {
 
-    /** プロパティファイルからロードしたメッセージ一覧 */
-    private final Map<String, Map<String, String>> messages = new HashMap<String, Map<String, String>>();
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(PropertiesStringResourceLoader.class);
+
+    /**
+     * 名前空間の索引名。
+     * <p/>
+     * 索引のキーは、メッセージIDの名前空間(メッセージIDを"."で区切った先頭からの区分)とする。
+     *
+     * @see #setNamespaceDepth(int)
+     */
+    public static final String NAMESPACE_INDEX = "namespace";
+
+    /** 言語ごとの名前空間の索引名の接頭辞 */
+    private static final String LANGUAGE_INDEX_PREFIX = NAMESPACE_INDEX + ':';
+
+    /**
+     * プロパティファイルからロードした状態(ロード前はnull)。
+     * <p/>
+     * ロード完了後に、文字列リソース一覧と付随する情報を全て構築した{@link LoadedState}を丸ごと設定し、以降は変更しない。
+     * volatileの1つのフィールドで公開することで、参照時にロックを取得せずに、同じロードの結果を一貫して読み取ることができる。
+     * 参照する処理は、フィールドを1回だけ読み取って使用すること。
+     */
+    private volatile LoadedState state;
+
+    /** 再ロードに成功した回数 */
+    private volatile long reloadCount;
+
+    /** 再ロードに失敗した回数 */
+    private volatile long reloadFailureCount;
+
+    /** 最後に成功した再ロードの所要時間(ミリ秒) */
+    private volatile long lastReloadDuration;
 
     /** プロパティファイルが配置されているディレクトリ */
     private String directory = "classpath:";
@@ -41,72 +90,734 @@ public class PropertiesStringResourceLoader implements StaticDataLoader<StringRe
     /** ロケール一覧 */
     private Set<String> locales = new HashSet<String>();
 
+    /** 代替ロケール一覧(設定されていない場合は代替しない) */
+    private List<String> fallbackLocales;
+
+    /** プロパティファイルを読み込むスレッド数(1の場合は逐次読み込む) */
+    private int loadThreads = 1;
+
+    /** ロードの計測値を収集する{@link MessageMetrics}(設定されていない場合は計測しない) */
+    private MessageMetrics metrics;
+
+    /** ロケールごとのプロパティファイルを、必要になった時点で読み込むか否か */
+    private boolean loadLocalesOnDemand;
+
+    /**
+     * ロードと再ロードを排他制御するロック。
+     * <p/>
+     * ロード中に要求したスレッドは、このロックでロードの完了を待機する。
+     * 仮想スレッドで待機した場合にキャリアスレッドを占有しないよう、モニタ(synchronized)ではなく{@link ReentrantLock}を使用する。
+     */
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    /**
+     * バックグラウンドでのロード(開始していない場合はnull)。
+     * <p/>
+     * ロード中のロックの取得を待機せずに開始済みのロードを返せるよう、ロックではなく比較と設定で1つだけ開始する。
+     */
+    private final AtomicReference<FutureTask<Integer>> preload = new AtomicReference<FutureTask<Integer>>();
+
+    /** ロード中に使用する最小限の文字列リソース一覧(設定されていない場合とロード完了後はnull) */
+    private volatile Map<String, StringResource> bootstrapResources;
+
+    /** 初期化時に、バックグラウンドでロードを開始するか否か */
+    private boolean preloadOnInitialize;
+
+    /** ロード中に使用する最小限のメッセージを定義したプロパティファイル名(設定されていない場合はnull) */
+    private String bootstrapFileName;
+
+    /** 名前空間とする、メッセージIDの区分数 */
+    private int namespaceDepth = 1;
+
+    /** ロード時に、同じ内容の文字列を1つのインスタンスに集約するか否か */
+    private boolean deduplicateValues;
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * ロード中の場合は、ロード中に使用する最小限のメッセージ({@link #setBootstrapFileName(String)})に定義されていれば待機せずに返す。
+     * 定義されていない場合は、ロードの完了を待機する。
+     */
     @Override
     public StringResource getValue(final Object key) {
-        if (messages.isEmpty()) {
-            load();
+        final LoadedState loadedState = state;
+        final Map<String, StringResource> loaded;
+        if (loadedState != null) {
+            loaded = loadedState.resources;
+        } else {
+            final Map<String, StringResource> bootstrap = bootstrapResources;
+            if (bootstrap != null && key != null && bootstrap.containsKey(key.toString())) {
+                return bootstrap.get(key.toString());
+            }
+            loaded = load().resources;
         }
-
-        return key != null && messages.containsKey(key.toString())
-                ? new BasicStringResource(key.toString(), messages.get(key.toString()))
-                : null;
+        return key != null ? loaded.get(key.toString()) : null;
     }
 
     @Override
     public List<StringResource> loadAll() {
-        if (messages.isEmpty()) {
-            load();
+        return new ArrayList<StringResource>(getResources().values());
+    }
+
+    /**
+     * 文字列リソース一覧を取得する。
+     * <p/>
+     * ロード済みの場合はロックを取得せずに返す。
+     *
+     * @return 文字列リソース一覧
+     */
+    private Map<String, StringResource> getResources() {
+        return getState().resources;
+    }
+
+    /**
+     * ロード済みの状態を取得する。ロード前の場合はロードする。
+     * <p/>
+     * ロード済みの場合はロックを取得せずに返す。
+     *
+     * @return ロード済みの状態
+     */
+    private LoadedState getState() {
+        final LoadedState loaded = state;
+        return loaded != null ? loaded : load();
+    }
+
+    /**
+     * プロパティファイルからメッセージをロードする。
+     *
+     * @return ロード済みの状態
+     */
+    private LoadedState load() {
+        loadLock.lock();
+        try {
+            final LoadedState current = state;
+            if (current != null) {
+                return current;
+            }
+            final LoadedState loaded = loadResources();
+            bootstrapResources = null;
+            return loaded;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * 初期化する。
+     * <p/>
+     * {@link #setPreloadOnInitialize(boolean)}にtrueを設定した場合は、バックグラウンドでロードを開始する。
+     *
+     * @see #preload()
+     */
+    @Override
+    public void initialize() {
+        if (preloadOnInitialize) {
+            preload();
+        }
+    }
+
+    /**
+     * バックグラウンドのスレッドでロードを開始し、ロードの完了を待機するための{@link Future}を返す。
+     * <p/>
+     * 起動直後の最初のリクエストがロードを待機しないよう、アプリケーションの起動時に呼び出す。
+     * ロード中に文字列リソースを要求したスレッドは、ロードの完了を待機する。
+     * ただし、ロード中に使用する最小限のメッセージ({@link #setBootstrapFileName(String)})に定義されている場合は、待機せずに取得できる。
+     * <p/>
+     * 既に開始している場合は、開始済みのロードの{@link Future}を返す。
+     * ロード済みの場合は、完了した{@link Future}を返す。
+     * ロードに失敗した場合は、{@link Future#get()}が原因の例外を送出し、次に文字列リソースが要求された時点で再度ロードする。
+     * 失敗したロードは保持しないため、失敗した後に呼び出した場合は新たにロードを開始する
+     * (その時点でロード済みの場合は、完了した{@link Future}を返す)。
+     * <p/>
+     * 文字列リソースをキャッシュする{@link nablarch.core.cache.BasicStaticDataCache}の初期化時に全てロードする設定(loadOnStartup)の場合は、
+     * キャッシュの初期化がロードの完了を待機するため、本メソッドを使用しても起動時間は短縮されない。
+     *
+     * @return ロードの完了を待機するための{@link Future}(ロードした文字列リソースの数を返す)
+     * @throws IllegalArgumentException ロード中に使用する最小限のメッセージのロードに失敗した場合
+     */
+    public Future<Integer> preload() {
+        final FutureTask<Integer> started = preload.get();
+        if (started != null) {
+            return started;
+        }
+        final FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                final long start = System.currentTimeMillis();
+                try {
+                    final int count = getResources().size();
+                    if (LOGGER.isInfoEnabled()) {
+                        LOGGER.logInfo("message resources were preloaded. count = [" + count
+                                + "], duration = [" + (System.currentTimeMillis() - start) + "ms]");
+                    }
+                    return count;
+                } catch (RuntimeException e) {
+                    LOGGER.logWarn("failed to preload message resources. directory = [" + directory + ']', e);
+                    throw e;
+                }
+            }
+        }) {
+            @Override
+            protected void setException(final Throwable t) {
+                // 再度呼び出された場合に、失敗したロードではなく新たなロードを返すよう破棄する
+                preload.compareAndSet(this, null);
+                super.setException(t);
+            }
+        };
+        if (!preload.compareAndSet(null, task)) {
+            return preload.get();
+        }
+        if (state != null) {
+            task.run();
+            return task;
         }
-        final List<StringResource> resources = new ArrayList<StringResource>();
-        for (Entry<String, Map<String, String>> entry : messages.entrySet()) {
-            resources.add(new BasicStringResource(entry.getKey(), entry.getValue()));
+        if (bootstrapFileName != null) {
+            try {
+                bootstrapResources = loadBootstrap();
+            } catch (RuntimeException e) {
+                // 同時に呼び出したスレッドが待機し続けないよう取り消し、再度呼び出された場合に開始できるよう破棄する
+                task.cancel(false);
+                preload.compareAndSet(task, null);
+                throw e;
+            }
         }
-        return resources;
+        final Thread thread = new Thread(task, "message-resource-preloader");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
     }
 
     /**
-     * プロパティファイルからメッセージをロードする。
+     * ロード中に使用する最小限のメッセージをロードする。
+     * <p/>
+     * ディレクトリ、ロケール、代替ロケールは、本クラスと同じ設定を使用する。
+     *
+     * @return 文字列リソース一覧
+     */
+    private Map<String, StringResource> loadBootstrap() {
+        final PropertiesStringResourceLoader bootstrap = new PropertiesStringResourceLoader();
+        bootstrap.setDirectory(directory);
+        bootstrap.setFileName(bootstrapFileName);
+        bootstrap.setDefaultLocale(defaultLocale);
+        bootstrap.setLocales(new ArrayList<String>(locales));
+        bootstrap.setFallbackLocales(fallbackLocales);
+        bootstrap.setDeduplicateValues(false);
+        return bootstrap.getResources();
+    }
+
+    /**
+     * プロパティファイルからメッセージを再ロードする。
+     * <p/>
+     * 新しい文字列リソース一覧を全て構築した後に、ロード済みの文字列リソース一覧と入れ替える。
+     * 文字列リソースの取得はロックを取得しないため、再ロード中も待機せずに再ロード前の文字列リソースを取得できる。
+     * 再ロードに失敗した場合は、再ロード前の文字列リソースを保持したまま例外を送出する。
+     *
+     * @throws IllegalArgumentException プロパティファイルのロードに失敗した場合
+     */
+    public void reload() {
+        loadLock.lock();
+        try {
+            final long start = System.currentTimeMillis();
+            try {
+                loadResources();
+            } catch (RuntimeException e) {
+                reloadFailureCount++;
+                throw e;
+            }
+            bootstrapResources = null;
+            lastReloadDuration = System.currentTimeMillis() - start;
+            reloadCount++;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * ロード後にプロパティファイルが変更されたか否かを判定する。
+     * <p/>
+     * ファイルシステム上のファイルは最終更新日時とサイズで、それ以外(jarファイル内のリソースなど)は内容のチェックサムで判定する。
+     * ロード前の場合は、変更されていないと判定する。
+     *
+     * @return 変更された場合はtrue
      */
-    private synchronized void load() {
-        if (!messages.isEmpty()) {
-            return;
+    public boolean isModified() {
+        final LoadedState loaded = state;
+        if (loaded == null) {
+            return false;
         }
-        load(defaultLocale, directory + fileName + ".properties");
+        for (Entry<String, String> entry : loaded.fingerprints.entrySet()) {
+            if (!entry.getValue().equals(fingerprint(entry.getKey()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * プロパティファイルからメッセージをロードし、ロード済みの状態を入れ替える。
+     *
+     * @return ロード済みの状態
+     */
+    private LoadedState loadResources() {
+        final long start = System.currentTimeMillis();
+        final List<String> languages = new ArrayList<String>();
+        final List<String> paths = new ArrayList<String>();
+        languages.add(defaultLocale);
+        paths.add(directory + fileName + ".properties");
         for (String locale : locales) {
-            load(locale, directory + fileName + '_' + locale + ".properties");
+            languages.add(locale);
+            paths.add(directory + fileName + '_' + locale + ".properties");
+        }
+        final LanguageTable languageTable = LanguageTable.of(languages, getFallbackChain());
+
+        // ロード中の変更を取りこぼさないよう、読み込む前に変更判定用の値を取得する
+        final Map<String, String> loadedFingerprints = new HashMap<String, String>();
+        for (String path : paths) {
+            loadedFingerprints.put(path, fingerprint(path));
         }
+
+        // 必要になった時点で読み込む場合は、デフォルトのロケールと同じ言語のプロパティファイルのみを読み込む
+        final List<String> eagerLanguages = new ArrayList<String>();
+        final List<String> eagerPaths = new ArrayList<String>();
+        final List<List<String>> lazyPaths = new ArrayList<List<String>>();
+        for (int ordinal = 0; ordinal < languageTable.size(); ordinal++) {
+            lazyPaths.add(new ArrayList<String>());
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            final int ordinal = languageTable.ordinalOf(LanguageTable.toKey(languages.get(i)));
+            if (loadLocalesOnDemand && ordinal != 0) {
+                lazyPaths.get(ordinal).add(paths.get(i));
+            } else {
+                eagerLanguages.add(languages.get(i));
+                eagerPaths.add(paths.get(i));
+            }
+        }
+
+        // 同じメッセージIDのキーは最初に読み込んだ文字列を使い回し、ロケール間で1つだけ保持する
+        final Map<String, String[]> messages = new HashMap<String, String[]>();
+        if (loadThreads > 1 && eagerPaths.size() > 1) {
+            // 並列に読み込んだ場合も、上書きの順序が逐次の場合と同じになるよう、ファイルの順にマージする
+            final List<PropertyList> parsed = parseInParallel(eagerPaths);
+            for (int i = 0; i < parsed.size(); i++) {
+                parsed.get(i).replay(new MessageMerger(eagerLanguages.get(i), languageTable, messages));
+            }
+        } else {
+            for (int i = 0; i < eagerPaths.size(); i++) {
+                parse(eagerPaths.get(i), new MessageMerger(eagerLanguages.get(i), languageTable, messages));
+            }
+        }
+
+        // ロケール間やメッセージ間で同じ文字列は、1つのインスタンスに集約する
+        final StringPool pool = new StringPool(deduplicateValues ? messages.size() * eagerPaths.size() : 0);
+        if (deduplicateValues) {
+            for (String[] values : messages.values()) {
+                pool.canonicalizeAll(values);
+            }
+        }
+        // 必要になった時点で読み込むロケールは読み込みごとの集約先で集約するため、ここで集約先を解放する
+        pool.close();
+
+        // ロード後は変更しないため、最小完全ハッシュの対応表で保持する(配置が決まらない場合はHashMapで保持する)
+        final PerfectHashCatalog catalog = PerfectHashCatalog.layout(messages.keySet());
+        final Map<String, StringResource> loaded = catalog != null
+                ? catalog : new HashMap<String, StringResource>(messages.size() * 4 / 3 + 1);
+        final AtomicLong constants = new AtomicLong();
+        final LazyLocaleLoader lazyLoader = loadLocalesOnDemand
+                ? new LazyLocaleLoader(lazyPaths, loaded, deduplicateValues ? pool : null, constants) : null;
+        long constantCount = 0;
+        for (Entry<String, String[]> entry : messages.entrySet()) {
+            final String id = entry.getKey();
+            final BasicStringResource resource = new BasicStringResource(id, languageTable, entry.getValue(), lazyLoader);
+            // 引数の埋め込み位置がない文字列は、フォーマット時に解析しないよう定数のテンプレートとする
+            constantCount += resource.foldConstants();
+            loaded.put(id, resource);
+        }
+        constants.addAndGet(constantCount);
+        final LoadedState loadedState = new LoadedState(loaded, loadedFingerprints, languageTable,
+                new StringResourceIndex(loaded, languageTable, namespaceDepth), lazyLoader,
+                deduplicateValues ? pool : null, constants);
+        state = loadedState;
+        if (metrics != null) {
+            metrics.recordLoad(System.currentTimeMillis() - start, loaded.size());
+        }
+        return loadedState;
     }
 
     /**
-     * プロパティファイルからメッセージをロードする。
+     * 全てのロケールに共通する代替チェーンを取得する。
+     * <p/>
+     * 代替ロケール一覧が設定されている場合は、代替ロケール一覧の後にデフォルトのロケールを追加したものを返す。
      *
-     * @param locale ロケール
+     * @return 代替チェーン
+     */
+    private List<String> getFallbackChain() {
+        final List<String> chain = new ArrayList<String>();
+        if (fallbackLocales != null) {
+            chain.addAll(fallbackLocales);
+            chain.add(defaultLocale);
+        }
+        return chain;
+    }
+
+    /**
+     * プロパティファイルを並列に読み込む。
+     * <p/>
+     * 最大で{@link #setLoadThreads(int)}で設定したスレッド数で読み込み、全ての読み込みが完了するまで待機する。
+     *
+     * @param paths プロパティファイルのパス一覧
+     * @return 読み込んだキーと値の組の一覧(パス一覧と同じ順)
+     */
+    private List<PropertyList> parseInParallel(final List<String> paths) {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(loadThreads, paths.size()));
+        try {
+            final List<Future<PropertyList>> futures = new ArrayList<Future<PropertyList>>(paths.size());
+            for (final String path : paths) {
+                futures.add(executor.submit(new Callable<PropertyList>() {
+                    @Override
+                    public PropertyList call() {
+                        final PropertyList properties = new PropertyList();
+                        parse(path, properties);
+                        return properties;
+                    }
+                }));
+            }
+            final List<PropertyList> parsed = new ArrayList<PropertyList>(paths.size());
+            for (int i = 0; i < futures.size(); i++) {
+                parsed.add(await(futures.get(i), paths.get(i)));
+            }
+            return parsed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * プロパティファイルの読み込み完了を待機する。
+     *
+     * @param future 読み込み結果
      * @param path プロパティファイルのパス
+     * @return 読み込んだキーと値の組
      */
-    private void load(final String locale, final String path) {
+    private static PropertyList await(final Future<PropertyList> future, final String path) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalArgumentException("failed to load the file. file path = [" + path + ']', e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while loading the file. file path = [" + path + ']', e);
+        }
+    }
 
+    /**
+     * プロパティファイルを読み込み、キーと値の組をハンドラに通知する。
+     *
+     * @param path プロパティファイルのパス
+     * @param handler キーと値の組を受け取るハンドラ
+     */
+    static void parse(final String path, final PropertiesParser.Handler handler) {
         final InputStream inStream = FileUtil.getResource(path);
-        final Properties props = new Properties();
         Reader reader = null;
         try {
             reader = new InputStreamReader(inStream, "UTF-8");
-            props.load(reader);
+            PropertiesParser.parse(reader, handler);
         } catch (IOException e) {
             throw new IllegalArgumentException("failed to load the file. file path = [" + path + ']', e);
         } finally {
             FileUtil.closeQuietly(reader);
         }
+    }
+
+    /**
+     * 1回のロードで構築した、文字列リソース一覧と付随する情報。
+     * <p/>
+     * 構築後は変更しない。ロード(再ロードを含む)ごとに生成し、1つのvolatileフィールドで公開する。
+     */
+    static final class LoadedState {
+
+        /** 文字列リソース一覧 */
+        private final Map<String, StringResource> resources;
+
+        /** ロードしたプロパティファイルのパスをキーとした、変更判定用の値 */
+        private final Map<String, String> fingerprints;
+
+        /** 文字列リソースが使用する言語の対応表 */
+        private final LanguageTable languageTable;
+
+        /** 文字列リソースの索引 */
+        private final StringResourceIndex index;
+
+        /** ロケールごとのプロパティファイルを必要になった時点で読み込むローダ(全て読み込む場合はnull) */
+        private final LazyLocaleLoader lazyLocales;
+
+        /** 文字列を集約した{@link StringPool}(集約しない場合はnull) */
+        private final StringPool stringPool;
+
+        /** 定数のテンプレートとした文字列の数(必要になった時点で読み込んだロケールの分を加算する) */
+        private final AtomicLong constantTemplateCount;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param resources 文字列リソース一覧
+         * @param fingerprints 変更判定用の値
+         * @param languageTable 言語の対応表
+         * @param index 文字列リソースの索引
+         * @param lazyLocales 必要になった時点で読み込むローダ
+         * @param stringPool 文字列を集約した{@link StringPool}
+         * @param constantTemplateCount 定数のテンプレートとした文字列の数
+         */
+        LoadedState(final Map<String, StringResource> resources, final Map<String, String> fingerprints,
+                final LanguageTable languageTable, final StringResourceIndex index, final LazyLocaleLoader lazyLocales,
+                final StringPool stringPool, final AtomicLong constantTemplateCount) {
+            this.resources = resources;
+            this.fingerprints = fingerprints;
+            this.languageTable = languageTable;
+            this.index = index;
+            this.lazyLocales = lazyLocales;
+            this.stringPool = stringPool;
+            this.constantTemplateCount = constantTemplateCount;
+        }
+    }
+
+    /**
+     * 読み込んだキーと値の組を、メッセージ一覧にマージするハンドラ。
+     */
+    private static final class MessageMerger implements PropertiesParser.Handler {
+
+        /** ロケールの序数 */
+        private final int ordinal;
+
+        /** ロケールの数 */
+        private final int size;
+
+        /** マージ先(メッセージIDをキーとした、言語の序数をインデックスとする文字列の配列) */
+        private final Map<String, String[]> messages;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param locale ロケール
+         * @param languageTable 言語と配列上の位置の対応表
+         * @param messages マージ先
+         */
+        MessageMerger(final String locale, final LanguageTable languageTable, final Map<String, String[]> messages) {
+            this.ordinal = languageTable.ordinalOf(LanguageTable.toKey(locale));
+            this.size = languageTable.size();
+            this.messages = messages;
+        }
 
-        for (String name : props.stringPropertyNames()) {
-            if (!messages.containsKey(name)) {
-                messages.put(name, new HashMap<String, String>());
+        @Override
+        public void property(final String key, final String value) {
+            String[] values = messages.get(key);
+            if (values == null) {
+                values = new String[size];
+                messages.put(key, values);
             }
-            messages.get(name).put(locale, props.getProperty(name));
+            values[ordinal] = value;
+        }
+    }
+
+    /**
+     * 読み込んだキーと値の組を、読み込んだ順に保持するハンドラ。
+     * <p/>
+     * 並列に読み込んだ結果を、後からファイルの順にマージするために使用する。
+     */
+    private static final class PropertyList implements PropertiesParser.Handler {
+
+        /** キーと値を交互に格納した一覧 */
+        private final List<String> pairs = new ArrayList<String>();
+
+        @Override
+        public void property(final String key, final String value) {
+            pairs.add(key);
+            pairs.add(value);
+        }
+
+        /**
+         * 保持しているキーと値の組を、読み込んだ順に別のハンドラに通知する。
+         *
+         * @param handler 通知先のハンドラ
+         */
+        void replay(final PropertiesParser.Handler handler) {
+            for (int i = 0; i < pairs.size(); i += 2) {
+                handler.property(pairs.get(i), pairs.get(i + 1));
+            }
+        }
+    }
+
+    /**
+     * プロパティファイルの変更判定用の値を取得する。
+     *
+     * @param path プロパティファイルのパス
+     * @return 変更判定用の値
+     */
+    private static String fingerprint(final String path) {
+        final URL url = FileUtil.getResourceURL(path);
+        if (url == null) {
+            return "none";
+        }
+        if ("file".equals(url.getProtocol())) {
+            final File file = toFile(url);
+            return "file:" + file.lastModified() + ':' + file.length();
+        }
+        final CRC32 crc = new CRC32();
+        InputStream inStream = null;
+        try {
+            inStream = url.openStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            return "error";
+        } finally {
+            FileUtil.closeQuietly(inStream);
+        }
+        return "crc:" + crc.getValue();
+    }
+
+    /**
+     * URLをファイルに変換する。
+     *
+     * @param url URL
+     * @return ファイル
+     */
+    private static File toFile(final URL url) {
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return new File(url.getPath());
         }
     }
 
+    /**
+     * 読み込み済みのロケール一覧を取得する。
+     * <p/>
+     * ロケールごとのプロパティファイルを必要になった時点で読み込む場合に、実際に使用されているロケールの確認に使用する。
+     * 全て読み込む場合は、ロード済みであれば全てのロケールを返す。
+     *
+     * @return 読み込み済みのロケール一覧(デフォルトのロケールが先頭、ロード前は空のリスト)
+     */
+    public List<String> getLoadedLocales() {
+        final List<String> loadedLocales = new ArrayList<String>();
+        final LoadedState loaded = state;
+        if (loaded == null) {
+            return loadedLocales;
+        }
+        final LazyLocaleLoader lazyLoader = loaded.lazyLocales;
+        final LanguageTable languageTable = loaded.languageTable;
+        if (lazyLoader == null) {
+            for (int ordinal = 0; ordinal < languageTable.size(); ordinal++) {
+                loadedLocales.add(languageTable.getLanguage(ordinal));
+            }
+        } else {
+            for (int ordinal : lazyLoader.getLoadedOrdinals()) {
+                loadedLocales.add(languageTable.getLanguage(ordinal));
+            }
+        }
+        return loadedLocales;
+    }
+
+    /**
+     * 必要になった時点でロケールのプロパティファイルを読み込んだ回数を取得する。
+     *
+     * @return 読み込んだ回数(全て読み込む場合とロード前は0)
+     */
+    int getLocaleFileLoadCount() {
+        final LoadedState loaded = state;
+        final LazyLocaleLoader lazyLoader = loaded != null ? loaded.lazyLocales : null;
+        return lazyLoader == null ? 0 : lazyLoader.getFileLoadCount();
+    }
+
+    /**
+     * ロード時に同じ内容の文字列を集約した結果を取得する。
+     * <p/>
+     * 読み込んだ全てのロケールの文字列について、集約前後の文字列の数と、集約によって削減した推定サイズを返す。
+     * ロケールを必要になった時点で読み込む場合は、その時点までに読み込んだロケールの結果を返す。
+     * 必要になった時点で読み込んだロケールの文字列は、そのロケール内でのみ集約する。
+     * メッセージIDは、ロケール間で最初に読み込んだものを使用するため、集約の対象に含めない。
+     *
+     * @return 文字列を集約した結果(ロード前、または集約しない場合はnull)
+     * @see #setDeduplicateValues(boolean)
+     */
+    public StringPoolReport getStringPoolReport() {
+        final LoadedState loaded = state;
+        final StringPool pool = loaded != null ? loaded.stringPool : null;
+        return pool != null ? pool.report() : null;
+    }
+
+    /**
+     * ロード時に定数のテンプレートとした文字列の数を取得する。
+     * <p/>
+     * 読み込んだ全てのロケールの文字列のうち、引数の埋め込み位置({0}など)がない文字列の数を返す。
+     * 定数のテンプレートとした文字列は、{@link BasicStringResource#format(Locale, Object...)}などでフォーマットする際に、
+     * テンプレート文字列を解析せず、エスケープを解除済みの文字列をそのまま返す。
+     * ロケールを必要になった時点で読み込む場合は、その時点までに読み込んだロケールの数を返す。
+     *
+     * @return 定数のテンプレートとした文字列の数(ロード前は0)
+     */
+    public long getConstantTemplateCount() {
+        final LoadedState loaded = state;
+        return loaded != null ? loaded.constantTemplateCount.get() : 0;
+    }
+
+    /**
+     * 再ロードに成功した回数を取得する。
+     *
+     * @return 再ロードに成功した回数
+     */
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * 再ロードに失敗した回数を取得する。
+     *
+     * @return 再ロードに失敗した回数
+     */
+    public long getReloadFailureCount() {
+        return reloadFailureCount;
+    }
+
+    /**
+     * 最後に成功した再ロードの所要時間(ミリ秒)を取得する。
+     *
+     * @return 最後に成功した再ロードの所要時間(再ロードしていない場合は0)
+     */
+    public long getLastReloadDuration() {
+        return lastReloadDuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 以下の索引から取得する。索引は、索引ごとに最初に取得した時点で構築する。
+     * <ul>
+     * <li>{@link #NAMESPACE_INDEX}: 名前空間をキーとして、その名前空間に属する文字列リソースを取得する。</li>
+     * <li>{@link #languageIndexName(String)}: 名前空間をキーとして、その名前空間に属し、言語の文字列が定義されている文字列リソースを取得する。</li>
+     * </ul>
+     * 例えば、クライアント側の入力チェックに使用する"errors"の英語のメッセージは、
+     * {@code getValues(languageIndexName("en"), "errors")}で、全ての文字列リソースを走査せずに取得できる。
+     *
+     * @return 文字列リソース一覧(該当するものがない場合は空のリスト、索引名が不正な場合はnull)
+     */
     @Override
     public List<StringResource> getValues(final String indexName, final Object key) {
+        if (indexName == null || key == null) {
+            return null;
+        }
+        final StringResourceIndex loadedIndex = getIndex();
+        if (NAMESPACE_INDEX.equals(indexName)) {
+            return loadedIndex.getByNamespace(key.toString());
+        }
+        if (indexName.startsWith(LANGUAGE_INDEX_PREFIX)) {
+            return loadedIndex.getByLanguage(indexName.substring(LANGUAGE_INDEX_PREFIX.length()), key.toString());
+        }
         return null;
     }
 
@@ -115,14 +826,86 @@ public class PropertiesStringResourceLoader implements StaticDataLoader<StringRe
         return value.getId();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * {@link #NAMESPACE_INDEX}の場合は、メッセージIDの名前空間を返す。
+     * {@link #languageIndexName(String)}の場合は、言語の文字列が定義されていればメッセージIDの名前空間を、定義されていなければnullを返す。
+     *
+     * @return 索引のキー(索引名が不正な場合はnull)
+     */
     @Override
     public Object generateIndexKey(final String indexName, final StringResource value) {
+        if (NAMESPACE_INDEX.equals(indexName)) {
+            return StringResourceIndex.namespaceOf(value.getId(), namespaceDepth);
+        }
+        if (indexName != null && indexName.startsWith(LANGUAGE_INDEX_PREFIX) && value instanceof BasicStringResource) {
+            final BasicStringResource resource = (BasicStringResource) value;
+            final String language = LanguageTable.toKey(indexName.substring(LANGUAGE_INDEX_PREFIX.length()));
+            final int ordinal = resource.getLanguageTable().ordinalOf(language);
+            if (ordinal >= 0 && resource.getValueAt(ordinal) != null) {
+                return StringResourceIndex.namespaceOf(value.getId(), namespaceDepth);
+            }
+        }
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * {@link #NAMESPACE_INDEX}と、デフォルトのロケールとロケール一覧の言語ごとの{@link #languageIndexName(String)}を返す。
+     * <p/>
+     * ロケールごとのプロパティファイルを必要になった時点で読み込む場合は、その時点までに読み込んだ言語の索引名のみを返す。
+     * 初期化時に索引を構築する{@link nablarch.core.cache.BasicStaticDataCache}(loadOnStartup)が、
+     * 索引のキーを生成するために全てのロケールを読み込まないようにするためである。
+     * 返さなかった言語の索引は、{@link #getValues(String, Object)}で最初に参照された時点で構築される。
+     */
     @Override
     public List<String> getIndexNames() {
-        return null;
+        final Set<String> languages = new LinkedHashSet<String>();
+        languages.add(LanguageTable.toKey(defaultLocale));
+        if (!loadLocalesOnDemand) {
+            for (String locale : locales) {
+                languages.add(LanguageTable.toKey(locale));
+            }
+        } else {
+            final LoadedState loaded = state;
+            if (loaded != null && loaded.lazyLocales != null) {
+                for (int ordinal : loaded.lazyLocales.getLoadedOrdinals()) {
+                    languages.add(loaded.languageTable.getLanguage(ordinal));
+                }
+            }
+        }
+        final List<String> indexNames = new ArrayList<String>(languages.size() + 1);
+        indexNames.add(NAMESPACE_INDEX);
+        for (String language : languages) {
+            indexNames.add(languageIndexName(language));
+        }
+        return indexNames;
+    }
+
+    /**
+     * ロード済みの文字列リソースの索引を取得する。ロード前の場合はロードする。
+     * <p/>
+     * 索引はロード(再ロードを含む)ごとに生成するため、参照の比較で再ロードされたか否かを判定できる。
+     *
+     * @return ロード済みの文字列リソースの索引
+     */
+    StringResourceIndex getIndex() {
+        return getState().index;
+    }
+
+    /**
+     * 言語ごとの名前空間の索引名を取得する。
+     * <p/>
+     * 索引のキーは名前空間とし、言語の文字列が定義されている文字列リソースのみを対象とする。
+     * 代替ロケールの文字列のみが存在する文字列リソースは対象としない。
+     *
+     * @param language 言語({@link Locale#toString()}と同じ形式)
+     * @return 索引名
+     */
+    public static String languageIndexName(final String language) {
+        return LANGUAGE_INDEX_PREFIX + LanguageTable.toKey(language);
     }
 
     /**
@@ -160,4 +943,129 @@ public class PropertiesStringResourceLoader implements StaticDataLoader<StringRe
     public void setLocales(final List<String> locales) {
         this.locales.addAll(locales);
     }
+
+    /**
+     * 代替ロケール一覧を設定する。
+     * <p/>
+     * 要求されたロケールの文字列が存在しない場合に、文字列を探すロケールを優先度の高い順に設定する。
+     * 要求されたロケール(言語_国_バリアント、言語_国、言語の順)、代替ロケール一覧、デフォルトのロケールの順に文字列を探す。
+     * 例えば、代替ロケール一覧に"en"を設定した場合、zh_TWに対してはzh_TW、zh、en、デフォルトのロケールの順に探す。
+     * <p/>
+     * デフォルトのロケールのみに代替する場合は、空のリストを設定する。
+     * 設定しない場合は、要求されたロケールのみから文字列を探す。
+     *
+     * @param fallbackLocales 代替ロケール一覧
+     */
+    public void setFallbackLocales(final List<String> fallbackLocales) {
+        this.fallbackLocales = fallbackLocales;
+    }
+
+    /**
+     * プロパティファイルを読み込むスレッド数を設定する。
+     * <p/>
+     * 2以上を設定した場合は、デフォルトのプロパティファイルとロケールごとのプロパティファイルを並列に読み込む。
+     * 読み込み結果は、並列に読み込んだ場合も逐次読み込んだ場合と同じになる。
+     * デフォルトは1(逐次読み込む)。
+     *
+     * @param loadThreads プロパティファイルを読み込むスレッド数
+     */
+    public void setLoadThreads(final int loadThreads) {
+        this.loadThreads = loadThreads;
+    }
+
+    /**
+     * ロケールごとのプロパティファイルを、必要になった時点で読み込むか否かを設定する。
+     * <p/>
+     * trueを設定した場合、ロード時にはデフォルトのロケールのプロパティファイルのみを読み込み、
+     * その他のロケールのプロパティファイルは、そのロケールの文字列が最初に要求された時点で読み込む。
+     * 一部のロケールのみを使用するサーバでは、起動時間と使用しないロケールの文字列が占めるヒープを削減できる。
+     * 同じロケールの読み込みが同時に要求された場合は1回だけ読み込み、読み込み中も他のロケールの参照は待機しない。
+     * <p/>
+     * メッセージIDはデフォルトのロケールのプロパティファイルで決定するため、
+     * デフォルトのロケールのプロパティファイルに存在しないメッセージIDは、他のロケールのプロパティファイルに存在しても取得できない。
+     * ロケールのプロパティファイルの読み込みに失敗した場合は、そのロケールの文字列の取得時に例外を送出する。
+     * 言語ごとの名前空間の索引名({@link #getIndexNames()})は、読み込み済みの言語のみを返す。
+     * デフォルトはfalse(ロード時に全てのロケールのプロパティファイルを読み込む)。
+     *
+     * @param loadLocalesOnDemand ロケールごとのプロパティファイルを必要になった時点で読み込む場合はtrue
+     */
+    public void setLoadLocalesOnDemand(final boolean loadLocalesOnDemand) {
+        this.loadLocalesOnDemand = loadLocalesOnDemand;
+    }
+
+    /**
+     * 初期化時に、バックグラウンドでロードを開始するか否かを設定する。
+     * <p/>
+     * trueを設定した場合は、本クラスを初期化対象のリストに追加すること。
+     * デフォルトはfalse(最初に文字列リソースが要求された時点でロードする)。
+     *
+     * @param preloadOnInitialize 初期化時にバックグラウンドでロードを開始する場合はtrue
+     * @see #preload()
+     */
+    public void setPreloadOnInitialize(final boolean preloadOnInitialize) {
+        this.preloadOnInitialize = preloadOnInitialize;
+    }
+
+    /**
+     * バックグラウンドでのロード中に使用する、最小限のメッセージを定義したプロパティファイル名を設定する。
+     * <p/>
+     * {@link #preload()}の開始時に、このファイル名のプロパティファイルを同期的にロードし、
+     * ロードが完了するまでは、ここに定義されたメッセージを待機せずに返す。
+     * ヘルスチェックやエラー画面など、起動直後に必要なメッセージのみを定義すること。
+     * <p/>
+     * ディレクトリとロケールは本クラスと同じ設定を使用するため、ロケールごとのプロパティファイルも配置すること。
+     * ロード中に返した文字列リソースはキャッシュに保持される場合があるため、
+     * {@link #setFileName(String)}のプロパティファイルと同じ内容とすること。
+     * デフォルトは設定なし(ロードの完了を待機する)。
+     *
+     * @param bootstrapFileName ロード中に使用する最小限のメッセージを定義したプロパティファイル名
+     */
+    public void setBootstrapFileName(final String bootstrapFileName) {
+        this.bootstrapFileName = bootstrapFileName;
+    }
+
+    /**
+     * ロード時に、同じ内容の文字列を1つのインスタンスに集約するか否かを設定する。
+     * <p/>
+     * 集約する場合は、ロケール間やメッセージ間で同じ文字列(代替ロケールの文字列を複写した翻訳など)を1つだけ保持する。
+     * 全ての文字列のハッシュ値を求めるため、同じ文字列がほとんどない場合は、ヒープを削減せずにロード時間のみが増加する。
+     * ロード時間が約1割増加するため、代替ロケールの文字列を複写した翻訳が多いなど、ヒープの削減が見込める場合に設定すること。
+     * 集約した結果は{@link #getStringPoolReport()}で確認できる。
+     * 設定はロード(再ロードを含む)時に反映する。デフォルトはfalse(集約しない)。
+     *
+     * @param deduplicateValues 集約する場合はtrue
+     */
+    public void setDeduplicateValues(final boolean deduplicateValues) {
+        this.deduplicateValues = deduplicateValues;
+    }
+
+    /**
+     * 名前空間とする、メッセージIDの区分数を設定する。
+     * <p/>
+     * メッセージIDを"."で区切り、メッセージ自体の名前である最後の区分を除いた先頭から、設定した区分数までを名前空間とする。
+     * 例えば、1の場合"screen.user.required"の名前空間は"screen"に、2の場合は"screen.user"になる。
+     * 設定はロード(再ロードを含む)時に反映する。デフォルトは1。
+     *
+     * @param namespaceDepth 名前空間とする、メッセージIDの区分数
+     * @throws IllegalArgumentException 1未満の場合
+     */
+    public void setNamespaceDepth(final int namespaceDepth) {
+        if (namespaceDepth < 1) {
+            throw new IllegalArgumentException(
+                    "namespace depth must be 1 or more. namespace depth = [" + namespaceDepth + ']');
+        }
+        this.namespaceDepth = namespaceDepth;
+    }
+
+    /**
+     * ロードの計測値を収集する{@link MessageMetrics}を設定する。
+     * <p/>
+     * 設定した場合は、ロード(再ロードを含む)ごとに所要時間とロードしたメッセージ数を記録する。
+     * デフォルトは計測しない。
+     *
+     * @param metrics ロードの計測値を収集する{@link MessageMetrics}
+     */
+    public void setMetrics(final MessageMetrics metrics) {
+        this.metrics = metrics;
+    }
 }
@@ -0,0 +1,161 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.StaticDataCache;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.repository.initialization.Initializable;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PropertiesStringResourceLoader}が読み込むプロパティファイルの変更を監視し、
+ * 変更された場合にメッセージを再ロードするクラス。
+ * <p/>
+ * 初期化時にデーモンスレッドを起動し、一定間隔でプロパティファイルの変更有無を確認する。
+ * 変更を検知した場合は{@link PropertiesStringResourceLoader#reload()}で文字列リソース一覧を入れ替え、
+ * 文字列リソースのキャッシュが設定されている場合はキャッシュもリフレッシュする。
+ * {@link StringResourceHolder}が設定されている場合は、追加されたメッセージを取得できるよう否定キャッシュを破棄する。
+ * <p/>
+ * 再ロードはJVMを停止せずにメッセージを修正するための機能であるため、本番環境で使用する場合は変更の反映手順を十分に検討すること。
+ * 設定例:
+ * <pre>
+ * {@code
+ * <component name="stringResourceReloader" class="nablarch.core.message.PropertiesStringResourceReloader">
+ *   <property name="loader" ref="propertiesStringResourceLoader"/>
+ *   <property name="stringResourceCache" ref="stringResourceCache"/>
+ *   <property name="stringResourceHolder" ref="stringResourceHolder"/>
+ *   <property name="checkInterval" value="10000"/>
+ * </component>
+ * }</pre>
+ */
+public class PropertiesStringResourceReloader implements Initializable {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(PropertiesStringResourceReloader.class);
+
+    /** 再ロードの対象となるローダ */
+    private PropertiesStringResourceLoader loader;
+
+    /** 再ロード後にリフレッシュする文字列リソースのキャッシュ */
+    private StaticDataCache<StringResource> stringResourceCache;
+
+    /** 再ロード後に否定キャッシュを破棄する{@link StringResourceHolder} */
+    private StringResourceHolder stringResourceHolder;
+
+    /** 変更有無を確認する間隔(ミリ秒) */
+    private long checkInterval = 10000L;
+
+    /** 変更有無を確認するスレッド */
+    private ScheduledExecutorService executor;
+
+    /**
+     * 変更有無を確認するスレッドを起動する。
+     */
+    @Override
+    public synchronized void initialize() {
+        if (loader == null) {
+            throw new IllegalStateException("loader was not set. please set the PropertiesStringResourceLoader.");
+        }
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "message-resource-reloader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                reloadIfModified();
+            }
+        }, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 変更有無を確認するスレッドを停止する。
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * プロパティファイルが変更されている場合に再ロードする。
+     * <p/>
+     * 再ロードに失敗した場合は、警告ログを出力して再ロード前の文字列リソースを使用し続ける。
+     *
+     * @return 再ロードした場合はtrue
+     */
+    public boolean reloadIfModified() {
+        try {
+            if (!loader.isModified()) {
+                return false;
+            }
+            loader.reload();
+            if (stringResourceCache != null) {
+                stringResourceCache.refresh();
+            }
+            if (stringResourceHolder != null) {
+                stringResourceHolder.clearNegativeCache();
+            }
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.logInfo("message resources were reloaded. reload count = [" + loader.getReloadCount()
+                        + "], duration = [" + loader.getLastReloadDuration() + "ms]");
+            }
+            return true;
+        } catch (RuntimeException e) {
+            LOGGER.logWarn("failed to reload message resources. failure count = ["
+                    + loader.getReloadFailureCount() + ']', e);
+            return false;
+        }
+    }
+
+    /**
+     * 再ロードの対象となるローダを設定する。
+     *
+     * @param loader 再ロードの対象となるローダ
+     */
+    public void setLoader(PropertiesStringResourceLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * 再ロード後にリフレッシュする文字列リソースのキャッシュを設定する。
+     * <p/>
+     * {@link StringResourceHolder}に設定したキャッシュを設定すること。
+     *
+     * @param stringResourceCache 文字列リソースのキャッシュ
+     */
+    public void setStringResourceCache(StaticDataCache<StringResource> stringResourceCache) {
+        this.stringResourceCache = stringResourceCache;
+    }
+
+    /**
+     * 再ロード後に否定キャッシュを破棄する{@link StringResourceHolder}を設定する。
+     *
+     * @param stringResourceHolder 否定キャッシュを破棄する{@link StringResourceHolder}
+     */
+    public void setStringResourceHolder(StringResourceHolder stringResourceHolder) {
+        this.stringResourceHolder = stringResourceHolder;
+    }
+
+    /**
+     * 変更有無を確認する間隔(ミリ秒)を設定する。
+     * <p/>
+     * デフォルトは10000ミリ秒。
+     *
+     * @param checkInterval 変更有無を確認する間隔(ミリ秒)
+     */
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+}
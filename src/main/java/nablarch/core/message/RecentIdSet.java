@@ -0,0 +1,89 @@
+package nablarch.core.message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 取得されたメッセージIDを、上限件数まで重複なく記録する集合。
+ * <p/>
+ * 取得回数の順位付けは行わず、前回の取り出し以降に取得されたメッセージIDを記録するのみとする。
+ * 記録済みのメッセージIDの取得はロックを取得しない参照のみで完了するため、
+ * {@link HeavyHitters}と異なり、件数を大きくしても取得時の競合は増えない。
+ * 上限件数に達した後に取得されたメッセージIDは記録しない。
+ * <p/>
+ * 本クラスはスレッドセーフである。
+ * 取り出しと同時に記録されたメッセージIDは、取り出し結果と次回の取り出し結果のいずれにも含まれない場合がある。
+ */
+final class RecentIdSet {
+
+    /** 記録するメッセージIDの上限件数 */
+    private final int capacity;
+
+    /** 前回の取り出し以降の記録 */
+    private volatile Generation current = new Generation();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param capacity 記録するメッセージIDの上限件数
+     */
+    RecentIdSet(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * メッセージIDを記録する。
+     * <p/>
+     * 記録済みの場合と、上限件数に達している場合は何もしない。
+     *
+     * @param id メッセージID
+     */
+    void add(final String id) {
+        final Generation generation = current;
+        if (generation.ids.containsKey(id)) {
+            return;
+        }
+        if (generation.size.incrementAndGet() > capacity) {
+            generation.size.decrementAndGet();
+            return;
+        }
+        if (generation.ids.putIfAbsent(id, Boolean.TRUE) != null) {
+            generation.size.decrementAndGet();
+        }
+    }
+
+    /**
+     * 記録したメッセージIDを取り出し、記録を空にする。
+     *
+     * @return 記録したメッセージID(順序は不定)
+     */
+    List<String> drain() {
+        final Generation drained = current;
+        current = new Generation();
+        return new ArrayList<String>(drained.ids.keySet());
+    }
+
+    /**
+     * 記録するメッセージIDの上限件数を取得する。
+     *
+     * @return 記録するメッセージIDの上限件数
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 前回の取り出し以降に記録したメッセージIDと件数。
+     */
+    private static final class Generation {
+
+        /** 記録したメッセージID */
+        private final ConcurrentMap<String, Boolean> ids = new ConcurrentHashMap<String, Boolean>();
+
+        /** 記録したメッセージIDの件数 */
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
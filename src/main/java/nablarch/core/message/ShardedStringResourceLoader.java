@@ -0,0 +1,193 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.StaticDataLoader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * メッセージIDの接頭辞ごとに分割したカタログ(シャード)から文字列リソースを取得するクラス。
+ * <p/>
+ * メッセージIDは、最長一致した接頭辞のシャードのローダから取得する。
+ * いずれの接頭辞にも一致しないメッセージIDは、デフォルトのローダから取得する。
+ * 接頭辞の判定はトライで行うため、シャードの数によらずメッセージIDの長さに比例した時間で判定できる。
+ * <p/>
+ * シャードのローダには、最初に取得した時点でロードするローダ({@link PropertiesStringResourceLoader}など)を使用する。
+ * シャードごとに独立してロードするため、使用されない接頭辞のカタログはロードされない。
+ * 例えば、バッチのサーバは画面用のカタログを、画面のサーバはバッチ用のカタログをロードしない。
+ * ただし、{@link #loadAll()}は全てのシャードをロードするため、
+ * 起動時のロード({@code loadOnStartup})と組み合わせた場合は、シャードに分割した利点が失われる。
+ * <p/>
+ * シャードのカタログには、その接頭辞に一致するメッセージIDのみを定義すること。
+ * 他の接頭辞に一致するメッセージIDは、そのシャードに定義されていても取得できない。
+ * 設定例:
+ * <pre>
+ * {@code
+ * <component name="stringResourceLoader" class="nablarch.core.message.ShardedStringResourceLoader">
+ *   <property name="shards">
+ *     <map>
+ *       <entry key="errors." value-component-ref="errorsLoader"/>
+ *       <entry key="batch." value-component-ref="batchLoader"/>
+ *       <entry key="screen." value-component-ref="screenLoader"/>
+ *     </map>
+ *   </property>
+ *   <property name="defaultLoader" ref="messagesLoader"/>
+ * </component>
+ * }</pre>
+ */
+public class ShardedStringResourceLoader implements StaticDataLoader<StringResource> {
+
+    /** シャードの接頭辞一覧 */
+    private List<String> prefixes = Collections.emptyList();
+
+    /** シャードのローダ一覧(接頭辞一覧と同じ順) */
+    private List<StaticDataLoader<StringResource>> shards = Collections.emptyList();
+
+    /** 接頭辞から、接頭辞一覧上の位置を求めるトライ */
+    private PrefixTrie trie = PrefixTrie.of(Collections.<String>emptyList());
+
+    /** シャードごとの使用済みか否か(1:使用済み) */
+    private AtomicIntegerArray used = new AtomicIntegerArray(0);
+
+    /** いずれの接頭辞にも一致しないメッセージIDを取得するローダ(設定されていない場合は取得しない) */
+    private StaticDataLoader<StringResource> defaultLoader;
+
+    @Override
+    public StringResource getValue(final Object key) {
+        if (key == null) {
+            return null;
+        }
+        final String id = key.toString();
+        final int shard = trie.match(id);
+        if (shard == PrefixTrie.NO_MATCH) {
+            return defaultLoader != null ? defaultLoader.getValue(id) : null;
+        }
+        markUsed(shard);
+        return shards.get(shard).getValue(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 全てのシャードとデフォルトのローダをロードする。
+     * 各ローダの文字列リソースのうち、そのローダに振り分けられるメッセージIDのもののみを返す。
+     */
+    @Override
+    public List<StringResource> loadAll() {
+        final List<StringResource> resources = new ArrayList<StringResource>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            markUsed(shard);
+            addRouted(shards.get(shard).loadAll(), shard, resources);
+        }
+        if (defaultLoader != null) {
+            addRouted(defaultLoader.loadAll(), PrefixTrie.NO_MATCH, resources);
+        }
+        return resources;
+    }
+
+    /**
+     * ローダの文字列リソースのうち、そのローダに振り分けられるメッセージIDのものを追加する。
+     *
+     * @param loaded ローダの文字列リソース
+     * @param shard ローダのシャードの位置(デフォルトのローダの場合は{@link PrefixTrie#NO_MATCH})
+     * @param resources 追加先
+     */
+    private void addRouted(final List<StringResource> loaded, final int shard, final List<StringResource> resources) {
+        for (StringResource resource : loaded) {
+            if (trie.match(resource.getId()) == shard) {
+                resources.add(resource);
+            }
+        }
+    }
+
+    /**
+     * シャードを使用済みにする。
+     * <p/>
+     * 使用済みのシャードは書き込まずに判定し、取得のたびに共有の値を更新しないようにする。
+     *
+     * @param shard シャードの位置
+     */
+    private void markUsed(final int shard) {
+        if (used.get(shard) == 0) {
+            used.set(shard, 1);
+        }
+    }
+
+    /**
+     * 使用済みのシャードの接頭辞一覧を取得する。
+     * <p/>
+     * 文字列リソースを取得したシャード(ロード済みまたはロード中のシャード)の接頭辞を返す。
+     * サーバごとに実際に使用されているカタログの確認に使用する。
+     *
+     * @return 使用済みのシャードの接頭辞一覧(設定した順)
+     */
+    public List<String> getUsedPrefixes() {
+        final List<String> usedPrefixes = new ArrayList<String>();
+        for (int shard = 0; shard < prefixes.size(); shard++) {
+            if (used.get(shard) != 0) {
+                usedPrefixes.add(prefixes.get(shard));
+            }
+        }
+        return usedPrefixes;
+    }
+
+    @Override
+    public List<StringResource> getValues(final String indexName, final Object key) {
+        return null;
+    }
+
+    @Override
+    public Object getId(final StringResource value) {
+        return value.getId();
+    }
+
+    @Override
+    public Object generateIndexKey(final String indexName, final StringResource value) {
+        return null;
+    }
+
+    @Override
+    public List<String> getIndexNames() {
+        return null;
+    }
+
+    /**
+     * 接頭辞をキーとした、シャードのローダを設定する。
+     * <p/>
+     * 接頭辞が重なる場合(例えば"screen."と"screen.admin.")は、メッセージIDに最も長く一致した接頭辞のシャードから取得する。
+     *
+     * @param shards 接頭辞をキーとした、シャードのローダ
+     * @throws IllegalArgumentException 接頭辞またはローダがnullの場合
+     */
+    public void setShards(final Map<String, ? extends StaticDataLoader<StringResource>> shards) {
+        final List<String> newPrefixes = new ArrayList<String>(shards.size());
+        final List<StaticDataLoader<StringResource>> newShards =
+                new ArrayList<StaticDataLoader<StringResource>>(shards.size());
+        for (Entry<String, ? extends StaticDataLoader<StringResource>> entry : shards.entrySet()) {
+            if (entry.getValue() == null) {
+                throw new IllegalArgumentException("loader must not be null. prefix = [" + entry.getKey() + ']');
+            }
+            newPrefixes.add(entry.getKey());
+            newShards.add(entry.getValue());
+        }
+        trie = PrefixTrie.of(newPrefixes);
+        prefixes = newPrefixes;
+        this.shards = newShards;
+        used = new AtomicIntegerArray(newShards.size());
+    }
+
+    /**
+     * いずれの接頭辞にも一致しないメッセージIDを取得するローダを設定する。
+     * <p/>
+     * 設定しない場合、いずれの接頭辞にも一致しないメッセージIDは存在しないものとして扱う。
+     *
+     * @param defaultLoader いずれの接頭辞にも一致しないメッセージIDを取得するローダ
+     */
+    public void setDefaultLoader(final StaticDataLoader<StringResource> defaultLoader) {
+        this.defaultLoader = defaultLoader;
+    }
+}
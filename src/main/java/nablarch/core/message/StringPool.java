@@ -0,0 +1,144 @@
+package nablarch.core.message;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ロード時に、同じ内容の文字列を1つのインスタンスに集約するクラス。
+ * <p/>
+ * ロケール間で同じ文字列(代替ロケールの文字列を複写した翻訳など)や、
+ * 異なるメッセージIDの同じ文字列を、最初に登録したインスタンスに置き換える。
+ * {@link String#intern()}と異なり、ロードごとに独立した集約先を使用するため、再ロード後は古い文字列を解放できる。
+ * <p/>
+ * 集約しなかった場合に保持していた文字列の数とサイズを記録し、{@link #report()}で取得する。
+ * サイズは、Stringオブジェクトと内部のchar配列の推定サイズ(64bit JVM、圧縮参照)の合計とする。
+ * <p/>
+ * 集約先は登録が終わった時点で{@link #close()}で解放し、記録した数とサイズのみを保持する。
+ * <p/>
+ * 本クラスはスレッドセーフである。
+ * 登録はロード時または必要になった時点でのロケールの読み込み時に1つのスレッドから行うため、
+ * 競合の少ない単純なロックで排他制御する。
+ */
+final class StringPool {
+
+    /** Stringオブジェクトの推定サイズ */
+    private static final int STRING_BYTES = 24;
+
+    /** 配列のヘッダの推定サイズ */
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    /** 集約先(集約を終了した場合はnull) */
+    private Map<String, String> pool;
+
+    /** 登録された文字列の数 */
+    private long totalCount;
+
+    /** 登録された文字列の推定サイズの合計 */
+    private long totalBytes;
+
+    /** 集約した(同じ内容の文字列が登録済みだった)文字列の数 */
+    private long duplicateCount;
+
+    /** 集約した文字列の推定サイズの合計 */
+    private long savedBytes;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param expectedSize 登録する文字列の数の見込み(集約先の初期容量に使用する)
+     */
+    StringPool(final int expectedSize) {
+        pool = new HashMap<String, String>(expectedSize * 4 / 3 + 1);
+    }
+
+    /**
+     * 文字列を登録し、同じ内容の登録済みの文字列を取得する。
+     * <p/>
+     * 集約を終了している場合は、指定された文字列をそのまま返す。
+     *
+     * @param value 文字列(nullの場合はnullを返す)
+     * @return 同じ内容の登録済みの文字列(登録済みでない場合は指定された文字列)
+     */
+    synchronized String canonicalize(final String value) {
+        return value == null || pool == null ? value : add(value);
+    }
+
+    /**
+     * 配列の全ての文字列を登録し、同じ内容の登録済みの文字列に置き換える。
+     *
+     * @param values 文字列の配列(nullの要素は無視する)
+     */
+    synchronized void canonicalizeAll(final String[] values) {
+        if (pool == null) {
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                values[i] = add(values[i]);
+            }
+        }
+    }
+
+    /**
+     * 文字列を登録し、同じ内容の登録済みの文字列を取得する。
+     *
+     * @param value 文字列
+     * @return 同じ内容の登録済みの文字列(登録済みでない場合は指定された文字列)
+     */
+    private String add(final String value) {
+        final long bytes = sizeOf(value);
+        totalCount++;
+        totalBytes += bytes;
+        final String canonical = pool.get(value);
+        if (canonical == null) {
+            pool.put(value, value);
+            return value;
+        }
+        duplicateCount++;
+        savedBytes += bytes;
+        return canonical;
+    }
+
+    /**
+     * 集約を終了し、集約先を解放する。
+     * <p/>
+     * 以降に登録された文字列は集約しない。記録した数とサイズは保持する。
+     */
+    synchronized void close() {
+        pool = null;
+    }
+
+    /**
+     * 別の集約先で記録した数とサイズを加算する。
+     * <p/>
+     * 必要になった時点で読み込んだロケールの集約結果を、ロード時の集約結果に含めるために使用する。
+     *
+     * @param report 加算する数とサイズ
+     */
+    synchronized void add(final StringPoolReport report) {
+        totalCount += report.getTotalCount();
+        totalBytes += report.getTotalBytes();
+        duplicateCount += report.getTotalCount() - report.getUniqueCount();
+        savedBytes += report.getSavedBytes();
+    }
+
+    /**
+     * 記録した数とサイズを取得する。
+     *
+     * @return 記録した数とサイズ
+     */
+    synchronized StringPoolReport report() {
+        return new StringPoolReport(totalCount, totalCount - duplicateCount, totalBytes, savedBytes);
+    }
+
+    /**
+     * 文字列の推定サイズを求める。
+     *
+     * @param value 文字列
+     * @return 推定サイズ(バイト)
+     */
+    static long sizeOf(final String value) {
+        final long arrayBytes = ARRAY_HEADER_BYTES + 2L * value.length();
+        return STRING_BYTES + ((arrayBytes + 7) & ~7L);
+    }
+}
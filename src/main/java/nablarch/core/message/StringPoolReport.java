@@ -0,0 +1,82 @@
+package nablarch.core.message;
+
+/**
+ * ロード時に同じ内容の文字列を集約した結果。
+ * <p/>
+ * {@link PropertiesStringResourceLoader#getStringPoolReport()}で取得する。
+ * サイズは、Stringオブジェクトと内部のchar配列の推定サイズ(64bit JVM、圧縮参照)であり、
+ * 実際のヒープ使用量とは一致しない場合がある。
+ * <p/>
+ * 本クラスは不変である。
+ */
+public final class StringPoolReport {
+
+    /** 読み込んだ文字列の数 */
+    private final long totalCount;
+
+    /** 集約後の文字列の数 */
+    private final long uniqueCount;
+
+    /** 読み込んだ文字列の推定サイズの合計 */
+    private final long totalBytes;
+
+    /** 集約によって削減した推定サイズ */
+    private final long savedBytes;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param totalCount 読み込んだ文字列の数
+     * @param uniqueCount 集約後の文字列の数
+     * @param totalBytes 読み込んだ文字列の推定サイズの合計
+     * @param savedBytes 集約によって削減した推定サイズ
+     */
+    StringPoolReport(final long totalCount, final long uniqueCount, final long totalBytes, final long savedBytes) {
+        this.totalCount = totalCount;
+        this.uniqueCount = uniqueCount;
+        this.totalBytes = totalBytes;
+        this.savedBytes = savedBytes;
+    }
+
+    /**
+     * 読み込んだ文字列の数を取得する。
+     *
+     * @return 読み込んだ文字列の数
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 集約後の(内容が異なる)文字列の数を取得する。
+     *
+     * @return 集約後の文字列の数
+     */
+    public long getUniqueCount() {
+        return uniqueCount;
+    }
+
+    /**
+     * 読み込んだ文字列の推定サイズ(バイト)の合計を取得する。
+     *
+     * @return 読み込んだ文字列の推定サイズの合計
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * 集約によって削減した推定サイズ(バイト)を取得する。
+     *
+     * @return 集約によって削減した推定サイズ
+     */
+    public long getSavedBytes() {
+        return savedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "total strings = [" + totalCount + "], unique strings = [" + uniqueCount
+                + "], total bytes = [" + totalBytes + "], saved bytes = [" + savedBytes + ']';
+    }
+}
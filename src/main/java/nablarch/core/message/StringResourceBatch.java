@@ -0,0 +1,97 @@
+package nablarch.core.message;
+
+import nablarch.core.util.annotation.Published;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 複数のメッセージIDに対応する文字列リソースをまとめて取得した結果。
+ * <p/>
+ * 文字列リソースは、取得したメッセージIDと同じ順に保持する。
+ * 存在しなかったメッセージIDは例外とせず、{@link #getMissingIds()}で参照できる。
+ *
+ * @see StringResourceHolder#getAll(java.util.Collection)
+ */
+@Published
+public final class StringResourceBatch {
+
+    /** 取得したメッセージID */
+    private final String[] messageIds;
+
+    /** メッセージIDに対応する文字列リソース(存在しなかった場合はnull) */
+    private final StringResource[] resources;
+
+    /** 存在しなかったメッセージID(重複を除き、最初に出現した順) */
+    private final List<String> missingIds;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param messageIds 取得したメッセージID
+     * @param resources メッセージIDに対応する文字列リソース
+     * @param missingIds 存在しなかったメッセージID
+     */
+    StringResourceBatch(String[] messageIds, StringResource[] resources, List<String> missingIds) {
+        this.messageIds = messageIds;
+        this.resources = resources;
+        this.missingIds = Collections.unmodifiableList(missingIds);
+    }
+
+    /**
+     * 取得したメッセージIDの数を取得する。
+     *
+     * @return 取得したメッセージIDの数(重複を含む)
+     */
+    public int size() {
+        return messageIds.length;
+    }
+
+    /**
+     * 指定した位置のメッセージIDを取得する。
+     *
+     * @param index 位置
+     * @return メッセージID
+     */
+    public String getMessageId(int index) {
+        return messageIds[index];
+    }
+
+    /**
+     * 指定した位置のメッセージIDに対応する文字列リソースを取得する。
+     *
+     * @param index 位置
+     * @return 文字列リソース(存在しなかった場合はnull)
+     */
+    public StringResource getResource(int index) {
+        return resources[index];
+    }
+
+    /**
+     * 文字列リソースを、取得したメッセージIDと同じ順に取得する。
+     *
+     * @return 文字列リソース(存在しなかったメッセージIDの位置はnull)
+     */
+    public List<StringResource> getResources() {
+        return Collections.unmodifiableList(Arrays.asList(resources));
+    }
+
+    /**
+     * 存在しなかったメッセージIDを取得する。
+     *
+     * @return 存在しなかったメッセージID(重複を除き、最初に出現した順)
+     */
+    public List<String> getMissingIds() {
+        return missingIds;
+    }
+
+    /**
+     * 存在しなかったメッセージIDがあるか否かを判定する。
+     *
+     * @return 存在しなかったメッセージIDがある場合はtrue
+     */
+    public boolean hasMissing() {
+        return !missingIds.isEmpty();
+    }
+}
@@ -5,10 +5,29 @@ import nablarch.core.cache.StaticDataCache;
 import nablarch.core.util.StringUtil;
 import nablarch.core.util.annotation.Published;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 
 /**
  * ユーザに通知するメッセージの元となる文字列リソースを保持するクラス。<br/>
  * 文字列リソースは静的データキャッシュに保持する。
+ * <p/>
+ * {@link #setNegativeCacheSize(int)}で上限件数を設定した場合は、存在しなかったメッセージIDを上限件数まで否定キャッシュに保持する。
+ * 否定キャッシュに保持したメッセージIDは静的データキャッシュを参照せずに存在しないと判定するため、
+ * 任意のメッセージIDを繰り返し探す場合({@link #find(String)}、{@link #getOrDefault(String, String)})も、
+ * 2回目以降は1回の参照で判定できる。
+ * 否定キャッシュは上限件数に達した場合に全て破棄する。
+ * デフォルトは否定キャッシュを使用せず、存在しなかったメッセージIDも毎回静的データキャッシュを参照する。
+ * <p/>
+ * 否定キャッシュを使用する場合は、後から追加されたメッセージを取得できるよう、
+ * 静的データキャッシュのリフレッシュは{@link #refresh()}で行うこと(否定キャッシュも破棄する)。
  * 
  * @author Koichi Asano
  *
@@ -20,6 +39,28 @@ public class StringResourceHolder {
      * 文字列リソースのキャッシュ。
      */
     private StaticDataCache<StringResource> stringResourceCache;
+
+    /**
+     * 否定キャッシュに保持するメッセージIDの上限件数(0の場合は否定キャッシュを使用しない)。
+     */
+    private int negativeCacheSize;
+
+    /**
+     * 存在しなかったメッセージIDの否定キャッシュ。
+     */
+    private final ConcurrentMap<String, Boolean> negativeCache = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * 否定キャッシュの世代(否定キャッシュを破棄するたびに加算する)。
+     * <p/>
+     * 破棄する前に静的データキャッシュを参照した取得が、破棄した後に否定キャッシュに追加しないよう判定に使用する。
+     */
+    private final AtomicInteger negativeCacheGeneration = new AtomicInteger();
+
+    /**
+     * 取得の計測値を収集する{@link MessageMetrics}(設定されていない場合は計測しない)。
+     */
+    private MessageMetrics metrics;
     
     /**
      * 文字列リソースのキャッシュを設定する。
@@ -28,6 +69,7 @@ public class StringResourceHolder {
      */
     public void setStringResourceCache(StaticDataCache<StringResource> stringResourceCache) {
         this.stringResourceCache = stringResourceCache;
+        clearNegativeCache();
     }
 
     /**
@@ -42,11 +84,152 @@ public class StringResourceHolder {
             throw new MessageNotFoundException("null or empty message id was specified."
                     + " please set message id.");
         }
-        StringResource message = stringResourceCache.getValue(messageId);
+        StringResource message = find(messageId);
         if (message == null) {
             throw new MessageNotFoundException("message was not found."
                     + " message id = " + messageId);
         }
         return message;
     }
+
+    /**
+     * 文字列リソースを、例外を送出せずに取得する。
+     * <p/>
+     * 任意のメッセージIDの存在確認に使用する。
+     * 存在しなかったメッセージIDは否定キャッシュに保持し、以降は静的データキャッシュを参照せずにnullを返す。
+     *
+     * @param messageId 取得する文字列リソースのメッセージID
+     * @return メッセージIDに対応する文字列リソース(メッセージIDがnullか空文字列の場合、または存在しない場合はnull)
+     */
+    public StringResource find(String messageId) {
+        final MessageMetrics m = metrics;
+        if (m == null) {
+            return lookup(messageId);
+        }
+        final long start = m.beginLookup();
+        final StringResource message = lookup(messageId);
+        m.endLookup(messageId, message != null, start);
+        return message;
+    }
+
+    /**
+     * 否定キャッシュと静的データキャッシュから、文字列リソースを取得する。
+     * <p/>
+     * 静的データキャッシュを参照している間に否定キャッシュが破棄された場合は、否定キャッシュに追加しない。
+     * 追加した後に破棄された場合も、追加したメッセージIDを取り除く。
+     *
+     * @param messageId 取得する文字列リソースのメッセージID
+     * @return メッセージIDに対応する文字列リソース(メッセージIDがnullか空文字列の場合、または存在しない場合はnull)
+     */
+    private StringResource lookup(String messageId) {
+        if (StringUtil.isNullOrEmpty(messageId) || negativeCache.containsKey(messageId)) {
+            return null;
+        }
+        final int generation = negativeCacheGeneration.get();
+        StringResource message = stringResourceCache.getValue(messageId);
+        if (message == null && negativeCacheSize > 0 && generation == negativeCacheGeneration.get()) {
+            if (negativeCache.size() >= negativeCacheSize) {
+                negativeCache.clear();
+            }
+            negativeCache.put(messageId, Boolean.TRUE);
+            if (generation != negativeCacheGeneration.get()) {
+                negativeCache.remove(messageId);
+            }
+        }
+        return message;
+    }
+
+    /**
+     * 文字列リソースを取得する。メッセージIDに対応する文字列リソースが存在しない場合は、代替のメッセージIDの文字列リソースを取得する。
+     * <p/>
+     * 項目ごとのメッセージ(errors.required.userNameなど)が定義されていなければ、
+     * 共通のメッセージ(errors.requiredなど)を使用する場合に使用する。
+     *
+     * @param messageId 取得する文字列リソースのメッセージID
+     * @param defaultMessageId 代替のメッセージID
+     * @return メッセージIDまたは代替のメッセージIDに対応する文字列リソース
+     * @throws MessageNotFoundException 代替のメッセージIDに対応するメッセージも存在しなかった場合
+     */
+    public StringResource getOrDefault(String messageId, String defaultMessageId) throws MessageNotFoundException {
+        StringResource message = find(messageId);
+        return message != null ? message : get(defaultMessageId);
+    }
+
+    /**
+     * 複数のメッセージIDに対応する文字列リソースを、まとめて取得する。
+     * <p/>
+     * 重複するメッセージIDは1回だけ取得する。
+     * 存在しないメッセージIDがあっても例外は送出せず、取得結果の{@link StringResourceBatch#getMissingIds()}で通知する。
+     * 1件のリクエストで多数のメッセージを生成する場合(入力チェックの結果など)に使用する。
+     *
+     * @param messageIds 取得する文字列リソースのメッセージID
+     * @return 取得結果(文字列リソースはメッセージIDと同じ順)
+     */
+    public StringResourceBatch getAll(Collection<String> messageIds) {
+        final String[] ids = messageIds.toArray(new String[messageIds.size()]);
+        final StringResource[] resources = new StringResource[ids.length];
+        final Map<String, StringResource> resolved = new HashMap<String, StringResource>(ids.length * 4 / 3 + 1);
+        final List<String> missingIds = new ArrayList<String>();
+        for (int i = 0; i < ids.length; i++) {
+            StringResource message = resolved.get(ids[i]);
+            if (message == null && !resolved.containsKey(ids[i])) {
+                message = find(ids[i]);
+                resolved.put(ids[i], message);
+                if (message == null) {
+                    missingIds.add(ids[i]);
+                }
+            }
+            resources[i] = message;
+        }
+        return new StringResourceBatch(ids, resources, missingIds);
+    }
+
+    /**
+     * 静的データキャッシュをリフレッシュし、否定キャッシュを破棄する。
+     * <p/>
+     * メッセージが追加または変更された場合に呼び出す。
+     * 否定キャッシュは、リフレッシュの完了後に破棄する。
+     * リフレッシュ前の静的データキャッシュで存在しないと判定した取得が、破棄した後に否定キャッシュに追加することはない。
+     */
+    public void refresh() {
+        stringResourceCache.refresh();
+        clearNegativeCache();
+    }
+
+    /**
+     * 否定キャッシュを破棄する。
+     * <p/>
+     * 静的データキャッシュを直接リフレッシュし、メッセージが追加された可能性がある場合に呼び出す。
+     *
+     * @see #refresh()
+     */
+    public void clearNegativeCache() {
+        // 破棄より前に世代を進め、破棄の前後に追加された否定キャッシュが残らないようにする
+        negativeCacheGeneration.incrementAndGet();
+        negativeCache.clear();
+    }
+
+    /**
+     * 否定キャッシュに保持するメッセージIDの上限件数を設定する。
+     * <p/>
+     * 0を設定した場合は、否定キャッシュを使用しない。デフォルトは0(使用しない)。
+     * 否定キャッシュを使用する場合は、静的データキャッシュを{@link #refresh()}でリフレッシュすること。
+     *
+     * @param negativeCacheSize 否定キャッシュに保持するメッセージIDの上限件数
+     */
+    public void setNegativeCacheSize(int negativeCacheSize) {
+        this.negativeCacheSize = negativeCacheSize;
+    }
+
+    /**
+     * 取得の計測値を収集する{@link MessageMetrics}を設定する。
+     * <p/>
+     * 設定した場合は、取得回数、存在しなかった回数、取得時間、取得したメッセージIDを記録する。
+     * デフォルトは計測しない。
+     *
+     * @param metrics 取得の計測値を収集する{@link MessageMetrics}
+     */
+    public void setMetrics(MessageMetrics metrics) {
+        this.metrics = metrics;
+    }
 }
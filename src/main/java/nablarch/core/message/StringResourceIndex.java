@@ -0,0 +1,207 @@
+package nablarch.core.message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ロード済みの文字列リソースを、名前空間と言語で引くための索引。
+ * <p/>
+ * 名前空間は、メッセージIDを"."で区切った先頭からの区分(メッセージ自体の名前である最後の区分を除く)とする。
+ * 例えば、区分数が1の場合、"errors.required"と"errors.length.max"の名前空間は"errors"となる。
+ * <p/>
+ * 索引は最初に参照された時点で構築し、以降は構築結果を再利用する。
+ * 言語ごとの索引は、その言語の文字列が定義されている文字列リソースのみを保持し、言語ごとに独立して構築する。
+ * このため、ロケールごとのプロパティファイルを必要になった時点で読み込む場合も、参照されない言語は読み込まない。
+ * <p/>
+ * 本クラスはスレッドセーフである。
+ */
+final class StringResourceIndex {
+
+    /** 索引の対象とする文字列リソース一覧 */
+    private final Map<String, StringResource> resources;
+
+    /** 文字列リソースが使用する言語の対応表 */
+    private final LanguageTable languageTable;
+
+    /** 名前空間とする区分数 */
+    private final int namespaceDepth;
+
+    /** 名前空間をキーとした索引(構築前はnull) */
+    private volatile Map<String, List<StringResource>> namespaces;
+
+    /** 言語の序数をキーとした、名前空間ごとの索引 */
+    private final ConcurrentMap<Integer, Map<String, List<StringResource>>> languages =
+            new ConcurrentHashMap<Integer, Map<String, List<StringResource>>>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param resources 索引の対象とする文字列リソース一覧
+     * @param languageTable 文字列リソースが使用する言語の対応表
+     * @param namespaceDepth 名前空間とする区分数
+     */
+    StringResourceIndex(final Map<String, StringResource> resources, final LanguageTable languageTable,
+            final int namespaceDepth) {
+        this.resources = resources;
+        this.languageTable = languageTable;
+        this.namespaceDepth = namespaceDepth;
+    }
+
+    /**
+     * 索引の対象とする文字列リソース一覧を取得する。
+     *
+     * @return 文字列リソース一覧(メッセージIDをキーとする)
+     */
+    Map<String, StringResource> getResources() {
+        return resources;
+    }
+
+    /**
+     * 名前空間に属する文字列リソースを取得する。
+     *
+     * @param namespace 名前空間
+     * @return 文字列リソース一覧(該当するものがない場合は空のリスト)
+     */
+    List<StringResource> getByNamespace(final String namespace) {
+        return get(getNamespaces(), namespace);
+    }
+
+    /**
+     * 名前空間に属し、言語の文字列が定義されている文字列リソースを取得する。
+     *
+     * @param language 言語({@link java.util.Locale#toString()}と同じ形式)
+     * @param namespace 名前空間
+     * @return 文字列リソース一覧(該当するものがない場合は空のリスト)
+     */
+    List<StringResource> getByLanguage(final String language, final String namespace) {
+        final int ordinal = languageTable.ordinalOf(LanguageTable.toKey(language));
+        if (ordinal < 0) {
+            return Collections.emptyList();
+        }
+        Map<String, List<StringResource>> index = languages.get(ordinal);
+        if (index == null) {
+            // 同時に構築した場合も内容は同じため、先に登録されたものを使用する
+            final Map<String, List<StringResource>> built = buildLanguageIndex(ordinal);
+            index = languages.putIfAbsent(ordinal, built);
+            if (index == null) {
+                index = built;
+            }
+        }
+        return get(index, namespace);
+    }
+
+    /**
+     * 名前空間をキーとした索引を取得する。構築前の場合は構築する。
+     *
+     * @return 名前空間をキーとした索引
+     */
+    private Map<String, List<StringResource>> getNamespaces() {
+        Map<String, List<StringResource>> index = namespaces;
+        if (index == null) {
+            synchronized (this) {
+                index = namespaces;
+                if (index == null) {
+                    index = buildNamespaceIndex();
+                    namespaces = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 名前空間をキーとした索引を構築する。
+     *
+     * @return 名前空間をキーとした索引
+     */
+    private Map<String, List<StringResource>> buildNamespaceIndex() {
+        final Map<String, ArrayList<StringResource>> index = new HashMap<String, ArrayList<StringResource>>();
+        for (Entry<String, StringResource> entry : resources.entrySet()) {
+            final String namespace = namespaceOf(entry.getKey(), namespaceDepth);
+            ArrayList<StringResource> values = index.get(namespace);
+            if (values == null) {
+                values = new ArrayList<StringResource>();
+                index.put(namespace, values);
+            }
+            values.add(entry.getValue());
+        }
+        return freeze(index);
+    }
+
+    /**
+     * 言語の文字列が定義されている文字列リソースの、名前空間をキーとした索引を構築する。
+     *
+     * @param ordinal 言語の序数
+     * @return 名前空間をキーとした索引
+     */
+    private Map<String, List<StringResource>> buildLanguageIndex(final int ordinal) {
+        final Map<String, ArrayList<StringResource>> index = new HashMap<String, ArrayList<StringResource>>();
+        for (Entry<String, List<StringResource>> entry : getNamespaces().entrySet()) {
+            final ArrayList<StringResource> values = new ArrayList<StringResource>();
+            for (StringResource resource : entry.getValue()) {
+                if (((BasicStringResource) resource).getValueAt(ordinal) != null) {
+                    values.add(resource);
+                }
+            }
+            if (!values.isEmpty()) {
+                index.put(entry.getKey(), values);
+            }
+        }
+        return freeze(index);
+    }
+
+    /**
+     * 構築した索引を、変更不可のリストを値とする索引に変換する。
+     *
+     * @param index 構築した索引
+     * @return 変更不可のリストを値とする索引
+     */
+    private static Map<String, List<StringResource>> freeze(final Map<String, ArrayList<StringResource>> index) {
+        final Map<String, List<StringResource>> frozen = new HashMap<String, List<StringResource>>(index.size() * 4 / 3 + 1);
+        for (Entry<String, ArrayList<StringResource>> entry : index.entrySet()) {
+            entry.getValue().trimToSize();
+            frozen.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        return frozen;
+    }
+
+    /**
+     * 索引からキーに対応する文字列リソース一覧を取得する。
+     *
+     * @param index 索引
+     * @param key キー
+     * @return 文字列リソース一覧(該当するものがない場合は空のリスト)
+     */
+    private static List<StringResource> get(final Map<String, List<StringResource>> index, final String key) {
+        final List<StringResource> values = index.get(key);
+        return values != null ? values : Collections.<StringResource>emptyList();
+    }
+
+    /**
+     * メッセージIDの名前空間を取得する。
+     * <p/>
+     * メッセージIDを"."で区切り、最後の区分を除いた先頭から、最大で指定した区分数までを名前空間とする。
+     * "."を含まないメッセージIDの名前空間は、空文字列とする。
+     *
+     * @param id メッセージID
+     * @param depth 名前空間とする区分数
+     * @return 名前空間
+     */
+    static String namespaceOf(final String id, final int depth) {
+        int end = -1;
+        for (int i = 0; i < depth; i++) {
+            final int next = id.indexOf('.', end + 1);
+            if (next < 0) {
+                break;
+            }
+            end = next;
+        }
+        return end < 0 ? "" : id.substring(0, end);
+    }
+}
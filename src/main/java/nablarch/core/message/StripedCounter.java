@@ -0,0 +1,87 @@
+package nablarch.core.message;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 複数スレッドから頻繁に加算されるカウンタ。
+ * <p/>
+ * スレッドごとに異なるセルへ加算することで、1つの値への更新の競合を避ける。
+ * セルはキャッシュラインを共有しないよう間隔を空けて配置する。
+ * 合計値は全てのセルを読み取って算出するため、加算中の値を含むかどうかは保証しない。
+ */
+final class StripedCounter {
+
+    /** セル数(2のべき乗) */
+    private static final int STRIPES = stripes();
+
+    /** セルの間隔(long型の要素数、64バイト) */
+    private static final int PADDING = 8;
+
+    /** セル */
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * CPU数から、セル数を決定する。
+     *
+     * @return セル数
+     */
+    private static int stripes() {
+        int stripes = 1;
+        final int target = Math.min(64, Runtime.getRuntime().availableProcessors() * 2);
+        while (stripes < target) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    /**
+     * 1加算する。
+     *
+     * @return 加算したセルの加算後の値(サンプリングの判定に使用する)
+     */
+    long increment() {
+        return cells.incrementAndGet(index());
+    }
+
+    /**
+     * 値を加算する。
+     *
+     * @param delta 加算する値
+     */
+    void add(long delta) {
+        cells.addAndGet(index(), delta);
+    }
+
+    /**
+     * 合計値を取得する。
+     *
+     * @return 合計値
+     */
+    long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * 値を0に戻す。
+     */
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0L);
+        }
+    }
+
+    /**
+     * 現在のスレッドが加算するセルの位置を取得する。
+     *
+     * @return セルの位置
+     */
+    private static int index() {
+        final long id = Thread.currentThread().getId();
+        final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash >>> 16) & (STRIPES - 1)) * PADDING;
+    }
+}
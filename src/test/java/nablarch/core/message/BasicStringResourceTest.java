@@ -0,0 +1,205 @@
+package nablarch.core.message;
+
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link BasicStringResource}のテストクラス。
+ */
+public class BasicStringResourceTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @After
+    public void tearDown() throws Exception {
+        SystemRepository.clear();
+    }
+
+    /**
+     * {@link BasicStringResource#getValue(Locale)}のテスト。
+     * 言語をキーとしたmapから生成するケース。
+     */
+    @Test
+    public void testGetValue_map() throws Exception {
+        Map<String, String> formatMap = new HashMap<String, String>();
+        formatMap.put("ja", "メッセージ");
+        formatMap.put("en", "message");
+        BasicStringResource sut = new BasicStringResource("test.key", formatMap);
+
+        assertThat(sut.getId(), is("test.key"));
+        assertThat(sut.getValue(Locale.JAPANESE), is("メッセージ"));
+        assertThat(sut.getValue(Locale.ENGLISH), is("message"));
+        assertThat(sut.getValue(Locale.US), is("message"));
+    }
+
+    /**
+     * {@link BasicStringResource#getValue(Locale)}のテスト。
+     * ローダで共有する言語の対応表から生成するケース。
+     */
+    @Test
+    public void testGetValue_languageTable() throws Exception {
+        LanguageTable languageTable = LanguageTable.of(Arrays.asList("ja", "en", "zh", "ja"));
+        assertThat(languageTable.size(), is(3));
+
+        BasicStringResource sut = new BasicStringResource("test.key", languageTable,
+                new String[] {"メッセージ", "message", null});
+
+        assertThat(sut.getValue(Locale.JAPANESE), is("メッセージ"));
+        assertThat(sut.getValue(new Locale(new String("en"))), is("message"));
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("message id = test.key language = zh");
+        sut.getValue(Locale.CHINESE);
+    }
+
+    /**
+     * {@link BasicStringResource#getValue(Locale)}のテスト。
+     * サポートしていない言語を指定するケース。
+     */
+    @Test
+    public void testGetValue_notSupported() throws Exception {
+        Map<String, String> formatMap = new HashMap<String, String>();
+        formatMap.put("ja", "メッセージ");
+        BasicStringResource sut = new BasicStringResource("test.key", formatMap);
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("message id = test.key language = en");
+        sut.getValue(Locale.ENGLISH);
+    }
+
+    /**
+     * {@link BasicStringResource#format(Locale, Object...)}のテスト。
+     * 言語ごとのテンプレートでフォーマットされること。
+     */
+    @Test
+    public void testFormat() throws Exception {
+        Map<String, String> formatMap = new HashMap<String, String>();
+        formatMap.put("ja", "{0}は{1}文字以下で入力してください。");
+        formatMap.put("en", "{0} must be {1} characters or less.");
+        BasicStringResource sut = new BasicStringResource("errors.maxLength", formatMap);
+
+        assertThat(sut.format(Locale.JAPANESE, "名前", 10), is("名前は10文字以下で入力してください。"));
+        assertThat(sut.format(Locale.ENGLISH, "name", 10), is("name must be 10 characters or less."));
+        assertThat(sut.format(Locale.JAPANESE, "氏名", 20), is("氏名は20文字以下で入力してください。"));
+    }
+
+    /**
+     * {@link BasicStringResource#renderTo(Appendable, Locale, Object...)}のテスト。
+     * 言語ごとのテンプレートで、書き込み先に直接書き込まれること。
+     */
+    @Test
+    public void testRenderTo() throws Exception {
+        Map<String, String> formatMap = new HashMap<String, String>();
+        formatMap.put("ja", "{0}は{1}文字以下で入力してください。");
+        formatMap.put("en", "{0} must be {1} characters or less.");
+        BasicStringResource sut = new BasicStringResource("errors.maxLength", formatMap);
+
+        StringWriter writer = new StringWriter();
+        sut.renderTo(writer, Locale.JAPANESE, "名前", 10).write(',');
+        sut.renderTo(writer, Locale.ENGLISH, "name", 10);
+        assertThat(writer.toString(), is("名前は10文字以下で入力してください。,name must be 10 characters or less."));
+    }
+
+    /**
+     * {@link BasicStringResource#renderTo(Appendable, Locale, Object...)}のテスト。
+     * 引数がnullの場合、引数に{@link Map}、{@link Message}、{@link StringResource}を含む場合は、
+     * {@link Message#formatMessage(Locale)}と同じ結果が書き込まれること。
+     */
+    @Test
+    public void testRenderTo_formatterOptions() throws Exception {
+        Map<String, String> named = new HashMap<String, String>();
+        named.put("ja", "{name}は{max}文字以下で入力してください。");
+        named.put("en", "{name} must be {max} characters or less.");
+        BasicStringResource sut = new BasicStringResource("errors.named", named);
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("name", "名前");
+        values.put("max", 10);
+        assertRenderedAsFormatted(sut, Locale.JAPANESE, values);
+
+        Map<String, String> positional = new HashMap<String, String>();
+        positional.put("ja", "{0}は{1}文字以下で入力してください。");
+        positional.put("en", "{0} must be {1} characters or less.");
+        BasicStringResource maxLength = new BasicStringResource("errors.maxLength", positional);
+        Map<String, String> label = new HashMap<String, String>();
+        label.put("ja", "名前");
+        label.put("en", "Name");
+        BasicStringResource name = new BasicStringResource("label.name", label);
+        Message nested = new Message(MessageLevel.ERROR, maxLength, new Object[] {"住所", 20});
+
+        assertRenderedAsFormatted(maxLength, Locale.ENGLISH, name, 10);
+        // 引数がnullの場合は、エスケープを解除せずにテンプレートをそのまま書き込む
+        Map<String, String> quoted = new HashMap<String, String>();
+        quoted.put("ja", "'{0}'は{1}文字以下です。");
+        BasicStringResource escaped = new BasicStringResource("errors.quoted", quoted);
+        assertRenderedAsFormatted(escaped, Locale.JAPANESE, (Object[]) null);
+        StringWriter raw = new StringWriter();
+        escaped.renderTo(raw, Locale.JAPANESE, (Object[]) null);
+        assertThat(raw.toString(), is("'{0}'は{1}文字以下です。"));
+        assertRenderedAsFormatted(maxLength, Locale.JAPANESE, nested, 10);
+        StringWriter writer = new StringWriter();
+        sut.renderTo(writer, Locale.ENGLISH, Collections.singletonMap("name", "Name"));
+        assertThat(writer.toString(), is("Name must be {max} characters or less."));
+    }
+
+    /**
+     * {@link BasicStringResource#renderTo(Appendable, Locale, Object...)}のテスト。
+     * {@link BasicMessageFormatter}以外のメッセージフォーマッタが設定されている場合は、
+     * 設定されたメッセージフォーマッタでフォーマットした結果が書き込まれること。
+     */
+    @Test
+    public void testRenderTo_customFormatter() throws Exception {
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                Map<String, Object> objects = new HashMap<String, Object>();
+                objects.put("messageFormatter", new MessageFormatter() {
+                    @Override
+                    public String format(String template, Object[] options) {
+                        return "[" + template + "]" + Arrays.toString(options);
+                    }
+                });
+                return objects;
+            }
+        });
+        Map<String, String> formatMap = new HashMap<String, String>();
+        formatMap.put("ja", "{0}は必須です。");
+        formatMap.put("en", "Required");
+        BasicStringResource sut = new BasicStringResource("errors.required", formatMap);
+
+        assertRenderedAsFormatted(sut, Locale.JAPANESE, "名前");
+        assertRenderedAsFormatted(sut, Locale.ENGLISH);
+        StringWriter writer = new StringWriter();
+        sut.renderTo(writer, Locale.JAPANESE, "名前");
+        assertThat(writer.toString(), is("[{0}は必須です。][名前]"));
+    }
+
+    /**
+     * 書き込まれた文字列が、{@link Message#formatMessage(Locale)}の結果と一致することを検証する。
+     *
+     * @param sut テスト対象
+     * @param locale 言語
+     * @param options 埋め込む引数
+     * @throws Exception
+     */
+    private static void assertRenderedAsFormatted(BasicStringResource sut, Locale locale, Object... options)
+            throws Exception {
+        StringWriter writer = new StringWriter();
+        sut.renderTo(writer, locale, options);
+        assertThat(writer.toString(), is(new Message(MessageLevel.INFO, sut, options).formatMessage(locale)));
+    }
+}
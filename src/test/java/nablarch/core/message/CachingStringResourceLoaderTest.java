@@ -0,0 +1,348 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.StaticDataLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CachingStringResourceLoader}のテストクラス。
+ * <p/>
+ * データベースの代わりに、取得回数を数えるローダを使用する。
+ */
+public class CachingStringResourceLoaderTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** テスト対象クラス */
+    private CachingStringResourceLoader sut;
+
+    /** 取得回数を数えるローダ */
+    private CountingLoader backend;
+
+    @Before
+    public void setUp() {
+        backend = new CountingLoader();
+        sut = new CachingStringResourceLoader();
+        sut.setLoader(backend);
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#getValue(Object)}のテスト。
+     * 最初の取得でのみローダから取得し、以降は保持している文字列リソースを返すこと。
+     * ローダに存在しないメッセージIDも保持すること。
+     */
+    @Test
+    public void testGetValue() {
+        StringResource resource = sut.getValue("errors.required");
+        assertThat(resource.getValue(Locale.JAPANESE), is("errors.required:1"));
+        assertThat(sut.getValue("errors.required"), is(sameInstance(resource)));
+        assertThat(backend.count("errors.required"), is(1));
+
+        assertThat(sut.getValue("notFound"), is(nullValue()));
+        assertThat(sut.getValue("notFound"), is(nullValue()));
+        assertThat(backend.count("notFound"), is(1));
+
+        assertThat(sut.getLoadCount(), is(2L));
+        assertThat(sut.getSize(), is(2));
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#getValue(Object)}のテスト。
+     * 同じメッセージIDの取得が同時に要求された場合は、ローダからの取得が1度のみであること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_concurrent() throws Exception {
+        backend.latency = 50;
+        final int threadCount = 16;
+        final int idCount = 20;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<List<StringResource>>> futures = new ArrayList<Future<List<StringResource>>>();
+            for (int t = 0; t < threadCount; t++) {
+                futures.add(executor.submit(new Callable<List<StringResource>>() {
+                    @Override
+                    public List<StringResource> call() throws Exception {
+                        start.await();
+                        final List<StringResource> resources = new ArrayList<StringResource>();
+                        for (int i = 0; i < idCount; i++) {
+                            resources.add(sut.getValue("errors.id" + i));
+                        }
+                        return resources;
+                    }
+                }));
+            }
+            start.countDown();
+            final List<StringResource> first = futures.get(0).get(30, TimeUnit.SECONDS);
+            for (Future<List<StringResource>> future : futures) {
+                final List<StringResource> resources = future.get(30, TimeUnit.SECONDS);
+                for (int i = 0; i < idCount; i++) {
+                    assertThat(resources.get(i), is(sameInstance(first.get(i))));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < idCount; i++) {
+            assertThat(backend.count("errors.id" + i), is(1));
+        }
+        assertThat(backend.total.get(), is(idCount));
+        assertThat(sut.getLoadCount(), is((long) idCount));
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#getValue(Object)}のテスト。
+     * 有効期間を過ぎた場合は、ローダから取得し直すこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_timeToLive() throws Exception {
+        sut.setTimeToLive(50);
+        assertThat(sut.getValue("errors.required").getValue(Locale.JAPANESE), is("errors.required:1"));
+        assertThat(sut.getValue("errors.required").getValue(Locale.JAPANESE), is("errors.required:1"));
+        assertThat(backend.count("errors.required"), is(1));
+
+        Thread.sleep(100);
+        assertThat(sut.getValue("errors.required").getValue(Locale.JAPANESE), is("errors.required:2"));
+        assertThat(backend.count("errors.required"), is(2));
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#getValue(Object)}のテスト。
+     * ローダからの取得に失敗した場合は例外を送出し、次に要求された時点で再度取得すること。
+     */
+    @Test
+    public void testGetValue_failed() {
+        backend.failures.put("errors.required", new IllegalStateException("database is down."));
+        try {
+            sut.getValue("errors.required");
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("database is down."));
+        }
+        assertThat(sut.getSize(), is(0));
+
+        assertThat(sut.getValue("errors.required").getValue(Locale.JAPANESE), is("errors.required:2"));
+        assertThat(backend.count("errors.required"), is(2));
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#getValue(Object)}のテスト。
+     * 保持する件数が上限を超えた場合は破棄し、繰り返し要求されるメッセージIDは、1度しか要求されないメッセージIDよりも優先して保持すること。
+     */
+    @Test
+    public void testGetValue_evict() {
+        sut.setMaxSize(10);
+        for (int i = 0; i < 5; i++) {
+            for (int hot = 0; hot < 5; hot++) {
+                sut.getValue("errors.hot" + hot);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            sut.getValue("errors.once" + i);
+            assertThat(sut.getSize(), is(lessThanOrEqualTo(10)));
+        }
+        for (int hot = 0; hot < 5; hot++) {
+            sut.getValue("errors.hot" + hot);
+            assertThat(backend.count("errors.hot" + hot), is(1));
+        }
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#refresh()}のテスト。
+     * 保持している文字列リソースを破棄し、次に要求された時点でローダから取得すること。
+     */
+    @Test
+    public void testRefresh() {
+        StringResource before = sut.getValue("errors.required");
+        sut.refresh();
+        assertThat(sut.getSize(), is(0));
+        StringResource after = sut.getValue("errors.required");
+        assertThat(after, is(not(sameInstance(before))));
+        assertThat(backend.count("errors.required"), is(2));
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#refresh()}のテスト。
+     * 破棄する前に開始した取得の結果は、破棄した後に保持しないこと。
+     */
+    @Test
+    public void testRefresh_duringLoad() {
+        backend.onLoad = new Runnable() {
+            @Override
+            public void run() {
+                backend.onLoad = null;
+                sut.refresh();
+            }
+        };
+        assertThat(sut.getValue("errors.required").getValue(Locale.JAPANESE), is("errors.required:1"));
+        assertThat(sut.getSize(), is(0));
+        assertThat(sut.getValue("errors.required").getValue(Locale.JAPANESE), is("errors.required:2"));
+        assertThat(sut.getValue("errors.required").getValue(Locale.JAPANESE), is("errors.required:2"));
+        assertThat(backend.count("errors.required"), is(2));
+    }
+
+    /**
+     * {@link StringResourceHolder}に設定して使用できること。
+     */
+    @Test
+    public void testStringResourceHolder() {
+        StringResourceHolder holder = new StringResourceHolder();
+        holder.setStringResourceCache(sut);
+        assertThat(holder.get("errors.required").getValue(Locale.JAPANESE), is("errors.required:1"));
+        assertThat(holder.get("errors.required").getValue(Locale.JAPANESE), is("errors.required:1"));
+        assertThat(backend.count("errors.required"), is(1));
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#getValue(Object)}のテスト。
+     * ローダが設定されていない場合は例外を送出すること。
+     */
+    @Test
+    public void testGetValue_loaderNotSet() {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("loader was not set.");
+        new CachingStringResourceLoader().getValue("errors.required");
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#setMaxSize(int)}のテスト。
+     * 1未満の値を指定した場合は例外を送出すること。
+     */
+    @Test
+    public void testSetMaxSize_invalid() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("max size must be 1 or more. max size = [0]");
+        sut.setMaxSize(0);
+    }
+
+    /**
+     * {@link CachingStringResourceLoader#setTimeToLive(long)}のテスト。
+     * 負の値を指定した場合は例外を送出すること。
+     */
+    @Test
+    public void testSetTimeToLive_invalid() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("time to live must be 0 or more. time to live = [-1]");
+        sut.setTimeToLive(-1);
+    }
+
+    /**
+     * データベースの代わりに使用する、メッセージIDごとの取得回数を数えるローダ。
+     * <p/>
+     * "notFound"で始まるメッセージIDは存在しないものとする。
+     * 文字列は、メッセージIDと何回目の取得かを表す。
+     */
+    private static final class CountingLoader implements StaticDataLoader<StringResource> {
+
+        /** メッセージIDごとの取得回数 */
+        private final ConcurrentMap<String, AtomicInteger> counts = new ConcurrentHashMap<String, AtomicInteger>();
+
+        /** 全ての取得回数 */
+        private final AtomicInteger total = new AtomicInteger();
+
+        /** 次の取得で送出する例外 */
+        private final ConcurrentMap<String, RuntimeException> failures = new ConcurrentHashMap<String, RuntimeException>();
+
+        /** 取得にかかる時間(ミリ秒) */
+        private volatile long latency;
+
+        /** 取得中に実行する処理 */
+        private volatile Runnable onLoad;
+
+        @Override
+        public StringResource getValue(final Object key) {
+            final String id = (String) key;
+            counts.putIfAbsent(id, new AtomicInteger());
+            final int count = counts.get(id).incrementAndGet();
+            total.incrementAndGet();
+            if (latency > 0) {
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            final Runnable hook = onLoad;
+            if (hook != null) {
+                hook.run();
+            }
+            final RuntimeException failure = failures.remove(id);
+            if (failure != null) {
+                throw failure;
+            }
+            if (id.startsWith("notFound")) {
+                return null;
+            }
+            final Map<String, String> values = new HashMap<String, String>();
+            values.put("ja", id + ':' + count);
+            return new BasicStringResource(id, values);
+        }
+
+        /**
+         * メッセージIDの取得回数を取得する。
+         *
+         * @param id メッセージID
+         * @return 取得回数
+         */
+        int count(final String id) {
+            final AtomicInteger count = counts.get(id);
+            return count == null ? 0 : count.get();
+        }
+
+        @Override
+        public List<StringResource> getValues(final String indexName, final Object key) {
+            return null;
+        }
+
+        @Override
+        public List<StringResource> loadAll() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getIndexNames() {
+            return null;
+        }
+
+        @Override
+        public Object getId(final StringResource value) {
+            return value.getId();
+        }
+
+        @Override
+        public Object generateIndexKey(final String indexName, final StringResource value) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package nablarch.core.message;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.cache.StaticDataCache;
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link DeferredMessage}のテストクラス。
+ */
+public class DeferredMessageTest {
+
+    /** 文字列リソースの取得回数を数えるキャッシュ */
+    private CountingCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new CountingCache();
+        final StringResourceHolder holder = new StringResourceHolder();
+        holder.setStringResourceCache(cache);
+        SystemRepository.clear();
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                final Map<String, Object> objects = new HashMap<String, Object>();
+                objects.put("stringResourceHolder", holder);
+                return objects;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SystemRepository.clear();
+        ThreadContext.setLanguage(null);
+    }
+
+    /**
+     * 生成時は文字列リソースを取得せず、最初にフォーマットした時点で取得すること。
+     */
+    @Test
+    public void testDeferred() throws Exception {
+        DeferredMessage sut = MessageUtil.createDeferredMessage(MessageLevel.ERROR, "errors.maxLength", "名前", 10);
+
+        assertThat(sut.getLevel(), is(MessageLevel.ERROR));
+        assertThat(sut.getMessageId(), is("errors.maxLength"));
+        assertThat(cache.count.get(), is(0));
+
+        assertThat(sut.formatMessage(Locale.JAPANESE), is("名前は10文字以下で入力してください。"));
+        assertThat(cache.count.get(), is(1));
+    }
+
+    /**
+     * フォーマット結果を言語ごとに保持し、同じ言語では再度フォーマットしないこと。
+     */
+    @Test
+    public void testFormatMessage_memoizedPerLocale() throws Exception {
+        DeferredMessage sut = MessageUtil.createDeferredMessage(MessageLevel.INFO, "errors.maxLength", "name", 10);
+
+        String ja = sut.formatMessage(Locale.JAPANESE);
+        String en = sut.formatMessage(Locale.ENGLISH);
+        assertThat(ja, is("nameは10文字以下で入力してください。"));
+        assertThat(en, is("name must be 10 characters or less."));
+
+        assertThat(sut.formatMessage(Locale.JAPANESE) == ja, is(true));
+        assertThat(sut.formatMessage(Locale.ENGLISH) == en, is(true));
+        assertThat(cache.count.get(), is(1));
+    }
+
+    /**
+     * {@link DeferredMessage#toString()}と{@link DeferredMessage#formatMessage()}は、
+     * 呼び出したスレッドの言語でフォーマットすること。
+     */
+    @Test
+    public void testToString() throws Exception {
+        DeferredMessage sut = MessageUtil.createDeferredMessage(MessageLevel.INFO, "errors.maxLength", "name", 10);
+
+        ThreadContext.setLanguage(Locale.ENGLISH);
+        assertThat(sut.toString(), is("name must be 10 characters or less."));
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        assertThat(sut.formatMessage(), is("nameは10文字以下で入力してください。"));
+    }
+
+    /**
+     * オプション引数のメッセージも、同じ言語でフォーマットすること。
+     */
+    @Test
+    public void testNestedMessage() throws Exception {
+        DeferredMessage field = MessageUtil.createDeferredMessage(MessageLevel.INFO, "label.name");
+        DeferredMessage sut = MessageUtil.createDeferredMessage(MessageLevel.ERROR, "errors.maxLength", field, 10);
+
+        assertThat(sut.formatMessage(Locale.JAPANESE), is("名前は10文字以下で入力してください。"));
+        assertThat(sut.formatMessage(Locale.ENGLISH), is("Name must be 10 characters or less."));
+        assertThat(cache.count.get(), is(2));
+    }
+
+    /**
+     * 存在しないメッセージIDは、生成時ではなくフォーマット時に例外が送出されること。
+     */
+    @Test
+    public void testNotFound() throws Exception {
+        DeferredMessage sut = MessageUtil.createDeferredMessage(MessageLevel.ERROR, "notFound.key");
+        assertThat(sut.getMessageId(), is("notFound.key"));
+
+        try {
+            sut.formatMessage(Locale.JAPANESE);
+            fail("例外が発生するはず");
+        } catch (MessageNotFoundException e) {
+            assertThat(e.getMessage().contains("message id = notFound.key"), is(true));
+        }
+    }
+
+    /**
+     * メッセージレベル、メッセージID、オプション引数が同じ{@link DeferredMessage}と等価であること。
+     * 等価性の判定では文字列リソースを取得しないこと。
+     */
+    @Test
+    public void testEquals() throws Exception {
+        Object[] options = {"name", 10};
+        DeferredMessage sut = MessageUtil.createDeferredMessage(MessageLevel.ERROR, "errors.maxLength", options);
+
+        DeferredMessage same = MessageUtil.createDeferredMessage(MessageLevel.ERROR, "errors.maxLength", options);
+        assertThat(sut.equals(same), is(true));
+        assertThat(sut.hashCode(), is(same.hashCode()));
+        assertThat(sut.equals(MessageUtil.createDeferredMessage(MessageLevel.ERROR, "label.name", options)), is(false));
+        assertThat(sut.equals(MessageUtil.createDeferredMessage(MessageLevel.INFO, "errors.maxLength", options)), is(false));
+        assertThat(sut, is(not((Object) "errors.maxLength")));
+        assertThat(cache.count.get(), is(0));
+    }
+
+    /**
+     * 生成したスレッドとは別のスレッドでフォーマットできること。
+     */
+    @Test
+    public void testFormatMessage_otherThread() throws Exception {
+        final List<DeferredMessage> messages = new ArrayList<DeferredMessage>();
+        for (int i = 0; i < 100; i++) {
+            messages.add(MessageUtil.createDeferredMessage(MessageLevel.INFO, "errors.maxLength", "item" + i, i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (final DeferredMessage message : messages) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return message.formatMessage(Locale.ENGLISH);
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i).get(), is("item" + i + " must be " + i + " characters or less."));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 取得回数を数えるキャッシュ。
+     */
+    private static final class CountingCache implements StaticDataCache<StringResource> {
+
+        /** 取得回数 */
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public StringResource getValue(final Object id) {
+            count.incrementAndGet();
+            final Map<String, String> values = new HashMap<String, String>();
+            if ("errors.maxLength".equals(id)) {
+                values.put("ja", "{0}は{1}文字以下で入力してください。");
+                values.put("en", "{0} must be {1} characters or less.");
+            } else if ("label.name".equals(id)) {
+                values.put("ja", "名前");
+                values.put("en", "Name");
+            } else {
+                return null;
+            }
+            return new BasicStringResource((String) id, values);
+        }
+
+        @Override
+        public List<StringResource> getValues(final String indexName, final Object key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
+}
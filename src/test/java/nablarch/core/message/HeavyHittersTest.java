@@ -0,0 +1,102 @@
+package nablarch.core.message;
+
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link HeavyHitters}のテストクラス。
+ */
+public class HeavyHittersTest {
+
+    /**
+     * {@link HeavyHitters#add(String)}のテスト。
+     * 候補が上限に達した時点で、候補の推定回数の最小値を置き換えの判定に使用すること。
+     */
+    @Test
+    public void testAdd_minimum() {
+        HeavyHitters sut = new HeavyHitters(2);
+        sut.add("k1");
+        sut.add("k1");
+        sut.add("k2");
+        sut.add("k2");
+        sut.add("k3");
+        assertThat((Long) Deencapsulation.getField(sut, "minimum"), is(0L));
+        sut.add("k4");
+        assertThat((Long) Deencapsulation.getField(sut, "minimum"), is(1L));
+
+        // 最小値を上回らないキーは追加されず、上回ったキーで最小値の候補を置き換えること
+        sut.add("k5");
+        assertThat(candidates(sut).containsKey("k5"), is(false));
+        sut.add("k5");
+        assertThat(candidates(sut).containsKey("k5"), is(true));
+        assertThat(candidates(sut).size(), is(4));
+    }
+
+    /**
+     * {@link HeavyHitters#add(String)}のテスト。
+     * 異なるキーが同時に追加された場合も、候補の数が上限を超えないこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAdd_concurrent() throws Exception {
+        final HeavyHitters sut = new HeavyHitters(5);
+        final int threadCount = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threadCount; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int i = 0; i < 1000; i++) {
+                            sut.add("hot" + (i % 3));
+                            sut.add("cold" + thread + '_' + i);
+                            assertThat(candidates(sut).size(), is(lessThanOrEqualTo(10)));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(candidates(sut).size(), is(10));
+        Map<String, Long> top = sut.top();
+        assertThat(top.size(), is(5));
+        assertThat(new ArrayList<String>(top.keySet()).subList(0, 3).containsAll(Arrays.asList("hot0", "hot1", "hot2")),
+                is(true));
+    }
+
+    /**
+     * 候補を取得する。
+     *
+     * @param sut テスト対象
+     * @return 候補と推定回数
+     */
+    private static Map<String, Long> candidates(HeavyHitters sut) {
+        return Deencapsulation.getField(sut, "candidates");
+    }
+}
@@ -0,0 +1,489 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.BasicStaticDataCache;
+import nablarch.core.cache.StaticDataCache;
+import nablarch.core.cache.StaticDataLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link HotMessagePrefetcher}のテストクラス。
+ * <p/>
+ * データベースの代わりに、問い合わせ回数を数えるローダを使用する。
+ */
+public class HotMessagePrefetcherTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** メッセージIDを保存するファイル */
+    private File file;
+
+    /** 問い合わせ回数を数えるローダ */
+    private BulkBackend backend;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(temporaryFolder.getRoot(), "hot-message-ids.txt");
+        backend = new BulkBackend();
+    }
+
+    /**
+     * 起動直後にローダから取得する回数を、事前に取得しない場合と事前に取得する場合とで比較する。
+     * 事前に取得した場合は、起動直後の要求でローダから取得しないこと。
+     */
+    @Test
+    public void testColdStartMisses() {
+        // 前回の起動:取得したメッセージIDを記録し、停止時に保存する
+        // 取得回数の多いメッセージIDの報告件数(デフォルト20件)を超えるメッセージIDも保存されること
+        MessageMetrics metrics = newMetrics();
+        CachingStringResourceLoader previous = newCache(backend);
+        HotMessagePrefetcher saver = newPrefetcher(previous);
+        saver.setMetrics(metrics);
+        saver.initialize();
+        serveTraffic(newHolder(previous, metrics));
+        saver.stop();
+        assertThat(metrics.getHotIdCounts().size(), is(20));
+        assertThat(read(file).size(), is(50));
+
+        // 事前に取得しない場合は、メッセージIDごとにローダから取得する
+        backend.reset();
+        serveTraffic(newHolder(newCache(backend), newMetrics()));
+        assertThat(backend.singleCount.get(), is(50));
+        assertThat(backend.bulkCount.get(), is(0));
+
+        // 事前に取得する場合は、20件ずつまとめて取得し、起動直後の要求ではローダから取得しない
+        backend.reset();
+        CachingStringResourceLoader warmed = newCache(backend);
+        HotMessagePrefetcher prefetcher = newPrefetcher(warmed);
+        prefetcher.initialize();
+        assertThat(backend.bulkCount.get(), is(3));
+        assertThat(warmed.getSize(), is(50));
+        serveTraffic(newHolder(warmed, newMetrics()));
+        assertThat(backend.singleCount.get(), is(0));
+        assertThat(backend.bulkCount.get(), is(3));
+    }
+
+    /**
+     * {@link HotMessagePrefetcher#prefetch()}のテスト。
+     * ローダが{@link BulkStringResourceLoader}を実装していない場合は、メッセージIDごとに取得すること。
+     * 存在しないメッセージIDも取得済みとして保持すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPrefetch_notBulkLoader() throws Exception {
+        write(file, "# hot message ids\nerrors.id1\n\nerrors.id2\nnotFound.id\n");
+        Backend plain = new Backend();
+        CachingStringResourceLoader cache = newCache(plain);
+        assertThat(newPrefetcher(cache).prefetch(), is(3));
+        assertThat(plain.singleCount.get(), is(3));
+
+        cache.getValue("errors.id1");
+        cache.getValue("notFound.id");
+        assertThat(plain.singleCount.get(), is(3));
+    }
+
+    /**
+     * {@link HotMessagePrefetcher#prefetch()}のテスト。
+     * {@link CachingStringResourceLoader}以外のキャッシュの場合は、メッセージIDごとに取得すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPrefetch_basicStaticDataCache() throws Exception {
+        write(file, "errors.id1\nerrors.id2\n");
+        BasicStaticDataCache<StringResource> cache = new BasicStaticDataCache<StringResource>();
+        cache.setLoader(backend);
+        cache.setLoadOnStartup(false);
+        cache.initialize();
+        assertThat(newPrefetcher(cache).prefetch(), is(2));
+        assertThat(backend.singleCount.get(), is(2));
+
+        cache.getValue("errors.id1");
+        assertThat(backend.singleCount.get(), is(2));
+    }
+
+    /**
+     * {@link HotMessagePrefetcher#prefetch()}のテスト。
+     * ファイルが存在しない場合、取得に失敗した場合は、例外を送出せずに0を返すこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPrefetch_failed() throws Exception {
+        CachingStringResourceLoader cache = newCache(backend);
+        assertThat(newPrefetcher(cache).prefetch(), is(0));
+
+        write(file, "errors.id1\n");
+        backend.failure = new IllegalStateException("database is down.");
+        assertThat(newPrefetcher(cache).prefetch(), is(0));
+        assertThat(cache.getSize(), is(0));
+    }
+
+    /**
+     * {@link HotMessagePrefetcher#save()}のテスト。
+     * 取得回数の多いメッセージIDを記録していない場合は、前回保存したファイルを上書きしないこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSave_noHotIds() throws Exception {
+        write(file, "errors.id1\n");
+        HotMessagePrefetcher sut = newPrefetcher(newCache(backend));
+        sut.setMetrics(newMetrics());
+        assertThat(sut.save(), is(0));
+        assertThat(read(file), is(Collections.singletonList("errors.id1")));
+    }
+
+    /**
+     * {@link HotMessagePrefetcher#save()}のテスト。
+     * 保存するメッセージIDは上限件数までとし、取得回数の多いメッセージIDを先頭に保存すること。
+     * 前回の保存以降に取得されていないメッセージIDは、取得回数の多いメッセージIDのみ保存すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSave_maxIdCount() throws Exception {
+        MessageMetrics metrics = newMetrics();
+        metrics.setTopIdCount(5);
+        CachingStringResourceLoader cache = newCache(backend);
+        HotMessagePrefetcher sut = newPrefetcher(cache);
+        sut.setMetrics(metrics);
+        sut.setMaxIdCount(30);
+        sut.initialize();
+        StringResourceHolder holder = newHolder(cache, metrics);
+        for (int i = 0; i < 20; i++) {
+            holder.get("errors.hot");
+        }
+        serveTraffic(holder);
+
+        assertThat(sut.save(), is(30));
+        List<String> saved = read(file);
+        assertThat(saved.size(), is(30));
+        assertThat(saved.get(0), is("errors.hot"));
+        assertThat(saved.subList(1, saved.size()).contains("errors.hot"), is(false));
+
+        // 前回の保存以降に取得されていなくても、保存済みのメッセージIDは残ること
+        assertThat(sut.save(), is(30));
+        assertThat(read(file).get(0), is("errors.hot"));
+    }
+
+    /**
+     * {@link HotMessagePrefetcher#save()}のテスト。
+     * 異なるメッセージIDを取得した後に保存を繰り返しても、前回までに保存したメッセージIDを上限件数まで残すこと。
+     * 上限件数を超えた場合は、前回の保存以降に取得されたメッセージIDを優先すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSave_accumulate() throws Exception {
+        MessageMetrics metrics = newMetrics();
+        metrics.setTopIdCount(1);
+        CachingStringResourceLoader cache = newCache(backend);
+        HotMessagePrefetcher sut = newPrefetcher(cache);
+        sut.setMetrics(metrics);
+        sut.setMaxIdCount(15);
+        sut.initialize();
+        StringResourceHolder holder = newHolder(cache, metrics);
+
+        List<String> first = request(holder, "errors.a", 5);
+        assertThat(sut.save(), is(5));
+        List<String> second = request(holder, "errors.b", 5);
+        assertThat(sut.save(), is(10));
+        List<String> expected = new ArrayList<String>(first);
+        expected.addAll(second);
+        assertThat(read(file), containsInAnyOrder(expected.toArray()));
+
+        List<String> third = request(holder, "errors.c", 10);
+        assertThat(sut.save(), is(15));
+        List<String> saved = read(file);
+        assertThat(saved.size(), is(15));
+        assertThat(saved.containsAll(third), is(true));
+    }
+
+    /**
+     * {@link HotMessagePrefetcher#initialize()}のテスト。
+     * 保存間隔を設定した場合は、定期的に保存すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInitialize_saveInterval() throws Exception {
+        MessageMetrics metrics = newMetrics();
+        CachingStringResourceLoader cache = newCache(backend);
+        StringResourceHolder holder = newHolder(cache, metrics);
+        holder.get("errors.id1");
+        holder.get("errors.id2");
+
+        HotMessagePrefetcher sut = newPrefetcher(cache);
+        sut.setMetrics(metrics);
+        sut.setSaveInterval(20);
+        sut.initialize();
+        try {
+            for (int i = 0; i < 100 && !file.exists(); i++) {
+                Thread.sleep(20);
+            }
+            assertThat(read(file), containsInAnyOrder("errors.id1", "errors.id2"));
+        } finally {
+            sut.stop();
+        }
+    }
+
+    /**
+     * {@link HotMessagePrefetcher#initialize()}のテスト。
+     * ファイルのパスが設定されていない場合は例外を送出すること。
+     */
+    @Test
+    public void testInitialize_filePathNotSet() {
+        HotMessagePrefetcher sut = new HotMessagePrefetcher();
+        sut.setStringResourceCache(newCache(backend));
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("file path was not set.");
+        sut.initialize();
+    }
+
+    /**
+     * 起動直後の要求として、50件のメッセージIDをそれぞれ10回取得する。
+     *
+     * @param holder 取得に使用する{@link StringResourceHolder}
+     */
+    private static void serveTraffic(StringResourceHolder holder) {
+        for (int i = 0; i < 10; i++) {
+            for (int id = 0; id < 50; id++) {
+                holder.get("errors.id" + id);
+            }
+        }
+    }
+
+    /**
+     * 全ての取得を記録する{@link MessageMetrics}を生成する。
+     *
+     * @return {@link MessageMetrics}
+     */
+    private static MessageMetrics newMetrics() {
+        MessageMetrics metrics = new MessageMetrics();
+        metrics.setSampleRate(1);
+        metrics.setObjectName(null);
+        return metrics;
+    }
+
+    /**
+     * ローダから取得するキャッシュを生成する。
+     *
+     * @param loader ローダ
+     * @return キャッシュ
+     */
+    private static CachingStringResourceLoader newCache(StaticDataLoader<StringResource> loader) {
+        CachingStringResourceLoader cache = new CachingStringResourceLoader();
+        cache.setLoader(loader);
+        return cache;
+    }
+
+    /**
+     * 接頭辞に連番を付加したメッセージIDを、それぞれ1回取得する。
+     *
+     * @param holder 取得に使用する{@link StringResourceHolder}
+     * @param prefix メッセージIDの接頭辞
+     * @param count 取得するメッセージIDの件数
+     * @return 取得したメッセージID
+     */
+    private static List<String> request(StringResourceHolder holder, String prefix, int count) {
+        List<String> messageIds = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            messageIds.add(prefix + i);
+            holder.get(prefix + i);
+        }
+        return messageIds;
+    }
+
+    /**
+     * {@link StringResourceHolder}を生成する。
+     *
+     * @param cache キャッシュ
+     * @param metrics {@link MessageMetrics}
+     * @return {@link StringResourceHolder}
+     */
+    private static StringResourceHolder newHolder(CachingStringResourceLoader cache, MessageMetrics metrics) {
+        StringResourceHolder holder = new StringResourceHolder();
+        holder.setStringResourceCache(cache);
+        holder.setMetrics(metrics);
+        return holder;
+    }
+
+    /**
+     * テスト対象クラスを生成する。
+     *
+     * @param cache 事前に取得するキャッシュ
+     * @return テスト対象クラス
+     */
+    private HotMessagePrefetcher newPrefetcher(StaticDataCache<StringResource> cache) {
+        HotMessagePrefetcher sut = new HotMessagePrefetcher();
+        sut.setFilePath(file.getPath());
+        sut.setStringResourceCache(cache);
+        sut.setBatchSize(20);
+        return sut;
+    }
+
+    /**
+     * ファイルからメッセージIDを読み込む。
+     *
+     * @param file ファイル
+     * @return メッセージID一覧
+     */
+    private static List<String> read(File file) {
+        List<String> lines = new ArrayList<String>();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return lines;
+    }
+
+    /**
+     * ファイルに書き込む。
+     *
+     * @param file ファイル
+     * @param content 内容
+     * @throws Exception
+     */
+    private static void write(File file, String content) throws Exception {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * データベースの代わりに使用する、メッセージIDごとの問い合わせ回数を数えるローダ。
+     * <p/>
+     * "notFound"で始まるメッセージIDは存在しないものとする。
+     */
+    private static class Backend implements StaticDataLoader<StringResource> {
+
+        /** メッセージIDごとの問い合わせ回数 */
+        final AtomicInteger singleCount = new AtomicInteger();
+
+        /** 次の問い合わせで送出する例外 */
+        volatile RuntimeException failure;
+
+        /**
+         * 問い合わせ回数を初期化する。
+         */
+        void reset() {
+            singleCount.set(0);
+        }
+
+        /**
+         * メッセージIDに対応する文字列リソースを生成する。
+         *
+         * @param id メッセージID
+         * @return 文字列リソース(存在しない場合はnull)
+         */
+        StringResource find(String id) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (id.startsWith("notFound")) {
+                return null;
+            }
+            Map<String, String> values = new HashMap<String, String>();
+            values.put("ja", id);
+            return new BasicStringResource(id, values);
+        }
+
+        @Override
+        public StringResource getValue(Object key) {
+            singleCount.incrementAndGet();
+            return find((String) key);
+        }
+
+        @Override
+        public List<StringResource> getValues(String indexName, Object key) {
+            return null;
+        }
+
+        @Override
+        public List<StringResource> loadAll() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getIndexNames() {
+            return null;
+        }
+
+        @Override
+        public Object getId(StringResource value) {
+            return value.getId();
+        }
+
+        @Override
+        public Object generateIndexKey(String indexName, StringResource value) {
+            return null;
+        }
+    }
+
+    /**
+     * メッセージIDをまとめて問い合わせできるローダ。
+     */
+    private static final class BulkBackend extends Backend implements BulkStringResourceLoader {
+
+        /** まとめて問い合わせた回数 */
+        final AtomicInteger bulkCount = new AtomicInteger();
+
+        @Override
+        void reset() {
+            super.reset();
+            bulkCount.set(0);
+        }
+
+        @Override
+        public List<StringResource> loadValues(List<String> messageIds) {
+            bulkCount.incrementAndGet();
+            List<StringResource> resources = new ArrayList<StringResource>();
+            for (String id : messageIds) {
+                StringResource resource = find(id);
+                if (resource != null) {
+                    resources.add(resource);
+                }
+            }
+            return resources;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package nablarch.core.message;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link JsonMessageBundleCache}と{@link JsonMessageBundle}のテストクラス。
+ */
+public class JsonMessageBundleCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** テスト対象クラス */
+    private JsonMessageBundleCache sut;
+
+    /** プロパティファイルを配置したディレクトリ */
+    private File directory;
+
+    /** メッセージをロードするローダ */
+    private PropertiesStringResourceLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.newFolder("messages");
+        write(new File(directory, "messages.properties"), "errors.required={0}は必須です。\n"
+                + "errors.length={0}は{1}文字以下で入力してください。\n"
+                + "screen.title=画面\n");
+        write(new File(directory, "messages_en.properties"), "errors.required={0} is required.\n");
+        loader = new PropertiesStringResourceLoader();
+        loader.setDirectory(directory.toURI().toString());
+        loader.setDefaultLocale("ja");
+        loader.setLocales(Arrays.asList("en"));
+        loader.setFallbackLocales(Arrays.<String>asList());
+        sut = new JsonMessageBundleCache();
+        sut.setLoader(loader);
+    }
+
+    /**
+     * {@link JsonMessageBundleCache#get(Locale)}のテスト。
+     * メッセージIDの昇順に、代替チェーンで探した文字列を出力すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGet() throws Exception {
+        JsonMessageBundle ja = sut.get(Locale.JAPANESE);
+        assertThat(toString(ja), is("{\"errors.length\":\"{0}は{1}文字以下で入力してください。\","
+                + "\"errors.required\":\"{0}は必須です。\",\"screen.title\":\"画面\"}"));
+        assertThat(ja.getMessageCount(), is(3));
+        assertThat(ja.getContentLength(), is(toString(ja).getBytes("UTF-8").length));
+
+        JsonMessageBundle en = sut.get(Locale.ENGLISH);
+        assertThat(toString(en), is("{\"errors.length\":\"{0}は{1}文字以下で入力してください。\","
+                + "\"errors.required\":\"{0} is required.\",\"screen.title\":\"画面\"}"));
+
+        // 生成済みのバンドルを返す
+        assertThat(sut.get(Locale.JAPANESE), is(sameInstance(ja)));
+        assertThat(sut.get(Locale.ENGLISH), is(sameInstance(en)));
+    }
+
+    /**
+     * {@link JsonMessageBundleCache#get(Locale, String)}のテスト。
+     * 名前空間に属するメッセージのみを出力すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGet_namespace() throws Exception {
+        JsonMessageBundle errors = sut.get(Locale.ENGLISH, "errors");
+        assertThat(toString(errors), is("{\"errors.length\":\"{0}は{1}文字以下で入力してください。\","
+                + "\"errors.required\":\"{0} is required.\"}"));
+        assertThat(sut.get(Locale.ENGLISH, "errors"), is(sameInstance(errors)));
+
+        // 存在しない名前空間は空のオブジェクトとし、保持しない
+        JsonMessageBundle notFound = sut.get(Locale.ENGLISH, "notFound");
+        assertThat(toString(notFound), is("{}"));
+        assertThat(notFound.getMessageCount(), is(0));
+        assertThat(sut.get(Locale.ENGLISH, "notFound"), is(not(sameInstance(notFound))));
+    }
+
+    /**
+     * {@link JsonMessageBundleCache#get(Locale)}のテスト。
+     * ローダが再ロードされた場合は再生成し、内容が変わった場合はETagも変わること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGet_reload() throws Exception {
+        JsonMessageBundle before = sut.get(Locale.JAPANESE);
+
+        // 内容が同じ場合は、再生成してもETagは変わらない
+        loader.reload();
+        JsonMessageBundle same = sut.get(Locale.JAPANESE);
+        assertThat(same, is(not(sameInstance(before))));
+        assertThat(same.getETag(), is(before.getETag()));
+
+        write(new File(directory, "messages.properties"), "errors.required={0}を入力してください。\n");
+        loader.reload();
+        JsonMessageBundle after = sut.get(Locale.JAPANESE);
+        assertThat(toString(after), is("{\"errors.required\":\"{0}を入力してください。\"}"));
+        assertThat(after.getETag(), is(not(before.getETag())));
+        assertThat(after.matches(before.getETag()), is(false));
+    }
+
+    /**
+     * {@link JsonMessageBundle#matches(String)}のテスト。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMatches() throws Exception {
+        JsonMessageBundle bundle = sut.get(Locale.JAPANESE);
+        String etag = bundle.getETag();
+        assertThat(etag.matches("\"[0-9a-f]{32}\""), is(true));
+
+        assertThat(bundle.matches(etag), is(true));
+        assertThat(bundle.matches("W/" + etag), is(true));
+        assertThat(bundle.matches("\"other\", " + etag), is(true));
+        assertThat(bundle.matches("*"), is(true));
+        assertThat(bundle.matches("\"other\""), is(false));
+        assertThat(bundle.matches(etag.substring(1, etag.length() - 1)), is(false));
+        assertThat(bundle.matches(null), is(false));
+    }
+
+    /**
+     * {@link JsonMessageBundle#asByteBuffer()}のテスト。
+     * 保持しているバイト列を、読み取り専用で参照できること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAsByteBuffer() throws Exception {
+        JsonMessageBundle bundle = sut.get(Locale.JAPANESE, "screen");
+        ByteBuffer buffer = bundle.asByteBuffer();
+        assertThat(buffer.isReadOnly(), is(true));
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertThat(new String(bytes, "UTF-8"), is("{\"screen.title\":\"画面\"}"));
+        assertThat(bundle.asByteBuffer().remaining(), is(bundle.getContentLength()));
+    }
+
+    /**
+     * {@link JsonMessageBundleCache#appendString(StringBuilder, String)}のテスト。
+     * JSONとHTML、JavaScriptで特別な意味を持つ文字をエスケープすること。
+     */
+    @Test
+    public void testAppendString() {
+        StringBuilder json = new StringBuilder();
+        JsonMessageBundleCache.appendString(json, "\"\\\n\r\t\b</script>&\u2028\u2029あ");
+        assertThat(json.toString(),
+                is("\"\\\"\\\\\\n\\r\\t\\u0008\\u003c/script\\u003e\\u0026\\u2028\\u2029あ\""));
+    }
+
+    /**
+     * {@link JsonMessageBundleCache#get(Locale)}のテスト。
+     * ローダが設定されていない場合は例外を送出すること。
+     */
+    @Test
+    public void testGet_loaderNotSet() {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("loader was not set.");
+        new JsonMessageBundleCache().get(Locale.JAPANESE);
+    }
+
+    /**
+     * バンドルの内容を文字列として取得する。
+     *
+     * @param bundle バンドル
+     * @return バンドルの内容
+     * @throws Exception
+     */
+    private static String toString(JsonMessageBundle bundle) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bundle.writeTo(out);
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * ファイルに書き込む。
+     *
+     * @param file ファイル
+     * @param content 内容
+     * @throws Exception
+     */
+    private static void write(File file, String content) throws Exception {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
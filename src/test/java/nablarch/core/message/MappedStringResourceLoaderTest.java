@@ -0,0 +1,276 @@
+package nablarch.core.message;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link MappedStringResourceLoader}と{@link MessageBundleCompiler}のテストクラス。
+ */
+public class MappedStringResourceLoaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** 比較するロケール */
+    private static final List<Locale> LOCALES = Arrays.asList(
+            Locale.JAPANESE, Locale.ENGLISH, Locale.CHINESE, Locale.GERMAN, Locale.TAIWAN, Locale.FRENCH);
+
+    /** テスト対象クラス */
+    private MappedStringResourceLoader sut;
+
+    @Before
+    public void setUp() throws Exception {
+        sut = new MappedStringResourceLoader();
+    }
+
+    /**
+     * {@link MappedStringResourceLoader#getValue(Object)}のテスト。
+     * 変換元の{@link PropertiesStringResourceLoader}と同じ文字列リソースを取得できること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_roundTrip() throws Exception {
+        PropertiesStringResourceLoader source = new PropertiesStringResourceLoader();
+        source.setDefaultLocale("ja");
+        source.setLocales(Arrays.asList("en", "zh", "de"));
+        sut.setBundleFile(compile(source));
+
+        assertRoundTrip(source);
+        assertThat(sut.getValue("locale.key").getValue(Locale.GERMAN), is("localeValue_de"));
+    }
+
+    /**
+     * {@link MappedStringResourceLoader#getValue(Object)}のテスト。
+     * マルチバイト文字を含むメッセージIDや、前方一致するメッセージIDを含むケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_multibyteId() throws Exception {
+        File directory = temporaryFolder.newFolder("messages");
+        write(new File(directory, "messages.properties"),
+                "a=1\na.b=2\nab=3\nb=4\n\\u00e9=5\n\\u65e5\\u672c=6\n\\ud842\\udfb7=7\n\\uff21=8\n=9\n");
+        write(new File(directory, "messages_en.properties"), "a=one\n\\u65e5\\u672c=Japan\n");
+        PropertiesStringResourceLoader source = new PropertiesStringResourceLoader();
+        source.setDirectory(directory.toURI().toString());
+        source.setDefaultLocale("ja");
+        source.setLocales(Arrays.asList("en"));
+        sut.setBundleFile(compile(source));
+
+        assertRoundTrip(source);
+        assertThat(sut.getValue("日本").getValue(Locale.ENGLISH), is("Japan"));
+        assertThat(sut.getValue("日本").getValue(Locale.JAPANESE), is("6"));
+        assertThat(sut.getValue("𠮷").getValue(Locale.JAPANESE), is("7"));
+        assertThat(sut.getValue("").getValue(Locale.JAPANESE), is("9"));
+        assertThat(sut.getValue("a.c"), is(nullValue()));
+        assertThat(sut.getValue("日"), is(nullValue()));
+    }
+
+    /**
+     * {@link MappedStringResourceLoader#getValue(Object)}のテスト。
+     * 代替ロケール一覧を設定するケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_fallback() throws Exception {
+        PropertiesStringResourceLoader source = new PropertiesStringResourceLoader();
+        source.setDirectory("classpath:nablarch/core/message/");
+        source.setFileName("fallback");
+        source.setDefaultLocale("ja");
+        source.setLocales(Arrays.asList("en", "zh", "zh_TW"));
+        sut.setBundleFile(compile(source));
+        sut.setFallbackLocales(Arrays.asList("en"));
+
+        Locale taiwan = Locale.TAIWAN;
+        assertThat(sut.getValue("fallback.all").getValue(taiwan), is("all_zh_TW"));
+        assertThat(sut.getValue("fallback.all").getValue(Locale.CHINA), is("all_zh"));
+        assertThat(sut.getValue("fallback.zh").getValue(taiwan), is("zh only"));
+        assertThat(sut.getValue("fallback.en").getValue(taiwan), is("en only"));
+        assertThat(sut.getValue("fallback.ja").getValue(Locale.FRENCH), is("日本語のみ"));
+    }
+
+    /**
+     * {@link MappedStringResourceLoader#getValue(Object)}のテスト。
+     * 存在しないメッセージIDとnullを引数に指定するケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_notFound() throws Exception {
+        sut.setBundleFile(compile(new PropertiesStringResourceLoader()));
+
+        assertThat(sut.getValue(null), is(nullValue()));
+        assertThat(sut.getValue("invalid.key"), is(nullValue()));
+        assertThat(sut.getValue("0"), is(nullValue()));
+        assertThat(sut.getValue("zzz"), is(nullValue()));
+    }
+
+    /**
+     * {@link MappedStringResourceLoader#loadAll()}のテスト。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLoadAll() throws Exception {
+        sut.setBundleFile(compile(new PropertiesStringResourceLoader()));
+
+        List<StringResource> result = sut.loadAll();
+
+        assertThat(result.size(), is(2));
+        assertThat(result.get(0).getId(), is("default.key"));
+        assertThat(result.get(0).getValue(Locale.getDefault()), is("デフォルト"));
+        assertThat(result.get(1).getId(), is("load.all.key"));
+        assertThat(result.get(1).getValue(Locale.getDefault()), is("loadAllValue"));
+    }
+
+    /**
+     * {@link MappedStringResourceLoader#getValue(Object)}のテスト。
+     * メッセージバンドルの形式が不正なケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_invalidBundle() throws Exception {
+        File file = temporaryFolder.newFile("invalid.bundle");
+        write(file, "default.key=デフォルト\nload.all.key=loadAllValue\n");
+        sut.setBundleFile(file.toURI().toString());
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("invalid message bundle. file path = [" + file.toURI() + ']');
+        sut.getValue("default.key");
+    }
+
+    /**
+     * {@link MappedStringResourceLoader#getValue(Object)}のテスト。
+     * メッセージバンドルが存在しないケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_bundleNotFound() throws Exception {
+        sut.setBundleFile("classpath:nablarch/core/message/notFound.bundle");
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage(
+                "message bundle was not found on the file system. file path = [classpath:nablarch/core/message/notFound.bundle]");
+        sut.getValue("default.key");
+    }
+
+    /**
+     * {@link MappedStringResourceLoader#getValue(Object)}のテスト。
+     * メッセージバンドルのパスが設定されていないケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_bundleFileNotSet() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("bundleFile was not set.");
+        sut.getValue("default.key");
+    }
+
+    /**
+     * {@link MessageBundleCompiler#compile(File)}のテスト。
+     * ローダが設定されていないケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCompile_loaderNotSet() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("loader was not set.");
+        new MessageBundleCompiler().compile(temporaryFolder.newFile("messages.bundle"));
+    }
+
+    /**
+     * {@link MessageBundleCompiler#main(String[])}のテスト。
+     * 引数で指定したプロパティファイルを変換できること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMain() throws Exception {
+        File output = new File(temporaryFolder.getRoot(), "main.bundle");
+        MessageBundleCompiler.main(new String[] {output.getPath(), "classpath:", "messages", "ja", "en", "zh"});
+        sut.setBundleFile(output.toURI().toString());
+
+        assertThat(sut.getValue("locale.key").getValue(Locale.CHINESE), is("localeValue_zh"));
+        assertThat(sut.getValue("default.key").getValue(Locale.JAPANESE), is("デフォルト"));
+    }
+
+    /**
+     * メッセージバンドルに変換する。
+     *
+     * @param source 変換元のローダ
+     * @return メッセージバンドルのパス
+     * @throws Exception
+     */
+    private String compile(PropertiesStringResourceLoader source) throws Exception {
+        File output = File.createTempFile("messages", ".bundle", temporaryFolder.getRoot());
+        MessageBundleCompiler compiler = new MessageBundleCompiler();
+        compiler.setLoader(source);
+        compiler.compile(output);
+        return output.toURI().toString();
+    }
+
+    /**
+     * 変換元のローダと同じ文字列リソースを取得できることを検証する。
+     *
+     * @param source 変換元のローダ
+     */
+    private void assertRoundTrip(PropertiesStringResourceLoader source) {
+        List<StringResource> expected = source.loadAll();
+        Set<String> ids = new HashSet<String>();
+        for (StringResource resource : sut.loadAll()) {
+            ids.add(resource.getId());
+        }
+        assertThat(ids.size(), is(expected.size()));
+        for (StringResource resource : expected) {
+            assertThat(ids.contains(resource.getId()), is(true));
+            BasicStringResource actual = (BasicStringResource) sut.getValue(resource.getId());
+            assertThat(actual.getId(), is(resource.getId()));
+            for (Locale locale : LOCALES) {
+                assertThat(resource.getId() + ':' + locale, actual.findValue(locale),
+                        is(((BasicStringResource) resource).findValue(locale)));
+            }
+        }
+    }
+
+    /**
+     * ファイルを書き込む。
+     *
+     * @param file ファイル
+     * @param content 内容
+     * @throws Exception
+     */
+    private static void write(File file, String content) throws Exception {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.BasicStaticDataCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link MessageMetrics}のテストクラス。
+ */
+public class MessageMetricsTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** テストで使用するMBeanのオブジェクト名 */
+    private static final String OBJECT_NAME = "nablarch.core.message:type=MessageMetrics,name=test";
+
+    /** テスト対象クラス */
+    private MessageMetrics sut;
+
+    @Before
+    public void setUp() throws Exception {
+        sut = new MessageMetrics();
+        sut.setObjectName(OBJECT_NAME);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sut.unregister();
+    }
+
+    /**
+     * 取得回数と、存在しなかった回数を計測できること。
+     */
+    @Test
+    public void testLookupCount() throws Exception {
+        StringResourceHolder holder = createHolder(sut, new PropertiesStringResourceLoader());
+
+        for (int i = 0; i < 6; i++) {
+            holder.get("default.key");
+        }
+        holder.find("notFound.key");
+        holder.find(null);
+        try {
+            holder.get("notFound.key");
+        } catch (MessageNotFoundException ignored) {
+            // 存在しなかった回数として計測されること
+        }
+
+        assertThat(sut.getLookupCount(), is(9L));
+        assertThat(sut.getHitCount(), is(6L));
+        assertThat(sut.getMissCount(), is(3L));
+        assertThat(sut.getMissRate(), is(3.0 / 9.0));
+    }
+
+    /**
+     * 計測値を設定しない場合は、計測しないこと。
+     */
+    @Test
+    public void testLookupCount_disabled() throws Exception {
+        StringResourceHolder holder = createHolder(null, new PropertiesStringResourceLoader());
+
+        holder.get("default.key");
+        holder.find("notFound.key");
+
+        assertThat(sut.getLookupCount(), is(0L));
+        assertThat(sut.getMissRate(), is(0.0));
+        assertThat(sut.getLatencyP99Nanos(), is(0L));
+    }
+
+    /**
+     * サンプリング間隔が1の場合は、全ての取得の取得時間を計測すること。
+     * サンプリング間隔を大きくした場合は、一部の取得のみ計測すること。
+     */
+    @Test
+    public void testLatency() throws Exception {
+        sut.setSampleRate(1);
+        StringResourceHolder holder = createHolder(sut, new PropertiesStringResourceLoader());
+
+        for (int i = 0; i < 100; i++) {
+            holder.get("default.key");
+        }
+        assertThat(sut.getSampledLookupCount(), is(100L));
+        assertThat(sut.getLatencyMaxNanos(), greaterThan(0L));
+        assertThat(sut.getLatencyP50Nanos(), greaterThan(0L));
+        assertThat(sut.getLatencyP99Nanos(), greaterThanOrEqualTo(sut.getLatencyP50Nanos()));
+        assertThat(sut.getLatencyMaxNanos(), greaterThanOrEqualTo(sut.getLatencyP99Nanos()));
+        assertThat(sut.getLatencyPercentileNanos(100.0), is(sut.getLatencyMaxNanos()));
+
+        sut.reset();
+        sut.setSampleRate(16);
+        for (int i = 0; i < 16000; i++) {
+            holder.get("default.key");
+        }
+        assertThat(sut.getLookupCount(), is(16000L));
+        assertThat(sut.getSampledLookupCount(), greaterThan(500L));
+        assertThat(sut.getSampledLookupCount(), not(greaterThan(1500L)));
+    }
+
+    /**
+     * 取得回数の多いメッセージIDと、存在しなかった回数の多いメッセージIDを、回数の降順に取得できること。
+     */
+    @Test
+    public void testTopIds() throws Exception {
+        sut.setSampleRate(1);
+        sut.setTopIdCount(2);
+        StringResourceHolder holder = createHolder(sut, new PropertiesStringResourceLoader());
+        holder.setNegativeCacheSize(0);
+
+        for (int i = 0; i < 30; i++) {
+            holder.get("default.key");
+        }
+        for (int i = 0; i < 20; i++) {
+            holder.get("load.all.key");
+        }
+        for (int i = 0; i < 10; i++) {
+            holder.find("notFound.hot");
+        }
+        // 候補の上限を超えるメッセージIDを記録しても、回数の多いメッセージIDが残ること
+        for (int i = 0; i < 100; i++) {
+            holder.find("notFound.cold" + i);
+        }
+
+        Map<String, Long> hot = sut.getHotIdCounts();
+        assertThat(new ArrayList<String>(hot.keySet()).subList(0, 2).toString(), is("[default.key, load.all.key]"));
+        assertThat(hot.get("default.key"), greaterThanOrEqualTo(30L));
+
+        List<String> missing = new ArrayList<String>(sut.getMissingIdCounts().keySet());
+        assertThat(missing.size(), is(2));
+        assertThat(missing.get(0), is("notFound.hot"));
+        assertThat(sut.getMissingIds()[0], is("notFound.hot=10"));
+    }
+
+    /**
+     * 記録を開始した後に取得されたメッセージIDを、サンプリングせずに上限件数まで記録できること。
+     * 取り出した後は記録が空になり、存在しなかったメッセージIDは記録しないこと。
+     */
+    @Test
+    public void testDrainRecentIds() throws Exception {
+        sut.setSampleRate(1024);
+        StringResourceHolder holder = createHolder(sut, new PropertiesStringResourceLoader());
+        assertThat(sut.drainRecentIds().isEmpty(), is(true));
+
+        sut.trackRecentIds(1);
+        holder.get("default.key");
+        holder.get("default.key");
+        holder.get("load.all.key");
+        holder.find("notFound.id");
+        assertThat(sut.drainRecentIds(), is(Collections.singletonList("default.key")));
+        assertThat(sut.drainRecentIds().isEmpty(), is(true));
+
+        sut.trackRecentIds(10);
+        holder.find("notFound.id");
+        holder.get("load.all.key");
+        holder.get("default.key");
+        assertThat(sut.drainRecentIds(), containsInAnyOrder("default.key", "load.all.key"));
+    }
+
+    /**
+     * ロード回数と所要時間、ロードしたメッセージ数を計測できること。
+     */
+    @Test
+    public void testLoad() throws Exception {
+        PropertiesStringResourceLoader loader = new PropertiesStringResourceLoader();
+        loader.setMetrics(sut);
+
+        loader.getValue("default.key");
+        assertThat(sut.getLoadCount(), is(1L));
+        assertThat(sut.getLastLoadedMessageCount(), is(loader.loadAll().size()));
+        assertThat(sut.getLastLoadDuration(), greaterThanOrEqualTo(0L));
+
+        loader.reload();
+        assertThat(sut.getLoadCount(), is(2L));
+        assertThat(sut.getMaxLoadDuration(), greaterThanOrEqualTo(sut.getLastLoadDuration()));
+    }
+
+    /**
+     * 初期化時にMBeanを登録し、JMXから計測値を参照できること。
+     * 同じオブジェクト名で登録済みの場合は置き換えず、登録済みのMBeanを登録解除しないこと。
+     */
+    @Test
+    public void testMBean() throws Exception {
+        sut.setSampleRate(1);
+        StringResourceHolder holder = createHolder(sut, new PropertiesStringResourceLoader());
+        sut.initialize();
+        holder.get("default.key");
+        holder.find("notFound.key");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        assertThat(server.getAttribute(name, "LookupCount"), is((Object) 2L));
+        assertThat(server.getAttribute(name, "MissRate"), is((Object) 0.5));
+        List<String> missing = new ArrayList<String>();
+        for (String id : (String[]) server.getAttribute(name, "MissingIds")) {
+            missing.add(id);
+        }
+        assertThat(missing, hasItem("notFound.key=1"));
+
+        server.invoke(name, "reset", null, null);
+        assertThat(sut.getLookupCount(), is(0L));
+
+        MessageMetrics other = new MessageMetrics();
+        other.setObjectName(OBJECT_NAME);
+        other.initialize();
+        try {
+            holder.setMetrics(other);
+            holder.get("default.key");
+            assertThat(other.getLookupCount(), is(1L));
+            assertThat(server.getAttribute(name, "LookupCount"), is((Object) 0L));
+        } finally {
+            other.unregister();
+        }
+        assertThat(server.isRegistered(name), is(true));
+
+        sut.unregister();
+        assertThat(server.isRegistered(name), is(false));
+    }
+
+    /**
+     * サンプリング間隔に2のべき乗以外を設定した場合は例外が発生すること。
+     */
+    @Test
+    public void testSetSampleRate_invalid() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("sample rate must be a power of two. sample rate = [48]");
+        sut.setSampleRate(48);
+    }
+
+    /**
+     * {@link StringResourceHolder}を生成する。
+     *
+     * @param metrics 計測値
+     * @param loader ローダ
+     * @return {@link StringResourceHolder}
+     */
+    private static StringResourceHolder createHolder(MessageMetrics metrics, PropertiesStringResourceLoader loader) {
+        BasicStaticDataCache<StringResource> cache = new BasicStaticDataCache<StringResource>();
+        cache.setLoader(loader);
+        cache.initialize();
+        StringResourceHolder holder = new StringResourceHolder();
+        holder.setStringResourceCache(cache);
+        holder.setMetrics(metrics);
+        return holder;
+    }
+}
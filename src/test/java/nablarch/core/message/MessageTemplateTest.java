@@ -0,0 +1,186 @@
+package nablarch.core.message;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.text.MessageFormat;
+import java.util.Date;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link MessageTemplate}のテストクラス。
+ */
+public class MessageTemplateTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /**
+     * {@link MessageTemplate#format(Object...)}のテスト。
+     * {@link MessageFormat}と同一の結果となること。
+     */
+    @Test
+    public void testFormat_sameAsMessageFormat() throws Exception {
+        final String[] patterns = {
+                "",
+                "固定文字列",
+                "{0}は{1}文字以下で入力してください。",
+                "{1}{0}{1}",
+                "{0}",
+                "{00}と{01}",
+                "'{0}'は{0}",
+                "It''s {0}",
+                "''{0}''",
+                "'It''s' {0}",
+                "'quoted {0} and ''inner''",
+                "}{0}}",
+                "{2}",
+                "{0,number,#,##0}円",
+                "{0, number}",
+                "{ 0 }",
+                "{0,choice,0#none|1#one|1<many}",
+                "{0}{1}{2}{3}{4}{5}{6}{7}{8}{9}{10}",
+        };
+        final Object[][] optionsList = {
+                null,
+                new Object[0],
+                new Object[] {"a"},
+                new Object[] {"名前", 10},
+                new Object[] {null, new Object() {
+                    @Override
+                    public String toString() {
+                        return null;
+                    }
+                }, new StringBuilder("sb")},
+                new Object[] {1234567, new BigDecimal("1234.5"), 1.5d, new Date(0L)},
+                new Object[] {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"},
+        };
+
+        for (String pattern : patterns) {
+            final MessageTemplate template = MessageTemplate.compile(pattern);
+            for (Object[] options : optionsList) {
+                final String expected;
+                try {
+                    expected = new MessageFormat(pattern).format(options);
+                } catch (IllegalArgumentException e) {
+                    // 書式に合わない引数の場合は、同じ例外が発生すること
+                    try {
+                        template.format(options);
+                        fail("IllegalArgumentException must be thrown. pattern = " + pattern);
+                    } catch (IllegalArgumentException actual) {
+                        assertThat(actual.getMessage(), is(e.getMessage()));
+                    }
+                    continue;
+                }
+                assertThat(pattern, template.format(options), is(expected));
+                assertThat(pattern, template.formatTo(new StringBuilder("prefix:"), options).toString(),
+                        is("prefix:" + expected));
+                final StringWriter writer = new StringWriter();
+                writer.write("prefix:");
+                assertThat(pattern, template.renderTo(writer, options).toString(), is("prefix:" + expected));
+            }
+        }
+    }
+
+    /**
+     * {@link MessageTemplate#renderTo(Appendable, Object...)}のテスト。
+     * {@link CharBuffer}に直接書き込めること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRenderTo_charBuffer() throws Exception {
+        final MessageTemplate template = MessageTemplate.compile("{0}は{1}文字以下で入力してください。");
+        final CharBuffer buffer = CharBuffer.allocate(64);
+        template.renderTo(buffer, "名前", 10);
+        buffer.flip();
+        assertThat(buffer.toString(), is("名前は10文字以下で入力してください。"));
+    }
+
+    /**
+     * {@link MessageTemplate#renderTo(Appendable, Object...)}のテスト。
+     * 書き込みに失敗した場合は、{@link IOException}を送出すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRenderTo_failed() throws Exception {
+        final Appendable closed = new Appendable() {
+            @Override
+            public Appendable append(CharSequence csq) throws IOException {
+                throw new IOException("stream closed.");
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) throws IOException {
+                throw new IOException("stream closed.");
+            }
+
+            @Override
+            public Appendable append(char c) throws IOException {
+                throw new IOException("stream closed.");
+            }
+        };
+        expectedException.expect(IOException.class);
+        expectedException.expectMessage("stream closed.");
+        MessageTemplate.compile("{0}です。").renderTo(closed, "a");
+    }
+
+    /**
+     * {@link MessageTemplate#format(Object...)}のテスト。
+     * 括弧が閉じられていない場合は{@link MessageFormat}と同じく例外が発生すること。
+     */
+    @Test
+    public void testFormat_unmatchedBraces() throws Exception {
+        final MessageTemplate template = MessageTemplate.compile("{0}は{1");
+        assertThat(template.getPattern(), is("{0}は{1"));
+
+        expectedException.expect(IllegalArgumentException.class);
+        template.format("a", "b");
+    }
+
+    /**
+     * {@link MessageTemplate#compile(String)}のテスト。
+     * nullを指定した場合は例外が発生すること。
+     */
+    @Test
+    public void testCompile_null() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("pattern must not be null.");
+        MessageTemplate.compile(null);
+    }
+
+    /**
+     * 引数の埋め込み位置がないテンプレートは定数となり、固定文字列をそのまま返すこと。
+     */
+    @Test
+    public void testConstant() throws Exception {
+        String pattern = "入力内容を確認してください。";
+        MessageTemplate sut = MessageTemplate.compileConstant(pattern);
+        assertThat(sut.isConstant(), is(true));
+        assertThat(sut.format(), is(sameInstance(pattern)));
+        assertThat(sut.format("ignored"), is(sameInstance(pattern)));
+        assertThat(MessageTemplate.compile(pattern).isConstant(), is(true));
+
+        String[] patterns = {"It''s ok", "'{0}' is literal", "''", "a}b", ""};
+        for (String quoted : patterns) {
+            MessageTemplate template = MessageTemplate.compileConstant(quoted);
+            assertThat(quoted, template.isConstant(), is(true));
+            assertThat(quoted, template.format(), is(new MessageFormat(quoted).format(new Object[0])));
+        }
+
+        assertThat(MessageTemplate.compileConstant("{0}を入力してください。"), is(nullValue()));
+        assertThat(MessageTemplate.compileConstant("{0,number,#}件"), is(nullValue()));
+        assertThat(MessageTemplate.compile("{0,number,#}件").isConstant(), is(false));
+    }
+}
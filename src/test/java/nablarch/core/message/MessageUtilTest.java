@@ -2,7 +2,9 @@ package nablarch.core.message;
 
 import nablarch.core.ThreadContext;
 import nablarch.core.cache.BasicStaticDataCache;
+import nablarch.core.cache.StaticDataCache;
 import nablarch.core.db.transaction.SimpleDbTransactionManager;
+import nablarch.core.repository.ObjectLoader;
 import nablarch.core.repository.SystemRepository;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -12,9 +14,18 @@ import nablarch.test.support.SystemRepositoryResource;
 import nablarch.test.support.db.helper.DatabaseTestRunner;
 import nablarch.test.support.db.helper.VariousDbTestHelper;
 
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(DatabaseTestRunner.class)
 public class MessageUtilTest {
@@ -120,4 +131,183 @@ public class MessageUtilTest {
         assertEquals("load.all.key", message.getMessageId());
         assertEquals("loadAllValue", message.formatMessage());
     }
+
+    @Test
+    public void testFindStringResource() throws Exception {
+        SystemRepository.clear();
+
+        assertEquals("デフォルト", MessageUtil.findStringResource("default.key").getValue(Locale.getDefault()));
+        assertNull(MessageUtil.findStringResource("notFound.key"));
+        assertNull(MessageUtil.findStringResource(null));
+    }
+
+    @Test
+    public void testGetStringResourceOrDefault() throws Exception {
+        SystemRepository.clear();
+
+        assertEquals("load.all.key", MessageUtil.getStringResourceOrDefault("load.all.key", "default.key").getId());
+        assertEquals("default.key", MessageUtil.getStringResourceOrDefault("notFound.key", "default.key").getId());
+    }
+
+    @Test
+    public void testGetStringResources() throws Exception {
+        SystemRepository.clear();
+
+        StringResourceBatch batch = MessageUtil.getStringResources(Arrays.asList("load.all.key", "notFound.key"));
+        assertEquals("load.all.key", batch.getResource(0).getId());
+        assertNull(batch.getResource(1));
+        assertEquals(Arrays.asList("notFound.key"), batch.getMissingIds());
+    }
+
+    @Test
+    public void testCreateMessages() throws Exception {
+        SystemRepository.clear();
+
+        List<Message> messages = MessageUtil.createMessages(MessageLevel.ERROR,
+                Arrays.asList("load.all.key", "notFound.key", "load.all.key"),
+                Arrays.asList(new Object[] {"a"}, new Object[0], null));
+        assertEquals(3, messages.size());
+        assertEquals("load.all.key", messages.get(0).getMessageId());
+        assertEquals(MessageLevel.ERROR, messages.get(0).getLevel());
+        assertEquals("loadAllValue", messages.get(0).formatMessage());
+        assertNull(messages.get(1));
+        assertEquals("load.all.key", messages.get(2).getMessageId());
+
+        messages = MessageUtil.createMessages(MessageLevel.INFO, Arrays.asList("load.all.key"), null);
+        assertEquals("loadAllValue", messages.get(0).formatMessage());
+    }
+
+    @Test
+    public void testCreateMessages_optionsSizeMismatch() throws Exception {
+        SystemRepository.clear();
+
+        try {
+            MessageUtil.createMessages(MessageLevel.ERROR, Arrays.asList("load.all.key", "load.all.key"),
+                    Collections.singletonList(new Object[0]));
+            fail("例外が発生するはず");
+        } catch (IllegalArgumentException e) {
+            assertEquals("size of options does not match size of message ids."
+                    + " message ids size = [2], options size = [1]", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRenderMessage() throws Exception {
+        SystemRepository.clear();
+
+        StringWriter writer = new StringWriter();
+        MessageUtil.renderMessage(writer, Locale.getDefault(), "load.all.key");
+        writer.write(',');
+        ThreadContext.setLanguage(Locale.getDefault());
+        try {
+            MessageUtil.renderMessage(writer, "load.all.key", "a");
+        } finally {
+            ThreadContext.setLanguage(null);
+        }
+        assertEquals("loadAllValue,loadAllValue", writer.toString());
+
+        try {
+            MessageUtil.renderMessage(new StringBuilder(), "notFound.key");
+            fail("例外が発生するはず");
+        } catch (MessageNotFoundException e) {
+            assertTrue(e.getMessage().contains("message id = notFound.key"));
+        }
+    }
+
+    /**
+     * {@link MessageUtil#renderMessage(Appendable, Locale, String, Object...)}のテスト。
+     * 引数に{@link Map}、{@link Message}、{@link StringResource}を含む場合や、
+     * {@link BasicMessageFormatter}以外のメッセージフォーマッタが設定されている場合も、
+     * {@link MessageUtil#createMessage(MessageLevel, String, Object...)}でフォーマットした結果と一致すること。
+     */
+    @Test
+    public void testRenderMessage_messageFormatter() throws Exception {
+        final Map<String, Object> objects = new HashMap<String, Object>();
+        final StringResourceHolder holder = new StringResourceHolder();
+        holder.setStringResourceCache(new MapCache());
+        objects.put("stringResourceHolder", holder);
+        SystemRepository.clear();
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                return objects;
+            }
+        });
+
+        Map<String, Object> named = new HashMap<String, Object>();
+        named.put("name", "名前");
+        named.put("max", 10);
+        Message nested = MessageUtil.createMessage(MessageLevel.ERROR, "errors.maxLength", "住所", 20);
+        StringResource label = MessageUtil.getStringResource("label.name");
+        assertRenderedAsFormatted(Locale.JAPANESE, "errors.named", named);
+        assertRenderedAsFormatted(Locale.ENGLISH, "errors.maxLength", label, 10);
+        assertRenderedAsFormatted(Locale.JAPANESE, "errors.maxLength", nested, 10);
+
+        objects.put("messageFormatter", new MessageFormatter() {
+            @Override
+            public String format(String template, Object[] options) {
+                return "[" + template + "]" + Arrays.toString(options);
+            }
+        });
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                return objects;
+            }
+        });
+        assertRenderedAsFormatted(Locale.ENGLISH, "errors.maxLength", "name", 10);
+        assertRenderedAsFormatted(Locale.JAPANESE, "label.name");
+        StringWriter writer = new StringWriter();
+        MessageUtil.renderMessage(writer, Locale.ENGLISH, "label.name");
+        assertEquals("[Name][]", writer.toString());
+        SystemRepository.clear();
+    }
+
+    /**
+     * 書き込まれたメッセージが、{@link Message#formatMessage(Locale)}の結果と一致することを検証する。
+     *
+     * @param locale 言語
+     * @param messageId メッセージID
+     * @param options メッセージフォーマットに使用するオプション引数
+     * @throws Exception
+     */
+    private static void assertRenderedAsFormatted(Locale locale, String messageId, Object... options) throws Exception {
+        StringWriter writer = new StringWriter();
+        MessageUtil.renderMessage(writer, locale, messageId, options);
+        assertEquals(MessageUtil.createMessage(MessageLevel.INFO, messageId, options).formatMessage(locale),
+                writer.toString());
+    }
+
+    /**
+     * テストで使用するメッセージを保持するキャッシュ。
+     */
+    private static final class MapCache implements StaticDataCache<StringResource> {
+
+        @Override
+        public StringResource getValue(Object id) {
+            final Map<String, String> values = new HashMap<String, String>();
+            if ("errors.maxLength".equals(id)) {
+                values.put("ja", "{0}は{1}文字以下で入力してください。");
+                values.put("en", "{0} must be {1} characters or less.");
+            } else if ("errors.named".equals(id)) {
+                values.put("ja", "{name}は{max}文字以下で入力してください。");
+                values.put("en", "{name} must be {max} characters or less.");
+            } else if ("label.name".equals(id)) {
+                values.put("ja", "名前");
+                values.put("en", "Name");
+            } else {
+                return null;
+            }
+            return new BasicStringResource((String) id, values);
+        }
+
+        @Override
+        public List<StringResource> getValues(String indexName, Object key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
 }
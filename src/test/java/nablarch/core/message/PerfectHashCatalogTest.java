@@ -0,0 +1,161 @@
+package nablarch.core.message;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link PerfectHashCatalog}のテストクラス。
+ */
+public class PerfectHashCatalogTest {
+
+    /**
+     * 全てのメッセージIDの文字列リソースを取得でき、存在しないメッセージIDはnullとなること。
+     */
+    @Test
+    public void testGet() throws Exception {
+        final Map<String, StringResource> expected = createResources(100000);
+        final PerfectHashCatalog sut = PerfectHashCatalog.layout(expected.keySet());
+        for (Map.Entry<String, StringResource> entry : expected.entrySet()) {
+            assertThat(sut.put(entry.getKey(), entry.getValue()), is(nullValue()));
+        }
+
+        assertThat(sut.size(), is(100000));
+        for (Map.Entry<String, StringResource> entry : expected.entrySet()) {
+            // ロード時とは別のインスタンスのメッセージIDで取得する
+            assertThat(sut.get(new String(entry.getKey())), is(sameInstance(entry.getValue())));
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertThat(sut.get("notFound." + i), is(nullValue()));
+            assertThat(sut.containsKey("notFound." + i), is(false));
+        }
+        assertThat(sut.get(null), is(nullValue()));
+        assertThat(sut.get(Locale.JAPANESE), is(nullValue()));
+        assertThat(sut.containsKey("errors.generated.0"), is(true));
+    }
+
+    /**
+     * ハッシュ値が一致するメッセージIDも、区別して取得できること。
+     */
+    @Test
+    public void testGet_hashCollision() throws Exception {
+        // "Aa"と"BB"はハッシュ値が一致するため、これらを連結した文字列も全てハッシュ値が一致する
+        final List<String> ids = Arrays.asList("AaAa", "AaBB", "BBAa", "BBBB", "label.name");
+        assertThat("AaAa".hashCode(), is("BBBB".hashCode()));
+        final PerfectHashCatalog sut = PerfectHashCatalog.layout(ids);
+        final Map<String, StringResource> expected = new HashMap<String, StringResource>();
+        for (String id : ids) {
+            final StringResource resource = createResource(id);
+            expected.put(id, resource);
+            sut.put(id, resource);
+        }
+
+        assertThat(sut.size(), is(5));
+        for (String id : ids) {
+            assertThat(sut.get(new String(id)), is(sameInstance(expected.get(id))));
+        }
+        assertThat(sut.get("BBAaAa"), is(nullValue()));
+        assertThat(sut.get("label.names"), is(nullValue()));
+        assertThat(sut.equals(expected), is(true));
+    }
+
+    /**
+     * エントリの集合が、全てのメッセージIDと文字列リソースを含むこと。
+     */
+    @Test
+    public void testEntrySet() throws Exception {
+        final Map<String, StringResource> expected = createResources(1000);
+        expected.put("Aa", createResource("Aa"));
+        expected.put("BB", createResource("BB"));
+        final PerfectHashCatalog sut = PerfectHashCatalog.layout(expected.keySet());
+        sut.putAll(expected);
+
+        final Map<String, StringResource> actual = new HashMap<String, StringResource>();
+        for (Map.Entry<String, StringResource> entry : sut.entrySet()) {
+            actual.put(entry.getKey(), entry.getValue());
+        }
+        assertThat(actual, is(expected));
+        assertThat(sut.entrySet().size(), is(1002));
+        assertThat(new ArrayList<StringResource>(sut.values()).size(), is(1002));
+        assertThat(sut.hashCode(), is(expected.hashCode()));
+    }
+
+    /**
+     * 配置していないメッセージIDは設定できないこと。
+     */
+    @Test
+    public void testPut_notLaidOut() throws Exception {
+        final PerfectHashCatalog sut = PerfectHashCatalog.layout(Arrays.asList("label.name", "Aa"));
+        try {
+            sut.put("label.address", createResource("label.address"));
+            fail("例外が発生するはず");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("message id was not laid out. id = [label.address]"));
+        }
+        try {
+            sut.put("BB", createResource("BB"));
+            fail("例外が発生するはず");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("message id was not laid out. id = [BB]"));
+        }
+    }
+
+    /**
+     * メッセージIDが存在しない場合は、対応表を生成しないこと。
+     */
+    @Test
+    public void testLayout_empty() throws Exception {
+        assertThat(PerfectHashCatalog.layout(Collections.<String>emptyList()), is(nullValue()));
+    }
+
+    /**
+     * メッセージIDが1つの場合も取得できること。
+     */
+    @Test
+    public void testLayout_single() throws Exception {
+        final PerfectHashCatalog sut = PerfectHashCatalog.layout(Collections.singletonList("label.name"));
+        final StringResource resource = createResource("label.name");
+        sut.put("label.name", resource);
+
+        assertThat(sut.get("label.name"), is(sameInstance(resource)));
+        assertThat(sut.get("label.address"), is(nullValue()));
+        assertThat(sut.size(), is(1));
+    }
+
+    /**
+     * 文字列リソースを生成する。
+     *
+     * @param count 生成する数
+     * @return メッセージIDをキーとした文字列リソース
+     */
+    private static Map<String, StringResource> createResources(final int count) {
+        final Map<String, StringResource> resources = new HashMap<String, StringResource>();
+        for (int i = 0; i < count; i++) {
+            final String id = "errors.generated." + i;
+            resources.put(id, createResource(id));
+        }
+        return resources;
+    }
+
+    /**
+     * 文字列リソースを生成する。
+     *
+     * @param id メッセージID
+     * @return 文字列リソース
+     */
+    private static StringResource createResource(final String id) {
+        return new BasicStringResource(id, Collections.singletonMap("ja", id + "の値"));
+    }
+}
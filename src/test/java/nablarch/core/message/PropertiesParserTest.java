@@ -0,0 +1,199 @@
+package nablarch.core.message;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link PropertiesParser}のテストクラス。
+ */
+public class PropertiesParserTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /**
+     * {@link PropertiesParser#parse(java.io.Reader, PropertiesParser.Handler)}のテスト。
+     * {@link Properties#load(java.io.Reader)}と同じ結果となること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParse_conformance() throws Exception {
+        String[] inputs = {
+                "",
+                "key=value",
+                "key=value\n",
+                "key=value\r\nkey2=value2\rkey3=value3\n",
+                "  \t\fkey = value  ",
+                "key:value",
+                "key value",
+                "key\tvalue",
+                "key = = value",
+                "key : : value",
+                "key  =value",
+                "key=",
+                "key",
+                "=value",
+                ":value",
+                "# comment\nkey=value\n! comment\nkey2=value2",
+                "   # indented comment\nkey=value",
+                "key=value # not comment",
+                "# comment with continuation \\\nkey=value",
+                "key=first \\\n    second \\\n\tthird",
+                "key=first \\\r\n    second",
+                "key=first \\\r    second",
+                "key=value \\\n\nkey2=value2",
+                "key=value \\\n   \nkey2=value2",
+                "key=value \\\n# not comment",
+                "key=value\\\\\nkey2=value2",
+                "key=value\\\\\\\nnext",
+                "key=value\\",
+                "key=value\\\\",
+                "\\\nkey=value",
+                "k\\=e\\:y\\ \\ 1=value",
+                "k\\ey=v\\al\\xe",
+                "key=\\t\\n\\r\\f\\\\\\=\\:\\#\\!",
+                "key=\\u3042\\u3044\\u3046\\u00E9\\u00e9",
+                "\\u30ad\\u30fc=\\u5024",
+                "key=\\\\u3042",
+                "key=あいうえお\nキー=値",
+                "key=𠮷",
+                "dup=first\ndup=second",
+                "\n\n\r\n\r\r\n\n",
+                "   ",
+                "#",
+                "!",
+                "key=value\n#",
+                "\\#key=value",
+                "\\!key=value",
+                "key\\\n  continued=value",
+                "key=value\f\n",
+                "errors.required={0}を入力してください。",
+                "errors.length={0}は{1}文字以下で入力してください。\\n''{2}''",
+        };
+        for (String input : inputs) {
+            assertThat(input, parse(input), is(load(input)));
+        }
+    }
+
+    /**
+     * {@link PropertiesParser#parse(java.io.Reader, PropertiesParser.Handler)}のテスト。
+     * 読み込みバッファより長い行、読み込みバッファの境界をまたぐ行を含むケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParse_longLine() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            input.append("key").append(i).append('=');
+            for (int j = 0; j < i % 17; j++) {
+                input.append("\\u3042 value \\\n  ");
+            }
+            input.append("end\r\n");
+        }
+        StringBuilder longValue = new StringBuilder("long=");
+        for (int i = 0; i < 20000; i++) {
+            longValue.append(i % 10);
+        }
+        input.append(longValue).append("\\t\\\n  tail");
+
+        assertThat(parse(input.toString()), is(load(input.toString())));
+    }
+
+    /**
+     * {@link PropertiesParser#parse(java.io.Reader, PropertiesParser.Handler)}のテスト。
+     * 同じキーが複数回出現した場合は、出現した順に全て通知されること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParse_duplicateKey() throws Exception {
+        final List<String> pairs = new ArrayList<String>();
+        PropertiesParser.parse(new StringReader("dup=first\nother=value\ndup=second"), new PropertiesParser.Handler() {
+            @Override
+            public void property(String key, String value) {
+                pairs.add(key + '=' + value);
+            }
+        });
+
+        assertThat(pairs.size(), is(3));
+        assertThat(pairs.get(0), is("dup=first"));
+        assertThat(pairs.get(1), is("other=value"));
+        assertThat(pairs.get(2), is("dup=second"));
+    }
+
+    /**
+     * {@link PropertiesParser#parse(java.io.Reader, PropertiesParser.Handler)}のテスト。
+     * 不正な\\uxxxx形式のエスケープシーケンスを含むケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParse_malformedUnicode() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Malformed \\uxxxx encoding.");
+
+        parse("key=\\u30g2");
+    }
+
+    /**
+     * {@link PropertiesParser#parse(java.io.Reader, PropertiesParser.Handler)}のテスト。
+     * \\uxxxx形式のエスケープシーケンスが途中で終わるケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParse_truncatedUnicode() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Malformed \\uxxxx encoding.");
+
+        parse("key=\\u30");
+    }
+
+    /**
+     * {@link PropertiesParser}で読み込む。
+     *
+     * @param input 入力
+     * @return 読み込んだキーと値(同じキーは後の値で上書き)
+     * @throws Exception
+     */
+    private static Map<String, String> parse(String input) throws Exception {
+        final Map<String, String> result = new HashMap<String, String>();
+        PropertiesParser.parse(new StringReader(input), new PropertiesParser.Handler() {
+            @Override
+            public void property(String key, String value) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * {@link Properties}で読み込む。
+     *
+     * @param input 入力
+     * @return 読み込んだキーと値
+     * @throws Exception
+     */
+    private static Map<String, String> load(String input) throws Exception {
+        Properties properties = new Properties();
+        properties.load(new StringReader(input));
+        Map<String, String> result = new HashMap<String, String>();
+        for (String name : properties.stringPropertyNames()) {
+            result.put(name, properties.getProperty(name));
+        }
+        return result;
+    }
+}
@@ -3,24 +3,47 @@ package nablarch.core.message;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
+import nablarch.core.cache.BasicStaticDataCache;
 import nablarch.core.util.FileUtil;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * {@link PropertiesStringResourceLoader}のテストクラス。
@@ -30,6 +53,9 @@ public class PropertiesStringResourceLoaderTest {
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /** テスト対象クラス */
     private PropertiesStringResourceLoader sut;
 
@@ -69,6 +95,26 @@ public class PropertiesStringResourceLoaderTest {
         assertThat(result.getValue(Locale.ENGLISH), is("customValue"));
     }
 
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
+     * ロードしたリソースの事前解析済みテンプレートでフォーマットするケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_format() throws Exception {
+        sut.setDirectory("classpath:nablarch/core/message/");
+        sut.setFileName("custom");
+        sut.setDefaultLocale("en");
+        BasicStringResource result = (BasicStringResource) sut.getValue("custom.format");
+
+        assertThat(result.format(Locale.ENGLISH, "名前", 10), is("名前は10文字以下で入力してください。"));
+        assertThat(result.format(Locale.ENGLISH, "名前", 10),
+                is(MessageFormat.format(result.getValue(Locale.ENGLISH), "名前", 10)));
+        assertThat(result.formatTo(new StringBuilder(), Locale.ENGLISH, "名前").toString(),
+                is("名前は{1}文字以下で入力してください。"));
+    }
+
     /**
      * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
      * ロケール一覧を設定してプロパティファイルをロードするケース。
@@ -90,6 +136,59 @@ public class PropertiesStringResourceLoaderTest {
         assertThat(result.getValue(Locale.GERMANY), is("localeValue_de"));
     }
 
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
+     * 代替ロケール一覧を設定してプロパティファイルをロードするケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_fallback() throws Exception {
+        sut.setDirectory("classpath:nablarch/core/message/");
+        sut.setFileName("fallback");
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en", "zh", "zh_TW"));
+        sut.setFallbackLocales(Arrays.asList("en"));
+
+        Locale taiwan = Locale.TAIWAN;
+        assertThat(sut.getValue("fallback.all").getValue(taiwan), is("all_zh_TW"));
+        assertThat(sut.getValue("fallback.all").getValue(new Locale("zh", "TW", "variant")), is("all_zh_TW"));
+        assertThat(sut.getValue("fallback.all").getValue(Locale.CHINA), is("all_zh"));
+        assertThat(sut.getValue("fallback.all").getValue(Locale.US), is("all_en"));
+        assertThat(sut.getValue("fallback.all").getValue(Locale.JAPAN), is("全言語_ja"));
+        assertThat(sut.getValue("fallback.zh").getValue(taiwan), is("zh only"));
+        assertThat(sut.getValue("fallback.en").getValue(taiwan), is("en only"));
+        assertThat(sut.getValue("fallback.ja").getValue(taiwan), is("日本語のみ"));
+        assertThat(sut.getValue("fallback.ja").getValue(Locale.FRENCH), is("日本語のみ"));
+
+        BasicStringResource resource = (BasicStringResource) sut.getValue("fallback.en");
+        assertThat(resource.findValue(Locale.FRENCH), is("en only"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
+     * 代替ロケール一覧を設定しない場合は、要求されたロケールのみから文字列を探すケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_withoutFallback() throws Exception {
+        sut.setDirectory("classpath:nablarch/core/message/");
+        sut.setFileName("fallback");
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en", "zh", "zh_TW"));
+
+        assertThat(sut.getValue("fallback.all").getValue(Locale.TAIWAN), is("all_zh_TW"));
+        assertThat(sut.getValue("fallback.zh").getValue(Locale.TAIWAN), is("zh only"));
+
+        BasicStringResource resource = (BasicStringResource) sut.getValue("fallback.en");
+        assertThat(resource.findValue(Locale.TAIWAN), is(nullValue()));
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("message id = fallback.en language = zh");
+        resource.getValue(Locale.TAIWAN);
+    }
+
     /**
      * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
      * メッセージ一覧がすでにキャッシュされているケース。
@@ -98,16 +197,124 @@ public class PropertiesStringResourceLoaderTest {
      */
      @Test
     public void testGetValue_exist() throws Exception {
-         Map<String, Map<String, String>> messages = Deencapsulation.getField(sut, "messages");
+         Map<String, StringResource> resources = new HashMap<String, StringResource>();
          Map<String, String> value = new HashMap<String, String>();
          value.put(Locale.getDefault().getLanguage(),"existedValue");
-         messages.put("existed.key", value);
+         resources.put("existed.key", new BasicStringResource("existed.key", value));
+         Deencapsulation.setField(sut, "state", loadedState(resources));
          StringResource result = sut.getValue("existed.key");
 
          assertThat(result.getId(), is("existed.key"));
          assertThat(result.getValue(Locale.getDefault()), is("existedValue"));
      }
 
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
+     * 初回ロード中に複数スレッドから同時に取得するケース。
+     * <p/>
+     * 全てのスレッドが、1度だけロードされた同一の文字列リソースを取得できること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_concurrentFirstLoad() throws Exception {
+        final int threadCount = 32;
+        for (int round = 0; round < 20; round++) {
+            final PropertiesStringResourceLoader loader = new PropertiesStringResourceLoader();
+            List<String> locales = new ArrayList<String>();
+            locales.add("en");
+            locales.add("zh");
+            locales.add("de");
+            loader.setLocales(locales);
+
+            final CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try {
+                List<Future<StringResource>> futures = new ArrayList<Future<StringResource>>();
+                for (int i = 0; i < threadCount; i++) {
+                    futures.add(executor.submit(new Callable<StringResource>() {
+                        @Override
+                        public StringResource call() throws Exception {
+                            start.await();
+                            StringResource resource = loader.getValue("locale.key");
+                            // ロード途中の状態が見えないこと
+                            assertThat(loader.getValue("default.key"), is(notNullValue()));
+                            assertThat(loader.loadAll().size(), is(3));
+                            return resource;
+                        }
+                    }));
+                }
+                start.countDown();
+
+                StringResource first = futures.get(0).get(10, TimeUnit.SECONDS);
+                assertThat(first.getValue(Locale.ENGLISH), is("localeValue_en"));
+                assertThat(first.getValue(Locale.CHINESE), is("localeValue_zh"));
+                assertThat(first.getValue(Locale.GERMAN), is("localeValue_de"));
+                for (Future<StringResource> future : futures) {
+                    assertThat(future.get(10, TimeUnit.SECONDS), is(sameInstance(first)));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
+     * プロパティファイルを並列に読み込むケース。
+     * <p/>
+     * 逐次読み込んだ場合と同じ文字列リソースがロードされること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_parallel() throws Exception {
+        List<String> locales = Arrays.asList("en", "zh", "de");
+        PropertiesStringResourceLoader sequential = new PropertiesStringResourceLoader();
+        sequential.setLocales(locales);
+        sut.setLocales(locales);
+        sut.setLoadThreads(4);
+
+        List<StringResource> expected = sequential.loadAll();
+        assertThat(sut.loadAll().size(), is(expected.size()));
+        for (StringResource resource : expected) {
+            StringResource actual = sut.getValue(resource.getId());
+            for (Locale locale : Arrays.asList(Locale.JAPANESE, Locale.ENGLISH, Locale.CHINESE, Locale.GERMAN)) {
+                assertThat(((BasicStringResource) actual).findValue(locale),
+                        is(((BasicStringResource) resource).findValue(locale)));
+            }
+        }
+        assertThat(sut.getValue("locale.key").getValue(Locale.GERMAN), is("localeValue_de"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
+     * プロパティファイルを並列に読み込み、一部のファイルの読み込みに失敗するケース。
+     * <p/>
+     * 逐次読み込んだ場合と同じ例外が発生すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_parallelFailed() throws Exception {
+        List<String> locales = Arrays.asList("en", "fr");
+        PropertiesStringResourceLoader sequential = new PropertiesStringResourceLoader();
+        sequential.setLocales(locales);
+        RuntimeException expected = null;
+        try {
+            sequential.getValue("locale.key");
+        } catch (RuntimeException e) {
+            expected = e;
+        }
+        assertThat(expected, is(notNullValue()));
+
+        expectedException.expect(expected.getClass());
+        expectedException.expectMessage(expected.getMessage());
+        sut.setLocales(locales);
+        sut.setLoadThreads(4);
+        sut.getValue("locale.key");
+    }
+
     /**
      * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
      * 存在しないキーを引数に指定するケース。
@@ -141,12 +348,13 @@ public class PropertiesStringResourceLoaderTest {
      * @throws Exception
      */
     @Test
-    public void testGetValue_failed(@Mocked final Properties properties) throws Exception {
+    public void testGetValue_failed(@Mocked final PropertiesParser parser) throws Exception {
         expectedException.expect(IllegalArgumentException.class);
         expectedException.expectMessage("failed to load the file. file path = [classpath:messages.properties]");
 
         new NonStrictExpectations() {{
-            properties.load(withAny(new InputStreamReader(FileUtil.getResource("classpath:messages.properties"), "UTF-8")));
+            PropertiesParser.parse(withAny(new InputStreamReader(FileUtil.getResource("classpath:messages.properties"), "UTF-8")),
+                    (PropertiesParser.Handler) any);
             result = new IOException();
         }};
 
@@ -178,16 +386,17 @@ public class PropertiesStringResourceLoaderTest {
     @Test
     public void testLoadAll_exist() throws Exception {
 
-        Map<String, Map<String, String>> messages = Deencapsulation.getField(sut, "messages");
+        Map<String, StringResource> resources = new HashMap<String, StringResource>();
         Map<String, String> value1 = new HashMap<String, String>();
         Map<String, String> value2 = new HashMap<String, String>();
         Map<String, String> value3 = new HashMap<String, String>();
         value1.put(Locale.getDefault().getLanguage(),"existed1Value");
         value2.put(Locale.getDefault().getLanguage(),"existed2Value");
         value3.put(Locale.getDefault().getLanguage(),"existed3Value");
-        messages.put("existed1.key", value1);
-        messages.put("existed2.key", value2);
-        messages.put("existed3.key", value3);
+        resources.put("existed1.key", new BasicStringResource("existed1.key", value1));
+        resources.put("existed2.key", new BasicStringResource("existed2.key", value2));
+        resources.put("existed3.key", new BasicStringResource("existed3.key", value3));
+        Deencapsulation.setField(sut, "state", loadedState(resources));
         List<StringResource> result = sut.loadAll();
 
         assertThat(result.size(), is(3));
@@ -245,6 +454,776 @@ public class PropertiesStringResourceLoaderTest {
      */
     @Test
     public void testGetIndexNames() throws Exception {
-        assertThat(sut.getIndexNames(), is(nullValue()));
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en"));
+        assertThat(sut.getIndexNames(), is(Arrays.asList("namespace", "namespace:ja", "namespace:en")));
+        assertThat(PropertiesStringResourceLoader.languageIndexName("zh_tw"), is("namespace:zh_TW"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValues(String, Object)}のテスト。
+     * 名前空間の索引と、言語ごとの名前空間の索引から取得するケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValues_index() throws Exception {
+        setUpIndexCatalog();
+
+        assertThat(ids(sut.getValues(PropertiesStringResourceLoader.NAMESPACE_INDEX, "errors")),
+                containsInAnyOrder("errors.required", "errors.length", "errors.length.max"));
+        assertThat(ids(sut.getValues(PropertiesStringResourceLoader.NAMESPACE_INDEX, "screen")),
+                containsInAnyOrder("screen.user.title", "screen.menu.title"));
+        assertThat(ids(sut.getValues(PropertiesStringResourceLoader.NAMESPACE_INDEX, "")),
+                containsInAnyOrder("title"));
+        assertThat(sut.getValues(PropertiesStringResourceLoader.NAMESPACE_INDEX, "notFound").isEmpty(), is(true));
+
+        String en = PropertiesStringResourceLoader.languageIndexName("en");
+        assertThat(ids(sut.getValues(en, "errors")), containsInAnyOrder("errors.required", "errors.length.max"));
+        assertThat(sut.getValues(en, "screen").isEmpty(), is(true));
+        assertThat(ids(sut.getValues(PropertiesStringResourceLoader.languageIndexName("ja"), "errors")),
+                containsInAnyOrder("errors.required", "errors.length", "errors.length.max"));
+        assertThat(sut.getValues(PropertiesStringResourceLoader.languageIndexName("fr"), "errors").isEmpty(), is(true));
+
+        // 同じ索引は再利用し、ロード済みの文字列リソースを返す
+        assertThat(sut.getValues(en, "errors"), is(sameInstance(sut.getValues(en, "errors"))));
+        assertThat(sut.getValues(en, "errors").get(0), is(sameInstance(sut.getValue(sut.getValues(en, "errors").get(0).getId()))));
+
+        // 再ロード後は、再ロードした文字列リソースから索引を構築する
+        sut.setNamespaceDepth(2);
+        sut.reload();
+        assertThat(ids(sut.getValues(PropertiesStringResourceLoader.NAMESPACE_INDEX, "errors.length")),
+                containsInAnyOrder("errors.length.max"));
+        assertThat(ids(sut.getValues(PropertiesStringResourceLoader.NAMESPACE_INDEX, "screen.user")),
+                containsInAnyOrder("screen.user.title"));
+        assertThat(ids(sut.getValues(PropertiesStringResourceLoader.NAMESPACE_INDEX, "errors")),
+                containsInAnyOrder("errors.required", "errors.length"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValues(String, Object)}のテスト。
+     * ロケールごとのプロパティファイルを必要になった時点で読み込む場合は、参照された言語のみを読み込むこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValues_indexLoadLocalesOnDemand() throws Exception {
+        setUpIndexCatalog();
+        sut.setLoadLocalesOnDemand(true);
+
+        assertThat(sut.getValues(PropertiesStringResourceLoader.NAMESPACE_INDEX, "errors").size(), is(3));
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja")));
+        assertThat(ids(sut.getValues(PropertiesStringResourceLoader.languageIndexName("en"), "errors")),
+                containsInAnyOrder("errors.required", "errors.length.max"));
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja", "en")));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader}の索引を、{@link BasicStaticDataCache}から使用するケース。
+     * 初期化時に全てロードする場合と、必要になった時点でロードする場合で、同じ結果となること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValues_staticDataCache() throws Exception {
+        setUpIndexCatalog();
+        String en = PropertiesStringResourceLoader.languageIndexName("en");
+
+        for (boolean loadOnStartup : new boolean[] {true, false}) {
+            BasicStaticDataCache<StringResource> cache = new BasicStaticDataCache<StringResource>();
+            cache.setLoader(sut);
+            cache.setLoadOnStartup(loadOnStartup);
+            cache.initialize();
+            assertThat(ids(cache.getValues(PropertiesStringResourceLoader.NAMESPACE_INDEX, "errors")),
+                    containsInAnyOrder("errors.required", "errors.length", "errors.length.max"));
+            assertThat(ids(cache.getValues(en, "errors")), containsInAnyOrder("errors.required", "errors.length.max"));
+            assertThat(cache.getValues(en, "screen").isEmpty(), is(true));
+        }
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getIndexNames()}のテスト。
+     * ロケールごとのプロパティファイルを必要になった時点で読み込む場合は、読み込み済みの言語の索引名のみを返すこと。
+     * <p/>
+     * {@link BasicStaticDataCache}の初期化時に全てロードする場合も、デフォルトのロケール以外を読み込まないこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetIndexNames_loadLocalesOnDemand() throws Exception {
+        setUpIndexCatalog();
+        sut.setLoadLocalesOnDemand(true);
+        String ja = PropertiesStringResourceLoader.languageIndexName("ja");
+        String en = PropertiesStringResourceLoader.languageIndexName("en");
+        assertThat(sut.getIndexNames(), is(Arrays.asList(PropertiesStringResourceLoader.NAMESPACE_INDEX, ja)));
+
+        BasicStaticDataCache<StringResource> cache = new BasicStaticDataCache<StringResource>();
+        cache.setLoader(sut);
+        cache.setLoadOnStartup(true);
+        cache.initialize();
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja")));
+        assertThat(sut.getIndexNames(), is(Arrays.asList(PropertiesStringResourceLoader.NAMESPACE_INDEX, ja)));
+
+        assertThat(ids(cache.getValues(en, "errors")), containsInAnyOrder("errors.required", "errors.length.max"));
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja", "en")));
+        assertThat(sut.getIndexNames(), is(Arrays.asList(PropertiesStringResourceLoader.NAMESPACE_INDEX, ja, en)));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#generateIndexKey(String, StringResource)}のテスト。
+     * 名前空間の索引と、言語ごとの名前空間の索引のキーを生成するケース。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGenerateIndexKey_index() throws Exception {
+        setUpIndexCatalog();
+        String en = PropertiesStringResourceLoader.languageIndexName("en");
+
+        assertThat(sut.generateIndexKey("namespace", sut.getValue("errors.length.max")), is((Object) "errors"));
+        assertThat(sut.generateIndexKey("namespace", sut.getValue("title")), is((Object) ""));
+        assertThat(sut.generateIndexKey(en, sut.getValue("errors.required")), is((Object) "errors"));
+        assertThat(sut.generateIndexKey(en, sut.getValue("errors.length")), is(nullValue()));
+        assertThat(sut.generateIndexKey("namespace:fr", sut.getValue("errors.required")), is(nullValue()));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#setNamespaceDepth(int)}のテスト。
+     * 1未満の場合は例外を送出すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSetNamespaceDepth_invalid() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("namespace depth must be 1 or more. namespace depth = [0]");
+        sut.setNamespaceDepth(0);
+    }
+
+    /**
+     * 索引のテスト用のプロパティファイルを生成し、テスト対象に設定する。
+     *
+     * @throws Exception
+     */
+    private void setUpIndexCatalog() throws Exception {
+        File directory = temporaryFolder.newFolder("index");
+        write(new File(directory, "messages.properties"), "errors.required=必須です。\n"
+                + "errors.length=長すぎます。\n"
+                + "errors.length.max={0}文字以下で入力してください。\n"
+                + "screen.user.title=ユーザ\n"
+                + "screen.menu.title=メニュー\n"
+                + "title=タイトル\n");
+        write(new File(directory, "messages_en.properties"), "errors.required=required.\n"
+                + "errors.length.max=must be {0} characters or less.\n");
+        sut.setDirectory(directory.toURI().toString());
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en"));
+    }
+
+    /**
+     * 文字列リソース一覧のメッセージIDを取得する。
+     *
+     * @param resources 文字列リソース一覧
+     * @return メッセージID一覧
+     */
+    private static List<String> ids(List<StringResource> resources) {
+        List<String> ids = new ArrayList<String>();
+        for (StringResource resource : resources) {
+            ids.add(resource.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#setLoadLocalesOnDemand(boolean)}のテスト。
+     * <p/>
+     * ロード時はデフォルトのロケールのみを読み込み、その他のロケールは文字列が要求された時点で1回だけ読み込むこと。
+     * デフォルトのロケールに存在しないメッセージIDは取得できないこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_loadLocalesOnDemand() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        write(new File(directory, "messages.properties"), "k1=k1_ja\nk2=k2_ja\n");
+        write(new File(directory, "messages_en.properties"), "k1=k1_en\nk3=k3_en\n");
+        write(new File(directory, "messages_zh.properties"), "k1=k1_zh\n");
+        sut.setDirectory(directory.toURI().toString());
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en", "zh"));
+        sut.setFallbackLocales(Collections.<String>emptyList());
+        sut.setLoadLocalesOnDemand(true);
+
+        BasicStringResource k1 = (BasicStringResource) sut.getValue("k1");
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja")));
+        assertThat(k1.getValue(Locale.JAPANESE), is("k1_ja"));
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja")));
+        assertThat(sut.getLocaleFileLoadCount(), is(0));
+
+        assertThat(k1.getValue(Locale.ENGLISH), is("k1_en"));
+        assertThat(sut.getValue("k2").getValue(Locale.ENGLISH), is("k2_ja"));
+        assertThat(k1.format(Locale.US), is("k1_en"));
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja", "en")));
+        assertThat(sut.getLocaleFileLoadCount(), is(1));
+        assertThat(sut.getValue("k3"), is(nullValue()));
+        assertThat(sut.loadAll().size(), is(2));
+
+        assertThat(k1.getValue(Locale.CHINESE), is("k1_zh"));
+        assertThat(sut.getLocaleFileLoadCount(), is(2));
+
+        // 再ロードした場合は、デフォルトのロケールのみを読み込んだ状態に戻ること
+        sut.reload();
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja")));
+        assertThat(sut.getValue("k1").getValue(Locale.ENGLISH), is("k1_en"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#setLoadLocalesOnDemand(boolean)}のテスト。
+     * 同じロケールの文字列を複数スレッドから同時に要求するケース。
+     * <p/>
+     * ロケールごとに1回だけ読み込み、全てのスレッドが読み込み完了後の文字列を取得できること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_loadLocalesOnDemandConcurrent() throws Exception {
+        final File directory = temporaryFolder.getRoot();
+        final List<Locale> locales = Arrays.asList(Locale.ENGLISH, Locale.CHINESE, Locale.GERMAN, Locale.FRENCH);
+        StringBuilder defaults = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            defaults.append("key").append(i).append("=value").append(i).append("_ja\n");
+        }
+        write(new File(directory, "messages.properties"), defaults.toString());
+        for (Locale locale : locales) {
+            write(new File(directory, "messages_" + locale + ".properties"),
+                    defaults.toString().replace("_ja", "_" + locale));
+        }
+
+        final int threadCount = 32;
+        for (int round = 0; round < 20; round++) {
+            final PropertiesStringResourceLoader loader = new PropertiesStringResourceLoader();
+            loader.setDirectory(directory.toURI().toString());
+            loader.setDefaultLocale("ja");
+            loader.setLocales(Arrays.asList("en", "zh", "de", "fr"));
+            loader.setLoadLocalesOnDemand(true);
+            final StringResource first = loader.getValue("key0");
+            final StringResource last = loader.getValue("key999");
+
+            final CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try {
+                List<Future<Void>> futures = new ArrayList<Future<Void>>();
+                for (int i = 0; i < threadCount; i++) {
+                    final Locale locale = locales.get(i % 2);
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            start.await();
+                            // 読み込み途中の状態が見えないこと
+                            assertThat(first.getValue(locale), is("value0_" + locale));
+                            assertThat(last.getValue(locale), is("value999_" + locale));
+                            return null;
+                        }
+                    }));
+                }
+                start.countDown();
+                for (Future<Void> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertThat(loader.getLocaleFileLoadCount(), is(2));
+            assertThat(loader.getLoadedLocales().size(), is(3));
+        }
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#setLoadLocalesOnDemand(boolean)}のテスト。
+     * ロケールのプロパティファイルの読み込みに失敗するケース。
+     * <p/>
+     * 文字列の取得時に例外が発生し、次に要求された時点で再度読み込むこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_loadLocalesOnDemandFailed() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        write(new File(directory, "messages.properties"), "k1=k1_ja\n");
+        sut.setDirectory(directory.toURI().toString());
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en"));
+        sut.setLoadLocalesOnDemand(true);
+
+        StringResource k1 = sut.getValue("k1");
+        try {
+            k1.getValue(Locale.ENGLISH);
+            throw new AssertionError("例外が発生するはず");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().contains("messages_en.properties"), is(true));
+        }
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja")));
+
+        write(new File(directory, "messages_en.properties"), "k1=k1_en\n");
+        assertThat(k1.getValue(Locale.ENGLISH), is("k1_en"));
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja", "en")));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#setLoadLocalesOnDemand(boolean)}のテスト。
+     * 同じ言語のプロパティファイルが複数あり、2つ目のファイルの読み込みに失敗するケース。
+     * <p/>
+     * 1つ目のファイルの文字列は文字列リソースに設定されず、全てのファイルを読み込めた時点で設定されること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_loadLocalesOnDemandPartiallyFailed() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        write(new File(directory, "messages.properties"), "k1=k1_ja\nk2=k2_ja\n");
+        write(new File(directory, "messages_en.properties"), "k1=k1_en\n");
+        sut.setDirectory(directory.toURI().toString());
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en", "EN"));
+        sut.setLoadLocalesOnDemand(true);
+
+        StringResource k1 = sut.getValue("k1");
+        try {
+            k1.getValue(Locale.ENGLISH);
+            throw new AssertionError("例外が発生するはず");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().contains("messages_EN.properties"), is(true));
+        }
+        String[] values = Deencapsulation.getField(k1, "values");
+        assertThat(Arrays.asList(values), is(Arrays.asList("k1_ja", null)));
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja")));
+
+        write(new File(directory, "messages_EN.properties"), "k2=k2_EN\n");
+        assertThat(k1.getValue(Locale.ENGLISH), is("k1_en"));
+        assertThat(sut.getValue("k2").getValue(Locale.ENGLISH), is("k2_EN"));
+        assertThat(sut.getLoadedLocales(), is(Arrays.asList("ja", "en")));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getStringPoolReport()}のテスト。
+     * <p/>
+     * ロケール間やメッセージ間で同じ文字列は同じインスタンスとなり、集約前後の数と削減したサイズを取得できること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetStringPoolReport() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        write(new File(directory, "messages.properties"), "k1=Required\nk2=Required\nk3=日本語\n");
+        write(new File(directory, "messages_en.properties"), "k1=Required\nk3=Japanese\n");
+        write(new File(directory, "messages_de.properties"), "k1=Required\nk3=Japanese\n");
+        sut.setDirectory(directory.toURI().toString());
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en", "de"));
+        sut.setFallbackLocales(Collections.<String>emptyList());
+        sut.setDeduplicateValues(true);
+        assertThat(sut.getStringPoolReport(), is(nullValue()));
+
+        String required = sut.getValue("k1").getValue(Locale.JAPANESE);
+        assertThat(sut.getValue("k1").getValue(Locale.ENGLISH), is(sameInstance(required)));
+        assertThat(sut.getValue("k1").getValue(Locale.GERMAN), is(sameInstance(required)));
+        assertThat(sut.getValue("k2").getValue(Locale.JAPANESE), is(sameInstance(required)));
+        assertThat(sut.getValue("k3").getValue(Locale.GERMAN),
+                is(sameInstance(sut.getValue("k3").getValue(Locale.ENGLISH))));
+
+        StringPoolReport report = sut.getStringPoolReport();
+        assertThat(report.getTotalCount(), is(7L));
+        assertThat(report.getUniqueCount(), is(3L));
+        // 8文字の文字列は56バイト、3文字の文字列は48バイトと推定する
+        assertThat(report.getTotalBytes(), is(6 * 56L + 48L));
+        assertThat(report.getSavedBytes(), is(4 * 56L));
+        assertThat(report.toString(),
+                is("total strings = [7], unique strings = [3], total bytes = [384], saved bytes = [224]"));
+
+        // 集約しない場合
+        sut.setDeduplicateValues(false);
+        sut.reload();
+        assertThat(sut.getStringPoolReport(), is(nullValue()));
+        assertThat(sut.getValue("k1").getValue(Locale.ENGLISH),
+                is(not(sameInstance(sut.getValue("k1").getValue(Locale.GERMAN)))));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getStringPoolReport()}のテスト。
+     * <p/>
+     * 必要になった時点で読み込んだロケールの文字列は、そのロケール内で集約され、集約した結果がロード時の結果に加算されること。
+     * ロード時の集約先は保持しないため、ロード時に読み込んだロケールの文字列とは集約されないこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetStringPoolReport_loadLocalesOnDemand() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        write(new File(directory, "messages.properties"), "k1=Required\nk2=日本語\nk3=必須\n");
+        write(new File(directory, "messages_en.properties"), "k1=Required\nk2=Japanese\nk3=Required\n");
+        sut.setDirectory(directory.toURI().toString());
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en"));
+        sut.setFallbackLocales(Collections.<String>emptyList());
+        sut.setLoadLocalesOnDemand(true);
+        sut.setDeduplicateValues(true);
+
+        StringResource k1 = sut.getValue("k1");
+        assertThat(sut.getStringPoolReport().getTotalCount(), is(3L));
+
+        assertThat(k1.getValue(Locale.ENGLISH), is(sameInstance(sut.getValue("k3").getValue(Locale.ENGLISH))));
+        assertThat(k1.getValue(Locale.ENGLISH), is(not(sameInstance(k1.getValue(Locale.JAPANESE)))));
+        StringPoolReport report = sut.getStringPoolReport();
+        assertThat(report.getTotalCount(), is(6L));
+        assertThat(report.getUniqueCount(), is(5L));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getConstantTemplateCount()}のテスト。
+     * <p/>
+     * 引数の埋め込み位置がない文字列を定数のテンプレートとし、フォーマット時はエスケープを解除済みの文字列をそのまま返すこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetConstantTemplateCount() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        write(new File(directory, "messages.properties"),
+                "label=ユーザ名\nquoted=It''s ok\nescaped='{0}'は固定\nrequired={0}を入力してください。\nformatted={0,number,#}件\n");
+        write(new File(directory, "messages_en.properties"), "label=User name\nrequired=Enter {0}.\n");
+        sut.setDirectory(directory.toURI().toString());
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en"));
+        sut.setFallbackLocales(Collections.<String>emptyList());
+        assertThat(sut.getConstantTemplateCount(), is(0L));
+
+        BasicStringResource label = (BasicStringResource) sut.getValue("label");
+        assertThat(sut.getConstantTemplateCount(), is(4L));
+
+        assertThat(label.format(Locale.JAPANESE), is(sameInstance(label.getValue(Locale.JAPANESE))));
+        assertThat(label.format(Locale.ENGLISH, "ignored"), is(sameInstance(label.getValue(Locale.ENGLISH))));
+        assertThat(label.formatTo(new StringBuilder("["), Locale.JAPANESE).append(']').toString(), is("[ユーザ名]"));
+        assertThat(label.renderTo(new StringWriter(), Locale.ENGLISH).toString(), is("User name"));
+        assertThat(((BasicStringResource) sut.getValue("quoted")).format(Locale.JAPANESE), is("It's ok"));
+        assertThat(((BasicStringResource) sut.getValue("escaped")).format(Locale.JAPANESE), is("{0}は固定"));
+        assertThat(((BasicStringResource) sut.getValue("required")).format(Locale.ENGLISH, "name"), is("Enter name."));
+        assertThat(((BasicStringResource) sut.getValue("formatted")).format(Locale.JAPANESE, 1234), is("1234件"));
+
+        // 再ロード時は、再ロード後の文字列で数えること
+        write(new File(directory, "messages_en.properties"), "label=User name\nrequired=Required\n");
+        sut.reload();
+        assertThat(sut.getConstantTemplateCount(), is(5L));
+        assertThat(((BasicStringResource) sut.getValue("required")).format(Locale.ENGLISH, "name"), is("Required"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getConstantTemplateCount()}のテスト。
+     * <p/>
+     * 必要になった時点で読み込んだロケールの文字列も、定数のテンプレートとすること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetConstantTemplateCount_loadLocalesOnDemand() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        write(new File(directory, "messages.properties"), "k1=必須\nk2={0}は不正です。\n");
+        write(new File(directory, "messages_en.properties"), "k1=Required\nk2=Invalid\n");
+        sut.setDirectory(directory.toURI().toString());
+        sut.setDefaultLocale("ja");
+        sut.setLocales(Arrays.asList("en"));
+        sut.setFallbackLocales(Collections.<String>emptyList());
+        sut.setLoadLocalesOnDemand(true);
+
+        BasicStringResource k2 = (BasicStringResource) sut.getValue("k2");
+        assertThat(sut.getConstantTemplateCount(), is(1L));
+
+        assertThat(k2.format(Locale.ENGLISH, "x"), is("Invalid"));
+        assertThat(sut.getConstantTemplateCount(), is(3L));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#preload()}のテスト。
+     * <p/>
+     * バックグラウンドでロードを完了した後は、最初の取得がロードを待機しないこと。
+     * ロードを待機する場合はロックを取得するため、ロックを保持した状態で他のスレッドから取得できることで確認する。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPreload() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        writeMessages(new File(directory, "messages.properties"), 100);
+        PropertiesStringResourceLoader cold = newLoader(directory);
+        sut = newLoader(directory);
+
+        Future<Integer> preload = sut.preload();
+        assertThat(sut.preload(), is(sameInstance(preload)));
+        assertThat(preload.get(10, TimeUnit.SECONDS), is(100));
+        assertThat(sut.getLoadedLocales(), is(Collections.singletonList("ja")));
+
+        ReentrantLock loadLock = Deencapsulation.getField(sut, "loadLock");
+        loadLock.lock();
+        try {
+            for (Future<StringResource> future : getConcurrently(sut, 1)) {
+                assertThat(future.get(10, TimeUnit.SECONDS).getValue(Locale.JAPANESE), is("メッセージ0"));
+            }
+        } finally {
+            loadLock.unlock();
+        }
+
+        // ロード済みの場合は、完了したFutureを返すこと
+        assertThat(cold.getValue("m0").getValue(Locale.JAPANESE), is("メッセージ0"));
+        assertThat(cold.preload().isDone(), is(true));
+        assertThat(cold.preload().get(), is(100));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#getValue(Object)}のテスト。
+     * <p/>
+     * ロード中に取得したスレッドは、モニタでブロックされずにロードのロックで完了を待機すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue_waitDuringLoad() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        writeMessages(new File(directory, "messages.properties"), 100);
+        sut = newLoader(directory);
+
+        // ロード中の状態とするため、ロードのロックを保持する
+        ReentrantLock loadLock = Deencapsulation.getField(sut, "loadLock");
+        List<Future<StringResource>> futures;
+        loadLock.lock();
+        try {
+            futures = getConcurrently(sut, 8);
+            for (int i = 0; i < 1000 && loadLock.getQueueLength() < 8; i++) {
+                Thread.sleep(10);
+            }
+            assertThat(loadLock.getQueueLength(), is(8));
+            for (Future<StringResource> future : futures) {
+                assertThat(future.isDone(), is(false));
+            }
+        } finally {
+            loadLock.unlock();
+        }
+        for (Future<StringResource> future : futures) {
+            assertThat(future.get(10, TimeUnit.SECONDS).getValue(Locale.JAPANESE), is("メッセージ0"));
+        }
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#setBootstrapFileName(String)}のテスト。
+     * <p/>
+     * ロード中は、最小限のメッセージに定義されたメッセージを待機せずに取得できること。
+     * ロード完了後は、ロードした文字列リソースを取得できること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPreload_bootstrap() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        writeMessages(new File(directory, "messages.properties"), 100);
+        write(new File(directory, "messages-bootstrap.properties"), "m0=起動中\n");
+        write(new File(directory, "messages-bootstrap_en.properties"), "m0=starting\n");
+        sut = newLoader(directory);
+        sut.setLocales(Collections.singletonList("en"));
+        write(new File(directory, "messages_en.properties"), "m0=message0\n");
+        sut.setBootstrapFileName("messages-bootstrap");
+
+        // ロードが完了しないよう、ロードのロックを保持した状態で開始する
+        ReentrantLock loadLock = Deencapsulation.getField(sut, "loadLock");
+        Future<Integer> preload;
+        loadLock.lock();
+        try {
+            preload = sut.preload();
+            // ロードが完了するまでは、最小限のメッセージから取得する
+            StringResource resource = sut.getValue("m0");
+            assertThat(resource.getValue(Locale.JAPANESE), is("起動中"));
+            assertThat(resource.getValue(Locale.ENGLISH), is("starting"));
+            assertThat(preload.isDone(), is(false));
+        } finally {
+            loadLock.unlock();
+        }
+
+        assertThat(preload.get(10, TimeUnit.SECONDS), is(100));
+        // 最小限のメッセージに定義されていないメッセージと、ロード後のメッセージを取得できること
+        assertThat(sut.getValue("m1").getValue(Locale.JAPANESE), is("メッセージ1"));
+        assertThat(sut.getValue("m0").getValue(Locale.JAPANESE), is("メッセージ0"));
+        assertThat(sut.getValue("m0").getValue(Locale.ENGLISH), is("message0"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#preload()}のテスト。
+     * <p/>
+     * 同時に呼び出した場合も、ロードを1つだけ開始し、全てのスレッドに同じ{@link Future}を返すこと。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPreload_concurrent() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        writeMessages(new File(directory, "messages.properties"), 50000);
+        sut = newLoader(directory);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Future<Integer>>> futures = new ArrayList<Future<Future<Integer>>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<Future<Integer>>() {
+                    @Override
+                    public Future<Integer> call() throws Exception {
+                        start.await();
+                        return sut.preload();
+                    }
+                }));
+            }
+            start.countDown();
+            Future<Integer> first = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Future<Integer>> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS), is(sameInstance(first)));
+            }
+            assertThat(first.get(10, TimeUnit.SECONDS), is(50000));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#preload()}のテスト。
+     * <p/>
+     * ロード中に使用する最小限のメッセージのロードに失敗した場合は例外を送出し、再度呼び出した場合にロードを開始すること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPreload_bootstrapFailed() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        writeMessages(new File(directory, "messages.properties"), 10);
+        sut = newLoader(directory);
+        sut.setBootstrapFileName("messages-bootstrap");
+        try {
+            sut.preload();
+            fail("例外が発生するはず");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().contains("messages-bootstrap"), is(true));
+        }
+
+        write(new File(directory, "messages-bootstrap.properties"), "m0=起動中\n");
+        assertThat(sut.preload().get(10, TimeUnit.SECONDS), is(10));
+        assertThat(sut.getValue("m0").getValue(Locale.JAPANESE), is("メッセージ0"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceLoader#initialize()}のテスト。
+     * <p/>
+     * 設定した場合のみ、初期化時にバックグラウンドでロードを開始すること。
+     * ロードに失敗した場合は{@link Future#get()}で例外を送出し、次の取得時に再度ロードすること。
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInitialize_preloadOnInitialize() throws Exception {
+        File directory = temporaryFolder.getRoot();
+        sut = newLoader(directory);
+        sut.initialize();
+        assertThat(sut.getLoadedLocales().isEmpty(), is(true));
+
+        sut.setPreloadOnInitialize(true);
+        sut.initialize();
+        try {
+            sut.preload().get(10, TimeUnit.SECONDS);
+            fail("例外が発生するはず");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof IllegalArgumentException, is(true));
+        }
+
+        writeMessages(new File(directory, "messages.properties"), 10);
+        assertThat(sut.getValue("m9").getValue(Locale.JAPANESE), is("メッセージ9"));
+        // 失敗したロードは保持せず、ロード済みの場合は完了したFutureを返すこと
+        assertThat(sut.preload().get(10, TimeUnit.SECONDS), is(10));
+    }
+
+    /**
+     * 指定したディレクトリのプロパティファイルを読み込むローダを生成する。
+     *
+     * @param directory ディレクトリ
+     * @return ローダ
+     */
+    private static PropertiesStringResourceLoader newLoader(File directory) {
+        PropertiesStringResourceLoader loader = new PropertiesStringResourceLoader();
+        loader.setDirectory(directory.toURI().toString());
+        loader.setDefaultLocale("ja");
+        loader.setFallbackLocales(Collections.<String>emptyList());
+        return loader;
+    }
+
+    /**
+     * 複数のスレッドから、最初の文字列リソースの取得を開始する。
+     * <p/>
+     * 取得の完了は待機しない。
+     *
+     * @param loader ローダ
+     * @param threadCount スレッド数
+     * @return 取得した文字列リソース(スレッドごと)
+     */
+    private static List<Future<StringResource>> getConcurrently(final PropertiesStringResourceLoader loader,
+            int threadCount) {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<StringResource>> futures = new ArrayList<Future<StringResource>>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(new Callable<StringResource>() {
+                    @Override
+                    public StringResource call() throws Exception {
+                        return loader.getValue("m0");
+                    }
+                }));
+            }
+            return futures;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 文字列リソース一覧のみを保持する、ロード済みの状態を生成する。
+     *
+     * @param resources 文字列リソース一覧
+     * @return ロード済みの状態
+     */
+    private static PropertiesStringResourceLoader.LoadedState loadedState(Map<String, StringResource> resources) {
+        return new PropertiesStringResourceLoader.LoadedState(resources, Collections.<String, String>emptyMap(),
+                null, null, null, null, new AtomicLong());
+    }
+
+    /**
+     * 指定した件数のメッセージを定義したプロパティファイルを書き込む。
+     *
+     * @param file ファイル
+     * @param count メッセージの件数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static void writeMessages(File file, int count) throws IOException {
+        StringBuilder content = new StringBuilder(count * 20);
+        for (int i = 0; i < count; i++) {
+            content.append('m').append(i).append("=メッセージ").append(i).append('\n');
+        }
+        write(file, content.toString());
+    }
+
+    /**
+     * ファイルに文字列を書き込む。
+     *
+     * @param file ファイル
+     * @param content 文字列
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static void write(File file, String content) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
     }
-}
\ No newline at end of file
+}
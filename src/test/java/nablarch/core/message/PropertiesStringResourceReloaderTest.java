@@ -0,0 +1,198 @@
+package nablarch.core.message;
+
+import nablarch.core.cache.BasicStaticDataCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link PropertiesStringResourceReloader}のテストクラス。
+ */
+public class PropertiesStringResourceReloaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** ローダ */
+    private PropertiesStringResourceLoader loader;
+
+    /** テスト対象クラス */
+    private PropertiesStringResourceReloader sut;
+
+    /** デフォルトのプロパティファイル */
+    private File defaultFile;
+
+    /** 英語のプロパティファイル */
+    private File enFile;
+
+    @Before
+    public void setUp() throws Exception {
+        defaultFile = new File(temporaryFolder.getRoot(), "messages.properties");
+        enFile = new File(temporaryFolder.getRoot(), "messages_en.properties");
+        write(defaultFile, "reload.key=変更前\n");
+        write(enFile, "reload.key=before\n");
+
+        loader = new PropertiesStringResourceLoader();
+        loader.setDirectory(temporaryFolder.getRoot().toURI().toString());
+        loader.setDefaultLocale("ja");
+        loader.setLocales(Arrays.asList("en"));
+
+        sut = new PropertiesStringResourceReloader();
+        sut.setLoader(loader);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sut.stop();
+    }
+
+    /**
+     * {@link PropertiesStringResourceReloader#reloadIfModified()}のテスト。
+     * プロパティファイルが変更されていない場合は再ロードしないこと。
+     */
+    @Test
+    public void testReloadIfModified_notModified() throws Exception {
+        StringResource before = loader.getValue("reload.key");
+
+        assertThat(sut.reloadIfModified(), is(false));
+        assertThat(loader.getValue("reload.key"), is(sameInstance(before)));
+        assertThat(loader.getReloadCount(), is(0L));
+    }
+
+    /**
+     * {@link PropertiesStringResourceReloader#reloadIfModified()}のテスト。
+     * プロパティファイルが変更された場合は再ロードし、文字列リソース一覧が入れ替わること。
+     */
+    @Test
+    public void testReloadIfModified_modified() throws Exception {
+        StringResource before = loader.getValue("reload.key");
+
+        write(enFile, "reload.key=after\nadded.key=added\n");
+        assertThat(loader.isModified(), is(true));
+        assertThat(sut.reloadIfModified(), is(true));
+
+        StringResource after = loader.getValue("reload.key");
+        assertThat(after, is(not(sameInstance(before))));
+        assertThat(after.getValue(Locale.ENGLISH), is("after"));
+        assertThat(after.getValue(Locale.JAPANESE), is("変更前"));
+        assertThat(loader.getValue("added.key").getValue(Locale.ENGLISH), is("added"));
+        // 再ロード前に取得した文字列リソースは変更されないこと
+        assertThat(before.getValue(Locale.ENGLISH), is("before"));
+
+        assertThat(loader.isModified(), is(false));
+        assertThat(loader.getReloadCount(), is(1L));
+        assertThat(loader.getReloadFailureCount(), is(0L));
+    }
+
+    /**
+     * {@link PropertiesStringResourceReloader#reloadIfModified()}のテスト。
+     * 再ロードに失敗した場合は、再ロード前の文字列リソースを使用し続けること。
+     */
+    @Test
+    public void testReloadIfModified_failed() throws Exception {
+        StringResource before = loader.getValue("reload.key");
+
+        assertThat(enFile.delete(), is(true));
+        assertThat(sut.reloadIfModified(), is(false));
+
+        assertThat(loader.getValue("reload.key"), is(sameInstance(before)));
+        assertThat(loader.getReloadCount(), is(0L));
+        assertThat(loader.getReloadFailureCount(), is(1L));
+    }
+
+    /**
+     * {@link PropertiesStringResourceReloader#reloadIfModified()}のテスト。
+     * 文字列リソースのキャッシュが設定されている場合は、再ロード後にキャッシュがリフレッシュされること。
+     * {@link StringResourceHolder}が設定されている場合は、否定キャッシュが破棄されること。
+     */
+    @Test
+    public void testReloadIfModified_refreshCache() throws Exception {
+        BasicStaticDataCache<StringResource> cache = new BasicStaticDataCache<StringResource>();
+        cache.setLoader(loader);
+        cache.initialize();
+        sut.setStringResourceCache(cache);
+        StringResourceHolder holder = new StringResourceHolder();
+        holder.setStringResourceCache(cache);
+        sut.setStringResourceHolder(holder);
+        assertThat(cache.getValue("reload.key").getValue(Locale.ENGLISH), is("before"));
+        assertThat(holder.find("added.key"), is(nullValue()));
+
+        write(enFile, "reload.key=after\nadded.key=added\n");
+        assertThat(sut.reloadIfModified(), is(true));
+
+        assertThat(cache.getValue("reload.key").getValue(Locale.ENGLISH), is("after"));
+        // 否定キャッシュが破棄され、追加されたメッセージを取得できること
+        assertThat(holder.find("added.key").getValue(Locale.ENGLISH), is("added"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceReloader#initialize()}のテスト。
+     * 起動したスレッドが変更を検知して再ロードすること。
+     */
+    @Test
+    public void testInitialize() throws Exception {
+        loader.getValue("reload.key");
+        sut.setCheckInterval(20L);
+        sut.initialize();
+
+        write(defaultFile, "reload.key=変更後\n");
+        long timeout = System.currentTimeMillis() + 5000L;
+        while (loader.getReloadCount() == 0L && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10L);
+        }
+
+        assertThat(loader.getReloadCount(), is(1L));
+        assertThat(loader.getValue("reload.key").getValue(Locale.JAPANESE), is("変更後"));
+    }
+
+    /**
+     * {@link PropertiesStringResourceReloader#initialize()}のテスト。
+     * ローダが設定されていない場合は例外が発生すること。
+     */
+    @Test
+    public void testInitialize_loaderNotSet() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("loader was not set.");
+        new PropertiesStringResourceReloader().initialize();
+    }
+
+    /**
+     * ファイルを書き込む。
+     * <p/>
+     * ファイルシステムの更新日時の精度に依存しないよう、更新日時を進める。
+     *
+     * @param file ファイル
+     * @param content 内容
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static void write(File file, String content) throws IOException {
+        final long lastModified = file.exists() ? file.lastModified() : 0L;
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        file.setLastModified(Math.max(System.currentTimeMillis(), lastModified + 2000L));
+    }
+}
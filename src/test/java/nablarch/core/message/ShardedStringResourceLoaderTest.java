@@ -0,0 +1,222 @@
+package nablarch.core.message;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link ShardedStringResourceLoader}と{@link PrefixTrie}のテストクラス。
+ */
+public class ShardedStringResourceLoaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /** テスト対象クラス */
+    private ShardedStringResourceLoader sut;
+
+    /** "errors."のシャード */
+    private PropertiesStringResourceLoader errors;
+
+    /** "batch."のシャード */
+    private PropertiesStringResourceLoader batch;
+
+    /** "screen."のシャード */
+    private PropertiesStringResourceLoader screen;
+
+    /** "screen.admin."のシャード */
+    private PropertiesStringResourceLoader screenAdmin;
+
+    /** デフォルトのローダ */
+    private PropertiesStringResourceLoader messages;
+
+    @Before
+    public void setUp() throws Exception {
+        File directory = temporaryFolder.newFolder("catalogs");
+        write(new File(directory, "errors.properties"), "errors.required=必須です。\nerrors.length=長すぎます。\n");
+        write(new File(directory, "errors_en.properties"), "errors.required=required.\n");
+        write(new File(directory, "batch.properties"), "batch.started=開始しました。\n");
+        write(new File(directory, "screen.properties"),
+                "screen.title=画面\nscreen.admin.title=シャード外\nbatch.hidden=シャード外\n");
+        write(new File(directory, "screen_admin.properties"), "screen.admin.title=管理画面\n");
+        write(new File(directory, "messages.properties"), "info.saved=保存しました。\nerrors.hidden=シャード外\n");
+
+        errors = newLoader(directory, "errors");
+        errors.setLocales(Arrays.asList("en"));
+        batch = newLoader(directory, "batch");
+        screen = newLoader(directory, "screen");
+        screenAdmin = newLoader(directory, "screen_admin");
+        messages = newLoader(directory, "messages");
+
+        Map<String, PropertiesStringResourceLoader> shards = new LinkedHashMap<String, PropertiesStringResourceLoader>();
+        shards.put("errors.", errors);
+        shards.put("batch.", batch);
+        shards.put("screen.", screen);
+        shards.put("screen.admin.", screenAdmin);
+        sut = new ShardedStringResourceLoader();
+        sut.setShards(shards);
+        sut.setDefaultLoader(messages);
+    }
+
+    /**
+     * {@link ShardedStringResourceLoader#getValue(Object)}のテスト。
+     * 最長一致した接頭辞のシャードから取得し、使用したシャードのみがロードされること。
+     */
+    @Test
+    public void testGetValue() {
+        StringResource required = sut.getValue("errors.required");
+        assertThat(required.getValue(Locale.JAPANESE), is("必須です。"));
+        assertThat(required.getValue(Locale.ENGLISH), is("required."));
+        assertThat(sut.getUsedPrefixes(), is(Arrays.asList("errors.")));
+        assertThat(errors.getLoadedLocales().isEmpty(), is(false));
+        assertThat(batch.getLoadedLocales().isEmpty(), is(true));
+        assertThat(screen.getLoadedLocales().isEmpty(), is(true));
+        assertThat(messages.getLoadedLocales().isEmpty(), is(true));
+
+        assertThat(sut.getValue("screen.admin.title").getValue(Locale.JAPANESE), is("管理画面"));
+        assertThat(sut.getValue("screen.title").getValue(Locale.JAPANESE), is("画面"));
+        assertThat(sut.getUsedPrefixes(), is(Arrays.asList("errors.", "screen.", "screen.admin.")));
+        assertThat(batch.getLoadedLocales().isEmpty(), is(true));
+
+        // いずれの接頭辞にも一致しないメッセージIDは、デフォルトのローダから取得する
+        assertThat(sut.getValue("info.saved").getValue(Locale.JAPANESE), is("保存しました。"));
+        assertThat(sut.getValue("errors"), is(nullValue()));
+    }
+
+    /**
+     * {@link ShardedStringResourceLoader#getValue(Object)}のテスト。
+     * 振り分け先のシャードに存在しない場合や、他のシャードのメッセージIDが定義されている場合は取得できないこと。
+     */
+    @Test
+    public void testGetValue_notFound() {
+        assertThat(sut.getValue(null), is(nullValue()));
+        assertThat(sut.getValue("errors.notFound"), is(nullValue()));
+        assertThat(sut.getValue("batch.hidden"), is(nullValue()));
+        assertThat(sut.getValue("errors.hidden"), is(nullValue()));
+
+        sut.setDefaultLoader(null);
+        assertThat(sut.getValue("info.saved"), is(nullValue()));
+    }
+
+    /**
+     * {@link ShardedStringResourceLoader#loadAll()}のテスト。
+     * 全てのシャードから、振り分けられるメッセージIDの文字列リソースのみを取得すること。
+     */
+    @Test
+    public void testLoadAll() {
+        List<String> ids = new ArrayList<String>();
+        for (StringResource resource : sut.loadAll()) {
+            ids.add(resource.getId());
+            assertThat(sut.getValue(resource.getId()), is(resource));
+        }
+        assertThat(ids, containsInAnyOrder("errors.required", "errors.length", "batch.started",
+                "screen.title", "screen.admin.title", "info.saved"));
+        assertThat(sut.getUsedPrefixes(), is(Arrays.asList("errors.", "batch.", "screen.", "screen.admin.")));
+    }
+
+    /**
+     * {@link ShardedStringResourceLoader#setShards(Map)}のテスト。
+     * ローダがnullの場合は例外を送出すること。
+     */
+    @Test
+    public void testSetShards_nullLoader() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("loader must not be null. prefix = [errors.]");
+        sut.setShards(Collections.<String, PropertiesStringResourceLoader>singletonMap("errors.", null));
+    }
+
+    /**
+     * {@link PrefixTrie#match(String)}のテスト。
+     * 最長一致した接頭辞の位置を返すこと。
+     */
+    @Test
+    public void testPrefixTrie() {
+        PrefixTrie trie = PrefixTrie.of(Arrays.asList(
+                "screen.", "errors.", "screen.admin.", "screen.a", "e", "日本.", "batch."));
+        assertThat(trie.match("screen.title"), is(0));
+        assertThat(trie.match("screen."), is(0));
+        assertThat(trie.match("screen"), is(PrefixTrie.NO_MATCH));
+        assertThat(trie.match("screen.admin.title"), is(2));
+        assertThat(trie.match("screen.admin"), is(3));
+        assertThat(trie.match("screen.b"), is(0));
+        assertThat(trie.match("errors.required"), is(1));
+        assertThat(trie.match("errors"), is(4));
+        assertThat(trie.match("日本.title"), is(5));
+        assertThat(trie.match("batch.started"), is(6));
+        assertThat(trie.match("info.saved"), is(PrefixTrie.NO_MATCH));
+        assertThat(trie.match(""), is(PrefixTrie.NO_MATCH));
+
+        // 分岐のない経路は1つの節にまとめる(根、"e"、"errors."、"screen."、"screen.a"、"screen.admin."、"日本."、"batch.")
+        assertThat(trie.getNodeCount(), is(8));
+
+        // 空文字列の接頭辞は全てのメッセージIDに一致する
+        PrefixTrie all = PrefixTrie.of(Arrays.asList("", "a"));
+        assertThat(all.match("b"), is(0));
+        assertThat(all.match("ab"), is(1));
+        assertThat(PrefixTrie.of(Collections.<String>emptyList()).match("a"), is(PrefixTrie.NO_MATCH));
+    }
+
+    /**
+     * {@link PrefixTrie#of(List)}のテスト。
+     * 接頭辞が重複している場合は例外を送出すること。
+     */
+    @Test
+    public void testPrefixTrie_duplicate() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("duplicate prefix was specified. prefix = [errors.]");
+        PrefixTrie.of(Arrays.asList("errors.", "batch.", "errors."));
+    }
+
+    /**
+     * カタログのローダを生成する。
+     *
+     * @param directory ディレクトリ
+     * @param fileName プロパティファイル名
+     * @return ローダ
+     */
+    private static PropertiesStringResourceLoader newLoader(File directory, String fileName) {
+        PropertiesStringResourceLoader loader = new PropertiesStringResourceLoader();
+        loader.setDirectory(directory.toURI().toString());
+        loader.setFileName(fileName);
+        loader.setDefaultLocale("ja");
+        return loader;
+    }
+
+    /**
+     * ファイルに書き込む。
+     *
+     * @param file ファイル
+     * @param content 内容
+     * @throws Exception
+     */
+    private static void write(File file, String content) throws Exception {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package nablarch.core.message;
 
 import nablarch.core.cache.BasicStaticDataCache;
+import nablarch.core.cache.StaticDataCache;
 import nablarch.core.db.transaction.SimpleDbTransactionManager;
 import nablarch.core.repository.SystemRepository;
 import org.junit.AfterClass;
@@ -13,10 +14,20 @@ import nablarch.test.support.db.helper.DatabaseTestRunner;
 import nablarch.test.support.db.helper.VariousDbTestHelper;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.matchers.JUnitMatchers.containsString;
 
@@ -225,4 +236,241 @@ public class StringResourceHolderTest {
         }
     }
 
+    /**
+     * {@link StringResourceHolder#find(String)}のテスト。
+     * 存在しない場合や、メッセージIDがnullか空文字列の場合は例外を送出せずにnullを返すこと。
+     */
+    @Test
+    public void testFind() throws Exception {
+        StringResourceHolder sut = createHolder(new CountingLoader());
+
+        assertEquals("デフォルト", sut.find("default.key").getValue(Locale.getDefault()));
+        assertNull(sut.find("notFound.key"));
+        assertNull(sut.find(null));
+        assertNull(sut.find(""));
+    }
+
+    /**
+     * {@link StringResourceHolder#find(String)}のテスト。
+     * 存在しなかったメッセージIDは否定キャッシュに保持し、2回目以降はローダを参照しないこと。
+     */
+    @Test
+    public void testFind_negativeCache() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        StringResourceHolder sut = createHolder(loader);
+        sut.setNegativeCacheSize(1000);
+
+        assertNull(sut.find("notFound.key"));
+        assertEquals(1, loader.count("notFound.key"));
+        for (int i = 0; i < 10; i++) {
+            assertNull(sut.find("notFound.key"));
+            try {
+                sut.get("notFound.key");
+                fail("例外が発生するはず");
+            } catch (MessageNotFoundException e) {
+                assertThat(e.getMessage(), containsString("message id = notFound.key"));
+            }
+        }
+        assertEquals(1, loader.count("notFound.key"));
+
+        // 否定キャッシュを破棄した場合は、再度ローダを参照すること
+        sut.clearNegativeCache();
+        assertNull(sut.find("notFound.key"));
+        assertEquals(2, loader.count("notFound.key"));
+    }
+
+    /**
+     * {@link StringResourceHolder#get(String)}と{@link StringResourceHolder#find(String)}のテスト。
+     * デフォルトは否定キャッシュを使用せず、存在しなかったメッセージIDも毎回ローダを参照すること。
+     */
+    @Test
+    public void testFind_negativeCacheDisabledByDefault() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        StringResourceHolder sut = createHolder(loader);
+
+        assertNull(sut.find("notFound.key"));
+        assertNull(sut.find("notFound.key"));
+        try {
+            sut.get("notFound.key");
+            fail("例外が発生するはず");
+        } catch (MessageNotFoundException e) {
+            assertThat(e.getMessage(), containsString("message id = notFound.key"));
+        }
+        assertEquals(3, loader.count("notFound.key"));
+    }
+
+    /**
+     * {@link StringResourceHolder#refresh()}のテスト。
+     * 静的データキャッシュをリフレッシュし、否定キャッシュを破棄すること。
+     */
+    @Test
+    public void testRefresh() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        StringResourceHolder sut = createHolder(loader);
+        sut.setNegativeCacheSize(1000);
+
+        assertEquals("デフォルト", sut.get("default.key").getValue(Locale.getDefault()));
+        assertNull(sut.find("notFound.key"));
+        assertNull(sut.find("notFound.key"));
+        assertEquals(1, loader.count("default.key"));
+        assertEquals(1, loader.count("notFound.key"));
+
+        sut.refresh();
+        assertEquals("デフォルト", sut.get("default.key").getValue(Locale.getDefault()));
+        assertNull(sut.find("notFound.key"));
+        assertEquals(2, loader.count("default.key"));
+        assertEquals(2, loader.count("notFound.key"));
+    }
+
+    /**
+     * {@link StringResourceHolder#refresh()}のテスト。
+     * リフレッシュ前の静的データキャッシュで存在しないと判定した取得が、リフレッシュの完了後に否定キャッシュに追加しないこと。
+     */
+    @Test
+    public void testRefresh_duringLookup() throws Exception {
+        final StringResourceHolder sut = new StringResourceHolder();
+        final AtomicBoolean added = new AtomicBoolean();
+        sut.setStringResourceCache(new StaticDataCache<StringResource>() {
+            @Override
+            public StringResource getValue(Object id) {
+                if (added.get()) {
+                    return new BasicStringResource((String) id, Collections.singletonMap("ja", "追加"));
+                }
+                // リフレッシュ前の内容で存在しないと判定した後、否定キャッシュに追加する前にリフレッシュが完了する
+                added.set(true);
+                sut.refresh();
+                return null;
+            }
+
+            @Override
+            public List<StringResource> getValues(String indexName, Object key) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void refresh() {
+            }
+        });
+        sut.setNegativeCacheSize(1000);
+
+        assertNull(sut.find("added.key"));
+        assertEquals("追加", sut.get("added.key").getValue(Locale.JAPANESE));
+    }
+
+    /**
+     * {@link StringResourceHolder#find(String)}のテスト。
+     * 否定キャッシュが上限件数に達した場合は全て破棄すること。上限件数に0を設定した場合は否定キャッシュを使用しないこと。
+     */
+    @Test
+    public void testFind_negativeCacheSize() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        StringResourceHolder sut = createHolder(loader);
+        sut.setNegativeCacheSize(2);
+
+        sut.find("notFound1");
+        sut.find("notFound2");
+        sut.find("notFound1");
+        assertEquals(1, loader.count("notFound1"));
+        sut.find("notFound3");
+        sut.find("notFound1");
+        assertEquals(2, loader.count("notFound1"));
+
+        sut.setNegativeCacheSize(0);
+        sut.clearNegativeCache();
+        sut.find("notFound4");
+        sut.find("notFound4");
+        assertEquals(2, loader.count("notFound4"));
+    }
+
+    /**
+     * {@link StringResourceHolder#getOrDefault(String, String)}のテスト。
+     */
+    @Test
+    public void testGetOrDefault() throws Exception {
+        StringResourceHolder sut = createHolder(new CountingLoader());
+
+        assertEquals("default.key", sut.getOrDefault("default.key", "load.all.key").getId());
+        assertEquals("load.all.key", sut.getOrDefault("notFound.key", "load.all.key").getId());
+        assertEquals("load.all.key", sut.getOrDefault(null, "load.all.key").getId());
+        try {
+            sut.getOrDefault("notFound.key", "notFound.default");
+            fail("例外が発生するはず");
+        } catch (MessageNotFoundException e) {
+            assertThat(e.getMessage(), containsString("message id = notFound.default"));
+        }
+    }
+
+    /**
+     * {@link StringResourceHolder#getAll(java.util.Collection)}のテスト。
+     * メッセージIDと同じ順に取得でき、重複するメッセージIDは1回だけ取得すること。
+     * 存在しないメッセージIDがあっても例外とならず、重複を除いて通知されること。
+     */
+    @Test
+    public void testGetAll() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        StringResourceHolder sut = createHolder(loader);
+
+        StringResourceBatch batch = sut.getAll(Arrays.asList(
+                "default.key", "notFound1", "load.all.key", "default.key", "notFound2", "notFound1", null));
+
+        assertEquals(7, batch.size());
+        assertEquals("default.key", batch.getResource(0).getId());
+        assertNull(batch.getResource(1));
+        assertEquals("load.all.key", batch.getResource(2).getId());
+        assertSame(batch.getResource(0), batch.getResource(3));
+        assertNull(batch.getResource(4));
+        assertNull(batch.getResource(5));
+        assertNull(batch.getResource(6));
+        assertEquals("notFound2", batch.getMessageId(4));
+        assertEquals(Arrays.asList("notFound1", "notFound2", null), batch.getMissingIds());
+        assertTrue(batch.hasMissing());
+        assertEquals(7, batch.getResources().size());
+        assertEquals(1, loader.count("default.key"));
+        assertEquals(1, loader.count("notFound1"));
+
+        batch = sut.getAll(Collections.<String>emptyList());
+        assertEquals(0, batch.size());
+        assertFalse(batch.hasMissing());
+    }
+
+    /**
+     * プロパティファイルから文字列リソースを取得する{@link StringResourceHolder}を生成する。
+     *
+     * @param loader ローダ
+     * @return {@link StringResourceHolder}
+     */
+    private static StringResourceHolder createHolder(CountingLoader loader) {
+        BasicStaticDataCache<StringResource> cache = new BasicStaticDataCache<StringResource>();
+        cache.setLoader(loader);
+        cache.initialize();
+        StringResourceHolder holder = new StringResourceHolder();
+        holder.setStringResourceCache(cache);
+        return holder;
+    }
+
+    /**
+     * メッセージIDごとの参照回数を数えるローダ。
+     */
+    private static class CountingLoader extends PropertiesStringResourceLoader {
+
+        /** メッセージIDごとの参照回数 */
+        private final Map<Object, Integer> counts = new HashMap<Object, Integer>();
+
+        @Override
+        public synchronized StringResource getValue(Object key) {
+            counts.put(key, count(key) + 1);
+            return super.getValue(key);
+        }
+
+        /**
+         * 参照回数を取得する。
+         *
+         * @param key メッセージID
+         * @return 参照回数
+         */
+        synchronized int count(Object key) {
+            Integer count = counts.get(key);
+            return count == null ? 0 : count;
+        }
+    }
 }